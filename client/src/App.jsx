@@ -1,4 +1,4 @@
-import { useState, useEffect } from "react";
+import { useState, useEffect, useRef } from "react";
 import { BalanceCard } from "./components/BalanceCard";
 import { ExpenseForm } from "./components/ExpenseForm";
 import { ExpenseList } from "./components/ExpenseList";
@@ -8,23 +8,53 @@ import { ThemeToggle } from "./components/ThemeToggle";
 import { Wallet, Loader2 } from "lucide-react";
 import * as api from "./api/transactions";
 
+const RECENT_LIMIT = 50;
+
+// Newest first, the order the server pages in
+const byDateDesc = (a, b) => new Date(b.date) - new Date(a.date) || b.id - a.id;
+
+// Applies change-feed entries to the recent list. Only the changed rows are looked at, and
+// a row is added only if it falls among the RECENT_LIMIT newest.
+const applyChanges = (list, changes) => {
+  const latest = new Map(changes.map(change => [change.id, change]));
+  const kept = list.filter(row => !latest.has(row.id));
+  const oldest = list.length >= RECENT_LIMIT ? list[list.length - 1] : null;
+  for (const change of latest.values()) {
+    if (change.op === "upsert" && (!oldest || byDateDesc(change.transaction, oldest) <= 0)) {
+      kept.push(change.transaction);
+    }
+  }
+  return kept.sort(byDateDesc).slice(0, RECENT_LIMIT);
+};
+
 export default function App() {
   const [netWorth, setNetWorth] = useState(0);
   const [expenses, setExpenses] = useState([]);
+  const [summary, setSummary] = useState({ expense: 0, count: 0, categories: [] });
   const [editingExpense, setEditingExpense] = useState(null);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState(null);
+  const stopSync = useRef(null);
 
   useEffect(() => {
     fetchExpenses();
+    return () => stopSync.current?.();
   }, []);
 
   const fetchExpenses = async () => {
     try {
       setLoading(true);
-      const data = await api.getTransactions();
-      setExpenses(data);
+      stopSync.current?.();
+      // Taken before loading, so changes made while the page loads are replayed on top of it
+      const { version } = await api.getChanges();
+      const [page, totals] = await Promise.all([
+        api.getTransactionsPage({ limit: RECENT_LIMIT }),
+        api.getSummary(),
+      ]);
+      setExpenses(page.items);
+      setSummary(totals);
       setError(null);
+      stopSync.current = api.subscribeChanges(version, handleChanges, fetchExpenses);
     } catch (err) {
       setError("Failed to fetch expenses, check Backend Server/MongoDB Server");
       console.error(err);
@@ -33,13 +63,27 @@ export default function App() {
     }
   };
 
-  const totalExpenses = expenses.reduce((sum, expense) => sum + expense.amount, 0);
+  const refreshSummary = async () => {
+    try {
+      setSummary(await api.getSummary());
+    } catch (err) {
+      console.error("Error refreshing summary:", err);
+    }
+  };
+
+  // Changes from any client, this one included, arrive here
+  const handleChanges = ({ changes }) => {
+    setExpenses(current => applyChanges(current, changes));
+    refreshSummary();
+  };
+
+  const totalExpenses = summary.expense;
   const currentBalance = netWorth - totalExpenses;
 
   const handleAddExpense = async (expense) => {
     try {
       const data = await api.createTransaction(expense);
-      setExpenses([{ ...data, id: data._id }, ...expenses]);
+      setExpenses(current => applyChanges(current, [{ op: "upsert", id: data.id, transaction: data }]));
     } catch (err) {
       console.error("Error adding expense:", err);
       alert("Failed to add expense");
@@ -49,9 +93,7 @@ export default function App() {
   const handleUpdateExpense = async (updatedExpense) => {
     try {
       const data = await api.updateTransaction(updatedExpense.id, updatedExpense);
-      setExpenses(expenses.map(exp =>
-        exp.id === updatedExpense.id ? { ...data, id: data._id } : exp
-      ));
+      setExpenses(current => applyChanges(current, [{ op: "upsert", id: data.id, transaction: data }]));
       setEditingExpense(null);
     } catch (err) {
       console.error("Error updating expense:", err);
@@ -63,7 +105,7 @@ export default function App() {
     if (!window.confirm("Are you sure you want to delete this expense?")) return;
     try {
       await api.deleteTransaction(id);
-      setExpenses(expenses.filter(exp => exp.id !== id));
+      setExpenses(current => applyChanges(current, [{ op: "delete", id }]));
     } catch (err) {
       console.error("Error deleting expense:", err);
       alert("Failed to delete expense");
@@ -128,9 +170,10 @@ export default function App() {
                 </div>
               ) : (
                 <>
-                  <ExpenseChart expenses={expenses} />
+                  <ExpenseChart categories={summary.categories} />
                   <ExpenseList
                     expenses={expenses}
+                    totalCount={summary.count}
                     onEditExpense={handleEditExpense}
                     onDeleteExpense={handleDeleteExpense}
                   />
@@ -1,7 +1,23 @@
 import apiClient from './client';
 
-export const getTransactions = async () => {
-  const response = await apiClient.get('/transactions');
+export const getTransactionsPage = async (params = {}) => {
+  const response = await apiClient.get('/transactions', { params });
+  return { items: response.data, next: response.headers['x-next-cursor'] || null };
+};
+
+export const getTransactions = async (params = {}) => {
+  const all = [];
+  let cursor;
+  do {
+    const page = await getTransactionsPage({ limit: 500, ...params, cursor });
+    all.push(...page.items);
+    cursor = page.next;
+  } while (cursor);
+  return all;
+};
+
+export const getSummary = async (params = {}) => {
+  const response = await apiClient.get('/transactions/summary', { params });
   return response.data;
 };
 
@@ -19,3 +35,22 @@ export const deleteTransaction = async (id) => {
   const response = await apiClient.delete(`/transactions/${id}`);
   return response.data;
 };
+
+// Without `since` this only returns the current version, the starting point for a sync
+export const getChanges = async (since, params = {}) => {
+  const response = await apiClient.get('/transactions/changes', { params: { ...params, since } });
+  return response.data;
+};
+
+// Streams { version, changes } batches after `since`; EventSource reconnects on its own and
+// resumes from the last batch it saw. onResync means the server no longer has those changes.
+export const subscribeChanges = (since, onChanges, onResync) => {
+  const url = `${apiClient.defaults.baseURL}/transactions/changes/stream?since=${encodeURIComponent(since)}`;
+  const source = new EventSource(url);
+  source.addEventListener('changes', (event) => onChanges(JSON.parse(event.data)));
+  source.addEventListener('resync', () => {
+    source.close();
+    onResync();
+  });
+  return () => source.close();
+};
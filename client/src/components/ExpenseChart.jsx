@@ -15,26 +15,21 @@ const CATEGORY_COLORS = {
   Other: "#6b7280"
 };
 
-export function ExpenseChart({ expenses }) {
-  const categoryData = expenses.reduce((acc, expense) => {
-    const existing = acc.find(item => item.category === expense.category);
-    if (existing) {
-      existing.value += expense.amount;
-    } else {
-      acc.push({
-        category: expense.category,
-        value: expense.amount,
-        color: CATEGORY_COLORS[expense.category] || CATEGORY_COLORS.Other
-      });
-    }
-    return acc;
-  }, []);
+export function ExpenseChart({ categories }) {
+  // Per-category sums come pre-aggregated from /transactions/summary
+  const categoryData = categories
+    .filter(item => item.type === "expense")
+    .map(item => ({
+      category: item.category,
+      value: item.total,
+      color: CATEGORY_COLORS[item.category] || CATEGORY_COLORS.Other
+    }));
 
   categoryData.sort((a, b) => b.value - a.value);
 
   const totalAmount = categoryData.reduce((sum, item) => sum + item.value, 0);
 
-  if (expenses.length === 0) {
+  if (categoryData.length === 0) {
     return (
       <EmptyState
         icon={TrendingUp}
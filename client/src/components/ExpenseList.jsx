@@ -2,7 +2,7 @@ import { Tag } from "lucide-react";
 import { EmptyState } from "./EmptyState";
 import { ExpenseItem } from "./ExpenseItem";
 
-export function ExpenseList({ expenses, onEditExpense, onDeleteExpense }) {
+export function ExpenseList({ expenses, totalCount = expenses.length, onEditExpense, onDeleteExpense }) {
   if (expenses.length === 0) {
     return (
       <EmptyState
@@ -18,7 +18,7 @@ export function ExpenseList({ expenses, onEditExpense, onDeleteExpense }) {
       <div className="p-6 border-b border-gray-200 dark:border-gray-700">
         <h2 className="text-xl font-bold text-gray-900 dark:text-white">Recent Expenses</h2>
         <p className="text-sm text-gray-600 dark:text-gray-400 mt-1">
-          {expenses.length} {expenses.length === 1 ? 'expense' : 'expenses'} recorded
+          {totalCount} {totalCount === 1 ? 'expense' : 'expenses'} recorded
         </p>
       </div>
 
@@ -0,0 +1,97 @@
+package org.example.bench;
+
+import org.example.analytics.TransactionColumns;
+import org.example.model.RollingSeries;
+import org.example.model.TopEntry;
+import org.example.model.Transaction;
+import org.example.model.TransactionFilter;
+import org.example.model.TrendPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Fork-join scans over TransactionColumns against the same month trend computed row by row
+// over Transaction objects, for rows spread over five years
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class AnalyticsBenchmark {
+
+    @Param({"1000000"})
+    int rows;
+
+    private TransactionColumns columns;
+    private List<Transaction> objects;
+    private final TransactionFilter noFilter = new TransactionFilter();
+    private final TransactionFilter expenses = new TransactionFilter();
+
+    @Setup
+    public void setUp() {
+        columns = new TransactionColumns(new ForkJoinPool(Runtime.getRuntime().availableProcessors()), 100000);
+        objects = new ArrayList<>(rows);
+        long end = System.currentTimeMillis();
+        long span = 5L * 365 * 86400000L;
+        for (int i = 0; i < rows; i++) {
+            Transaction transaction = new Transaction("Merchant " + (i * 7919 % 2000), (i % 20000) / 100.0,
+                    i % 10 == 0 ? "income" : "expense", BenchmarkDatabase.CATEGORIES[i % BenchmarkDatabase.CATEGORIES.length],
+                    new Date(end - (long) i * span / rows), null);
+            transaction.setId(i + 1);
+            columns.upsert(transaction);
+            objects.add(transaction);
+        }
+        expenses.setType("expense");
+    }
+
+    @Benchmark
+    public List<TrendPoint> monthTrend() {
+        return columns.trend(noFilter, "month");
+    }
+
+    @Benchmark
+    public Map<String, double[]> monthTrendObjects() {
+        ZoneId zone = ZoneId.systemDefault();
+        Map<String, double[]> months = new TreeMap<>();
+        for (Transaction transaction : objects) {
+            LocalDate day = transaction.getDate().toInstant().atZone(zone).toLocalDate();
+            double[] totals = months.computeIfAbsent(day.toString().substring(0, 7), k -> new double[3]);
+            totals["income".equals(transaction.getType()) ? 0 : 1] += transaction.getAmount();
+            totals[2]++;
+        }
+        return months;
+    }
+
+    @Benchmark
+    public List<RollingSeries> rolling30() {
+        return columns.rolling(expenses, 30);
+    }
+
+    @Benchmark
+    public List<TopEntry> topMerchants() {
+        return columns.top(expenses, true, 10);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Double>> topMerchantsObjects() {
+        Map<String, Double> totals = new HashMap<>();
+        for (Transaction transaction : objects) {
+            if ("expense".equals(transaction.getType())) {
+                totals.merge(transaction.getDescription(), transaction.getAmount(), Double::sum);
+            }
+        }
+        List<Map.Entry<String, Double>> entries = new ArrayList<>(totals.entrySet());
+        entries.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
+        return entries.subList(0, Math.min(10, entries.size()));
+    }
+}
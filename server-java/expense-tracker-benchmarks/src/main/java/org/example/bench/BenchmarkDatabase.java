@@ -0,0 +1,88 @@
+package org.example.bench;
+
+import org.example.db.ConnexionDB;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+// H2 in MySQL mode standing in for the real database; must be configured before ConnexionDB is first used
+public final class BenchmarkDatabase {
+
+    static final String[] CATEGORIES = {"Groceries", "Bills", "Transportation", "Entertainment",
+            "Healthcare", "Shopping", "Dining", "Other"};
+
+    static final String URL = "jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=DATE,TYPE";
+
+    private static boolean configured;
+
+    private BenchmarkDatabase() {
+    }
+
+    static void configure() {
+        configure(URL);
+    }
+
+    // First call wins: the pool reads db.url once
+    static synchronized void configure(String url) {
+        if (configured) {
+            return;
+        }
+        System.setProperty("db.url", url);
+        System.setProperty("db.login", "sa");
+        System.setProperty("db.password", "");
+        configured = true;
+    }
+
+    // MySQL's DATE_FORMAT for the '%Y-%m' pattern used by the summary query
+    public static String dateFormat(Timestamp date, String pattern) {
+        if (!"%Y-%m".equals(pattern)) {
+            throw new IllegalArgumentException("Unsupported pattern " + pattern);
+        }
+        return date.toLocalDateTime().toString().substring(0, 7);
+    }
+
+    static void reset(int rows) throws SQLException {
+        configure();
+        try (Connection cn = ConnexionDB.getConnexion()) {
+            try (Statement st = cn.createStatement()) {
+                st.execute("DROP TABLE IF EXISTS transactions");
+                st.execute("CREATE TABLE transactions ("
+                        + "id INT AUTO_INCREMENT PRIMARY KEY,"
+                        + "description VARCHAR(100) NOT NULL,"
+                        + "amount DECIMAL(10, 2) NOT NULL,"
+                        + "type VARCHAR(10) NOT NULL,"
+                        + "category VARCHAR(50) NOT NULL,"
+                        + "date TIMESTAMP NOT NULL,"
+                        + "note VARCHAR(250),"
+                        + "account VARCHAR(64) NOT NULL DEFAULT 'default',"
+                        + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,"
+                        + "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+                st.execute("CREATE INDEX idx_date_id ON transactions (date, id)");
+                st.execute("CREATE INDEX idx_account_date_id ON transactions (account, date, id)");
+                st.execute("CREATE ALIAS IF NOT EXISTS DATE_FORMAT FOR \"org.example.bench.BenchmarkDatabase.dateFormat\"");
+            }
+            cn.setAutoCommit(false);
+            String sql = "INSERT INTO transactions (description, amount, type, category, date, note) VALUES (?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement pst = cn.prepareStatement(sql)) {
+                long start = System.currentTimeMillis();
+                for (int i = 0; i < rows; i++) {
+                    pst.setString(1, "Transaction " + i);
+                    pst.setDouble(2, (i % 10000) / 100.0);
+                    pst.setString(3, i % 10 == 0 ? "income" : "expense");
+                    pst.setString(4, CATEGORIES[i % CATEGORIES.length]);
+                    pst.setTimestamp(5, new Timestamp(start - i * 60000L));
+                    pst.setString(6, i % 3 == 0 ? null : "Note " + i);
+                    pst.addBatch();
+                    if (i % 1000 == 999) {
+                        pst.executeBatch();
+                    }
+                }
+                pst.executeBatch();
+            }
+            cn.commit();
+        }
+    }
+}
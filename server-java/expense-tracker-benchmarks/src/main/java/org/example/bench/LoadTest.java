@@ -0,0 +1,174 @@
+package org.example.bench;
+
+import org.example.Main;
+import org.example.controller.DbExecutor;
+import org.example.db.ConnexionDB;
+import org.example.ingest.TransactionIngest;
+import org.example.metrics.LatencyHistogram;
+import org.jboss.resteasy.plugins.server.undertow.UndertowJaxrsServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+// Closed-loop HTTP load against the real server with database latency injected by SlowDriver.
+// With load.mode=list (default) clients page through GET /api/transactions while a probe sends
+// CORS preflights, which never touch the database and should stay fast however slow the
+// database gets; run once with -Ddb.executor.threads=0 (blocking) and once without (async).
+// load.mode=create POSTs one transaction per request, and load.mode=ingest does the same with
+// Prefer: respond-async through the write-behind ingest log.
+public final class LoadTest {
+
+    private static final byte[] TRANSACTION = ("{\"description\":\"Card authorization\",\"amount\":12.5,"
+            + "\"type\":\"expense\",\"category\":\"Shopping\",\"date\":\"2024-05-01T10:00:00Z\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    public static void main(String[] args) throws Exception {
+        String loadMode = System.getProperty("load.mode", "list");
+        boolean writes = !"list".equals(loadMode);
+        boolean ingest = "ingest".equals(loadMode);
+        if (ingest) {
+            System.setProperty("ingest.enabled", "true");
+            if (System.getProperty("ingest.dir") == null) {
+                System.setProperty("ingest.dir", Files.createTempDirectory("ingest-").toString());
+            }
+        }
+        int clients = Integer.getInteger("load.clients", 64);
+        int seconds = Integer.getInteger("load.seconds", 20);
+        int rows = Integer.getInteger("load.rows", 10000);
+        // HttpURLConnection keeps only 5 idle connections per host by default
+        System.setProperty("http.maxConnections", String.valueOf(clients + 1));
+        SlowDriver.setLatencyMs(0);
+        BenchmarkDatabase.configure(SlowDriver.PREFIX + BenchmarkDatabase.URL);
+        BenchmarkDatabase.reset(rows);
+        SlowDriver.setLatencyMs(Long.getLong("load.dbLatencyMs", 50L));
+
+        if (System.getProperty("server.port") == null) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                System.setProperty("server.port", String.valueOf(socket.getLocalPort()));
+            }
+        }
+        TransactionIngest.get().start();
+        UndertowJaxrsServer server = Main.startServer();
+        String baseUrl = Main.BASE_URI + "api/transactions";
+        String prefer = ingest ? "respond-async" : null;
+
+        LatencyHistogram listLatency = new LatencyHistogram();
+        LatencyHistogram probeLatency = new LatencyHistogram();
+        LongAdder ok = new LongAdder();
+        LongAdder unavailable = new LongAdder();
+        LongAdder failed = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            threads.add(new Thread(() -> {
+                byte[] buffer = new byte[16 * 1024];
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    int status = writes
+                            ? call("POST", baseUrl, TRANSACTION, prefer, buffer)
+                            : call("GET", baseUrl + "?limit=20", null, null, buffer);
+                    listLatency.record(System.nanoTime() - start);
+                    if (status >= 200 && status < 300) {
+                        ok.increment();
+                    } else if (status == 503) {
+                        unavailable.increment();
+                    } else {
+                        failed.increment();
+                    }
+                }
+            }, "client-" + i));
+        }
+        threads.add(new Thread(() -> {
+            byte[] buffer = new byte[1024];
+            while (System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                call("OPTIONS", baseUrl, null, null, buffer);
+                probeLatency.record(System.nanoTime() - start);
+            }
+        }, "probe"));
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        server.stop();
+        long drainStart = System.nanoTime();
+        TransactionIngest.get().shutdown(60000);
+        long drainMs = (System.nanoTime() - drainStart) / 1_000_000;
+
+        String mode = DbExecutor.get().getThreadCount() == 0 ? "blocking" : "async (" + DbExecutor.get().getThreadCount() + " db threads)";
+        String label = writes ? "Creates" : "List requests";
+        System.out.println();
+        System.out.println("Mode:            " + loadMode + ", " + mode);
+        System.out.println("Clients:         " + clients + ", " + seconds + " s, " + System.getProperty("load.dbLatencyMs", "50") + " ms per statement");
+        System.out.printf("%-17s%.0f/s ok, %d x 503, %d failed%n", label + ":", ok.sum() / (double) seconds, unavailable.sum(), failed.sum());
+        System.out.println("Latency:         " + describe(listLatency));
+        if (writes) {
+            SlowDriver.setLatencyMs(0);
+            System.out.println("Rows inserted:   " + (countRows() - rows) + (ingest ? " (flusher drained in " + drainMs + " ms after the run)" : ""));
+        }
+        System.out.printf("Preflights:      %.0f/s%n", probeLatency.getCount() / (double) seconds);
+        System.out.println("Preflight lat.:  " + describe(probeLatency));
+        System.exit(0);
+    }
+
+    private static long countRows() throws SQLException {
+        try (Connection cn = ConnexionDB.getConnexion();
+             Statement st = cn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM transactions")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static int call(String method, String url, byte[] body, String prefer, byte[] buffer) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod(method);
+            connection.setRequestProperty("Origin", "http://localhost:3000");
+            connection.setRequestProperty("Access-Control-Request-Method", "GET");
+            if (prefer != null) {
+                connection.setRequestProperty("Prefer", prefer);
+            }
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setFixedLengthStreamingMode(body.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+            int status = connection.getResponseCode();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (in != null) {
+                    while (in.read(buffer) != -1) {
+                        // drain so the connection is reused
+                    }
+                }
+            }
+            return status;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static String describe(LatencyHistogram histogram) {
+        return String.format("p50 %.1f ms, p99 %.1f ms, p99.9 %.1f ms",
+                histogram.quantile(0.5) / 1e6, histogram.quantile(0.99) / 1e6, histogram.quantile(0.999) / 1e6);
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.bench;
+
+import io.undertow.Undertow;
+import org.example.JaxRsApplication;
+import org.jboss.resteasy.plugins.server.undertow.UndertowJaxrsServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end HTTP calls through Undertow, RESTEasy and TransactionResource
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResourceBenchmark {
+
+    @Param({"10000"})
+    int rows;
+
+    private UndertowJaxrsServer server;
+    private String baseUrl;
+    private final byte[] buffer = new byte[64 * 1024];
+    private String listTag;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        BenchmarkDatabase.reset(rows);
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = new UndertowJaxrsServer();
+        server.deploy(JaxRsApplication.class);
+        server.start(Undertow.builder().addHttpListener(port, "localhost"));
+        baseUrl = "http://localhost:" + port + "/api/transactions";
+        listTag = ((HttpURLConnection) new URL(baseUrl + "?limit=100").openConnection()).getHeaderField("ETag");
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public long listPage() throws IOException {
+        return get(baseUrl + "?limit=100");
+    }
+
+    // Repeat read by a client holding the current ETag: 304 from the change version, no query
+    @Benchmark
+    public int listPageRevalidate() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "?limit=100").openConnection();
+        connection.setRequestProperty("If-None-Match", listTag);
+        int status = connection.getResponseCode();
+        if (status != 304) {
+            throw new IOException("Expected 304, got " + status);
+        }
+        connection.getInputStream().close();
+        return status;
+    }
+
+    @Benchmark
+    public long getById() throws IOException {
+        return get(baseUrl + "/1");
+    }
+
+    @Benchmark
+    public long summary() throws IOException {
+        return get(baseUrl + "/summary?from=2000-01-01");
+    }
+
+    private long get(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        if (connection.getResponseCode() != 200) {
+            throw new IOException("GET " + url + " returned " + connection.getResponseCode());
+        }
+        long total = 0;
+        try (InputStream in = connection.getInputStream()) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                total += n;
+            }
+        }
+        return total;
+    }
+}
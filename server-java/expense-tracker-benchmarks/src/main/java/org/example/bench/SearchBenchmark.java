@@ -0,0 +1,87 @@
+package org.example.bench;
+
+import org.example.model.Transaction;
+import org.example.search.SearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// SearchIndex queries over descriptions drawn from a 20k-word vocabulary, two words each with
+// a skewed choice so a few words are common, plus the usual categories and an occasional note
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class SearchBenchmark {
+
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "ber", "tan", "zo", "ri", "pel", "su", "dak",
+            "ve", "nor", "ci", "gra", "fu", "len", "ox", "ha", "tri", "mo"};
+    private static final String[] NOTES = {"monthly", "shared", "refund pending", "business trip", "gift"};
+
+    @Param({"1000000"})
+    int rows;
+
+    private SearchIndex index;
+    private String[] words;
+
+    @Setup
+    public void setUp() {
+        words = new String[20000];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int n = i; word.length() == 0 || n > 0; n /= SYLLABLES.length) {
+                word.append(SYLLABLES[n % SYLLABLES.length]);
+            }
+            words[i] = word.toString();
+        }
+        index = new SearchIndex();
+        Random random = new Random(42);
+        long end = System.currentTimeMillis();
+        long span = 5L * 365 * 86400000L;
+        for (int i = 0; i < rows; i++) {
+            Transaction transaction = new Transaction(word(random) + " " + word(random), 10,
+                    i % 10 == 0 ? "income" : "expense", BenchmarkDatabase.CATEGORIES[i % BenchmarkDatabase.CATEGORIES.length],
+                    new Date(end - (long) i * span / rows), random.nextInt(5) == 0 ? NOTES[random.nextInt(NOTES.length)] : null);
+            transaction.setId(i + 1);
+            index.upsert(transaction);
+        }
+    }
+
+    // Squared, so low-numbered words are far more common than high-numbered ones
+    private String word(Random random) {
+        double u = random.nextDouble();
+        return words[(int) (u * u * words.length)];
+    }
+
+    // A word in about 1 row in 2000
+    @Benchmark
+    public SearchIndex.Hits rareWord() {
+        return index.search(words[12000], null, 0, 20);
+    }
+
+    @Benchmark
+    public SearchIndex.Hits twoWords() {
+        return index.search(words[12000] + " " + words[3], null, 0, 20);
+    }
+
+    @Benchmark
+    public SearchIndex.Hits wordAndMonth() {
+        return index.search(words[5000] + " march", null, 0, 20);
+    }
+
+    // Every word starting with the rare word's first two syllables
+    @Benchmark
+    public SearchIndex.Hits prefix() {
+        return index.search(words[12000].substring(0, 4), null, 0, 20);
+    }
+
+    // A category, in one row in eight
+    @Benchmark
+    public SearchIndex.Hits commonWord() {
+        return index.search("groceries", null, 0, 20);
+    }
+}
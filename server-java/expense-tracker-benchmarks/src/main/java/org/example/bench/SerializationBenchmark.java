@@ -0,0 +1,111 @@
+package org.example.bench;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.json.TransactionCodec;
+import org.example.model.Transaction;
+import org.example.model.TransactionList;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The list response body written by reflective Jackson (as resteasy-jackson2-provider does)
+// against TransactionCodec, which TransactionJsonProvider now uses, plus parsing one request body
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SerializationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int rows;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    // Same output shape as TransactionCodec: ISO-8601 strings instead of epoch millis
+    private final ObjectMapper isoMapper = new ObjectMapper().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private TransactionList list;
+    private Transaction single;
+    private byte[] singleJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Transaction> transactions = new ArrayList<>(rows);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < rows; i++) {
+            Transaction transaction = new Transaction("Transaction " + i, (i % 10000) / 100.0,
+                    i % 10 == 0 ? "income" : "expense", BenchmarkDatabase.CATEGORIES[i % 8],
+                    new Date(now - i * 60000L), i % 3 == 0 ? null : "Note " + i);
+            transaction.setId(i + 1);
+            transaction.setCreatedAt(new Date(now));
+            transaction.setUpdatedAt(new Date(now));
+            transactions.add(transaction);
+        }
+        list = new TransactionList();
+        list.setTransactions(transactions);
+        single = transactions.get(0);
+        singleJson = mapper.writeValueAsBytes(single);
+    }
+
+    @Benchmark
+    public void writeList() throws IOException {
+        mapper.writeValue(NullOutputStream.INSTANCE, list.getTransactions());
+    }
+
+    @Benchmark
+    public void writeListIsoDates() throws IOException {
+        isoMapper.writeValue(NullOutputStream.INSTANCE, list.getTransactions());
+    }
+
+    @Benchmark
+    public void writeSingle() throws IOException {
+        mapper.writeValue(NullOutputStream.INSTANCE, single);
+    }
+
+    @Benchmark
+    public void codecWriteList() throws IOException {
+        try (JsonGenerator generator = TransactionCodec.generator(NullOutputStream.INSTANCE)) {
+            TransactionCodec.writeArray(generator, list.getTransactions());
+        }
+    }
+
+    @Benchmark
+    public void codecWriteSingle() throws IOException {
+        try (JsonGenerator generator = TransactionCodec.generator(NullOutputStream.INSTANCE)) {
+            TransactionCodec.write(generator, single);
+        }
+    }
+
+    @Benchmark
+    public Transaction readSingle() throws IOException {
+        return mapper.readValue(singleJson, Transaction.class);
+    }
+
+    @Benchmark
+    public Transaction codecReadSingle() throws IOException {
+        try (JsonParser parser = TransactionCodec.parser(new ByteArrayInputStream(singleJson))) {
+            return TransactionCodec.read(parser);
+        }
+    }
+
+    static final class NullOutputStream extends OutputStream {
+        static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.bench;
+
+import org.example.model.TransactionFilter;
+import org.example.model.TransactionPage;
+import org.example.service.TransactionService;
+import org.example.service.TransactionServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// ResultSet-to-Transaction mapping in TransactionServiceImpl against the in-memory database
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    @Param({"100000"})
+    int rows;
+
+    private TransactionService service;
+    private final TransactionFilter noFilter = new TransactionFilter();
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.reset(rows);
+        service = new TransactionServiceImpl();
+    }
+
+    @Benchmark
+    public TransactionPage firstPage() {
+        return service.getTransactions(noFilter, null, 500);
+    }
+
+    @Benchmark
+    public long exportAll(Blackhole blackhole) {
+        return service.exportTransactions(noFilter, blackhole::consume);
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.bench;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+// JDBC driver for "jdbc:slow:<url>": delegates to <url> and sleeps before every statement
+// execution, to simulate a slow database under load. It also counts the round trips a
+// networked database would take: statement executions, commits and rollbacks.
+public final class SlowDriver implements Driver {
+
+    static final String PREFIX = "jdbc:slow:";
+
+    private static volatile long latencyMs;
+    private static final AtomicLong roundTrips = new AtomicLong();
+
+    static {
+        try {
+            DriverManager.registerDriver(new SlowDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static void setLatencyMs(long millis) {
+        latencyMs = millis;
+    }
+
+    static long roundTrips() {
+        return roundTrips.get();
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        Connection target = DriverManager.getConnection(url.substring(PREFIX.length()), info);
+        return wrap(Connection.class, target);
+    }
+
+    // Statements created by a wrapped connection are wrapped too; execute* calls are delayed
+    private static <T> T wrap(Class<T> type, Object target) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                roundTrips.incrementAndGet();
+                if (latencyMs > 0) {
+                    Thread.sleep(latencyMs);
+                }
+            } else if (name.equals("commit") || name.equals("rollback")) {
+                roundTrips.incrementAndGet();
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            Class<?> returnType = method.getReturnType();
+            if (result != null && returnType.isInterface() && Statement.class.isAssignableFrom(returnType)) {
+                return wrap(returnType, result);
+            }
+            return result;
+        };
+        return type.cast(Proxy.newProxyInstance(SlowDriver.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
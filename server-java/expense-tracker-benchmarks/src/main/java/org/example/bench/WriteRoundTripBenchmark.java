@@ -0,0 +1,131 @@
+package org.example.bench;
+
+import io.undertow.Undertow;
+import org.example.JaxRsApplication;
+import org.jboss.resteasy.plugins.server.undertow.UndertowJaxrsServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// PUT and DELETE through TransactionResource with the transaction cache off (size 0) and on,
+// counting the database round trips each request takes through SlowDriver. The rows written
+// were read by the client first, as an edit screen does, so with the cache on the existence
+// check and the read-back after the update are served from memory. The round trips per
+// request are printed at the end of each trial.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class WriteRoundTripBenchmark {
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final byte[] BODY = ("{\"description\": \"Edited\", \"amount\": 12.5, \"type\": \"expense\","
+            + " \"category\": \"Dining\", \"date\": \"2024-01-15T10:00:00Z\"}").getBytes(StandardCharsets.UTF_8);
+
+    // Read once per JVM when the cache is created; JMH forks a JVM per parameter value
+    @Param({"0", "10000"})
+    String cacheSize;
+
+    @Param({"1000"})
+    int rows;
+
+    private UndertowJaxrsServer server;
+    private String baseUrl;
+    private final byte[] buffer = new byte[16 * 1024];
+    private int next;
+    private long puts;
+    private long putRoundTrips;
+    private long deletes;
+    private long deleteRoundTrips;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        System.setProperty("cache.transactions.size", cacheSize);
+        SlowDriver.setLatencyMs(0);
+        BenchmarkDatabase.configure(SlowDriver.PREFIX + BenchmarkDatabase.URL);
+        BenchmarkDatabase.reset(rows);
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = new UndertowJaxrsServer();
+        server.deploy(JaxRsApplication.class);
+        server.start(Undertow.builder().addHttpListener(port, "localhost"));
+        baseUrl = "http://localhost:" + port + "/api/transactions";
+        for (int id = 1; id <= rows; id++) {
+            send("GET", baseUrl + "/" + id, null, 200);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+        if (puts > 0) {
+            System.out.printf("%ncache.transactions.size=%s: %.2f round trips per PUT%n",
+                    cacheSize, putRoundTrips / (double) puts);
+        }
+        if (deletes > 0) {
+            System.out.printf("%ncache.transactions.size=%s: %.2f round trips per DELETE%n",
+                    cacheSize, deleteRoundTrips / (double) deletes);
+        }
+    }
+
+    @Benchmark
+    public String put() throws IOException {
+        next = next % rows + 1;
+        long before = SlowDriver.roundTrips();
+        String response = send("PUT", baseUrl + "/" + next, BODY, 200);
+        putRoundTrips += SlowDriver.roundTrips() - before;
+        puts++;
+        return response;
+    }
+
+    // Each DELETE removes a row created just before it, outside the count
+    @Benchmark
+    public String delete() throws IOException {
+        Matcher created = ID.matcher(send("POST", baseUrl, BODY, 201));
+        if (!created.find()) {
+            throw new IOException("No id in the created transaction");
+        }
+        long before = SlowDriver.roundTrips();
+        String response = send("DELETE", baseUrl + "/" + created.group(1), null, 200);
+        deleteRoundTrips += SlowDriver.roundTrips() - before;
+        deletes++;
+        return response;
+    }
+
+    private String send(String method, String url, byte[] body, int expected) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+        }
+        if (connection.getResponseCode() != expected) {
+            throw new IOException(method + " " + url + " returned " + connection.getResponseCode());
+        }
+        StringBuilder response = new StringBuilder();
+        try (InputStream in = connection.getInputStream()) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                response.append(new String(buffer, 0, n, StandardCharsets.UTF_8));
+            }
+        }
+        return response.toString();
+    }
+}
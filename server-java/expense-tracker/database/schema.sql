@@ -13,13 +13,35 @@ CREATE TABLE IF NOT EXISTS transactions (
     category VARCHAR(50) NOT NULL,
     date DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
     note VARCHAR(250),
+    account VARCHAR(64) NOT NULL DEFAULT 'default',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-    INDEX idx_date (date),
-    INDEX idx_type (type),
-    INDEX idx_category (category)
+    -- Keyset pagination seeks on (date, id); requests name their account, then maybe a filter column.
+    -- Scans of every account (rebuilding the in-process views) use idx_date_id.
+    INDEX idx_date_id (date, id),
+    INDEX idx_account_date_id (account, date, id),
+    INDEX idx_account_type_date_id (account, type, date, id),
+    INDEX idx_account_category_date_id (account, category, date, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Upgrading an existing database created with the previous single-column indexes
+-- ALTER TABLE transactions
+--     DROP INDEX idx_date, DROP INDEX idx_type, DROP INDEX idx_category,
+--     ADD INDEX idx_date_id (date, id),
+--     ADD INDEX idx_type_date_id (type, date, id),
+--     ADD INDEX idx_category_date_id (category, date, id);
+
+-- Upgrading a database created before accounts; existing rows belong to the default account
+-- ALTER TABLE transactions
+--     ADD COLUMN account VARCHAR(64) NOT NULL DEFAULT 'default' AFTER note,
+--     DROP INDEX idx_type_date_id, DROP INDEX idx_category_date_id,
+--     ADD INDEX idx_account_date_id (account, date, id),
+--     ADD INDEX idx_account_type_date_id (account, type, date, id),
+--     ADD INDEX idx_account_category_date_id (account, category, date, id);
+
+-- With storage.shards each shard is a database of its own created from this script; ids come
+-- from the application there, so AUTO_INCREMENT is never used
+
 -- Sample data (optional)
 -- INSERT INTO transactions (description, amount, type, category, date, note) VALUES
 -- ('Salary', 5000.00, 'income', 'Salary', NOW(), 'Monthly salary'),
@@ -1,6 +1,10 @@
 package org.example;
 
+import org.example.cluster.ClusterRouter;
 import org.example.config.CORSFilter;
+import org.example.config.MetricsFilter;
+import org.example.config.StartupGate;
+import org.example.config.TransactionJsonProvider;
 
 import javax.ws.rs.ApplicationPath;
 import javax.ws.rs.core.Application;
@@ -14,7 +18,17 @@ public class JaxRsApplication extends Application {
     public Set<Class<?>> getClasses() {
         Set<Class<?>> classes = new HashSet<>();
         classes.add(org.example.controller.TransactionResource.class);
+        classes.add(org.example.controller.ImportResource.class);
+        classes.add(org.example.controller.MetricsResource.class);
+        classes.add(org.example.controller.HealthResource.class);
+        classes.add(org.example.controller.AnalyticsResource.class);
+        classes.add(org.example.controller.BudgetResource.class);
+        classes.add(org.example.controller.RecurringResource.class);
+        classes.add(StartupGate.class);
+        classes.add(ClusterRouter.class);
         classes.add(CORSFilter.class);
+        classes.add(MetricsFilter.class);
+        classes.add(TransactionJsonProvider.class);
         return classes;
     }
 }
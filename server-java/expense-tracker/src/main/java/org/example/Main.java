@@ -1,35 +1,226 @@
 package org.example;
 
 import io.undertow.Undertow;
+import io.undertow.UndertowOptions;
+import io.undertow.predicate.Predicate;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.handlers.encoding.ContentEncodingRepository;
+import io.undertow.server.handlers.encoding.DeflateEncodingProvider;
+import io.undertow.server.handlers.encoding.EncodingHandler;
+import io.undertow.server.handlers.encoding.GzipEncodingProvider;
+import io.undertow.servlet.api.DeploymentInfo;
+import io.undertow.util.Headers;
+import org.example.budget.BudgetEngine;
+import org.example.cluster.ClusterRouter;
+import org.example.config.ServerConfig;
+import org.example.config.Startup;
+import org.example.controller.ChangeFeed;
+import org.example.controller.DbExecutor;
+import org.example.ingest.TransactionIngest;
+import org.example.recurring.RecurringScheduler;
+import org.example.search.TransactionSearch;
+import org.example.service.ShardedTransactionService;
+import org.example.service.TransactionAggregates;
+import org.example.service.TransactionService;
+import org.example.service.TransactionServices;
 import org.jboss.resteasy.plugins.server.undertow.UndertowJaxrsServer;
+import org.xnio.Options;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.SQLException;
 
 public class Main {
-    public static final String BASE_URI = "http://localhost:5000/";
+    static {
+        // Every class reads its settings from system properties, so they are filled in first
+        Startup.get();
+        ServerConfig.load();
+        Startup.get().phase("config");
+    }
+
+    public static final int PORT = Integer.getInteger("server.port", 5000);
+    public static final String BASE_URI = "http://localhost:" + PORT + "/";
     private static UndertowJaxrsServer server;
 
     public static UndertowJaxrsServer startServer() {
-        server = new UndertowJaxrsServer();
-        server.deploy(JaxRsApplication.class);
-        
-        server.start(Undertow.builder()
-                .addHttpListener(5000, "localhost"));
-        
+        server = startServer(PORT, System.getProperty("cluster.self"));
         return server;
     }
 
+    // One node of cluster.nodes, named node, on its own port; several can run in one process,
+    // sharing its store, caches and executors
+    public static UndertowJaxrsServer startServer(int port, String node) {
+        UndertowJaxrsServer server = new UndertowJaxrsServer();
+        DeploymentInfo deployment = server.undertowDeployment(JaxRsApplication.class)
+                .setClassLoader(Main.class.getClassLoader())
+                .setContextPath("/")
+                .setDeploymentName(node == null ? "expense-tracker" : "expense-tracker-" + node);
+        if (node != null) {
+            deployment.addInitParameter(ClusterRouter.NODE_PARAMETER, node);
+        }
+        if (!"false".equals(System.getProperty("server.compression"))) {
+            deployment.addInitialHandlerChainWrapper(Main::compress);
+        }
+        server.deploy(deployment);
+        Startup.get().phase("deploy");
+
+        // Same defaults as Undertow; database work runs on DbExecutor, so workers rarely block
+        int ioThreads = Integer.getInteger("server.ioThreads", Math.max(Runtime.getRuntime().availableProcessors(), 2));
+        int workerThreads = Integer.getInteger("server.workerThreads", ioThreads * 8);
+        Undertow.Builder builder = Undertow.builder()
+                .addHttpListener(port, System.getProperty("server.host", "localhost"))
+                .setIoThreads(ioThreads)
+                .setWorkerThreads(workerThreads)
+                .setServerOption(UndertowOptions.REQUEST_PARSE_TIMEOUT, Integer.getInteger("server.parseTimeoutMs", 30000))
+                .setServerOption(UndertowOptions.NO_REQUEST_TIMEOUT, Integer.getInteger("server.keepAliveTimeoutMs", 60000))
+                .setServerOption(UndertowOptions.IDLE_TIMEOUT, Integer.getInteger("server.idleTimeoutMs", 300000))
+                // Read by MetricsFilter as each request's start
+                .setServerOption(UndertowOptions.RECORD_REQUEST_START_TIME, true);
+        // Undertow sizes buffers from the heap: 16 KB direct buffers above 128 MB, smaller below
+        if (System.getProperty("server.bufferSize") != null) {
+            builder.setBufferSize(Integer.getInteger("server.bufferSize"));
+        }
+        if (System.getProperty("server.directBuffers") != null) {
+            builder.setDirectBuffers(Boolean.getBoolean("server.directBuffers"));
+        }
+        if (System.getProperty("server.backlog") != null) {
+            builder.setSocketOption(Options.BACKLOG, Integer.getInteger("server.backlog"));
+        }
+        server.start(builder);
+        Startup.get().phase("listen");
+        System.out.println("Undertow started on " + System.getProperty("server.host", "localhost") + ":" + port + " with "
+                + ioThreads + " I/O and " + workerThreads + " worker threads, "
+                + DbExecutor.get().getThreadCount() + " database threads");
+
+        return server;
+    }
+
+    // gzip or deflate, as the client accepts, for bodies over server.compression.minBytes; streamed
+    // bodies have no Content-Length until they are written, so they are always compressed
+    private static HttpHandler compress(HttpHandler next) {
+        long minBytes = Long.getLong("server.compression.minBytes", 1024L);
+        Predicate largeEnough = exchange -> {
+            String length = exchange.getResponseHeaders().getFirst(Headers.CONTENT_LENGTH);
+            return length == null || Long.parseLong(length) >= minBytes;
+        };
+        return new EncodingHandler(next, new ContentEncodingRepository()
+                .addEncodingHandler("gzip", new GzipEncodingProvider(), 50, largeEnough)
+                .addEncodingHandler("deflate", new DeflateEncodingProvider(), 10, largeEnough));
+    }
+
+    // startup.mode=fast listens first and loads in the background, answering 503 until ready;
+    // the default loads everything, then listens
     public static void main(String[] args) {
         try {
-            startServer();
+            Startup startup = Startup.get();
+            startup.begin();
+            boolean training = Boolean.getBoolean("startup.exitAfterStart");
+            if ("fast".equals(System.getProperty("startup.mode")) && !training) {
+                startServer();
+                Thread loader = new Thread(() -> {
+                    if (load()) {
+                        startup.ready();
+                    }
+                }, "startup");
+                loader.setDaemon(true);
+                loader.start();
+            } else {
+                if (!load()) {
+                    return;
+                }
+                startServer();
+                startup.ready();
+            }
             System.out.println("JAX-RS application started with RESTEasy");
             System.out.println("REST API is running at: " + BASE_URI + "api/transactions");
-            System.out.println("Hit enter to stop it...");
-            
-            // Keep server running
-            System.in.read();
+
+            if (training) {
+                // One pass over the common request paths, so their classes go into the archive
+                for (String path : new String[]{"health", "ready", "metrics", "api/transactions?limit=1",
+                        "api/transactions/summary", "api/budgets", "api/recurring"}) {
+                    HttpURLConnection connection = (HttpURLConnection) new URL(BASE_URI + path).openConnection();
+                    connection.getResponseCode();
+                    connection.disconnect();
+                }
+            } else {
+                System.out.println("Hit enter to stop it...");
+                // Keep server running
+                System.in.read();
+            }
+            // Open change streams would otherwise hold the undeploy until they time out
+            ChangeFeed.get().shutdown();
             server.stop();
+            RecurringScheduler.get().shutdown();
+            TransactionIngest.get().shutdown(Long.getLong("ingest.shutdownTimeoutMs", 30000L));
+            DbExecutor.get().shutdown();
+            TransactionServices.close();
+            if (training) {
+                // RESTEasy's async timer thread would hold the exit, and the archive, for its keep-alive
+                System.exit(0);
+            }
         } catch (Exception e) {
             System.err.println("Error starting server: " + e.getMessage());
             e.printStackTrace();
         }
     }
+
+    // Opens the store and loads what must be in memory before requests are served, timing each
+    // step. False when the server cannot serve without a step that failed.
+    private static boolean load() {
+        Startup startup = Startup.get();
+        // An embedded store replays its log here, before anything reads from it
+        try {
+            TransactionServices.get();
+        } catch (RuntimeException e) {
+            startup.failed("Storage backend '" + TransactionServices.getBackend() + "' could not start, not serving: "
+                    + e.getMessage());
+            return false;
+        }
+        startup.phase("storage");
+        // Seed the in-memory aggregates before the first request needs them
+        try {
+            TransactionAggregates.get();
+        } catch (SQLException e) {
+            System.err.println("Aggregates not seeded at startup, will retry on first use: " + e.getMessage());
+        }
+        startup.phase("aggregates");
+        // A shard added to storage.shards takes over its accounts before anything reads them
+        TransactionService service = TransactionServices.get();
+        if (service instanceof ShardedTransactionService) {
+            if (((ShardedTransactionService) service).rebalance() < 0) {
+                startup.failed("Shards could not be rebalanced, not serving");
+                return false;
+            }
+            startup.phase("rebalance");
+        }
+        // Budgets count expenses from the store as it is now, so before any write is served
+        try {
+            BudgetEngine.get();
+        } catch (IOException | SQLException e) {
+            System.err.println("Budgets not loaded at startup, will retry on first use: " + e.getMessage());
+        }
+        startup.phase("budgets");
+        // Rows a crash left in the ingest log go in before any new id is handed out
+        try {
+            TransactionIngest.get().start();
+        } catch (IOException | SQLException e) {
+            startup.failed("Write-behind ingestion could not start, not serving: " + e.getMessage());
+            return false;
+        }
+        startup.phase("ingest");
+        // Occurrences that fell due while the server was down are written before it serves
+        try {
+            RecurringScheduler.get().start();
+        } catch (IOException | SQLException e) {
+            startup.failed("Recurring scheduler could not start, not serving: " + e.getMessage());
+            return false;
+        }
+        startup.phase("recurring");
+        // The index is built in the background; searches wait for it
+        if (!"false".equals(System.getProperty("search.buildAtStartup"))) {
+            TransactionSearch.get().start();
+        }
+        return true;
+    }
 }
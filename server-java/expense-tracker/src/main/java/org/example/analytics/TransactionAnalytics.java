@@ -0,0 +1,119 @@
+package org.example.analytics;
+
+import org.example.model.TransactionChange;
+import org.example.model.TransactionChanges;
+import org.example.model.TransactionFilter;
+import org.example.service.TransactionChangeLog;
+import org.example.service.TransactionServices;
+
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Keeps a TransactionColumns copy of the store for analytics queries. It is loaded from the
+// selected backend on first use and then follows the change log: writes wake a background
+// thread that applies them, and each query first applies whatever that thread has not, so an
+// answer includes every write that was committed before the query started. If the log has
+// moved on past what it kept, the columns are loaded again.
+public class TransactionAnalytics {
+
+    private static final TransactionAnalytics INSTANCE = new TransactionAnalytics();
+
+    private static final int APPLY_CHUNK = 10000;
+
+    private final ForkJoinPool pool = new ForkJoinPool(
+            Integer.getInteger("analytics.parallelism", Runtime.getRuntime().availableProcessors()));
+    private final int maxMerchants = Integer.getInteger("analytics.merchants.max", 100000);
+    private final ExecutorService applier = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "analytics-apply");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private volatile TransactionColumns columns;
+    private long position;
+
+    private TransactionAnalytics() {
+        TransactionChangeLog.get().addListener(this::wake);
+    }
+
+    public static TransactionAnalytics get() {
+        return INSTANCE;
+    }
+
+    // Loaded and caught up with the change log
+    public TransactionColumns columns() throws SQLException {
+        synchronized (this) {
+            if (columns == null) {
+                load();
+            } else {
+                catchUp();
+            }
+            return columns;
+        }
+    }
+
+    // Rows written while the export runs come back through the change log as well; applying
+    // an upsert or delete twice leaves the same columns
+    private void load() throws SQLException {
+        long started = System.currentTimeMillis();
+        long from = TransactionChangeLog.get().head();
+        TransactionColumns fresh = new TransactionColumns(pool, maxMerchants);
+        if (TransactionServices.get().exportTransactions(new TransactionFilter(), fresh::upsert) < 0) {
+            throw new SQLException("Could not read transactions for analytics");
+        }
+        columns = fresh;
+        position = from;
+        catchUp();
+        System.out.println("Analytics columns loaded: " + fresh.getRowCount() + " rows, "
+                + fresh.getColumnBytes() / (1024 * 1024) + " MB, in " + (System.currentTimeMillis() - started) + " ms");
+    }
+
+    private void catchUp() throws SQLException {
+        while (true) {
+            TransactionChanges changes = TransactionChangeLog.get().since(position, APPLY_CHUNK);
+            if (changes == null) {
+                System.out.println("Analytics fell behind the change log, reloading");
+                load();
+                return;
+            }
+            if (changes.getChanges().isEmpty()) {
+                return;
+            }
+            for (TransactionChange change : changes.getChanges()) {
+                if (TransactionChange.DELETE.equals(change.getOp())) {
+                    columns.delete(change.getId());
+                } else {
+                    columns.upsert(change.getTransaction());
+                }
+                position = change.getSeq();
+            }
+        }
+    }
+
+    private void wake() {
+        if (columns != null && scheduled.compareAndSet(false, true)) {
+            applier.execute(() -> {
+                scheduled.set(false);
+                try {
+                    columns();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+    }
+
+    public int getRowCount() {
+        TransactionColumns loaded = columns;
+        return loaded == null ? 0 : loaded.getRowCount();
+    }
+
+    public long getColumnBytes() {
+        TransactionColumns loaded = columns;
+        return loaded == null ? 0 : loaded.getColumnBytes();
+    }
+}
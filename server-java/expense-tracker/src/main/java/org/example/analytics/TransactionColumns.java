@@ -0,0 +1,505 @@
+package org.example.analytics;
+
+import org.example.model.RollingSeries;
+import org.example.model.TopEntry;
+import org.example.model.Transaction;
+import org.example.model.TransactionFilter;
+import org.example.model.TrendPoint;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Transactions laid out as parallel primitive arrays, one slot per row: id, local epoch day,
+// amount in cents, a type code and dictionary codes for account, category and merchant (the
+// description). A row takes about 29 bytes instead of the few hundred of a Transaction with
+// its Date and String fields. Updates append a new row and mark the old one dead; dead rows
+// are squeezed out once they are a quarter of the table. Queries are fork-join scans over row
+// ranges that each fill their own partial totals, summed when the halves join.
+public class TransactionColumns {
+
+    static final byte INCOME = 0;
+    static final byte EXPENSE = 1;
+    private static final byte DEAD = -1;
+
+    private static final int MIN_SCAN_ROWS = 64 * 1024;
+    private static final int DENSE_IDS = 1 << 26;
+    private static final int MAX_TREND_DAYS = 366 * 100;
+    private static final int MAX_ROLLING_DAYS = 366 * 10;
+    private static final int DEFAULT_ROLLING_DAYS = 90;
+    private static final String OTHER_MERCHANTS = "(other)";
+
+    private final ForkJoinPool pool;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[] ids = new int[1024];
+    private int[] days = new int[1024];
+    private long[] cents = new long[1024];
+    private byte[] types = new byte[1024];
+    private int[] categories = new int[1024];
+    private int[] merchants = new int[1024];
+    private int[] accounts = new int[1024];
+    private int size;
+    private int dead;
+
+    // Row of each id plus one, 0 when absent; ids past DENSE_IDS go to the map
+    private int[] rowOf = new int[1024];
+    private final Map<Integer, Integer> sparseRows = new HashMap<>();
+
+    private final Dictionary categoryNames = new Dictionary(Integer.MAX_VALUE);
+    private final Dictionary accountNames = new Dictionary(Integer.MAX_VALUE);
+    // Beyond the cap new descriptions share one code, so free-text descriptions cannot grow it without bound
+    private final Dictionary merchantNames;
+
+    private int minDay = Integer.MAX_VALUE;
+    private int maxDay = Integer.MIN_VALUE;
+
+    public TransactionColumns(ForkJoinPool pool, int maxMerchants) {
+        this.pool = pool;
+        this.merchantNames = new Dictionary(maxMerchants);
+        merchantNames.code(OTHER_MERCHANTS);
+    }
+
+    public void upsert(Transaction transaction) {
+        lock.writeLock().lock();
+        try {
+            kill(transaction.getId());
+            if (size == ids.length) {
+                grow(size * 2);
+            }
+            int row = size++;
+            int day = epochDay(transaction.getDate());
+            ids[row] = transaction.getId();
+            days[row] = day;
+            cents[row] = Math.round(transaction.getAmount() * 100);
+            types[row] = "income".equals(transaction.getType()) ? INCOME : EXPENSE;
+            categories[row] = categoryNames.code(transaction.getCategory());
+            merchants[row] = merchantNames.code(transaction.getDescription());
+            accounts[row] = accountNames.code(transaction.getAccount());
+            setRow(transaction.getId(), row);
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(int id) {
+        lock.writeLock().lock();
+        try {
+            kill(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void kill(int id) {
+        int row = rowOf(id);
+        if (row < 0) {
+            return;
+        }
+        types[row] = DEAD;
+        setRow(id, -1);
+        if (++dead > 1024 && dead > size / 4) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        int live = 0;
+        for (int row = 0; row < size; row++) {
+            if (types[row] == DEAD) {
+                continue;
+            }
+            ids[live] = ids[row];
+            days[live] = days[row];
+            cents[live] = cents[row];
+            types[live] = types[row];
+            categories[live] = categories[row];
+            merchants[live] = merchants[row];
+            accounts[live] = accounts[row];
+            setRow(ids[live], live);
+            live++;
+        }
+        size = live;
+        dead = 0;
+        grow(Math.max(1024, live + live / 2));
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        days = Arrays.copyOf(days, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        types = Arrays.copyOf(types, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        merchants = Arrays.copyOf(merchants, capacity);
+        accounts = Arrays.copyOf(accounts, capacity);
+    }
+
+    private int rowOf(int id) {
+        if (id >= 0 && id < DENSE_IDS) {
+            return id < rowOf.length ? rowOf[id] - 1 : -1;
+        }
+        Integer row = sparseRows.get(id);
+        return row == null ? -1 : row;
+    }
+
+    private void setRow(int id, int row) {
+        if (id < 0 || id >= DENSE_IDS) {
+            if (row < 0) {
+                sparseRows.remove(id);
+            } else {
+                sparseRows.put(id, row);
+            }
+            return;
+        }
+        if (id >= rowOf.length) {
+            rowOf = Arrays.copyOf(rowOf, Math.min(DENSE_IDS, Math.max(id + 1, rowOf.length * 2)));
+        }
+        rowOf[id] = row + 1;
+    }
+
+    // Income, expense and count per day, ISO week, month or year
+    public List<TrendPoint> trend(TransactionFilter filter, String bucket) {
+        lock.readLock().lock();
+        try {
+            int[] range = dayRange(filter, 0, MAX_TREND_DAYS);
+            List<TrendPoint> points = new ArrayList<>();
+            Scan scan = range == null ? null : scan(filter, range[0], range[1]);
+            if (scan == null) {
+                return points;
+            }
+            int[] bucketOf = new int[range[1] - range[0]];
+            List<String> labels = new ArrayList<>();
+            String label = null;
+            for (int i = 0; i < bucketOf.length; i++) {
+                String next = label(LocalDate.ofEpochDay(range[0] + i), bucket);
+                if (!next.equals(label)) {
+                    labels.add(next);
+                    label = next;
+                }
+                bucketOf[i] = labels.size() - 1;
+            }
+            final long[] amounts = cents;
+            final byte[] kinds = types;
+            long[] totals = scan.run(labels.size() * 3, (partial, row, day) -> {
+                int b = bucketOf[day] * 3;
+                partial[b + kinds[row]] += amounts[row];
+                partial[b + 2]++;
+            });
+            long previousExpense = 0;
+            for (int b = 0; b < labels.size(); b++) {
+                long income = totals[b * 3];
+                long expense = totals[b * 3 + 1];
+                Double change = previousExpense == 0 ? null : (double) (expense - previousExpense) / previousExpense;
+                points.add(new TrendPoint(labels.get(b), income / 100.0, expense / 100.0, totals[b * 3 + 2], change));
+                previousExpense = expense;
+            }
+            return points;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Sum over the window of days ending on each day of the range, per category with activity
+    public List<RollingSeries> rolling(TransactionFilter filter, int window) {
+        lock.readLock().lock();
+        try {
+            List<RollingSeries> series = new ArrayList<>();
+            int[] range = dayRange(filter, DEFAULT_ROLLING_DAYS, MAX_ROLLING_DAYS);
+            if (range == null) {
+                return series;
+            }
+            int first = range[0] - window + 1;
+            int span = range[1] - first;
+            int categoryCount = categoryNames.size();
+            Scan scan = scan(filter, first, range[1]);
+            if (scan == null) {
+                return series;
+            }
+            final long[] amounts = cents;
+            final int[] categoryCodes = categories;
+            long[] daily = scan.run(categoryCount * span,
+                    (partial, row, day) -> partial[categoryCodes[row] * span + day] += amounts[row]);
+            String start = LocalDate.ofEpochDay(range[0]).toString();
+            for (int c = 0; c < categoryCount; c++) {
+                int base = c * span;
+                long sum = 0;
+                boolean active = false;
+                double[] totals = new double[range[1] - range[0]];
+                for (int d = 0; d < span; d++) {
+                    sum += daily[base + d];
+                    if (d >= window) {
+                        sum -= daily[base + d - window];
+                    }
+                    if (d >= window - 1) {
+                        totals[d - window + 1] = sum / 100.0;
+                        active |= sum != 0;
+                    }
+                }
+                if (active) {
+                    series.add(new RollingSeries(categoryNames.name(c), filter.getType(), window, start, totals));
+                }
+            }
+            return series;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The n largest totals by merchant or category
+    public List<TopEntry> top(TransactionFilter filter, boolean byMerchant, int n) {
+        lock.readLock().lock();
+        try {
+            List<TopEntry> entries = new ArrayList<>();
+            int[] range = dayRange(filter, 0, Integer.MAX_VALUE);
+            Scan scan = range == null ? null : scan(filter, range[0], range[1]);
+            if (scan == null) {
+                return entries;
+            }
+            Dictionary names = byMerchant ? merchantNames : categoryNames;
+            final int[] codes = byMerchant ? merchants : categories;
+            final long[] amounts = cents;
+            long[] totals = scan.run(names.size() * 2, (partial, row, day) -> {
+                int k = codes[row] * 2;
+                partial[k] += amounts[row];
+                partial[k + 1]++;
+            });
+            PriorityQueue<Integer> best = new PriorityQueue<>((a, b) -> Long.compare(totals[a * 2], totals[b * 2]));
+            for (int code = 0; code < names.size(); code++) {
+                if (totals[code * 2 + 1] == 0) {
+                    continue;
+                }
+                best.add(code);
+                if (best.size() > n) {
+                    best.poll();
+                }
+            }
+            while (!best.isEmpty()) {
+                int code = best.poll();
+                entries.add(new TopEntry(names.name(code), totals[code * 2] / 100.0, totals[code * 2 + 1]));
+            }
+            Collections.reverse(entries);
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // [first, end) in epoch days: the filter's dates rounded out to whole days. Without them the
+    // range ends after the latest row and starts defaultDays earlier, or at the earliest row when
+    // defaultDays is 0. Null when there is nothing to scan.
+    private int[] dayRange(TransactionFilter filter, int defaultDays, int maxDays) {
+        if (size - dead == 0) {
+            return null;
+        }
+        int end = filter.getTo() != null ? epochDay(new Date(filter.getTo().getTime() - 1)) + 1 : maxDay + 1;
+        int first = filter.getFrom() != null ? epochDay(filter.getFrom()) : defaultDays > 0 ? end - defaultDays : minDay;
+        if (end <= first) {
+            return null;
+        }
+        if ((long) end - first > maxDays) {
+            throw new IllegalArgumentException("Date range is longer than " + maxDays + " days");
+        }
+        return new int[]{first, end};
+    }
+
+    // Null when the filter names an account or category that no row has
+    private Scan scan(TransactionFilter filter, int first, int end) {
+        int category = -1;
+        if (filter.getCategory() != null) {
+            category = categoryNames.find(filter.getCategory());
+            if (category < 0) {
+                return null;
+            }
+        }
+        int account = -1;
+        if (filter.getAccount() != null) {
+            account = accountNames.find(filter.getAccount());
+            if (account < 0) {
+                return null;
+            }
+        }
+        byte type = filter.getType() == null ? DEAD : "income".equals(filter.getType()) ? INCOME : EXPENSE;
+        return new Scan(first, end, type, category, account);
+    }
+
+    private int epochDay(Date date) {
+        return (int) date.toInstant().atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    private static String label(LocalDate day, String bucket) {
+        switch (bucket) {
+            case "day":
+                return day.toString();
+            case "week":
+                return day.with(DayOfWeek.MONDAY).toString();
+            case "month":
+                return day.toString().substring(0, 7);
+            case "year":
+                return day.toString().substring(0, 4);
+            default:
+                throw new IllegalArgumentException("Unknown bucket '" + bucket + "'");
+        }
+    }
+
+    public int getRowCount() {
+        lock.readLock().lock();
+        try {
+            return size - dead;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Bytes held by the column arrays and the id index, not counting the dictionaries
+    public long getColumnBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) ids.length * (4 + 4 + 8 + 1 + 4 + 4 + 4) + (long) rowOf.length * 4;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    interface Accumulator {
+        void add(long[] partial, int row, int day);
+    }
+
+    // The filters every query shares; the accumulator adds a matching row, with its day as an
+    // offset from first, into the partial totals
+    private class Scan {
+        final int first;
+        final int end;
+        final byte type;
+        final int category;
+        final int account;
+
+        Scan(int first, int end, byte type, int category, int account) {
+            this.first = first;
+            this.end = end;
+            this.type = type;
+            this.category = category;
+            this.account = account;
+        }
+
+        long[] run(int width, Accumulator accumulator) {
+            int leafRows = Math.max(MIN_SCAN_ROWS, size / (pool.getParallelism() * 4));
+            return pool.invoke(new Task(this, width, accumulator, types, days, categories, accounts, 0, size, leafRows));
+        }
+    }
+
+    // Holds the filter columns itself so the leaf loop reads final fields; the query's read
+    // lock keeps them from being replaced while it runs
+    private static class Task extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final Scan scan;
+        private final int width;
+        private final Accumulator accumulator;
+        private final byte[] types;
+        private final int[] days;
+        private final int[] categories;
+        private final int[] accounts;
+        private final int from;
+        private final int to;
+        private final int leafRows;
+
+        Task(Scan scan, int width, Accumulator accumulator, byte[] types, int[] days, int[] categories,
+             int[] accounts, int from, int to, int leafRows) {
+            this.scan = scan;
+            this.width = width;
+            this.accumulator = accumulator;
+            this.types = types;
+            this.days = days;
+            this.categories = categories;
+            this.accounts = accounts;
+            this.from = from;
+            this.to = to;
+            this.leafRows = leafRows;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= leafRows) {
+                long[] partial = new long[width];
+                for (int row = from; row < to; row++) {
+                    byte kind = types[row];
+                    if (kind == DEAD || (scan.type != DEAD && kind != scan.type)) {
+                        continue;
+                    }
+                    int day = days[row];
+                    if (day < scan.first || day >= scan.end) {
+                        continue;
+                    }
+                    if (scan.category >= 0 && categories[row] != scan.category) {
+                        continue;
+                    }
+                    if (scan.account >= 0 && accounts[row] != scan.account) {
+                        continue;
+                    }
+                    accumulator.add(partial, row, day - scan.first);
+                }
+                return partial;
+            }
+            int middle = (from + to) >>> 1;
+            Task left = new Task(scan, width, accumulator, types, days, categories, accounts, from, middle, leafRows);
+            left.fork();
+            long[] right = new Task(scan, width, accumulator, types, days, categories, accounts, middle, to, leafRows).compute();
+            long[] sum = left.join();
+            for (int i = 0; i < width; i++) {
+                sum[i] += right[i];
+            }
+            return sum;
+        }
+    }
+
+    private static class Dictionary {
+        private final int max;
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+
+        Dictionary(int max) {
+            this.max = max;
+        }
+
+        int code(String name) {
+            String key = name == null ? "" : name;
+            Integer code = codes.get(key);
+            if (code != null) {
+                return code;
+            }
+            if (names.size() >= max) {
+                return 0;
+            }
+            codes.put(key, names.size());
+            names.add(key);
+            return names.size() - 1;
+        }
+
+        int find(String name) {
+            Integer code = codes.get(name);
+            return code == null ? -1 : code;
+        }
+
+        String name(int code) {
+            return names.get(code);
+        }
+
+        int size() {
+            return names.size();
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package org.example.budget;
+
+import org.example.model.Budget;
+import org.example.model.BudgetAlert;
+import org.example.model.BudgetStatus;
+import org.example.model.Transaction;
+import org.example.model.TransactionFilter;
+import org.example.service.TransactionAggregates;
+import org.example.service.TransactionServices;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Budgets checked as the writes happen. The engine keeps the expenses of every account per
+// category, and over all categories, for each week, month and year since the start of the
+// year it was seeded in, and is told of each write by TransactionAggregates with the row
+// before and after. A write changes at most twelve of those sums, once each by its net amount,
+// so an update that moves a row to another category or month takes it out of one sum and
+// into the other. Only the budgets on a changed sum are looked at, through an index by
+// account and category, and one fires for each threshold that lies between the sum before
+// and after the change. Each change moves a sum atomically, so concurrent writers see
+// consecutive ranges and a crossing is reported once. Alerts go to a bounded queue that
+// clients read with a sequence number, as they read the change log.
+public class BudgetEngine {
+
+    private static final String ALL = "";
+    private static volatile BudgetEngine instance;
+
+    private final BudgetStore store = new BudgetStore(Paths.get(System.getProperty("budgets.path", "data/budgets.json")));
+    private final int maxAlerts = Integer.getInteger("budgets.alerts.capacity", 10000);
+    private final ZoneId zone = ZoneId.systemDefault();
+    // Writes dated earlier are not counted; every week, month and year from here on is whole
+    private final LocalDate floor;
+
+    private final Map<Window, AtomicLong> spent = new ConcurrentHashMap<>();
+    private final Map<Integer, Rule> rules = new ConcurrentHashMap<>();
+    // account -> category, or ALL -> rules
+    private final Map<String, Map<String, List<Rule>>> index = new ConcurrentHashMap<>();
+    private int lastId;
+
+    private final ArrayDeque<BudgetAlert> alerts = new ArrayDeque<>();
+    private long alertSeq;
+
+    private BudgetEngine() {
+        LocalDate yearStart = LocalDate.now(zone).withDayOfYear(1);
+        floor = periodStart("week", yearStart);
+    }
+
+    // Seeded on first use from the selected store; Main does it before serving, as it does
+    // for the aggregates, so no write lands while the sums are read
+    public static BudgetEngine get() throws SQLException, IOException {
+        if (instance == null) {
+            synchronized (BudgetEngine.class) {
+                if (instance == null) {
+                    BudgetEngine seeded = new BudgetEngine();
+                    seeded.load();
+                    TransactionAggregates.addListener(seeded::changed);
+                    instance = seeded;
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Null until the engine has been seeded, for callers that should not seed it
+    public static BudgetEngine ifLoaded() {
+        return instance;
+    }
+
+    private void load() throws SQLException, IOException {
+        long started = System.currentTimeMillis();
+        for (Budget budget : store.load()) {
+            index(new Rule(budget));
+            lastId = Math.max(lastId, budget.getId());
+        }
+        TransactionFilter filter = new TransactionFilter();
+        filter.setType("expense");
+        filter.setFrom(Date.from(floor.atStartOfDay(zone).toInstant()));
+        Map<Window, Long> deltas = new LinkedHashMap<>();
+        long rows = TransactionServices.get().exportTransactions(filter, transaction -> {
+            deltas.clear();
+            add(deltas, transaction, 1);
+            for (Map.Entry<Window, Long> delta : deltas.entrySet()) {
+                spent.computeIfAbsent(delta.getKey(), k -> new AtomicLong()).addAndGet(delta.getValue());
+            }
+        });
+        if (rows < 0) {
+            throw new SQLException("Could not read transactions for the budgets");
+        }
+        System.out.println("Budgets loaded: " + rules.size() + " budgets over " + rows + " expenses since " + floor
+                + ", in " + (System.currentTimeMillis() - started) + " ms");
+    }
+
+    private void changed(Transaction before, Transaction after) {
+        Map<Window, Long> deltas = new LinkedHashMap<>();
+        add(deltas, before, -1);
+        add(deltas, after, 1);
+        for (Map.Entry<Window, Long> delta : deltas.entrySet()) {
+            long cents = delta.getValue();
+            if (cents == 0) {
+                continue;
+            }
+            Window window = delta.getKey();
+            long now = spent.computeIfAbsent(window, k -> new AtomicLong()).addAndGet(cents);
+            if (cents > 0) {
+                check(window, now - cents, now);
+            }
+        }
+    }
+
+    private void add(Map<Window, Long> deltas, Transaction transaction, int sign) {
+        if (transaction == null || !"expense".equals(transaction.getType())) {
+            return;
+        }
+        // java.sql.Date does not support toInstant()
+        LocalDate day = new Date(transaction.getDate().getTime()).toInstant().atZone(zone).toLocalDate();
+        if (day.isBefore(floor)) {
+            return;
+        }
+        long cents = sign * Math.round(transaction.getAmount() * 100);
+        for (String period : Budget.PERIODS) {
+            int start = (int) periodStart(period, day).toEpochDay();
+            deltas.merge(new Window(transaction.getAccount(), transaction.getCategory(), period, start), cents, Long::sum);
+            deltas.merge(new Window(transaction.getAccount(), ALL, period, start), cents, Long::sum);
+        }
+    }
+
+    // Fires each threshold of the window's budgets that lies in (before, now]
+    private void check(Window window, long before, long now) {
+        Map<String, List<Rule>> byCategory = index.get(window.account);
+        List<Rule> candidates = byCategory == null ? null : byCategory.get(window.category);
+        if (candidates == null) {
+            return;
+        }
+        for (Rule rule : candidates) {
+            if (!rule.budget.getPeriod().equals(window.period)) {
+                continue;
+            }
+            for (int threshold : rule.thresholds) {
+                long at = (rule.limitCents * threshold + 99) / 100;
+                if (before < at && now >= at) {
+                    fire(new BudgetAlert(rule.budget.getId(), rule.budget.getAccount(), rule.budget.getCategory(),
+                            window.period, LocalDate.ofEpochDay(window.start).toString(), threshold,
+                            now / 100.0, rule.budget.getLimit()));
+                }
+            }
+        }
+    }
+
+    private void fire(BudgetAlert alert) {
+        synchronized (alerts) {
+            alert.setSeq(++alertSeq);
+            alerts.addLast(alert);
+            if (alerts.size() > maxAlerts) {
+                alerts.removeFirst();
+            }
+        }
+        System.out.println("Budget " + alert.getBudgetId() + " of account " + alert.getAccount() + " passed "
+                + alert.getThreshold() + "% for the " + alert.getPeriod() + " from " + alert.getPeriodStart()
+                + ": " + alert.getSpent() + " of " + alert.getLimit());
+    }
+
+    // Alerts of the account after the given sequence number, oldest first
+    public List<BudgetAlert> alerts(String account, long after, int limit) {
+        List<BudgetAlert> page = new ArrayList<>();
+        synchronized (alerts) {
+            for (BudgetAlert alert : alerts) {
+                if (alert.getSeq() > after && alert.getAccount().equals(account)) {
+                    page.add(alert);
+                    if (page.size() == limit) {
+                        break;
+                    }
+                }
+            }
+        }
+        return page;
+    }
+
+    public List<BudgetStatus> getBudgets(String account) {
+        List<BudgetStatus> statuses = new ArrayList<>();
+        Map<String, List<Rule>> byCategory = index.get(account);
+        if (byCategory != null) {
+            for (List<Rule> list : byCategory.values()) {
+                for (Rule rule : list) {
+                    statuses.add(status(rule));
+                }
+            }
+        }
+        statuses.sort((a, b) -> Integer.compare(a.getBudget().getId(), b.getBudget().getId()));
+        return statuses;
+    }
+
+    public BudgetStatus getBudget(String account, int id) {
+        Rule rule = rules.get(id);
+        return rule == null || !rule.budget.getAccount().equals(account) ? null : status(rule);
+    }
+
+    // Spending in the period that holds today
+    private BudgetStatus status(Rule rule) {
+        Budget budget = rule.budget;
+        LocalDate start = periodStart(budget.getPeriod(), LocalDate.now(zone));
+        AtomicLong cents = spent.get(new Window(budget.getAccount(), budget.getCategory() == null ? ALL : budget.getCategory(),
+                budget.getPeriod(), (int) start.toEpochDay()));
+        long spentCents = cents == null ? 0 : cents.get();
+        return new BudgetStatus(budget, start.toString(), spentCents / 100.0,
+                Math.round(spentCents * 10000.0 / rule.limitCents) / 100.0);
+    }
+
+    public synchronized Budget createBudget(Budget budget) throws IOException {
+        budget.setId(++lastId);
+        budget.setCreatedAt(new Date());
+        Rule rule = new Rule(budget);
+        List<Budget> saved = budgets();
+        saved.add(rule.budget);
+        store.save(saved);
+        index(rule);
+        return rule.budget;
+    }
+
+    // False when the account has no such budget
+    public synchronized boolean updateBudget(String account, int id, Budget budget) throws IOException {
+        Rule existing = rules.get(id);
+        if (existing == null || !existing.budget.getAccount().equals(account)) {
+            return false;
+        }
+        budget.setId(id);
+        budget.setAccount(account);
+        budget.setCreatedAt(existing.budget.getCreatedAt());
+        Rule rule = new Rule(budget);
+        List<Budget> saved = budgets();
+        saved.set(saved.indexOf(existing.budget), rule.budget);
+        store.save(saved);
+        unindex(existing);
+        index(rule);
+        return true;
+    }
+
+    public synchronized boolean deleteBudget(String account, int id) throws IOException {
+        Rule existing = rules.get(id);
+        if (existing == null || !existing.budget.getAccount().equals(account)) {
+            return false;
+        }
+        List<Budget> saved = budgets();
+        saved.remove(existing.budget);
+        store.save(saved);
+        unindex(existing);
+        return true;
+    }
+
+    private List<Budget> budgets() {
+        List<Budget> budgets = new ArrayList<>();
+        for (Rule rule : rules.values()) {
+            budgets.add(rule.budget);
+        }
+        budgets.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        return budgets;
+    }
+
+    private void index(Rule rule) {
+        rules.put(rule.budget.getId(), rule);
+        index.computeIfAbsent(rule.budget.getAccount(), k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(rule.category(), k -> new CopyOnWriteArrayList<>())
+                .add(rule);
+    }
+
+    private void unindex(Rule rule) {
+        rules.remove(rule.budget.getId());
+        Map<String, List<Rule>> byCategory = index.get(rule.budget.getAccount());
+        if (byCategory != null) {
+            List<Rule> list = byCategory.get(rule.category());
+            if (list != null) {
+                list.remove(rule);
+            }
+        }
+    }
+
+    public int getBudgetCount() {
+        return rules.size();
+    }
+
+    public long getAlertCount() {
+        synchronized (alerts) {
+            return alertSeq;
+        }
+    }
+
+    // Null when the budget is valid
+    public static String validate(Budget budget) {
+        if (budget == null) {
+            return "Budget is required";
+        }
+        if (budget.getCategory() != null && (budget.getCategory().trim().isEmpty() || budget.getCategory().length() > 50)) {
+            return "Category must be 1 to 50 characters, or left out for every category";
+        }
+        if (!Budget.PERIODS.contains(budget.getPeriod())) {
+            return "Period must be one of " + Budget.PERIODS;
+        }
+        if (!(budget.getLimit() > 0) || budget.getLimit() > 1e12) {
+            return "Limit must be positive";
+        }
+        List<Integer> thresholds = budget.getThresholds();
+        if (thresholds == null || thresholds.isEmpty() || thresholds.size() > 10 || thresholds.contains(null)
+                || new HashSet<>(thresholds).size() != thresholds.size()) {
+            return "Thresholds must be 1 to 10 distinct percentages";
+        }
+        for (int threshold : thresholds) {
+            if (threshold < 1 || threshold > 1000) {
+                return "Thresholds must be between 1 and 1000 percent";
+            }
+        }
+        return null;
+    }
+
+    // Monday for weeks, as in the analytics
+    private static LocalDate periodStart(String period, LocalDate day) {
+        switch (period) {
+            case "week":
+                return day.minusDays(day.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue());
+            case "month":
+                return day.withDayOfMonth(1);
+            default:
+                return day.withDayOfYear(1);
+        }
+    }
+
+    private static class Rule {
+        final Budget budget;
+        final long limitCents;
+        final int[] thresholds;
+
+        Rule(Budget budget) {
+            List<Integer> sorted = new ArrayList<>(budget.getThresholds());
+            Collections.sort(sorted);
+            budget.setThresholds(sorted);
+            if (budget.getCategory() != null) {
+                budget.setCategory(budget.getCategory().trim());
+            }
+            this.budget = budget;
+            this.limitCents = Math.round(budget.getLimit() * 100);
+            this.thresholds = sorted.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        String category() {
+            return budget.getCategory() == null ? ALL : budget.getCategory();
+        }
+    }
+
+    // One account's expenses in one category, or ALL, over one period
+    private static final class Window {
+        final String account;
+        final String category;
+        final String period;
+        final int start;
+
+        Window(String account, String category, String period, int start) {
+            this.account = account;
+            this.category = category;
+            this.period = period;
+            this.start = start;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Window)) {
+                return false;
+            }
+            Window other = (Window) o;
+            return start == other.start && account.equals(other.account) && category.equals(other.category)
+                    && period.equals(other.period);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(account, category, period, start);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.budget;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.Budget;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+// The budgets as one JSON array in budgets.path. Budgets change rarely, so each change
+// rewrites the whole file, through a temporary file so a crash leaves the old one or the new one.
+class BudgetStore {
+
+    private final Path file;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    BudgetStore(Path file) {
+        this.file = file;
+    }
+
+    List<Budget> load() throws IOException {
+        if (!Files.exists(file)) {
+            return Collections.emptyList();
+        }
+        return mapper.readValue(file.toFile(), new TypeReference<List<Budget>>() {
+        });
+    }
+
+    void save(Collection<Budget> budgets) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "budgets-", ".tmp");
+        try {
+            mapper.writeValue(temp.toFile(), budgets);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+}
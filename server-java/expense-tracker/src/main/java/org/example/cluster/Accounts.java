@@ -0,0 +1,26 @@
+package org.example.cluster;
+
+import org.example.model.Transaction;
+
+import java.util.regex.Pattern;
+
+// The account a request acts for, named by the X-Account-Id header. Without the header a
+// request acts for the default account, which is where rows written before accounts existed are.
+public class Accounts {
+
+    public static final String HEADER = "X-Account-Id";
+
+    private static final Pattern VALID = Pattern.compile("[A-Za-z0-9_.-]{1,64}");
+
+    private Accounts() {
+    }
+
+    public static boolean isValid(String header) {
+        return header == null || VALID.matcher(header).matches();
+    }
+
+    // Callers behind ClusterRouter get headers it has already checked
+    public static String of(String header) {
+        return header == null ? Transaction.DEFAULT_ACCOUNT : header;
+    }
+}
@@ -0,0 +1,195 @@
+package org.example.cluster;
+
+import org.example.config.StartupGate;
+import org.example.json.ErrorBody;
+
+import javax.servlet.ServletContext;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Sends each request to the node that owns its account. cluster.nodes lists every node as
+// name=base URL; the accounts are spread over them by a HashRing, and a node serves only its
+// own, so every write to an account goes through one process and its caches, aggregates and
+// change log stay the only writer's view. Requests for other accounts are passed on with the
+// body streamed both ways and the reply relayed as it comes. The node's own name is the
+// cluster.node init parameter of its deployment, else cluster.self; a node outside the list
+// owns nothing and only routes. Without cluster.nodes every request is served here.
+@Provider
+@PreMatching
+public class ClusterRouter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String NODE_PARAMETER = "cluster.node";
+    public static final String FORWARDED = "X-Cluster-Forwarded";
+    public static final String SERVED_BY = "X-Served-By";
+
+    private static final Map<String, String> NODES = parseNodes(System.getProperty("cluster.nodes", ""));
+    private static final HashRing RING = NODES.isEmpty() ? null
+            : new HashRing(NODES.keySet(), Integer.getInteger("cluster.points", 128));
+    private static final int CONNECT_TIMEOUT_MS = Integer.getInteger("cluster.connectTimeoutMs", 2000);
+    private static final int READ_TIMEOUT_MS = Integer.getInteger("cluster.readTimeoutMs", 60000);
+    // Per connection, or set by HttpURLConnection itself
+    private static final Set<String> HOP_BY_HOP = new HashSet<>(Arrays.asList("connection", "keep-alive",
+            "proxy-authenticate", "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade",
+            "host", "content-length", "accept-encoding"));
+    // 421 Misdirected Request, which Response.Status does not name
+    private static final int MISDIRECTED = 421;
+
+    @Context
+    private ServletContext servletContext;
+
+    @Override
+    public void filter(ContainerRequestContext request) throws IOException {
+        String header = request.getHeaderString(Accounts.HEADER);
+        if (!Accounts.isValid(header)) {
+            request.abortWith(Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity("{\"error\": \"" + Accounts.HEADER + " must be 1 to 64 letters, digits, '_', '.' or '-'\"}")
+                    .build());
+            return;
+        }
+        // Metrics and probes describe this process, whichever node is asked
+        if (RING == null || HttpMethod.OPTIONS.equals(request.getMethod()) || StartupGate.isProbe(request.getUriInfo().getPath())) {
+            return;
+        }
+        String owner = RING.owner(Accounts.of(header));
+        String self = self();
+        if (owner.equals(self)) {
+            return;
+        }
+        if (request.getHeaderString(FORWARDED) != null) {
+            // The sender's node list disagrees with this one; passing it on again could loop
+            request.abortWith(Response.status(MISDIRECTED)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(ErrorBody.of("Account belongs to node " + owner + ", not " + self))
+                    .build());
+            return;
+        }
+        request.abortWith(forward(request, owner));
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        String self = self();
+        if (RING != null && self != null && !response.getHeaders().containsKey(SERVED_BY)) {
+            response.getHeaders().putSingle(SERVED_BY, self);
+        }
+    }
+
+    private String self() {
+        String node = servletContext != null ? servletContext.getInitParameter(NODE_PARAMETER) : null;
+        return node != null ? node : System.getProperty("cluster.self");
+    }
+
+    private Response forward(ContainerRequestContext request, String owner) {
+        URI uri = request.getUriInfo().getRequestUri();
+        String target = NODES.get(owner) + uri.getRawPath() + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(target).openConnection();
+            connection.setRequestMethod(request.getMethod());
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            // A change stream stays open for as long as the client keeps it
+            boolean stream = MediaType.SERVER_SENT_EVENTS.equals(request.getHeaderString(HttpHeaders.ACCEPT));
+            connection.setReadTimeout(stream ? 0 : READ_TIMEOUT_MS);
+            connection.setInstanceFollowRedirects(false);
+            for (Map.Entry<String, List<String>> entry : request.getHeaders().entrySet()) {
+                if (!HOP_BY_HOP.contains(entry.getKey().toLowerCase(Locale.ROOT))) {
+                    for (String value : entry.getValue()) {
+                        connection.addRequestProperty(entry.getKey(), value);
+                    }
+                }
+            }
+            // Compression is left to this node, which still sees the client's Accept-Encoding
+            connection.setRequestProperty(FORWARDED, String.valueOf(self()));
+            if (request.hasEntity()) {
+                connection.setDoOutput(true);
+                int length = request.getLength();
+                if (length >= 0) {
+                    connection.setFixedLengthStreamingMode(length);
+                } else {
+                    connection.setChunkedStreamingMode(64 * 1024);
+                }
+                try (InputStream in = request.getEntityStream(); OutputStream out = connection.getOutputStream()) {
+                    copy(in, out);
+                }
+            }
+            int status = connection.getResponseCode();
+            Response.ResponseBuilder response = Response.status(status);
+            for (Map.Entry<String, List<String>> entry : connection.getHeaderFields().entrySet()) {
+                String name = entry.getKey();
+                // The status line has no name; CORS headers are added again on the way out
+                if (name == null || HOP_BY_HOP.contains(name.toLowerCase(Locale.ROOT))
+                        || name.toLowerCase(Locale.ROOT).startsWith("access-control-")) {
+                    continue;
+                }
+                for (String value : entry.getValue()) {
+                    response.header(name, value);
+                }
+            }
+            InputStream body = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (body != null) {
+                response.entity((StreamingOutput) out -> {
+                    try (InputStream in = body) {
+                        copy(in, out);
+                    }
+                });
+            }
+            return response.build();
+        } catch (IOException e) {
+            System.out.println("Forwarding " + request.getMethod() + " " + uri.getRawPath() + " to node " + owner
+                    + " failed: " + e.getMessage());
+            return Response.status(Response.Status.BAD_GATEWAY)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(ErrorBody.of("Node " + owner + " could not be reached"))
+                    .build();
+        }
+    }
+
+    // Flushes whenever the source has nothing more buffered, so streamed replies are not held back
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+            if (in.available() == 0) {
+                out.flush();
+            }
+        }
+    }
+
+    private static Map<String, String> parseNodes(String value) {
+        Map<String, String> nodes = new LinkedHashMap<>();
+        for (String node : value.split(",")) {
+            int equals = node.indexOf('=');
+            if (equals > 0) {
+                String url = node.substring(equals + 1).trim();
+                nodes.put(node.substring(0, equals).trim(), url.endsWith("/") ? url.substring(0, url.length() - 1) : url);
+            } else if (!node.trim().isEmpty()) {
+                throw new IllegalArgumentException("cluster.nodes entry '" + node + "' is not name=url");
+            }
+        }
+        return nodes;
+    }
+}
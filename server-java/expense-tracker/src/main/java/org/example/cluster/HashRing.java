@@ -0,0 +1,56 @@
+package org.example.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Consistent hashing of keys onto named members. Each member is placed at several points on a
+// 64-bit ring and a key belongs to the first point at or after its own hash, so adding a member
+// only takes over the keys that now fall just before its points, about 1/N of them, and
+// leaves every other key where it was. The hash depends on nothing but the names, so every
+// node given the same members agrees on every owner.
+public class HashRing {
+
+    private final TreeMap<Long, String> points = new TreeMap<>();
+    private final List<String> members;
+
+    public HashRing(Collection<String> members, int pointsPerMember) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one member");
+        }
+        this.members = new ArrayList<>(members);
+        for (String member : members) {
+            for (int i = 0; i < pointsPerMember; i++) {
+                // Two members hashing to the same point keep it in name order, whatever order they were listed in
+                points.merge(hash(member + "#" + i), member, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+        }
+    }
+
+    public String owner(String key) {
+        Map.Entry<Long, String> point = points.ceilingEntry(hash(key));
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    public List<String> getMembers() {
+        return members;
+    }
+
+    // FNV-1a over the UTF-8 bytes, then the MurmurHash3 finalizer so short, similar names spread
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.config;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.servlet.spec.HttpServletRequestImpl;
+import org.example.metrics.MetricsRegistry;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+
+import java.io.IOException;
+
+// Times each request from the start Undertow records on the exchange (Main turns on
+// RECORD_REQUEST_START_TIME), so nothing is stored per request. A server started without
+// that option falls back to a start time kept as a request property.
+@Provider
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String START = MetricsFilter.class.getName() + ".start";
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        if (exchangeStart() < 0) {
+            requestContext.setProperty(START, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext,
+                       ContainerResponseContext responseContext) throws IOException {
+        long start = exchangeStart();
+        if (start < 0) {
+            Object property = requestContext.getProperty(START);
+            if (property == null) {
+                return;
+            }
+            start = (Long) property;
+        }
+        MetricsRegistry.endpoint(resourceInfo.getResourceMethod()).record(System.nanoTime() - start, responseContext.getStatus());
+    }
+
+    // System.nanoTime() when Undertow began reading the request, or -1 when it was not recorded
+    private static long exchangeStart() {
+        // RESTEasy carries the request over to the thread that resumes an async response
+        HttpServletRequest request = ResteasyProviderFactory.getContextData(HttpServletRequest.class);
+        if (!(request instanceof HttpServletRequestImpl)) {
+            return -1;
+        }
+        HttpServerExchange exchange = ((HttpServletRequestImpl) request).getExchange();
+        return exchange.getRequestStartTime();
+    }
+}
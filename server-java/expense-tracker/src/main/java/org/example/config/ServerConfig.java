@@ -0,0 +1,97 @@
+package org.example.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+// Fills in the system properties every class reads its settings from, before any of them is
+// loaded. A property set with -D wins, then an EXPENSE_TRACKER_* environment variable, then the
+// properties file named by config.file or EXPENSE_TRACKER_CONFIG, else expense-tracker.properties
+// in the working directory when there is one. Environment names are the property's name in
+// capitals with '_' for '.' and between words, so EXPENSE_TRACKER_SERVER_IO_THREADS sets
+// server.ioThreads; names not in the file or the list below become lower case with '.' for '_'.
+public class ServerConfig {
+
+    public static final String ENV_PREFIX = "EXPENSE_TRACKER_";
+
+    // Spelled out so their camel case survives the environment
+    private static final List<String> KNOWN = Arrays.asList(
+            "server.host", "server.port", "server.ioThreads", "server.workerThreads", "server.bufferSize",
+            "server.directBuffers", "server.backlog", "server.compression", "server.compression.minBytes",
+            "server.parseTimeoutMs", "server.keepAliveTimeoutMs", "server.idleTimeoutMs", "server.requestTimeoutMs",
+            "startup.mode", "startup.exitAfterStart", "db.url", "db.login", "db.password", "db.pool.size",
+            "db.pool.borrowTimeoutMs", "db.executor.threads", "db.executor.queue", "storage.backend",
+            "storage.embedded.path", "storage.shards", "search.buildAtStartup", "ingest.enabled", "cluster.nodes",
+            "cluster.self");
+
+    private static boolean loaded;
+
+    private ServerConfig() {
+    }
+
+    public static synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        Properties file = new Properties();
+        String name = System.getProperty("config.file", System.getenv(ENV_PREFIX + "CONFIG"));
+        Path path = Paths.get(name != null ? name : "expense-tracker.properties");
+        if (Files.exists(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                file.load(in);
+                System.out.println("Configuration read from " + path.toAbsolutePath());
+            } catch (IOException e) {
+                System.out.println("Could not read configuration from " + path + ": " + e.getMessage());
+            }
+        } else if (name != null) {
+            System.out.println("Configuration file " + path.toAbsolutePath() + " not found");
+        }
+
+        Map<String, String> byEnvName = new HashMap<>();
+        for (String key : KNOWN) {
+            byEnvName.put(envName(key), key);
+        }
+        for (String key : file.stringPropertyNames()) {
+            byEnvName.put(envName(key), key);
+        }
+        Properties settings = new Properties();
+        settings.putAll(file);
+        for (Map.Entry<String, String> variable : System.getenv().entrySet()) {
+            String variableName = variable.getKey();
+            if (variableName.startsWith(ENV_PREFIX) && !variableName.equals(ENV_PREFIX + "CONFIG")) {
+                String rest = variableName.substring(ENV_PREFIX.length());
+                String key = byEnvName.get(rest);
+                settings.setProperty(key != null ? key : rest.toLowerCase(Locale.ROOT).replace('_', '.'), variable.getValue());
+            }
+        }
+        for (String key : settings.stringPropertyNames()) {
+            if (System.getProperty(key) == null) {
+                System.setProperty(key, settings.getProperty(key));
+            }
+        }
+    }
+
+    // server.ioThreads -> SERVER_IO_THREADS
+    static String envName(String property) {
+        StringBuilder name = new StringBuilder();
+        for (char c : property.toCharArray()) {
+            if (c == '.' || c == '-') {
+                name.append('_');
+            } else if (Character.isUpperCase(c)) {
+                name.append('_').append(c);
+            } else {
+                name.append(Character.toUpperCase(c));
+            }
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.config;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// How far the process has got from launch to serving. Main times each startup step here; from
+// begin() the process is not ready until every step has run, and has failed when one it cannot
+// serve without did not. /health and /ready report it and StartupGate holds requests back
+// until it is ready. A server started without Main.main, as by the benchmarks, is always ready.
+public class Startup {
+
+    private static final Startup INSTANCE = new Startup();
+
+    private final long jvmStarted = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private long phaseStarted = System.currentTimeMillis();
+    private volatile boolean loading;
+    private volatile String failure;
+    private volatile long readyAt;
+
+    private Startup() {
+        phases.put("jvm", phaseStarted - jvmStarted);
+    }
+
+    public static Startup get() {
+        return INSTANCE;
+    }
+
+    // Ends the step running since the previous call, or since the JVM handed over to main
+    public synchronized void phase(String name) {
+        long now = System.currentTimeMillis();
+        phases.merge(name, now - phaseStarted, Long::sum);
+        phaseStarted = now;
+    }
+
+    public void begin() {
+        loading = true;
+    }
+
+    public synchronized void ready() {
+        readyAt = System.currentTimeMillis();
+        loading = false;
+        StringBuilder line = new StringBuilder("Ready in ").append(readyAt - jvmStarted).append(" ms (");
+        boolean first = true;
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            line.append(first ? "" : ", ").append(phase.getKey()).append(' ').append(phase.getValue());
+            first = false;
+        }
+        System.out.println(line.append(')'));
+    }
+
+    public void failed(String reason) {
+        failure = reason;
+        System.err.println(reason);
+    }
+
+    public boolean isReady() {
+        return !loading && failure == null;
+    }
+
+    // Null unless a step the server cannot run without failed
+    public String getFailure() {
+        return failure;
+    }
+
+    // Milliseconds from JVM start to ready, or -1 until then
+    public long getStartupMs() {
+        return readyAt > 0 ? readyAt - jvmStarted : -1;
+    }
+
+    public synchronized Map<String, Long> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.config;
+
+import org.example.json.ErrorBody;
+
+import javax.annotation.Priority;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+// With startup.mode=fast the server listens before the stores, aggregates and budgets are
+// loaded; until they are, requests other than health, readiness and metrics get 503 with
+// Retry-After rather than answers from half-loaded state. Runs before ClusterRouter.
+@Provider
+@PreMatching
+@Priority(Priorities.AUTHENTICATION)
+public class StartupGate implements ContainerRequestFilter {
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        if (Startup.get().isReady() || HttpMethod.OPTIONS.equals(request.getMethod()) || isProbe(request.getUriInfo().getPath())) {
+            return;
+        }
+        request.abortWith(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .type(MediaType.APPLICATION_JSON)
+                .entity(ErrorBody.of(Startup.get().getFailure() != null ? "Server failed to start" : "Server is starting"))
+                .build());
+    }
+
+    // Paths answered whatever the state of the process, and never forwarded to another node
+    public static boolean isProbe(String path) {
+        String relative = path.startsWith("/") ? path.substring(1) : path;
+        return relative.startsWith("metrics") || relative.equals("health") || relative.equals("ready");
+    }
+}
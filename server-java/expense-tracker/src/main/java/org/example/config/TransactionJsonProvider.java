@@ -0,0 +1,112 @@
+package org.example.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.example.json.ErrorBody;
+import org.example.json.TransactionCodec;
+import org.example.model.Transaction;
+import org.example.model.TransactionChanges;
+import org.example.model.TransactionList;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+// Reads and writes Transaction, TransactionList and List<Transaction> with TransactionCodec
+// instead of the reflective Jackson provider, and writes TransactionChanges. Other entities
+// still go through Jackson.
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class TransactionJsonProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return handles(type, genericType);
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        try (JsonParser parser = TransactionCodec.parser(entityStream)) {
+            if (Transaction.class.equals(type)) {
+                return TransactionCodec.read(parser);
+            }
+            if (TransactionList.class.equals(type)) {
+                return TransactionCodec.readList(parser);
+            }
+            return TransactionCodec.readArray(parser);
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException(Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(ErrorBody.of("Invalid JSON: " + e.getOriginalMessage()))
+                    .build());
+        }
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == TransactionChanges.class || handles(type, genericType);
+    }
+
+    @Override
+    public long getSize(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void writeTo(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+            throws IOException, WebApplicationException {
+        if (value instanceof Transaction) {
+            // Buffered so the body goes out with a Content-Length, which lets the server skip
+            // compressing it; a single transaction is a few hundred bytes
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+            try (JsonGenerator generator = TransactionCodec.generator(buffer)) {
+                TransactionCodec.write(generator, (Transaction) value);
+            }
+            httpHeaders.putSingle(HttpHeaders.CONTENT_LENGTH, buffer.size());
+            buffer.writeTo(entityStream);
+            return;
+        }
+        try (JsonGenerator generator = TransactionCodec.generator(entityStream)) {
+            if (value instanceof TransactionList) {
+                TransactionCodec.writeList(generator, (TransactionList) value);
+            } else if (value instanceof TransactionChanges) {
+                TransactionCodec.writeChanges(generator, (TransactionChanges) value);
+            } else {
+                TransactionCodec.writeArray(generator, (List<Transaction>) value);
+            }
+        }
+    }
+
+    // A bare List only matches when its element type survives, e.g. via GenericEntity
+    private static boolean handles(Class<?> type, Type genericType) {
+        if (type == Transaction.class || type == TransactionList.class) {
+            return true;
+        }
+        if (!List.class.isAssignableFrom(type) || !(genericType instanceof ParameterizedType)) {
+            return false;
+        }
+        Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+        return arguments.length == 1 && arguments[0] == Transaction.class;
+    }
+}
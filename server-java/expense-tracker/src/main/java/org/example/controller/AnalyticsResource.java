@@ -0,0 +1,131 @@
+package org.example.controller;
+
+import org.example.analytics.TransactionAnalytics;
+import org.example.analytics.TransactionColumns;
+import org.example.cluster.Accounts;
+import org.example.json.ErrorBody;
+import org.example.model.TransactionFilter;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+
+// Time-bucketed spending queries answered from TransactionAnalytics' columns. Reads go through
+// the same conditional-GET and executor path as the transaction list.
+@Path("/api/analytics")
+@Produces(MediaType.APPLICATION_JSON)
+public class AnalyticsResource {
+
+    private static final List<String> BUCKETS = Arrays.asList("day", "week", "month", "year");
+    private static final int MAX_WINDOW = 366;
+    private static final int MAX_TOP = 1000;
+
+    @GET
+    @Path("/trend")
+    public void getTrend(@QueryParam("bucket") @DefaultValue("month") String bucket,
+                         @QueryParam("type") String type,
+                         @QueryParam("category") String category,
+                         @QueryParam("from") String from,
+                         @QueryParam("to") String to,
+                         @Context Request request,
+                         @Context HttpHeaders headers,
+                         @Suspended AsyncResponse async) {
+        if (!BUCKETS.contains(bucket)) {
+            async.resume(badRequest("Bucket must be one of " + BUCKETS));
+            return;
+        }
+        query(type, category, from, to, request, headers, async, (columns, filter) -> columns.trend(filter, bucket));
+    }
+
+    @GET
+    @Path("/rolling")
+    public void getRolling(@QueryParam("window") @DefaultValue("30") int window,
+                           @QueryParam("type") @DefaultValue("expense") String type,
+                           @QueryParam("category") String category,
+                           @QueryParam("from") String from,
+                           @QueryParam("to") String to,
+                           @Context Request request,
+                           @Context HttpHeaders headers,
+                           @Suspended AsyncResponse async) {
+        if (window < 1 || window > MAX_WINDOW) {
+            async.resume(badRequest("Window must be between 1 and " + MAX_WINDOW + " days"));
+            return;
+        }
+        query(type, category, from, to, request, headers, async, (columns, filter) -> columns.rolling(filter, window));
+    }
+
+    @GET
+    @Path("/top")
+    public void getTop(@QueryParam("by") @DefaultValue("merchant") String by,
+                       @QueryParam("n") @DefaultValue("10") int n,
+                       @QueryParam("type") @DefaultValue("expense") String type,
+                       @QueryParam("category") String category,
+                       @QueryParam("from") String from,
+                       @QueryParam("to") String to,
+                       @Context Request request,
+                       @Context HttpHeaders headers,
+                       @Suspended AsyncResponse async) {
+        if (!by.equals("merchant") && !by.equals("category")) {
+            async.resume(badRequest("By must be 'merchant' or 'category'"));
+            return;
+        }
+        if (n < 1 || n > MAX_TOP) {
+            async.resume(badRequest("N must be between 1 and " + MAX_TOP));
+            return;
+        }
+        query(type, category, from, to, request, headers, async,
+                (columns, filter) -> columns.top(filter, by.equals("merchant"), n));
+    }
+
+    private static void query(String type, String category, String from, String to,
+                              Request request, HttpHeaders headers, AsyncResponse async, Query query) {
+        if (type != null && !type.equals("income") && !type.equals("expense")) {
+            async.resume(badRequest("Type must be 'income' or 'expense'"));
+            return;
+        }
+        String account = headers.getHeaderString(Accounts.HEADER);
+        TransactionResource.submitRead(request, headers, async, () -> {
+            try {
+                TransactionFilter filter;
+                try {
+                    filter = TransactionResource.buildFilter(type, category, from, to);
+                    filter.setAccount(Accounts.of(account));
+                } catch (DateTimeParseException e) {
+                    return badRequest("Invalid date range");
+                }
+                return Response.status(Response.Status.OK)
+                        .entity(query.run(TransactionAnalytics.get().columns(), filter))
+                        .build();
+            } catch (IllegalArgumentException e) {
+                return badRequest(e.getMessage());
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(ErrorBody.of(e.getMessage()))
+                        .build();
+            }
+        });
+    }
+
+    private static Response badRequest(String message) {
+        return Response.status(Response.Status.BAD_REQUEST)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(ErrorBody.of(message))
+                .build();
+    }
+
+    private interface Query {
+        Object run(TransactionColumns columns, TransactionFilter filter);
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.controller;
+
+import org.example.budget.BudgetEngine;
+import org.example.cluster.Accounts;
+import org.example.json.ErrorBody;
+import org.example.model.Budget;
+import org.example.model.BudgetStatus;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+// Budgets and the alerts they fire. Everything here is answered from BudgetEngine's memory,
+// so it is served on the request thread rather than through the DbExecutor.
+@Path("/api/budgets")
+@Produces(MediaType.APPLICATION_JSON)
+public class BudgetResource {
+
+    private static final int MAX_ALERTS = 1000;
+
+    @GET
+    public Response getBudgets(@HeaderParam(Accounts.HEADER) String account) {
+        try {
+            return Response.ok(BudgetEngine.get().getBudgets(Accounts.of(account))).build();
+        } catch (Exception e) {
+            return serverError(e);
+        }
+    }
+
+    @GET
+    @Path("/{id}")
+    public Response getBudget(@PathParam("id") int id,
+                              @HeaderParam(Accounts.HEADER) String account) {
+        try {
+            BudgetStatus status = BudgetEngine.get().getBudget(Accounts.of(account), id);
+            return status != null ? Response.ok(status).build() : notFound();
+        } catch (Exception e) {
+            return serverError(e);
+        }
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response createBudget(Budget budget,
+                                 @HeaderParam(Accounts.HEADER) String account,
+                                 @Context UriInfo uriInfo) {
+        String error = BudgetEngine.validate(budget);
+        if (error != null) {
+            return badRequest(error);
+        }
+        try {
+            budget.setAccount(Accounts.of(account));
+            Budget created = BudgetEngine.get().createBudget(budget);
+            return Response.status(Response.Status.CREATED)
+                    .location(uriInfo.getAbsolutePathBuilder().path(String.valueOf(created.getId())).build())
+                    .entity(created)
+                    .build();
+        } catch (Exception e) {
+            return serverError(e);
+        }
+    }
+
+    @PUT
+    @Path("/{id}")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response updateBudget(@PathParam("id") int id,
+                                 Budget budget,
+                                 @HeaderParam(Accounts.HEADER) String account) {
+        String error = BudgetEngine.validate(budget);
+        if (error != null) {
+            return badRequest(error);
+        }
+        try {
+            if (!BudgetEngine.get().updateBudget(Accounts.of(account), id, budget)) {
+                return notFound();
+            }
+            return Response.ok(budget).build();
+        } catch (Exception e) {
+            return serverError(e);
+        }
+    }
+
+    @DELETE
+    @Path("/{id}")
+    public Response deleteBudget(@PathParam("id") int id,
+                                 @HeaderParam(Accounts.HEADER) String account) {
+        try {
+            if (!BudgetEngine.get().deleteBudget(Accounts.of(account), id)) {
+                return notFound();
+            }
+            return Response.noContent().build();
+        } catch (Exception e) {
+            return serverError(e);
+        }
+    }
+
+    // Alerts after the given sequence number; pass the last seq seen to read on from there
+    @GET
+    @Path("/alerts")
+    public Response getAlerts(@QueryParam("since") @DefaultValue("0") long since,
+                              @QueryParam("limit") @DefaultValue("100") int limit,
+                              @HeaderParam(Accounts.HEADER) String account) {
+        if (limit < 1 || limit > MAX_ALERTS) {
+            return badRequest("Limit must be between 1 and " + MAX_ALERTS);
+        }
+        try {
+            return Response.ok(BudgetEngine.get().alerts(Accounts.of(account), since, limit)).build();
+        } catch (Exception e) {
+            return serverError(e);
+        }
+    }
+
+    private static Response badRequest(String message) {
+        return Response.status(Response.Status.BAD_REQUEST)
+                .entity(ErrorBody.of(message))
+                .build();
+    }
+
+    private static Response notFound() {
+        return Response.status(Response.Status.NOT_FOUND)
+                .entity("{\"error\": \"Budget not found\"}")
+                .build();
+    }
+
+    private static Response serverError(Exception e) {
+        e.printStackTrace();
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(ErrorBody.of(e.getMessage()))
+                .build();
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.controller;
+
+import org.example.json.ErrorBody;
+import org.example.model.TransactionChanges;
+import org.example.service.TransactionChangeLog;
+import org.example.service.TransactionVersion;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Pushes change-log entries to Server-Sent Events subscribers. Each subscriber keeps its own
+// position in the log and is drained on a small pool of its own, so a write only wakes the
+// subscribers and a slow client holds up one push thread rather than the writer, and for no
+// longer than the send timeout.
+public class ChangeFeed {
+
+    private static final ChangeFeed INSTANCE = new ChangeFeed(
+            Integer.getInteger("changes.pushThreads", 4),
+            Long.getLong("changes.heartbeatMs", 15000L),
+            Long.getLong("changes.sendTimeoutMs", 10000L));
+
+    private static final int MAX_EVENT_CHANGES = 1000;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final long sendTimeoutMs;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    ChangeFeed(int threads, long heartbeatMs, long sendTimeoutMs) {
+        this.sendTimeoutMs = sendTimeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(Math.max(threads, 1), r -> {
+            Thread t = new Thread(r, "changes-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // Comments keep idle connections from being closed by the server's idle timeout or
+        // a proxy, and find clients that went away without closing
+        if (heartbeatMs > 0) {
+            executor.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        }
+        TransactionChangeLog.get().addListener(this::wakeAll);
+    }
+
+    public static ChangeFeed get() {
+        return INSTANCE;
+    }
+
+    // Streams every change to the account's rows after the given version; -1 (an unknown
+    // version) gets a resync event
+    public void subscribe(SseEventSink sink, Sse sse, long after, String account) {
+        Subscriber subscriber = new Subscriber(sink, sse, after, account);
+        subscribers.add(subscriber);
+        subscriber.ping.set(true);
+        subscriber.wake();
+    }
+
+    private void wakeAll() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.wake();
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.ping.set(true);
+            subscriber.wake();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    private class Subscriber {
+
+        private final SseEventSink sink;
+        private final Sse sse;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean ping = new AtomicBoolean();
+        private final String account;
+        private long position;
+
+        Subscriber(SseEventSink sink, Sse sse, long position, String account) {
+            this.sink = sink;
+            this.sse = sse;
+            this.position = position;
+            this.account = account;
+        }
+
+        void wake() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        // Cleared before reading the log, so a change logged meanwhile schedules another drain
+        private void drain() {
+            scheduled.set(false);
+            synchronized (this) {
+                if (sink.isClosed()) {
+                    close();
+                    return;
+                }
+                try {
+                    boolean sent = false;
+                    while (true) {
+                        TransactionChanges changes = TransactionChangeLog.get().since(position, MAX_EVENT_CHANGES, account);
+                        if (changes == null) {
+                            send(sse.newEventBuilder()
+                                    .name("resync")
+                                    .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                                    .data(String.class, ErrorBody.of("Changes since that version are no longer available"))
+                                    .build());
+                            close();
+                            return;
+                        }
+                        if (changes.getChanges().isEmpty()) {
+                            // Nothing new, or only other accounts' changes, which are skipped over
+                            position = TransactionVersion.get().parse(changes.getVersion());
+                            if (!changes.isMore()) {
+                                break;
+                            }
+                            continue;
+                        }
+                        // The id is the version after this batch: EventSource sends it back as
+                        // Last-Event-ID when it reconnects, resuming where this left off
+                        send(sse.newEventBuilder()
+                                .name("changes")
+                                .id(changes.getVersion())
+                                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                                .data(TransactionChanges.class, changes)
+                                .build());
+                        position = TransactionVersion.get().parse(changes.getVersion());
+                        sent = true;
+                    }
+                    if (ping.getAndSet(false) && !sent) {
+                        send(sse.newEventBuilder().comment("ping").build());
+                    }
+                } catch (Exception e) {
+                    close();
+                }
+            }
+        }
+
+        // A client that stops reading is dropped after sendTimeoutMs instead of holding a push
+        // thread, and with it every subscriber queued behind it
+        private void send(OutboundSseEvent event) throws Exception {
+            sink.send(event).toCompletableFuture().get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        void close() {
+            subscribers.remove(this);
+            try {
+                sink.close();
+            } catch (Exception e) {
+                // Already gone
+            }
+        }
+    }
+}
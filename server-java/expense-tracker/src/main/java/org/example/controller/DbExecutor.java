@@ -0,0 +1,124 @@
+package org.example.controller;
+
+import org.example.json.ErrorBody;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Resource methods hand their database work to this bounded pool and suspend, so a slow
+// database ties up these threads instead of Undertow's workers. A full queue is answered
+// with 503 straight away; db.executor.threads=0 runs the work inline on the worker thread.
+public class DbExecutor {
+
+    private static final DbExecutor INSTANCE = new DbExecutor(
+            Integer.getInteger("db.executor.threads", Integer.getInteger("db.pool.size", 10)),
+            Integer.getInteger("db.executor.queue", 1000),
+            Long.getLong("server.requestTimeoutMs", 30000L));
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    DbExecutor(int threads, int queueSize, long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        if (threads <= 0) {
+            executor = null;
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread t = new Thread(r, "db-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static DbExecutor get() {
+        return INSTANCE;
+    }
+
+    public void submit(AsyncResponse async, Callable<Response> work) {
+        if (executor == null) {
+            async.resume(call(work));
+            return;
+        }
+        if (timeoutMs > 0) {
+            async.setTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+            async.setTimeoutHandler(timedOutResponse -> {
+                timedOut.increment();
+                timedOutResponse.resume(error(Response.Status.SERVICE_UNAVAILABLE, "Request timed out"));
+            });
+        }
+        try {
+            executor.execute(() -> {
+                // Skip work for a request that timed out while queued
+                if (!async.isSuspended()) {
+                    return;
+                }
+                Response response = call(work);
+                // The timeout covers queueing and database work, not writing: disarm it so a
+                // streamed body is not raced by the timeout handler. False means it already fired.
+                if (timeoutMs > 0 && !async.setTimeout(0, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                async.resume(response);
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            async.resume(error(Response.Status.SERVICE_UNAVAILABLE, "Server busy, retry later"));
+        }
+    }
+
+    private static Response call(Callable<Response> work) {
+        try {
+            return work.call();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return error(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    private static Response error(Response.Status status, String message) {
+        return Response.status(status)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(ErrorBody.of(message))
+                .build();
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public int getThreadCount() {
+        return executor == null ? 0 : executor.getMaximumPoolSize();
+    }
+
+    public int getActiveCount() {
+        return executor == null ? 0 : executor.getActiveCount();
+    }
+
+    public int getQueuedCount() {
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timedOut.sum();
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.controller;
+
+import org.example.config.Startup;
+import org.example.service.TransactionService;
+import org.example.service.TransactionServiceImpl;
+import org.example.service.TransactionServices;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Probes for orchestrators. /health answers 200 while the process can still become ready, so a
+// restart only follows a failed startup; /ready answers 200 once startup has finished and every
+// database the store uses accepts a connection, so traffic only goes to a node that can serve it.
+@Path("/")
+@Produces(MediaType.APPLICATION_JSON)
+public class HealthResource {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    @GET
+    @Path("health")
+    public Response getHealth() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        String failure = Startup.get().getFailure();
+        body.put("status", failure == null ? "UP" : "DOWN");
+        if (failure != null) {
+            body.put("error", failure);
+        }
+        return Response.status(failure == null ? Response.Status.OK : Response.Status.SERVICE_UNAVAILABLE)
+                .entity(body)
+                .build();
+    }
+
+    @GET
+    @Path("ready")
+    public Response getReady() {
+        Startup startup = Startup.get();
+        Map<String, Object> body = new LinkedHashMap<>();
+        boolean ready = startup.isReady();
+        if (ready) {
+            String storage = checkStorage();
+            body.put("storage", storage == null ? "UP" : storage);
+            ready = storage == null;
+        }
+        body.put("status", ready ? "READY" : startup.getFailure() != null ? "FAILED" : startup.isReady() ? "UNAVAILABLE" : "STARTING");
+        body.put("startupMs", startup.getStartupMs());
+        body.put("phases", startup.getPhases());
+        return Response.status(ready ? Response.Status.OK : Response.Status.SERVICE_UNAVAILABLE)
+                .entity(body)
+                .build();
+    }
+
+    // Null when every database answers; the embedded store is in this process. Checked over each
+    // pool's probe connection, so a busy pool neither fails the probe nor is slowed by it.
+    private static String checkStorage() {
+        if (!TransactionServices.usesMySql()) {
+            return null;
+        }
+        for (TransactionService store : TransactionServices.stores()) {
+            String failure = ((TransactionServiceImpl) store).getPool().probe(VALIDATION_TIMEOUT_SECONDS);
+            if (failure != null) {
+                return failure;
+            }
+        }
+        return null;
+    }
+}
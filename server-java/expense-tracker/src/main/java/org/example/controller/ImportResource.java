@@ -0,0 +1,68 @@
+package org.example.controller;
+
+import org.example.cluster.Accounts;
+import org.example.imports.ImportService;
+import org.example.json.ErrorBody;
+import org.example.model.ImportJob;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.io.InputStream;
+
+@Path("/api/imports")
+@Produces(MediaType.APPLICATION_JSON)
+public class ImportResource {
+
+    private final ImportService importService = ImportService.get();
+
+    @POST
+    @Consumes(MediaType.WILDCARD)
+    public Response startImport(InputStream body,
+                                @QueryParam("format") String format,
+                                @HeaderParam(Accounts.HEADER) String account,
+                                @Context HttpHeaders headers,
+                                @Context UriInfo uriInfo) {
+        try {
+            if (format == null) {
+                MediaType type = headers.getMediaType();
+                format = type != null && type.getSubtype().contains("ofx") ? "ofx" : "csv";
+            }
+            format = format.toLowerCase();
+            if (!format.equals("csv") && !format.equals("ofx")) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("{\"error\": \"Format must be 'csv' or 'ofx'\"}")
+                        .build();
+            }
+
+            ImportJob job = importService.start(body, format, Accounts.of(account));
+            return Response.status(Response.Status.ACCEPTED)
+                    .location(uriInfo.getAbsolutePathBuilder().path(job.getId()).build())
+                    .entity(job)
+                    .build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(ErrorBody.of(e.getMessage()))
+                    .build();
+        }
+    }
+
+    @GET
+    @Path("/{id}")
+    public Response getImport(@PathParam("id") String id,
+                              @HeaderParam(Accounts.HEADER) String account) {
+        ImportJob job = importService.getJob(Accounts.of(account), id);
+        if (job != null) {
+            return Response.status(Response.Status.OK)
+                    .entity(job)
+                    .build();
+        } else {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("{\"error\": \"Import not found\"}")
+                    .build();
+        }
+    }
+}
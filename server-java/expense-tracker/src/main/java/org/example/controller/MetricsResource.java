@@ -0,0 +1,18 @@
+package org.example.controller;
+
+import org.example.metrics.MetricsRegistry;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+@Path("/metrics")
+public class MetricsResource {
+
+    @GET
+    @Produces("text/plain; version=0.0.4; charset=utf-8")
+    public Response getMetrics() {
+        return Response.ok(MetricsRegistry.render()).build();
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.controller;
+
+import org.example.cluster.Accounts;
+import org.example.json.ErrorBody;
+import org.example.model.RecurringTransaction;
+import org.example.recurring.RecurringScheduler;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+// Recurring transactions and the cash flow they project. The schedules are held by
+// RecurringScheduler in memory, so these are answered on the request thread.
+@Path("/api/recurring")
+@Produces(MediaType.APPLICATION_JSON)
+public class RecurringResource {
+
+    private static final int MAX_MONTHS = 60;
+    private static final int MAX_OCCURRENCES = 10000;
+
+    private final RecurringScheduler scheduler = RecurringScheduler.get();
+
+    @GET
+    public Response getRecurring(@HeaderParam(Accounts.HEADER) String account) {
+        try {
+            return Response.ok(scheduler.getRecurring(Accounts.of(account))).build();
+        } catch (Exception e) {
+            return serverError(e);
+        }
+    }
+
+    @GET
+    @Path("/{id}")
+    public Response getRecurring(@PathParam("id") int id,
+                                 @HeaderParam(Accounts.HEADER) String account) {
+        try {
+            RecurringTransaction definition = scheduler.getRecurring(Accounts.of(account), id);
+            return definition != null ? Response.ok(definition).build() : notFound();
+        } catch (Exception e) {
+            return serverError(e);
+        }
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response createRecurring(RecurringTransaction definition,
+                                    @HeaderParam(Accounts.HEADER) String account,
+                                    @Context UriInfo uriInfo) {
+        String invalid = RecurringScheduler.validateNew(definition);
+        if (invalid != null) {
+            return badRequest(invalid);
+        }
+        try {
+            definition.setAccount(Accounts.of(account));
+            RecurringTransaction created = scheduler.createRecurring(definition);
+            return Response.status(Response.Status.CREATED)
+                    .location(uriInfo.getAbsolutePathBuilder().path(String.valueOf(created.getId())).build())
+                    .entity(created)
+                    .build();
+        } catch (Exception e) {
+            return serverError(e);
+        }
+    }
+
+    @PUT
+    @Path("/{id}")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response updateRecurring(@PathParam("id") int id,
+                                    RecurringTransaction definition,
+                                    @HeaderParam(Accounts.HEADER) String account) {
+        String invalid = RecurringScheduler.validate(definition);
+        if (invalid != null) {
+            return badRequest(invalid);
+        }
+        try {
+            RecurringTransaction updated = scheduler.updateRecurring(Accounts.of(account), id, definition);
+            return updated != null ? Response.ok(updated).build() : notFound();
+        } catch (Exception e) {
+            return serverError(e);
+        }
+    }
+
+    @DELETE
+    @Path("/{id}")
+    public Response deleteRecurring(@PathParam("id") int id,
+                                    @HeaderParam(Accounts.HEADER) String account) {
+        try {
+            return scheduler.deleteRecurring(Accounts.of(account), id) ? Response.noContent().build() : notFound();
+        } catch (Exception e) {
+            return serverError(e);
+        }
+    }
+
+    @GET
+    @Path("/projection")
+    public Response getProjection(@QueryParam("months") @DefaultValue("3") int months,
+                                  @QueryParam("limit") @DefaultValue("1000") int limit,
+                                  @HeaderParam(Accounts.HEADER) String account) {
+        if (months < 1 || months > MAX_MONTHS) {
+            return badRequest("Months must be between 1 and " + MAX_MONTHS);
+        }
+        if (limit < 0 || limit > MAX_OCCURRENCES) {
+            return badRequest("Limit must be between 0 and " + MAX_OCCURRENCES);
+        }
+        try {
+            return Response.ok(scheduler.project(Accounts.of(account), months, limit)).build();
+        } catch (Exception e) {
+            return serverError(e);
+        }
+    }
+
+    private static Response badRequest(String message) {
+        return Response.status(Response.Status.BAD_REQUEST)
+                .entity(ErrorBody.of(message))
+                .build();
+    }
+
+    private static Response notFound() {
+        return Response.status(Response.Status.NOT_FOUND)
+                .entity("{\"error\": \"Recurring transaction not found\"}")
+                .build();
+    }
+
+    private static Response serverError(Exception e) {
+        e.printStackTrace();
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(ErrorBody.of(e.getMessage()))
+                .build();
+    }
+}
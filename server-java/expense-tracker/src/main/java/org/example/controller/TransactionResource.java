@@ -1,186 +1,715 @@
 package org.example.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.example.cluster.Accounts;
+import org.example.json.ErrorBody;
+import org.example.ingest.TransactionIngest;
+import org.example.json.TransactionCodec;
+import org.example.model.BatchResult;
 import org.example.model.Transaction;
-import org.example.model.TransactionList;
+import org.example.model.TransactionChanges;
+import org.example.model.TransactionFilter;
+import org.example.model.TransactionPage;
+import org.example.model.TransactionSummary;
+import org.example.search.SearchIndex;
+import org.example.search.TransactionSearch;
+import org.example.service.PageCursor;
+import org.example.service.TransactionChangeLog;
 import org.example.service.TransactionService;
-import org.example.service.TransactionServiceImpl;
+import org.example.service.TransactionServices;
+import org.example.service.TransactionValidator;
+import org.example.service.TransactionVersion;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 @Path("/api/transactions")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class TransactionResource {
 
-    private TransactionService transactionService = new TransactionServiceImpl();
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_BATCH_SIZE = 10000;
+    private static final int MAX_CHANGES = 10000;
+    private static final int MAX_QUERY_LENGTH = 200;
+    private static final int MAX_SEARCH_PAGE = 100;
+    private static final int MAX_SEARCH_OFFSET = 10000;
+    private static final String NDJSON = "application/x-ndjson";
+    // Caches may keep a read but must revalidate it, which the version check answers cheaply
+    private static final CacheControl REVALIDATE = CacheControl.valueOf("no-cache");
+
+    private TransactionService transactionService = TransactionServices.get();
 
     @GET
-    public Response getTransactions() {
-        try {
-            TransactionList transactionList = transactionService.getTransactions();
-            if (transactionList != null) {
-                return Response.status(Response.Status.OK)
-                        .entity(transactionList.getTransactions())
-                        .build();
-            } else {
+    public void getTransactions(@QueryParam("limit") @DefaultValue("50") int limit,
+                                @QueryParam("cursor") String cursor,
+                                @QueryParam("type") String type,
+                                @QueryParam("category") String category,
+                                @QueryParam("from") String from,
+                                @QueryParam("to") String to,
+                                @HeaderParam(Accounts.HEADER) String account,
+                                @Context UriInfo uriInfo,
+                                @Context Request request,
+                                @Context HttpHeaders headers,
+                                @Suspended AsyncResponse async) {
+        // UriInfo is bound to the request thread; take what the next link needs before handing off
+        UriBuilder requestUri = uriInfo.getRequestUriBuilder();
+        submitRead(request, headers, async, () -> {
+            try {
+                // Validation
+                if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity("{\"error\": \"Limit must be between 1 and " + MAX_PAGE_SIZE + "\"}")
+                            .build();
+                }
+                if (type != null && !type.equals("income") && !type.equals("expense")) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity("{\"error\": \"Type must be 'income' or 'expense'\"}")
+                            .build();
+                }
+                TransactionFilter filter;
+                PageCursor after;
+                try {
+                    filter = buildFilter(type, category, from, to);
+                    filter.setAccount(Accounts.of(account));
+                    after = cursor == null || cursor.isEmpty() ? null : PageCursor.decode(cursor);
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity("{\"error\": \"Invalid cursor or date range\"}")
+                            .build();
+                }
+
+                TransactionPage page = transactionService.getTransactions(filter, after, limit);
+                if (page != null) {
+                    // The body stays a plain array; the next page is advertised in headers
+                    Response.ResponseBuilder response = Response.status(Response.Status.OK)
+                            .entity(new GenericEntity<List<Transaction>>(page.getTransactions()) {
+                            });
+                    if (page.getNext() != null) {
+                        response.header("X-Next-Cursor", page.getNext())
+                                .link(requestUri.replaceQueryParam("cursor", page.getNext()).build(), "next");
+                    }
+                    return response.build();
+                } else {
+                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity("{\"error\": \"Failed to retrieve transactions\"}")
+                            .build();
+                }
+            } catch (Exception e) {
                 return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                        .entity("{\"error\": \"Failed to retrieve transactions\"}")
+                        .entity(ErrorBody.of(e.getMessage()))
                         .build();
             }
-        } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("{\"error\": \"" + e.getMessage() + "\"}")
-                    .build();
-        }
+        });
     }
 
     @GET
-    @Path("/{id}")
-    public Response getTransaction(@PathParam("id") int id) {
-        try {
-            Transaction transaction = transactionService.getTransaction(id);
-            if (transaction != null) {
-                return Response.status(Response.Status.OK)
-                        .entity(transaction)
+    @Path("/export")
+    @Produces(NDJSON)
+    public void exportTransactions(@QueryParam("type") String type,
+                                   @QueryParam("category") String category,
+                                   @QueryParam("from") String from,
+                                   @QueryParam("to") String to,
+                                   @HeaderParam(Accounts.HEADER) String account,
+                                   @Suspended AsyncResponse async) {
+        DbExecutor.get().submit(async, () -> {
+            if (type != null && !type.equals("income") && !type.equals("expense")) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .type(MediaType.APPLICATION_JSON)
+                        .entity("{\"error\": \"Type must be 'income' or 'expense'\"}")
                         .build();
-            } else {
-                return Response.status(Response.Status.NOT_FOUND)
-                        .entity("{\"error\": \"Transaction not found\"}")
+            }
+            TransactionFilter filter;
+            try {
+                filter = buildFilter(type, category, from, to);
+                filter.setAccount(Accounts.of(account));
+            } catch (DateTimeParseException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .type(MediaType.APPLICATION_JSON)
+                        .entity("{\"error\": \"Invalid date range\"}")
                         .build();
             }
-        } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("{\"error\": \"" + e.getMessage() + "\"}")
+
+            // One JSON object per line, written as rows arrive from the database
+            StreamingOutput stream = output -> {
+                JsonGenerator generator = TransactionCodec.generator(output);
+                // Lines are delimited by '\n' alone; the default root separator would prefix a space
+                generator.setRootValueSeparator(null);
+                long count;
+                try {
+                    count = transactionService.exportTransactions(filter, transaction -> {
+                        try {
+                            TransactionCodec.write(generator, transaction);
+                            generator.writeRaw('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                generator.flush();
+                if (count < 0) {
+                    throw new IOException("Export aborted by a database error");
+                }
+            };
+            return Response.ok(stream)
+                    .header("Content-Disposition", "attachment; filename=\"transactions.ndjson\"")
                     .build();
-        }
+        });
     }
 
-    @POST
-    public Response createTransaction(Transaction transaction) {
-        try {
-            // Validation
-            if (transaction.getDescription() == null || transaction.getDescription().trim().isEmpty()) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity("{\"error\": \"Transaction description is required\"}")
+    @GET
+    @Path("/summary")
+    public void getSummary(@QueryParam("from") String from,
+                           @QueryParam("to") String to,
+                           @HeaderParam(Accounts.HEADER) String account,
+                           @Context Request request,
+                           @Context HttpHeaders headers,
+                           @Suspended AsyncResponse async) {
+        submitRead(request, headers, async, () -> {
+            try {
+                TransactionFilter filter;
+                try {
+                    filter = buildFilter(null, null, from, to);
+                    filter.setAccount(Accounts.of(account));
+                } catch (DateTimeParseException e) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity("{\"error\": \"Invalid date range\"}")
+                            .build();
+                }
+                TransactionSummary summary = transactionService.getSummary(filter);
+                if (summary != null) {
+                    return Response.status(Response.Status.OK)
+                            .entity(summary)
+                            .build();
+                } else {
+                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity("{\"error\": \"Failed to compute summary\"}")
+                            .build();
+                }
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(ErrorBody.of(e.getMessage()))
                         .build();
             }
-            if (transaction.getAmount() < 0) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity("{\"error\": \"Amount must be positive\"}")
+        });
+    }
+
+    @GET
+    @Path("/search")
+    public void searchTransactions(@QueryParam("q") String query,
+                                   @QueryParam("limit") @DefaultValue("20") int limit,
+                                   @QueryParam("offset") @DefaultValue("0") int offset,
+                                   @HeaderParam(Accounts.HEADER) String accountId,
+                                   @Context UriInfo uriInfo,
+                                   @Context Request request,
+                                   @Context HttpHeaders headers,
+                                   @Suspended AsyncResponse async) {
+        if (query == null || query.trim().isEmpty() || query.length() > MAX_QUERY_LENGTH) {
+            async.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Query must be 1 to " + MAX_QUERY_LENGTH + " characters\"}")
+                    .build());
+            return;
+        }
+        if (limit < 1 || limit > MAX_SEARCH_PAGE || offset < 0 || offset > MAX_SEARCH_OFFSET) {
+            async.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Limit must be between 1 and " + MAX_SEARCH_PAGE
+                            + " and offset between 0 and " + MAX_SEARCH_OFFSET + "\"}")
+                    .build());
+            return;
+        }
+        UriBuilder requestUri = uriInfo.getRequestUriBuilder();
+        String account = Accounts.of(accountId);
+        submitRead(request, headers, async, () -> {
+            try {
+                SearchIndex.Hits hits = TransactionSearch.get().index().search(query, account, offset, limit);
+                // One read for the page, in rank order; rows deleted since the index answered are left out
+                List<Transaction> transactions = transactionService.getTransactions(account, hits.getIds());
+                if (transactions == null) {
+                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity(ErrorBody.of("Error loading search results"))
+                            .build();
+                }
+                // Ranked, so the body is the same plain array as the list; paging is in headers
+                Response.ResponseBuilder response = Response.status(Response.Status.OK)
+                        .entity(new GenericEntity<List<Transaction>>(transactions) {
+                        })
+                        .header("X-Total-Count", hits.getTotal());
+                int next = offset + limit;
+                if (next < hits.getTotal() && next <= MAX_SEARCH_OFFSET) {
+                    response.link(requestUri.replaceQueryParam("offset", next).build(), "next");
+                }
+                return response.build();
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(ErrorBody.of(e.getMessage()))
                         .build();
             }
-            if (transaction.getType() == null || (!transaction.getType().equals("income") && !transaction.getType().equals("expense"))) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity("{\"error\": \"Type must be 'income' or 'expense'\"}")
-                        .build();
+        });
+    }
+
+    @GET
+    @Path("/changes")
+    public Response getChanges(@QueryParam("since") String since,
+                               @QueryParam("limit") @DefaultValue("1000") int limit,
+                               @HeaderParam(Accounts.HEADER) String account) {
+        // Answered from the in-memory change log, so there is no database work to hand off
+        if (limit < 1 || limit > MAX_CHANGES) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Limit must be between 1 and " + MAX_CHANGES + "\"}")
+                    .build();
+        }
+        TransactionVersion versions = TransactionVersion.get();
+        TransactionChanges changes;
+        if (since == null || since.isEmpty()) {
+            // Without a version there is nothing to replay; the reply gives the client its starting point
+            changes = new TransactionChanges();
+            changes.setVersion(versions.tag(versions.current()));
+        } else {
+            long after = versions.parse(since);
+            changes = after < 0 ? null : TransactionChangeLog.get().since(after, limit, Accounts.of(account));
+        }
+        if (changes == null) {
+            return Response.status(Response.Status.GONE)
+                    .entity("{\"error\": \"Changes since that version are no longer available\"}")
+                    .build();
+        }
+        return Response.status(Response.Status.OK)
+                .entity(changes)
+                .build();
+    }
+
+    @GET
+    @Path("/changes/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void streamChanges(@QueryParam("since") String since,
+                              @HeaderParam("Last-Event-ID") String lastEventId,
+                              @HeaderParam(Accounts.HEADER) String account,
+                              @Context SseEventSink sink,
+                              @Context Sse sse) {
+        TransactionVersion versions = TransactionVersion.get();
+        String from = lastEventId != null ? lastEventId : since;
+        long after = from == null || from.isEmpty() ? versions.current() : versions.parse(from);
+        ChangeFeed.get().subscribe(sink, sse, after, Accounts.of(account));
+    }
+
+    // Conditional GET on the in-memory change version: a matching If-None-Match (or, without
+    // one, If-Modified-Since) is answered 304 here, before any database work is queued.
+    // The version is read before the query runs, so a write landing in between leaves the
+    // tag older than the data, which costs one extra refetch but never a stale 304. Every read
+    // depends on the account header, so caches are told to key on it.
+    static void submitRead(Request request, HttpHeaders headers, AsyncResponse async, Callable<Response> read) {
+        TransactionVersion versions = TransactionVersion.get();
+        EntityTag tag = new EntityTag(versions.tag(versions.current()), true);
+        long lastModifiedSecond = versions.getLastModified() / 1000;
+        // HTTP dates have second precision: while the last change is in the current second a
+        // later write could share its timestamp, so only the ETag is offered until it has passed
+        Date lastModified = lastModifiedSecond < System.currentTimeMillis() / 1000
+                ? new Date(lastModifiedSecond * 1000) : null;
+
+        Response.ResponseBuilder notModified = null;
+        if (headers.getHeaderString(HttpHeaders.IF_NONE_MATCH) != null) {
+            notModified = request.evaluatePreconditions(tag);
+        } else if (lastModified != null) {
+            notModified = request.evaluatePreconditions(lastModified);
+        }
+        if (notModified != null) {
+            async.resume(notModified.tag(tag).lastModified(lastModified).cacheControl(REVALIDATE)
+                    .header(HttpHeaders.VARY, Accounts.HEADER).build());
+            return;
+        }
+        DbExecutor.get().submit(async, () -> {
+            Response response = read.call();
+            // Set on the built response: fromResponse() would drop the GenericEntity type of the list
+            if (response.getStatus() == Response.Status.OK.getStatusCode()) {
+                response.getHeaders().putSingle(HttpHeaders.ETAG, tag);
+                if (lastModified != null) {
+                    response.getHeaders().putSingle(HttpHeaders.LAST_MODIFIED, lastModified);
+                }
+                response.getHeaders().putSingle(HttpHeaders.CACHE_CONTROL, REVALIDATE);
+                response.getHeaders().putSingle(HttpHeaders.VARY, Accounts.HEADER);
             }
-            if (transaction.getCategory() == null || transaction.getCategory().trim().isEmpty()) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity("{\"error\": \"Category is required\"}")
+            return response;
+        });
+    }
+
+    static TransactionFilter buildFilter(String type, String category, String from, String to) {
+        TransactionFilter filter = new TransactionFilter();
+        filter.setType(type);
+        filter.setCategory(category == null || category.trim().isEmpty() ? null : category.trim());
+        filter.setFrom(parseDate(from, false));
+        filter.setTo(parseDate(to, true));
+        return filter;
+    }
+
+    // Accepts "2024-01-15", "2024-01-15T10:00:00" or one with an offset; a bare end date covers
+    // that whole day. Read in UTC, as TransactionCodec reads the dates of the rows.
+    private static Date parseDate(String value, boolean endOfRange) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        if (value.length() == 10) {
+            LocalDate day = LocalDate.parse(value);
+            return Date.from((endOfRange ? day.plusDays(1) : day).atStartOfDay(ZoneOffset.UTC).toInstant());
+        }
+        if (value.endsWith("Z") || value.lastIndexOf('+') > 10 || value.lastIndexOf('-') > 10) {
+            return Date.from(OffsetDateTime.parse(value).toInstant());
+        }
+        return Date.from(LocalDateTime.parse(value).toInstant(ZoneOffset.UTC));
+    }
+
+    @GET
+    @Path("/{id}")
+    public void getTransaction(@PathParam("id") int id,
+                               @HeaderParam(Accounts.HEADER) String account,
+                               @Context Request request,
+                               @Context HttpHeaders headers,
+                               @Suspended AsyncResponse async) {
+        submitRead(request, headers, async, () -> {
+            try {
+                Transaction transaction = transactionService.getTransaction(Accounts.of(account), id);
+                if (transaction != null) {
+                    return Response.status(Response.Status.OK)
+                            .entity(transaction)
+                            .build();
+                } else {
+                    return Response.status(Response.Status.NOT_FOUND)
+                            .entity("{\"error\": \"Transaction not found\"}")
+                            .build();
+                }
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(ErrorBody.of(e.getMessage()))
                         .build();
             }
-            if (transaction.getDate() == null) {
-                transaction.setDate(new java.util.Date());
-            }
+        });
+    }
 
-            Transaction created = transactionService.createTransaction(transaction);
-            if (created != null) {
-                return Response.status(Response.Status.CREATED)
-                        .entity(created)
-                        .build();
-            } else {
+    @POST
+    public void createTransaction(Transaction transaction,
+                                  @HeaderParam("Prefer") String prefer,
+                                  @HeaderParam(Accounts.HEADER) String account,
+                                  @Context UriInfo uriInfo,
+                                  @Suspended AsyncResponse async) {
+        if (transaction != null) {
+            transaction.setAccount(Accounts.of(account));
+        }
+        TransactionIngest ingest = TransactionIngest.get();
+        if (ingest.isRunning() && prefersAsync(prefer)) {
+            ingestTransaction(transaction, ingest, uriInfo.getAbsolutePathBuilder(), async);
+            return;
+        }
+        DbExecutor.get().submit(async, () -> {
+            try {
+                // Validation
+                String invalid = TransactionValidator.validate(transaction);
+                if (invalid != null) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity(ErrorBody.of(invalid))
+                            .build();
+                }
+                if (transaction.getDate() == null) {
+                    transaction.setDate(new java.util.Date());
+                }
+
+                Transaction created = transactionService.createTransaction(transaction);
+                if (created != null) {
+                    return Response.status(Response.Status.CREATED)
+                            .entity(created)
+                            .build();
+                } else {
+                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity("{\"error\": \"Failed to create transaction\"}")
+                            .build();
+                }
+            } catch (Exception e) {
                 return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                        .entity("{\"error\": \"Failed to create transaction\"}")
+                        .entity(ErrorBody.of(e.getMessage()))
                         .build();
             }
-        } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("{\"error\": \"" + e.getMessage() + "\"}")
-                    .build();
+        });
+    }
+
+    // Write-behind: answered 202 with the assigned id once the transaction is in the ingest log.
+    // The row becomes readable when the flusher inserts it, within ingest.flushIntervalMs.
+    private static void ingestTransaction(Transaction transaction, TransactionIngest ingest,
+                                          UriBuilder location, AsyncResponse async) {
+        String invalid = TransactionValidator.validate(transaction);
+        if (invalid != null) {
+            async.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(ErrorBody.of(invalid))
+                    .build());
+            return;
+        }
+        if (transaction.getDate() == null) {
+            transaction.setDate(new java.util.Date());
+        }
+        CompletableFuture<Transaction> durable = ingest.submit(transaction);
+        if (durable == null) {
+            async.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity("{\"error\": \"Ingest queue full, retry later\"}")
+                    .build());
+            return;
+        }
+        durable.whenComplete((accepted, error) -> {
+            if (error != null) {
+                async.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                        .entity(ErrorBody.of("Transaction not accepted: " + error.getMessage()))
+                        .build());
+                return;
+            }
+            async.resume(Response.status(Response.Status.ACCEPTED)
+                    .location(location.path(String.valueOf(accepted.getId())).build())
+                    .header("Preference-Applied", "respond-async")
+                    .entity(accepted)
+                    .build());
+        });
+    }
+
+    // RFC 7240: Prefer: respond-async, possibly among other preferences
+    private static boolean prefersAsync(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split(",")) {
+            if (preference.trim().toLowerCase().startsWith("respond-async")) {
+                return true;
+            }
         }
+        return false;
     }
 
     @PUT
     @Path("/{id}")
-    public Response updateTransaction(@PathParam("id") int id, Transaction transaction) {
-        try {
-            // Check if transaction exists
-            Transaction existing = transactionService.getTransaction(id);
-            if (existing == null) {
-                return Response.status(Response.Status.NOT_FOUND)
-                        .entity("{\"error\": \"Transaction not found\"}")
-                        .build();
-            }
+    public void updateTransaction(@PathParam("id") int id, Transaction transaction,
+                                  @HeaderParam(Accounts.HEADER) String accountId,
+                                  @Suspended AsyncResponse async) {
+        String account = Accounts.of(accountId);
+        DbExecutor.get().submit(async, () -> {
+            try {
+                // Check if transaction exists
+                Transaction existing = transactionService.getTransaction(account, id);
+                if (existing == null) {
+                    return Response.status(Response.Status.NOT_FOUND)
+                            .entity("{\"error\": \"Transaction not found\"}")
+                            .build();
+                }
 
-            // Validation
-            if (transaction.getDescription() == null || transaction.getDescription().trim().isEmpty()) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity("{\"error\": \"Transaction description is required\"}")
+                // Validation
+                String invalid = TransactionValidator.validate(transaction);
+                if (invalid != null) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity(ErrorBody.of(invalid))
+                            .build();
+                }
+
+                boolean success = transactionService.updateTransaction(account, id, transaction);
+                if (success) {
+                    Transaction updated = transactionService.getTransaction(account, id);
+                    return Response.status(Response.Status.OK)
+                            .entity(updated)
+                            .build();
+                } else {
+                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity("{\"error\": \"Failed to update transaction\"}")
+                            .build();
+                }
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(ErrorBody.of(e.getMessage()))
                         .build();
             }
-            if (transaction.getAmount() < 0) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity("{\"error\": \"Amount must be positive\"}")
+        });
+    }
+
+    @DELETE
+    @Path("/{id}")
+    public void deleteTransaction(@PathParam("id") int id,
+                                  @HeaderParam(Accounts.HEADER) String accountId,
+                                  @Suspended AsyncResponse async) {
+        String account = Accounts.of(accountId);
+        DbExecutor.get().submit(async, () -> {
+            try {
+                // Check if transaction exists
+                Transaction existing = transactionService.getTransaction(account, id);
+                if (existing == null) {
+                    return Response.status(Response.Status.NOT_FOUND)
+                            .entity("{\"error\": \"Transaction not found\"}")
+                            .build();
+                }
+
+                boolean success = transactionService.deleteTransaction(account, id);
+                if (success) {
+                    return Response.status(Response.Status.OK)
+                            .entity("{\"message\": \"Transaction deleted successfully\"}")
+                            .build();
+                } else {
+                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity("{\"error\": \"Failed to delete transaction\"}")
+                            .build();
+                }
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(ErrorBody.of(e.getMessage()))
                         .build();
             }
-            if (transaction.getType() == null || (!transaction.getType().equals("income") && !transaction.getType().equals("expense"))) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity("{\"error\": \"Type must be 'income' or 'expense'\"}")
+        });
+    }
+
+    @POST
+    @Path("/batch")
+    public void createTransactions(List<Transaction> transactions,
+                                   @HeaderParam(Accounts.HEADER) String account,
+                                   @Suspended AsyncResponse async) {
+        DbExecutor.get().submit(async, () -> {
+            try {
+                Response invalid = validateBatch(transactions, false);
+                if (invalid != null) {
+                    return invalid;
+                }
+                for (Transaction transaction : transactions) {
+                    if (transaction.getDate() == null) {
+                        transaction.setDate(new java.util.Date());
+                    }
+                    transaction.setAccount(Accounts.of(account));
+                }
+
+                BatchResult result = transactionService.createTransactions(transactions);
+                if (result != null) {
+                    return Response.status(Response.Status.CREATED)
+                            .entity(result)
+                            .build();
+                } else {
+                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity("{\"error\": \"Failed to create transactions\"}")
+                            .build();
+                }
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(ErrorBody.of(e.getMessage()))
                         .build();
             }
-            if (transaction.getCategory() == null || transaction.getCategory().trim().isEmpty()) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity("{\"error\": \"Category is required\"}")
+        });
+    }
+
+    @PUT
+    @Path("/batch")
+    public void updateTransactions(List<Transaction> transactions,
+                                   @HeaderParam(Accounts.HEADER) String account,
+                                   @Suspended AsyncResponse async) {
+        DbExecutor.get().submit(async, () -> {
+            try {
+                Response invalid = validateBatch(transactions, true);
+                if (invalid != null) {
+                    return invalid;
+                }
+
+                BatchResult result = transactionService.updateTransactions(Accounts.of(account), transactions);
+                return batchWriteResponse(result, "Failed to update transactions");
+            } catch (Exception e) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(ErrorBody.of(e.getMessage()))
                         .build();
             }
+        });
+    }
 
-            boolean success = transactionService.updateTransaction(id, transaction);
-            if (success) {
-                Transaction updated = transactionService.getTransaction(id);
-                return Response.status(Response.Status.OK)
-                        .entity(updated)
-                        .build();
-            } else {
+    @POST
+    @Path("/batch/delete")
+    public void deleteTransactions(List<Integer> ids,
+                                   @HeaderParam(Accounts.HEADER) String account,
+                                   @Suspended AsyncResponse async) {
+        DbExecutor.get().submit(async, () -> {
+            try {
+                if (ids == null || ids.isEmpty() || ids.size() > MAX_BATCH_SIZE) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity("{\"error\": \"Batch must contain between 1 and " + MAX_BATCH_SIZE + " ids\"}")
+                            .build();
+                }
+                if (ids.contains(null) || new HashSet<>(ids).size() != ids.size()) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity("{\"error\": \"Ids must be present and unique\"}")
+                            .build();
+                }
+
+                BatchResult result = transactionService.deleteTransactions(Accounts.of(account), ids);
+                return batchWriteResponse(result, "Failed to delete transactions");
+            } catch (Exception e) {
                 return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                        .entity("{\"error\": \"Failed to update transaction\"}")
+                        .entity(ErrorBody.of(e.getMessage()))
                         .build();
             }
-        } catch (Exception e) {
+        });
+    }
+
+    private static Response batchWriteResponse(BatchResult result, String failure) {
+        if (result == null) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("{\"error\": \"" + e.getMessage() + "\"}")
+                    .entity(ErrorBody.of(failure))
+                    .build();
+        }
+        if (!result.getMissing().isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("{\"error\": \"Transactions not found\", \"missing\": " + result.getMissing() + "}")
                     .build();
         }
+        return Response.status(Response.Status.OK)
+                .entity(result)
+                .build();
     }
 
-    @DELETE
-    @Path("/{id}")
-    public Response deleteTransaction(@PathParam("id") int id) {
-        try {
-            // Check if transaction exists
-            Transaction existing = transactionService.getTransaction(id);
-            if (existing == null) {
-                return Response.status(Response.Status.NOT_FOUND)
-                        .entity("{\"error\": \"Transaction not found\"}")
-                        .build();
+    // The whole payload is checked before anything is written
+    private static Response validateBatch(List<Transaction> transactions, boolean requireIds) {
+        if (transactions == null || transactions.isEmpty() || transactions.size() > MAX_BATCH_SIZE) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Batch must contain between 1 and " + MAX_BATCH_SIZE + " transactions\"}")
+                    .build();
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            String invalid = transaction == null ? "Transaction is required" : TransactionValidator.validate(transaction);
+            if (invalid == null && requireIds) {
+                if (transaction.getId() <= 0 || transaction.getDate() == null) {
+                    invalid = "Id and date are required";
+                } else if (!ids.add(transaction.getId())) {
+                    invalid = "Duplicate id " + transaction.getId();
+                }
             }
-
-            boolean success = transactionService.deleteTransaction(id);
-            if (success) {
-                return Response.status(Response.Status.OK)
-                        .entity("{\"message\": \"Transaction deleted successfully\"}")
-                        .build();
-            } else {
-                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                        .entity("{\"error\": \"Failed to delete transaction\"}")
+            if (invalid != null) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("{\"error\": " + ErrorBody.quote(invalid) + ", \"index\": " + i + "}")
                         .build();
             }
-        } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("{\"error\": \"" + e.getMessage() + "\"}")
-                    .build();
         }
+        return null;
     }
 }
-
@@ -0,0 +1,397 @@
+package org.example.db;
+
+import org.example.metrics.MetricsRegistry;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConnectionPool {
+
+    private final String url;
+    private final String login;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long leakThresholdMs;
+    private final int leakTraceSample;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Map<PooledConnection, Boolean> borrowed = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+    private final Object probeLock = new Object();
+    private Connection probe;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong invalidCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong statementLeakCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public ConnectionPool(String url, String login, String password, int maxSize,
+                          long borrowTimeoutMs, long idleTimeoutMs, long leakThresholdMs) {
+        this(url, login, password, maxSize, borrowTimeoutMs, idleTimeoutMs, leakThresholdMs, 100);
+    }
+
+    // A leak threshold of 0 turns leak detection off. The stack of the borrower, printed with a
+    // leak report, costs a Throwable per borrow, so it is only taken for 1 in leakTraceSample
+    // borrows: 1 takes every one, 0 none.
+    public ConnectionPool(String url, String login, String password, int maxSize,
+                          long borrowTimeoutMs, long idleTimeoutMs, long leakThresholdMs, int leakTraceSample) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.url = url;
+        this.login = login;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.leakTraceSample = leakThresholdMs > 0 ? leakTraceSample : 0;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, (leakThresholdMs > 0 ? Math.min(idleTimeoutMs, leakThresholdMs) : idleTimeoutMs) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + borrowTimeoutMs + "ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(url, login, password));
+                createdCount.incrementAndGet();
+            }
+            long borrows = borrowCount.incrementAndGet();
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowSite = leakTraceSample > 0 && borrows % leakTraceSample == 0
+                    ? new Throwable("Connection borrowed here") : null;
+            pooled.returned = false;
+            borrowed.put(pooled, Boolean.TRUE);
+            return pooled.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isValid(pooled.raw)) {
+                return pooled;
+            }
+            invalidCount.incrementAndGet();
+            closeQuietly(pooled.raw);
+        }
+        return null;
+    }
+
+    private boolean isValid(Connection raw) {
+        try {
+            return !raw.isClosed() && raw.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        synchronized (pooled) {
+            if (pooled.returned) {
+                return;
+            }
+            pooled.returned = true;
+        }
+        borrowed.remove(pooled);
+        pooled.borrowSite = null;
+        closeStatements(pooled);
+        try {
+            if (!pooled.raw.getAutoCommit()) {
+                pooled.raw.rollback();
+                pooled.raw.setAutoCommit(true);
+            }
+            if (closed || pooled.raw.isClosed()) {
+                closeQuietly(pooled.raw);
+            } else {
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            closeQuietly(pooled.raw);
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Statements left open by the borrower would otherwise live as long as the physical connection
+    private void closeStatements(PooledConnection pooled) {
+        for (Statement statement : pooled.statements) {
+            try {
+                if (!statement.isClosed()) {
+                    statementLeakCount.incrementAndGet();
+                    statement.close();
+                }
+            } catch (SQLException ignored) {
+            }
+        }
+        pooled.statements.clear();
+    }
+
+    private void recordWait(long nanos) {
+        MetricsRegistry.connectionWait().record(nanos);
+        totalWaitNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxWaitNanos.get())) {
+            if (maxWaitNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        // Evict connections that sat idle for too long, oldest first
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            if (now - pooled.lastUsed > idleTimeoutMs && idle.remove(pooled)) {
+                evictedCount.incrementAndGet();
+                closeQuietly(pooled.raw);
+            }
+        }
+
+        // Report connections held longer than the leak threshold
+        if (leakThresholdMs <= 0) {
+            return;
+        }
+        for (PooledConnection pooled : borrowed.keySet()) {
+            if (!pooled.returned && !pooled.leakReported && now - pooled.borrowedAt > leakThresholdMs) {
+                pooled.leakReported = true;
+                leakCount.incrementAndGet();
+                System.out.println("Possible connection leak: held for " + (now - pooled.borrowedAt) + "ms");
+                Throwable site = pooled.borrowSite;
+                if (site != null) {
+                    site.printStackTrace();
+                }
+            }
+        }
+    }
+
+    // Checks the database over a connection of its own, outside the pool, so a readiness probe
+    // neither waits behind requests for a connection nor takes one from them. Null when the
+    // database answers.
+    public String probe(int timeoutSeconds) {
+        synchronized (probeLock) {
+            if (closed) {
+                return "Connection pool is closed";
+            }
+            try {
+                if (probe != null && probe.isValid(timeoutSeconds)) {
+                    return null;
+                }
+                if (probe != null) {
+                    closeQuietly(probe);
+                    probe = null;
+                }
+                probe = DriverManager.getConnection(url, login, password);
+                return probe.isValid(timeoutSeconds) ? null : "Database connection is not valid";
+            } catch (SQLException e) {
+                return "Database unreachable: " + e.getMessage();
+            }
+        }
+    }
+
+    public void close() {
+        closed = true;
+        synchronized (probeLock) {
+            if (probe != null) {
+                closeQuietly(probe);
+                probe = null;
+            }
+        }
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled.raw);
+        }
+    }
+
+    private static void closeQuietly(Connection raw) {
+        try {
+            raw.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    public long getInvalidCount() {
+        return invalidCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    public long getStatementLeakCount() {
+        return statementLeakCount.get();
+    }
+
+    public int getOpenStatementCount() {
+        int open = 0;
+        for (PooledConnection pooled : borrowed.keySet()) {
+            for (Statement statement : pooled.statements) {
+                try {
+                    if (!statement.isClosed()) {
+                        open++;
+                    }
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+        return open;
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.get();
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    private final class PooledConnection implements InvocationHandler {
+        final Connection raw;
+        final Connection proxy;
+        final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+        volatile long lastUsed = System.currentTimeMillis();
+        volatile long borrowedAt;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+        volatile boolean returned = true;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                leakReported = false;
+                release(this);
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return returned || raw.isClosed();
+            }
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                Object result = method.invoke(raw, args);
+                if (result instanceof Statement) {
+                    statements.add((Statement) result);
+                    return timed((Statement) result, args);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        // Stored procedures are not used here, so callable statements go out untimed
+        private Statement timed(Statement statement, Object[] args) {
+            if (statement instanceof CallableStatement) {
+                return statement;
+            }
+            if (statement instanceof PreparedStatement) {
+                return new TimedPreparedStatement((PreparedStatement) statement, MetricsRegistry.statement((String) args[0]));
+            }
+            return new TimedStatement(statement);
+        }
+    }
+}
@@ -1,31 +1,60 @@
 package org.example.db;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.SQLException;
 
 public class ConnexionDB {
 
-    String url = "jdbc:mysql://localhost:3306/expense_tracker";
-    String login = "root";
-    String password = "root";
-    static Connection cn;
+    // Server-side prepared statements, cached per pooled connection and keyed by SQL text;
+    // cursor fetch lets statements with a fetch size stream instead of buffering the whole result;
+    // rewritten batches send one multi-row INSERT per executeBatch()
+    String url = System.getProperty("db.url", "jdbc:mysql://localhost:3306/expense_tracker"
+            + "?useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=64&prepStmtCacheSqlLimit=2048&useCursorFetch=true&rewriteBatchedStatements=true");
+    String login = System.getProperty("db.login", "root");
+    String password = System.getProperty("db.password", "root");
+    int poolSize = Integer.getInteger("db.pool.size", 10);
+    long borrowTimeoutMs = Long.getLong("db.pool.borrowTimeoutMs", 5000L);
+    long idleTimeoutMs = Long.getLong("db.pool.idleTimeoutMs", 600000L);
+    long leakThresholdMs = Long.getLong("db.pool.leakThresholdMs", 30000L);
+    int leakTraceSample = Integer.getInteger("db.pool.leakTraceSample", 100);
+    private static volatile ConnectionPool pool;
 
     private ConnexionDB() {
         try {
             Class.forName("com.mysql.jdbc.Driver");
-            cn = DriverManager.getConnection(url, login, password);
-            System.out.println("Database connection established successfully");
-        } catch (Exception e) {
-            System.out.println("Database connection failed: " + e.getMessage());
-            e.printStackTrace();
+        } catch (ClassNotFoundException e) {
+            System.out.println("MySQL driver not found: " + e.getMessage());
         }
     }
 
-    public static Connection getConnexion() {
-        if (cn == null) {
-            new ConnexionDB();
+    private ConnectionPool open(String url) {
+        return new ConnectionPool(url, login, password, poolSize,
+                borrowTimeoutMs, idleTimeoutMs, leakThresholdMs, leakTraceSample);
+    }
+
+    public static ConnectionPool getPool() {
+        if (pool == null) {
+            synchronized (ConnexionDB.class) {
+                if (pool == null) {
+                    ConnexionDB settings = new ConnexionDB();
+                    pool = settings.open(settings.url);
+                    System.out.println("Database connection pool initialized (max " + settings.poolSize + " connections)");
+                }
+            }
         }
-        return cn;
+        return pool;
     }
-}
 
+    // A separate pool for another database, such as a shard, with the same login and pool settings
+    public static ConnectionPool newPool(String url) {
+        ConnexionDB settings = new ConnexionDB();
+        System.out.println("Database connection pool initialized for " + url.replaceAll("\\?.*", "")
+                + " (max " + settings.poolSize + " connections)");
+        return settings.open(url);
+    }
+
+    // Borrows a connection from the pool; closing it returns it to the pool
+    public static Connection getConnexion() throws SQLException {
+        return getPool().borrow();
+    }
+}
@@ -0,0 +1,360 @@
+package org.example.db;
+
+import org.example.metrics.MetricsRegistry;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+
+// Delegates to the driver's statement and times each execute* call into the histogram of the
+// SQL it runs. Every other call goes straight through, without reflection or allocation.
+class TimedStatement implements Statement {
+
+    private final Statement raw;
+
+    TimedStatement(Statement raw) {
+        this.raw = raw;
+    }
+
+    private static void record(String sql, long start) {
+        MetricsRegistry.statement(sql).record(System.nanoTime() - start);
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return raw.executeQuery(sql);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return raw.executeUpdate(sql);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return raw.executeUpdate(sql, autoGeneratedKeys);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return raw.executeUpdate(sql, columnIndexes);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return raw.executeUpdate(sql, columnNames);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return raw.executeLargeUpdate(sql);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return raw.executeLargeUpdate(sql, autoGeneratedKeys);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return raw.executeLargeUpdate(sql, columnIndexes);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return raw.executeLargeUpdate(sql, columnNames);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return raw.execute(sql);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return raw.execute(sql, autoGeneratedKeys);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return raw.execute(sql, columnIndexes);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return raw.execute(sql, columnNames);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    // A batch of SQL strings has no one text, so it is counted under "other"
+    @Override
+    public int[] executeBatch() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return raw.executeBatch();
+        } finally {
+            record(null, start);
+        }
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return raw.executeLargeBatch();
+        } finally {
+            record(null, start);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        raw.close();
+    }
+
+    @Override
+    public int getMaxFieldSize() throws SQLException {
+        return raw.getMaxFieldSize();
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        raw.setMaxFieldSize(max);
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        return raw.getMaxRows();
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        raw.setMaxRows(max);
+    }
+
+    @Override
+    public long getLargeMaxRows() throws SQLException {
+        return raw.getLargeMaxRows();
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        raw.setLargeMaxRows(max);
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        raw.setEscapeProcessing(enable);
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        return raw.getQueryTimeout();
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        raw.setQueryTimeout(seconds);
+    }
+
+    @Override
+    public void cancel() throws SQLException {
+        raw.cancel();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return raw.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        raw.clearWarnings();
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        raw.setCursorName(name);
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        return raw.getResultSet();
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        return raw.getUpdateCount();
+    }
+
+    @Override
+    public long getLargeUpdateCount() throws SQLException {
+        return raw.getLargeUpdateCount();
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        return raw.getMoreResults();
+    }
+
+    @Override
+    public boolean getMoreResults(int current) throws SQLException {
+        return raw.getMoreResults(current);
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        raw.setFetchDirection(direction);
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        return raw.getFetchDirection();
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        raw.setFetchSize(rows);
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return raw.getFetchSize();
+    }
+
+    @Override
+    public int getResultSetConcurrency() throws SQLException {
+        return raw.getResultSetConcurrency();
+    }
+
+    @Override
+    public int getResultSetType() throws SQLException {
+        return raw.getResultSetType();
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        return raw.getResultSetHoldability();
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        raw.addBatch(sql);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        raw.clearBatch();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return raw.getConnection();
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return raw.getGeneratedKeys();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return raw.isClosed();
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) throws SQLException {
+        raw.setPoolable(poolable);
+    }
+
+    @Override
+    public boolean isPoolable() throws SQLException {
+        return raw.isPoolable();
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        raw.closeOnCompletion();
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        return raw.isCloseOnCompletion();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        return type.isInstance(this) ? type.cast(this) : raw.unwrap(type);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) throws SQLException {
+        return type.isInstance(this) || raw.isWrapperFor(type);
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.imports;
+
+import org.example.model.Transaction;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// First keyword found in the description or note decides the category of an uncategorized row
+public class CategoryRules {
+
+    private final Map<String, String> rules = new LinkedHashMap<>();
+    private final String fallback;
+
+    public CategoryRules(String fallback) {
+        this.fallback = fallback;
+    }
+
+    public static CategoryRules defaults() {
+        CategoryRules rules = new CategoryRules("Other");
+        rules.add("salary", "Salary");
+        rules.add("payroll", "Salary");
+        rules.add("rent", "Bills");
+        rules.add("electric", "Bills");
+        rules.add("water", "Bills");
+        rules.add("internet", "Bills");
+        rules.add("phone", "Bills");
+        rules.add("grocery", "Groceries");
+        rules.add("supermarket", "Groceries");
+        rules.add("market", "Groceries");
+        rules.add("uber", "Transportation");
+        rules.add("taxi", "Transportation");
+        rules.add("fuel", "Transportation");
+        rules.add("parking", "Transportation");
+        rules.add("train", "Transportation");
+        rules.add("netflix", "Entertainment");
+        rules.add("spotify", "Entertainment");
+        rules.add("cinema", "Entertainment");
+        rules.add("pharmacy", "Healthcare");
+        rules.add("doctor", "Healthcare");
+        rules.add("hospital", "Healthcare");
+        rules.add("amazon", "Shopping");
+        rules.add("restaurant", "Dining");
+        rules.add("cafe", "Dining");
+        rules.add("coffee", "Dining");
+        return rules;
+    }
+
+    public void add(String keyword, String category) {
+        rules.put(keyword.toLowerCase(Locale.ROOT), category);
+    }
+
+    public void categorize(Transaction transaction) {
+        if (transaction.getCategory() != null) {
+            return;
+        }
+        String text = ((transaction.getDescription() == null ? "" : transaction.getDescription()) + " "
+                + (transaction.getNote() == null ? "" : transaction.getNote())).toLowerCase(Locale.ROOT);
+        for (Map.Entry<String, String> rule : rules.entrySet()) {
+            if (text.contains(rule.getKey())) {
+                transaction.setCategory(rule.getValue());
+                return;
+            }
+        }
+        transaction.setCategory(fallback);
+    }
+}
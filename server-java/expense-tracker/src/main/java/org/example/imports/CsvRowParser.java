@@ -0,0 +1,128 @@
+package org.example.imports;
+
+import org.example.model.Transaction;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Reads one line at a time; the first line is a header naming the columns
+public class CsvRowParser implements RowParser {
+
+    private final BufferedReader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private char delimiter = ',';
+    private long line;
+
+    public CsvRowParser(BufferedReader reader) throws IOException {
+        this.reader = reader;
+        String header = reader.readLine();
+        line = 1;
+        if (header == null) {
+            throw new IOException("CSV file is empty");
+        }
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        if (header.indexOf(';') >= 0 && header.indexOf(',') < 0) {
+            delimiter = ';';
+        }
+        List<String> names = split(header, delimiter);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (column("date") == null || column("amount") == null || firstColumn("description", "name", "payee") == null) {
+            throw new IOException("CSV header must contain date, amount and description columns");
+        }
+    }
+
+    @Override
+    public ParsedRow next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            line++;
+            if (text == null) {
+                return null;
+            }
+        } while (text.trim().isEmpty());
+
+        try {
+            List<String> fields = split(text, delimiter);
+            Transaction transaction = new Transaction();
+            transaction.setDate(ImportFields.parseDate(field(fields, column("date"))));
+            transaction.setDescription(field(fields, firstColumn("description", "name", "payee")).trim());
+            ImportFields.applySignedAmount(transaction, ImportFields.parseAmount(field(fields, column("amount"))),
+                    field(fields, column("type")));
+            String category = field(fields, column("category"));
+            transaction.setCategory(category == null || category.trim().isEmpty() ? null : category.trim());
+            String note = field(fields, firstColumn("note", "memo"));
+            transaction.setNote(note == null || note.trim().isEmpty() ? null : note.trim());
+            return ParsedRow.ok(line, transaction);
+        } catch (IllegalArgumentException e) {
+            return ParsedRow.failed(line, e.getMessage());
+        }
+    }
+
+    private Integer column(String name) {
+        return columns.get(name);
+    }
+
+    private Integer firstColumn(String... names) {
+        for (String name : names) {
+            Integer index = columns.get(name);
+            if (index != null) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    private static String field(List<String> fields, Integer index) {
+        if (index == null) {
+            return null;
+        }
+        if (index >= fields.size()) {
+            throw new IllegalArgumentException("Missing column " + (index + 1));
+        }
+        return fields.get(index);
+    }
+
+    // RFC 4180 quoting within a single line
+    static List<String> split(String text, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
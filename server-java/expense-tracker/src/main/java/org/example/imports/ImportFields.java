@@ -0,0 +1,66 @@
+package org.example.imports;
+
+import org.example.model.Transaction;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+class ImportFields {
+
+    private static final DateTimeFormatter DAY_FIRST = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter COMPACT_DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter COMPACT_TIME = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private ImportFields() {
+    }
+
+    // Accepts 2024-01-15, 2024-01-15T10:00:00, 15/01/2024, 20240115 and 20240115100000
+    static Date parseDate(String value) {
+        String v = value.trim();
+        try {
+            LocalDateTime dateTime;
+            if (v.length() == 10 && v.charAt(4) == '-') {
+                dateTime = LocalDate.parse(v).atStartOfDay();
+            } else if (v.length() == 10 && v.charAt(2) == '/') {
+                dateTime = LocalDate.parse(v, DAY_FIRST).atStartOfDay();
+            } else if (v.length() == 8) {
+                dateTime = LocalDate.parse(v, COMPACT_DAY).atStartOfDay();
+            } else if (v.length() == 14) {
+                dateTime = LocalDateTime.parse(v, COMPACT_TIME);
+            } else {
+                dateTime = LocalDateTime.parse(v);
+            }
+            return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid date '" + value + "'");
+        }
+    }
+
+    static double parseAmount(String value) {
+        String v = value.trim().replace(" ", "");
+        if (v.indexOf(',') >= 0 && v.indexOf('.') < 0) {
+            v = v.replace(',', '.'); // decimal comma
+        } else {
+            v = v.replace(",", "");  // thousands separator
+        }
+        try {
+            return Double.parseDouble(v);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount '" + value + "'");
+        }
+    }
+
+    // Bank exports sign the amount; the model stores a positive amount and a type
+    static void applySignedAmount(Transaction transaction, double amount, String explicitType) {
+        if (explicitType != null && !explicitType.trim().isEmpty()) {
+            transaction.setType(explicitType.trim().toLowerCase());
+        } else {
+            transaction.setType(amount < 0 ? "expense" : "income");
+        }
+        transaction.setAmount(Math.abs(amount));
+    }
+}
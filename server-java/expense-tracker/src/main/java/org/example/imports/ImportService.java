@@ -0,0 +1,232 @@
+package org.example.imports;
+
+import org.example.model.BatchResult;
+import org.example.model.ImportJob;
+import org.example.model.Transaction;
+import org.example.service.TransactionService;
+import org.example.service.TransactionServices;
+import org.example.service.TransactionValidator;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Upload is spooled to a temp file, then parsed, validated and written by three stages
+// connected through bounded queues: a slow database stalls the parser instead of filling the heap.
+public class ImportService {
+
+    private static final int ROW_QUEUE_CAPACITY = 2000;
+    private static final int BATCH_QUEUE_CAPACITY = 4;
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_FINISHED_JOBS = 100;
+    private static final ParsedRow END_OF_ROWS = ParsedRow.failed(-1, null);
+    private static final List<ParsedRow> END_OF_BATCHES = Collections.emptyList();
+
+    private static final ImportService INSTANCE = new ImportService();
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "import-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+    private final CategoryRules categoryRules = CategoryRules.defaults();
+
+    public static ImportService get() {
+        return INSTANCE;
+    }
+
+    // Rows are written to the given account
+    public ImportJob start(InputStream body, String format, String account) throws IOException {
+        Path spool = Files.createTempFile("import-", "." + format);
+        try {
+            Files.copy(body, spool, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), format, account, Files.size(spool));
+        pruneFinishedJobs();
+        jobs.put(job.getId(), job);
+        executor.submit(() -> run(job, spool));
+        return job;
+    }
+
+    // A job is only visible to the account it imports into
+    public ImportJob getJob(String account, String id) {
+        ImportJob job = jobs.get(id);
+        return job != null && job.getAccount().equals(account) ? job : null;
+    }
+
+    private void run(ImportJob job, Path spool) {
+        BlockingQueue<ParsedRow> rows = new ArrayBlockingQueue<>(ROW_QUEUE_CAPACITY);
+        BlockingQueue<List<ParsedRow>> batches = new ArrayBlockingQueue<>(BATCH_QUEUE_CAPACITY);
+        TransactionService transactionService = TransactionServices.get();
+        Future<?> parser = executor.submit(() -> parse(job, spool, rows));
+        Future<?> validator = executor.submit(() -> validate(job, rows, batches));
+        try {
+            write(job, transactionService, batches);
+            parser.get();
+            validator.get();
+            if ("running".equals(job.getStatus())) {
+                job.finish("completed", null);
+            }
+        } catch (Exception e) {
+            parser.cancel(true);
+            validator.cancel(true);
+            job.finish("failed", e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException ignored) {
+            }
+        }
+        System.out.println("Import " + job.getId() + " " + job.getStatus() + ": " + job.getRowsImported()
+                + " imported, " + job.getRowsFailed() + " failed, " + Math.round(job.getRowsPerSecond()) + " rows/s");
+    }
+
+    private void parse(ImportJob job, Path spool, BlockingQueue<ParsedRow> rows) {
+        try (CountingInputStream in = new CountingInputStream(Files.newInputStream(spool), job);
+             RowParser parser = openParser(job.getFormat(), in)) {
+            ParsedRow row;
+            while ((row = parser.next()) != null) {
+                job.rowRead();
+                rows.put(row);
+            }
+        } catch (IOException e) {
+            job.finish("failed", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            putQuietly(rows, END_OF_ROWS);
+        }
+    }
+
+    private void validate(ImportJob job, BlockingQueue<ParsedRow> rows, BlockingQueue<List<ParsedRow>> batches) {
+        List<ParsedRow> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            ParsedRow row;
+            while ((row = rows.take()) != END_OF_ROWS) {
+                if (row.error != null) {
+                    job.rowFailed(row.line, row.error);
+                    continue;
+                }
+                categoryRules.categorize(row.transaction);
+                row.transaction.setAccount(job.getAccount());
+                String invalid = TransactionValidator.validate(row.transaction);
+                if (invalid != null) {
+                    job.rowFailed(row.line, invalid);
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() == BATCH_SIZE) {
+                    batches.put(batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                batches.put(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            putQuietly(batches, END_OF_BATCHES);
+        }
+    }
+
+    private void write(ImportJob job, TransactionService transactionService,
+                       BlockingQueue<List<ParsedRow>> batches) throws InterruptedException {
+        List<ParsedRow> batch;
+        while ((batch = batches.take()) != END_OF_BATCHES) {
+            List<Transaction> transactions = new ArrayList<>(batch.size());
+            for (ParsedRow row : batch) {
+                transactions.add(row.transaction);
+            }
+            BatchResult result = transactionService.createTransactions(transactions);
+            if (result != null) {
+                job.rowsImported(result.getCount());
+            } else {
+                for (ParsedRow row : batch) {
+                    job.rowFailed(row.line, "Failed to write batch");
+                }
+            }
+        }
+    }
+
+    private static RowParser openParser(String format, InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        if ("ofx".equals(format)) {
+            return new OfxRowParser(reader);
+        }
+        return new CsvRowParser(reader);
+    }
+
+    private static <T> void putQuietly(BlockingQueue<T> queue, T value) {
+        try {
+            queue.put(value);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        if (jobs.size() < MAX_FINISHED_JOBS) {
+            return;
+        }
+        Iterator<ImportJob> it = jobs.values().iterator();
+        while (it.hasNext() && jobs.size() >= MAX_FINISHED_JOBS) {
+            if (!"running".equals(it.next().getStatus())) {
+                it.remove();
+            }
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private final ImportJob job;
+        private long count;
+
+        CountingInputStream(InputStream in, ImportJob job) {
+            super(in);
+            this.job = job;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                job.setBytesRead(++count);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+                job.setBytesRead(count);
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.imports;
+
+import org.example.model.Transaction;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+// Streams <STMTTRN> records out of OFX 1.x (SGML, unclosed leaf tags) or 2.x (XML) statements
+public class OfxRowParser implements RowParser {
+
+    private final Reader reader;
+    private final StringBuilder token = new StringBuilder();
+    private int pending = -1;
+    private long line = 1;
+    private long record;
+
+    public OfxRowParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public ParsedRow next() throws IOException {
+        Map<String, String> fields = null;
+        long startLine = line;
+        String tag;
+        while ((tag = nextTag()) != null) {
+            if (tag.equals("STMTTRN")) {
+                fields = new HashMap<>();
+                startLine = line;
+            } else if (tag.equals("/STMTTRN") && fields != null) {
+                record++;
+                return toRow(startLine, fields);
+            } else if (fields != null && !tag.startsWith("/")) {
+                fields.put(tag, readText());
+            }
+        }
+        return null;
+    }
+
+    private ParsedRow toRow(long startLine, Map<String, String> fields) {
+        try {
+            String posted = fields.get("DTPOSTED");
+            String amount = fields.get("TRNAMT");
+            if (posted == null || amount == null) {
+                throw new IllegalArgumentException("Transaction " + record + " is missing DTPOSTED or TRNAMT");
+            }
+            Transaction transaction = new Transaction();
+            // DTPOSTED is YYYYMMDD[HHMMSS[.XXX]][[+/-gmt offset:tz name]]
+            String digits = posted.length() >= 14 && Character.isDigit(posted.charAt(13))
+                    ? posted.substring(0, 14) : posted.substring(0, Math.min(8, posted.length()));
+            transaction.setDate(ImportFields.parseDate(digits));
+            ImportFields.applySignedAmount(transaction, ImportFields.parseAmount(amount), null);
+            String name = fields.get("NAME");
+            String memo = fields.get("MEMO");
+            transaction.setDescription(name != null && !name.isEmpty() ? name : memo);
+            transaction.setNote(name != null && memo != null && !memo.isEmpty() ? memo : null);
+            return ParsedRow.ok(startLine, transaction);
+        } catch (IllegalArgumentException e) {
+            return ParsedRow.failed(startLine, e.getMessage());
+        }
+    }
+
+    // Upper-cased name of the next tag, skipping any text before it
+    private String nextTag() throws IOException {
+        int c;
+        while ((c = read()) != -1 && c != '<') {
+            // skip
+        }
+        if (c == -1) {
+            return null;
+        }
+        token.setLength(0);
+        while ((c = read()) != -1 && c != '>') {
+            token.append((char) c);
+        }
+        return token.toString().trim().toUpperCase();
+    }
+
+    // Text up to the next tag, which is left unread
+    private String readText() throws IOException {
+        token.setLength(0);
+        int c;
+        while ((c = read()) != -1 && c != '<') {
+            token.append((char) c);
+        }
+        if (c == '<') {
+            pending = c;
+        }
+        return unescape(token.toString().trim());
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (pending != -1) {
+            c = pending;
+            pending = -1;
+            return c;
+        }
+        c = reader.read();
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private static String unescape(String text) {
+        if (text.indexOf('&') < 0) {
+            return text;
+        }
+        return text.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&amp;", "&");
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
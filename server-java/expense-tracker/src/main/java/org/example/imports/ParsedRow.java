@@ -0,0 +1,24 @@
+package org.example.imports;
+
+import org.example.model.Transaction;
+
+// One record from an import file: either a mapped transaction or the reason it could not be read
+public class ParsedRow {
+    final long line;
+    final Transaction transaction;
+    final String error;
+
+    ParsedRow(long line, Transaction transaction, String error) {
+        this.line = line;
+        this.transaction = transaction;
+        this.error = error;
+    }
+
+    static ParsedRow ok(long line, Transaction transaction) {
+        return new ParsedRow(line, transaction, null);
+    }
+
+    static ParsedRow failed(long line, String error) {
+        return new ParsedRow(line, null, error);
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.imports;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface RowParser extends Closeable {
+
+    // Next record, or null at end of input
+    ParsedRow next() throws IOException;
+}
@@ -0,0 +1,213 @@
+package org.example.ingest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import org.example.json.TransactionCodec;
+import org.example.model.Transaction;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Append-only log of accepted transactions, one record per transaction: a 4-byte length,
+// a 4-byte CRC32 and the JSON body. Each append is forced to disk before it returns, so one
+// fsync covers a whole batch. A failed append is cut back off the file; a crash can still leave
+// a torn last record, and reading stops there. The log is a series of segment files,
+// ingest-<n>.log, so a segment whose rows are all inserted can be deleted while later ones
+// are still being written. A new run appends to a new segment, after the ones it replays.
+// Used from one thread at a time.
+class IngestLog implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final String PREFIX = "ingest-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(512);
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream(64 * 1024);
+    private final CRC32 crc = new CRC32();
+    private Path current;
+    private FileChannel channel;
+
+    IngestLog(Path directory) {
+        this.directory = directory;
+    }
+
+    // The segment files, oldest first
+    List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                segments.add(file);
+            }
+        }
+        // Zero-padded numbers, so the names sort in order
+        Collections.sort(segments);
+        return segments;
+    }
+
+    static Reader read(Path segment) throws IOException {
+        return new Reader(segment);
+    }
+
+    // Starts a new segment after every existing one
+    void open() throws IOException {
+        List<Path> segments = segments();
+        long next = 1;
+        if (!segments.isEmpty()) {
+            String name = segments.get(segments.size() - 1).getFileName().toString();
+            next = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())) + 1;
+        }
+        current = directory.resolve(String.format("%s%012d%s", PREFIX, next, SUFFIX));
+        channel = FileChannel.open(current, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    // Closes the current segment, every record of it on disk, and starts the next; returns the
+    // closed one
+    Path roll() throws IOException {
+        Path closed = current;
+        channel.close();
+        open();
+        return closed;
+    }
+
+    void append(List<Transaction> transactions) throws IOException {
+        batch.reset();
+        for (Transaction transaction : transactions) {
+            record.reset();
+            try (JsonGenerator generator = TransactionCodec.generator(record)) {
+                TransactionCodec.write(generator, transaction);
+            }
+            byte[] body = record.toByteArray();
+            crc.reset();
+            crc.update(body, 0, body.length);
+            writeInt(body.length);
+            writeInt((int) crc.getValue());
+            batch.write(body, 0, body.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+        long start = channel.position();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            // Records appended after a partial batch would be unreadable, being past where reading stops
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException truncateFailed) {
+                e.addSuppressed(truncateFailed);
+            }
+            throw e;
+        }
+    }
+
+    private void writeInt(int value) {
+        batch.write(value >>> 24);
+        batch.write(value >>> 16);
+        batch.write(value >>> 8);
+        batch.write(value);
+    }
+
+    // Bytes in the current segment
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    // Only once every record in the segment has been written to the database
+    static void delete(Path segment) throws IOException {
+        Files.deleteIfExists(segment);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    // The records of one segment, a batch at a time, so replaying a long log never holds more
+    // than one batch
+    static class Reader implements Closeable {
+        private final Path segment;
+        private final FileChannel channel;
+        private final DataInputStream in;
+        private final CRC32 crc = new CRC32();
+        private byte[] body = new byte[512];
+        private long good;
+        private boolean done;
+
+        Reader(Path segment) throws IOException {
+            this.segment = segment;
+            channel = FileChannel.open(segment, StandardOpenOption.READ);
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+        }
+
+        // Up to max intact records; empty once the segment is read to its end or a torn record
+        List<Transaction> next(int max) throws IOException {
+            List<Transaction> transactions = new ArrayList<>(Math.min(max, 1024));
+            while (!done && transactions.size() < max) {
+                Transaction transaction = readRecord();
+                if (transaction == null) {
+                    done = true;
+                    if (good < channel.size()) {
+                        System.out.println("Ingest log: ignoring " + (channel.size() - good)
+                                + " bytes after the last intact record of " + segment.getFileName());
+                    }
+                    break;
+                }
+                transactions.add(transaction);
+            }
+            return transactions;
+        }
+
+        private Transaction readRecord() throws IOException {
+            int length;
+            int checksum;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+                if (length <= 0 || length > 1 << 20) {
+                    return null;
+                }
+                if (body.length < length) {
+                    body = new byte[length];
+                }
+                in.readFully(body, 0, length);
+            } catch (EOFException e) {
+                return null;
+            }
+            crc.reset();
+            crc.update(body, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                return null;
+            }
+            good += HEADER_BYTES + length;
+            try (JsonParser parser = TransactionCodec.parser(new ByteArrayInputStream(body, 0, length))) {
+                return TransactionCodec.read(parser);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
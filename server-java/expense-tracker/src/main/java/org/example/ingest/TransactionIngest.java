@@ -0,0 +1,448 @@
+package org.example.ingest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.example.json.TransactionCodec;
+import org.example.model.BatchResult;
+import org.example.model.Transaction;
+import org.example.service.TransactionIds;
+import org.example.service.TransactionService;
+import org.example.service.TransactionServices;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Write-behind creation for high-rate feeds, enabled with ingest.enabled=true. An accepted
+// transaction gets its id from TransactionIds and goes through two threads joined by bounded
+// queues: the log writer appends whole batches to IngestLog with one fsync and only then
+// acknowledges them, and the flusher coalesces logged rows into batched inserts. The log moves
+// on to a new segment every ingest.log.maxBytes, and a segment is deleted once the flusher has
+// inserted all of it. Rows left in the log by a crash are inserted by start() before the server
+// accepts requests. A row the database keeps refusing is moved to dead-letter.ndjson so it
+// cannot hold back the rest.
+public class TransactionIngest {
+
+    private static final TransactionIngest INSTANCE = new TransactionIngest();
+
+    private final boolean enabled = Boolean.getBoolean("ingest.enabled");
+    private final Path directory = Paths.get(System.getProperty("ingest.dir", "ingest"));
+    private final int batchSize = Integer.getInteger("ingest.batchSize", 1000);
+    private final long flushIntervalMs = Long.getLong("ingest.flushIntervalMs", 100L);
+    private final long maxLogBytes = Long.getLong("ingest.log.maxBytes", 64L * 1024 * 1024);
+    private final int flushAttempts = Integer.getInteger("ingest.flushAttempts", 5);
+    private final Path deadLetterFile = directory.resolve("dead-letter.ndjson");
+
+    private final BlockingQueue<Accepted> accepted = new ArrayBlockingQueue<>(Integer.getInteger("ingest.queue", 65536));
+    private final BlockingQueue<Transaction> logged = new ArrayBlockingQueue<>(Integer.getInteger("ingest.queue", 65536));
+    private final ExecutorService acknowledger;
+    private final TransactionService transactionService = TransactionServices.get();
+
+    private IngestLog log;
+    private Thread writer;
+    private Thread flusher;
+    private volatile boolean running;
+    private volatile boolean stopping;
+
+    // Written by the log writer only. The flusher inserts rows in log order, so a closed
+    // segment is done with once flushed reaches the count appended up to its end.
+    private long appended;
+    private final AtomicLong flushed = new AtomicLong();
+    private final ArrayDeque<Segment> closedSegments = new ArrayDeque<>();
+    private long closedBytes;
+    private volatile long logBytes;
+
+    private final LongAdder acceptedTotal = new LongAdder();
+    private final LongAdder rejectedTotal = new LongAdder();
+    private final LongAdder flushedTotal = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+
+    private TransactionIngest() {
+        AtomicInteger threadCount = new AtomicInteger();
+        acknowledger = Executors.newFixedThreadPool(Math.max(Runtime.getRuntime().availableProcessors(), 2), r -> {
+            Thread t = new Thread(r, "ingest-ack-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static TransactionIngest get() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Replays what a previous run logged but did not insert, then starts the writer and flusher.
+    // Throws when that fails: ids could otherwise be handed out twice.
+    public synchronized void start() throws IOException, SQLException {
+        if (!enabled || running) {
+            return;
+        }
+        Files.createDirectories(directory);
+        log = new IngestLog(directory);
+        // Replayed a batch at a time; each segment is deleted once all of it is in
+        int maxId = 0;
+        long logged = 0;
+        long inserted = 0;
+        for (Path segment : log.segments()) {
+            try (IngestLog.Reader reader = IngestLog.read(segment)) {
+                List<Transaction> chunk;
+                while (!(chunk = reader.next(batchSize)).isEmpty()) {
+                    for (Transaction transaction : chunk) {
+                        maxId = Math.max(maxId, transaction.getId());
+                    }
+                    logged += chunk.size();
+                    inserted += replay(chunk);
+                }
+            }
+            IngestLog.delete(segment);
+        }
+        if (logged > 0) {
+            System.out.println("Ingest log replayed: " + inserted + " of " + logged
+                    + " logged transactions inserted, the rest were already written or dead-lettered");
+        }
+        // Ids taken by dead-lettered log entries count too
+        int stored = transactionService.getMaxId();
+        if (stored < 0) {
+            throw new SQLException("Could not read the highest transaction id");
+        }
+        TransactionIds.get().activate(Math.max(maxId, stored));
+        log.open();
+
+        running = true;
+        writer = new Thread(this::writeLoop, "ingest-log");
+        flusher = new Thread(this::flushLoop, "ingest-flush");
+        writer.setDaemon(true);
+        flusher.setDaemon(true);
+        writer.start();
+        flusher.start();
+        System.out.println("Write-behind ingestion started: batches of " + batchSize + " every "
+                + flushIntervalMs + " ms, log in " + directory.toAbsolutePath());
+    }
+
+    private int replay(List<Transaction> chunk) throws SQLException {
+        BatchResult result = transactionService.ingestTransactions(chunk);
+        if (result != null) {
+            return result.getCount();
+        }
+        int inserted = 0;
+        for (Transaction transaction : chunk) {
+            int written;
+            try {
+                written = insertRow(transaction, false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                written = -1;
+            }
+            if (written < 0) {
+                throw new SQLException("Ingest log replay failed; the log is kept for the next start");
+            }
+            inserted += written;
+        }
+        return inserted;
+    }
+
+    // Assigns the id and queues the transaction; the future completes once it is on disk.
+    // Returns null when the queue is full or ingestion is stopping.
+    public CompletableFuture<Transaction> submit(Transaction transaction) {
+        if (!running || stopping) {
+            rejectedTotal.increment();
+            return null;
+        }
+        transaction.setId(TransactionIds.get().next());
+        Accepted entry = new Accepted(transaction);
+        if (!accepted.offer(entry)) {
+            rejectedTotal.increment();
+            return null;
+        }
+        acceptedTotal.increment();
+        return entry.durable;
+    }
+
+    private void writeLoop() {
+        List<Accepted> batch = new ArrayList<>(batchSize);
+        List<Transaction> transactions = new ArrayList<>(batchSize);
+        while (!stopping || !accepted.isEmpty()) {
+            try {
+                Accepted first = accepted.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    deleteFlushedSegments();
+                    continue;
+                }
+                batch.add(first);
+                accepted.drainTo(batch, batchSize - 1);
+                for (Accepted entry : batch) {
+                    transactions.add(entry.transaction);
+                }
+                try {
+                    log.append(transactions);
+                } catch (IOException e) {
+                    // Not durable, so not accepted: the client gets an error and can retry
+                    e.printStackTrace();
+                    for (Accepted entry : batch) {
+                        acknowledger.execute(() -> entry.durable.completeExceptionally(e));
+                    }
+                    continue;
+                }
+                appended += batch.size();
+                for (Accepted entry : batch) {
+                    acknowledger.execute(() -> entry.durable.complete(entry.transaction));
+                }
+                // Blocks while the flusher is behind, which backs up into submit()'s queue
+                for (Transaction transaction : transactions) {
+                    logged.put(transaction);
+                }
+                rollIfFull();
+                deleteFlushedSegments();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+                transactions.clear();
+            }
+        }
+        // A submit() that raced with shutdown() can still have queued one
+        Accepted late;
+        while ((late = accepted.poll()) != null) {
+            late.durable.completeExceptionally(new IOException("Ingestion stopped"));
+        }
+    }
+
+    private void rollIfFull() {
+        try {
+            long size = log.size();
+            if (size >= maxLogBytes) {
+                closedSegments.addLast(new Segment(log.roll(), appended, size));
+                closedBytes += size;
+                size = 0;
+            }
+            logBytes = closedBytes + size;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void deleteFlushedSegments() {
+        long done = flushed.get();
+        while (!closedSegments.isEmpty() && closedSegments.peekFirst().end <= done) {
+            Segment segment = closedSegments.peekFirst();
+            try {
+                IngestLog.delete(segment.file);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            closedSegments.removeFirst();
+            closedBytes -= segment.bytes;
+            logBytes -= segment.bytes;
+        }
+    }
+
+    private void flushLoop() {
+        List<Transaction> batch = new ArrayList<>(batchSize);
+        while (!stopping || writer.isAlive() || !logged.isEmpty()) {
+            try {
+                Transaction first = logged.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Gather up to batchSize rows, waiting at most flushIntervalMs after the first
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                while (batch.size() < batchSize) {
+                    logged.drainTo(batch, batchSize - batch.size());
+                    long wait = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || wait <= 0) {
+                        break;
+                    }
+                    Transaction next = logged.poll(wait, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Retried with backoff: the rows are already acknowledged and on disk. If a commit went
+    // through but was reported as failed, ingestTransactions() skips those rows on the retry.
+    // After flushAttempts the batch is split so that a row the database refuses is found.
+    private void flush(List<Transaction> batch) throws InterruptedException {
+        long backoffMs = 100;
+        for (int attempt = 1; attempt <= flushAttempts; attempt++) {
+            BatchResult result = transactionService.ingestTransactions(batch);
+            if (result != null) {
+                flushedTotal.add(result.getCount());
+                flushed.addAndGet(batch.size());
+                return;
+            }
+            flushFailures.increment();
+            Thread.sleep(backoffMs);
+            backoffMs = Math.min(backoffMs * 2, 5000);
+        }
+        for (Transaction transaction : batch) {
+            flushedTotal.add(insertRow(transaction, true));
+        }
+        flushed.addAndGet(batch.size());
+    }
+
+    // Inserts one row, retried flushAttempts times. If it still fails while the database answers
+    // queries, the database is refusing the row itself and it goes to the dead-letter file.
+    // Returns the rows inserted (0 when it was already stored or was dead-lettered), or -1 when
+    // the database does not answer and the caller will not wait for it.
+    private int insertRow(Transaction transaction, boolean waitForDatabase) throws InterruptedException {
+        List<Transaction> row = Collections.singletonList(transaction);
+        long backoffMs = 100;
+        for (int attempt = 1; ; attempt++) {
+            BatchResult result = transactionService.ingestTransactions(row);
+            if (result != null) {
+                return result.getCount();
+            }
+            flushFailures.increment();
+            if (attempt >= flushAttempts) {
+                if (transactionService.getMaxId() >= 0) {
+                    if (deadLetter(transaction)) {
+                        return 0;
+                    }
+                } else if (!waitForDatabase) {
+                    return -1;
+                }
+            }
+            Thread.sleep(backoffMs);
+            backoffMs = Math.min(backoffMs * 2, 5000);
+        }
+    }
+
+    // One JSON line per row, for an operator to correct and send again. False when the file
+    // cannot be written; the row is then kept and retried.
+    private boolean deadLetter(Transaction transaction) {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(512);
+        try (FileChannel channel = FileChannel.open(deadLetterFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            try (JsonGenerator generator = TransactionCodec.generator(line)) {
+                TransactionCodec.write(generator, transaction);
+            }
+            line.write('\n');
+            ByteBuffer buffer = ByteBuffer.wrap(line.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        deadLettered.increment();
+        System.out.println("Ingest: transaction " + transaction.getId() + " refused by the database, moved to "
+                + deadLetterFile.toAbsolutePath());
+        return true;
+    }
+
+    // Stops accepting, then waits for what was accepted to be logged and inserted. Whatever is
+    // still pending after the timeout stays in the log for the next start.
+    public void shutdown(long timeoutMs) {
+        if (!running) {
+            return;
+        }
+        stopping = true;
+        try {
+            writer.join(timeoutMs);
+            flusher.join(timeoutMs);
+            log.close();
+            if (!flusher.isAlive() && flushed.get() == appended) {
+                for (Path segment : log.segments()) {
+                    IngestLog.delete(segment);
+                }
+                logBytes = 0;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        acknowledger.shutdown();
+        running = false;
+    }
+
+    public int getQueuedCount() {
+        return accepted.size() + logged.size();
+    }
+
+    public long getAcceptedCount() {
+        return acceptedTotal.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedTotal.sum();
+    }
+
+    public long getFlushedCount() {
+        return flushedTotal.sum();
+    }
+
+    public long getFlushFailureCount() {
+        return flushFailures.sum();
+    }
+
+    public long getDeadLetteredCount() {
+        return deadLettered.sum();
+    }
+
+    public long getLogBytes() {
+        return logBytes;
+    }
+
+    private static class Segment {
+        final Path file;
+        final long end;   // rows appended up to the end of the segment
+        final long bytes;
+
+        Segment(Path file, long end, long bytes) {
+            this.file = file;
+            this.end = end;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class Accepted {
+        final Transaction transaction;
+        final CompletableFuture<Transaction> durable = new CompletableFuture<>();
+
+        Accepted(Transaction transaction) {
+            this.transaction = transaction;
+        }
+    }
+}
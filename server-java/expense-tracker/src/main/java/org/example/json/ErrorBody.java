@@ -0,0 +1,21 @@
+package org.example.json;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+// {"error": "..."} bodies; messages can carry quotes, backslashes or newlines from exceptions
+public final class ErrorBody {
+
+    private ErrorBody() {
+    }
+
+    public static String of(String message) {
+        return "{\"error\": " + quote(message) + "}";
+    }
+
+    public static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        return "\"" + new String(JsonStringEncoder.getInstance().quoteAsString(value)) + "\"";
+    }
+}
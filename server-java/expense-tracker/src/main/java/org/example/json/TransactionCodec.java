@@ -0,0 +1,370 @@
+package org.example.json;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.example.model.Transaction;
+import org.example.model.TransactionChange;
+import org.example.model.TransactionChanges;
+import org.example.model.TransactionList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// Hand-written JSON mapping for Transaction on Jackson's streaming API: field names are
+// pre-encoded, dates are written as ISO-8601 UTC and amounts as plain decimals, both from a
+// per-thread scratch buffer, so a list body allocates almost nothing per row.
+public final class TransactionCodec {
+
+    private static final JsonFactory FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString ACCOUNT = new SerializedString("account");
+    private static final SerializableString DESCRIPTION = new SerializedString("description");
+    private static final SerializableString AMOUNT = new SerializedString("amount");
+    private static final SerializableString TYPE = new SerializedString("type");
+    private static final SerializableString CATEGORY = new SerializedString("category");
+    private static final SerializableString DATE = new SerializedString("date");
+    private static final SerializableString NOTE = new SerializedString("note");
+    private static final SerializableString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializableString UPDATED_AT = new SerializedString("updatedAt");
+    private static final SerializableString TRANSACTIONS = new SerializedString("transactions");
+    private static final SerializableString SEQ = new SerializedString("seq");
+    private static final SerializableString OP = new SerializedString("op");
+    private static final SerializableString TRANSACTION = new SerializedString("transaction");
+    private static final SerializableString VERSION = new SerializedString("version");
+    private static final SerializableString CHANGES = new SerializedString("changes");
+    private static final SerializableString MORE = new SerializedString("more");
+
+    private static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial(() -> new char[32]);
+
+    private TransactionCodec() {
+    }
+
+    public static JsonGenerator generator(OutputStream out) throws IOException {
+        return FACTORY.createGenerator(out, JsonEncoding.UTF8);
+    }
+
+    public static JsonParser parser(InputStream in) throws IOException {
+        return FACTORY.createParser(in);
+    }
+
+    public static void write(JsonGenerator g, Transaction t) throws IOException {
+        char[] scratch = SCRATCH.get();
+        g.writeStartObject();
+        g.writeFieldName(ID);
+        g.writeNumber(t.getId());
+        g.writeFieldName(ACCOUNT);
+        g.writeString(t.getAccount());
+        g.writeFieldName(DESCRIPTION);
+        g.writeString(t.getDescription());
+        g.writeFieldName(AMOUNT);
+        writeAmount(g, t.getAmount(), scratch);
+        g.writeFieldName(TYPE);
+        g.writeString(t.getType());
+        g.writeFieldName(CATEGORY);
+        g.writeString(t.getCategory());
+        g.writeFieldName(DATE);
+        writeDate(g, t.getDate(), scratch);
+        g.writeFieldName(NOTE);
+        g.writeString(t.getNote());
+        g.writeFieldName(CREATED_AT);
+        writeDate(g, t.getCreatedAt(), scratch);
+        g.writeFieldName(UPDATED_AT);
+        writeDate(g, t.getUpdatedAt(), scratch);
+        g.writeEndObject();
+    }
+
+    public static void writeArray(JsonGenerator g, List<Transaction> transactions) throws IOException {
+        g.writeStartArray();
+        for (Transaction t : transactions) {
+            write(g, t);
+        }
+        g.writeEndArray();
+    }
+
+    public static void writeList(JsonGenerator g, TransactionList list) throws IOException {
+        g.writeStartObject();
+        g.writeFieldName(TRANSACTIONS);
+        writeArray(g, list.getTransactions());
+        g.writeEndObject();
+    }
+
+    // {"version": ..., "changes": [{"seq", "op", "id", "account", "transaction"}, ...], "more": ...}
+    public static void writeChanges(JsonGenerator g, TransactionChanges changes) throws IOException {
+        g.writeStartObject();
+        g.writeFieldName(VERSION);
+        g.writeString(changes.getVersion());
+        g.writeFieldName(CHANGES);
+        g.writeStartArray();
+        for (TransactionChange change : changes.getChanges()) {
+            g.writeStartObject();
+            g.writeFieldName(SEQ);
+            g.writeNumber(change.getSeq());
+            g.writeFieldName(OP);
+            g.writeString(change.getOp());
+            g.writeFieldName(ID);
+            g.writeNumber(change.getId());
+            g.writeFieldName(ACCOUNT);
+            g.writeString(change.getAccount());
+            if (change.getTransaction() != null) {
+                g.writeFieldName(TRANSACTION);
+                write(g, change.getTransaction());
+            }
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+        g.writeFieldName(MORE);
+        g.writeBoolean(changes.isMore());
+        g.writeEndObject();
+    }
+
+    // Expects the parser before or on START_OBJECT; unknown fields are skipped
+    public static Transaction read(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken() == null ? p.nextToken() : p.currentToken();
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(p, "Expected a transaction object");
+        }
+        Transaction t = new Transaction();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            token = p.nextToken();
+            switch (field) {
+                case "id":
+                    t.setId(token == JsonToken.VALUE_NULL ? 0 : p.getValueAsInt());
+                    break;
+                case "account":
+                    t.setAccount(readString(p, token));
+                    break;
+                case "description":
+                    t.setDescription(readString(p, token));
+                    break;
+                case "amount":
+                    t.setAmount(readAmount(p, token));
+                    break;
+                case "type":
+                    t.setType(readString(p, token));
+                    break;
+                case "category":
+                    t.setCategory(readString(p, token));
+                    break;
+                case "date":
+                    t.setDate(readDate(p, token));
+                    break;
+                case "note":
+                    t.setNote(readString(p, token));
+                    break;
+                case "createdAt":
+                    t.setCreatedAt(readDate(p, token));
+                    break;
+                case "updatedAt":
+                    t.setUpdatedAt(readDate(p, token));
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return t;
+    }
+
+    public static List<Transaction> readArray(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken() == null ? p.nextToken() : p.currentToken();
+        if (token != JsonToken.START_ARRAY) {
+            throw new JsonParseException(p, "Expected an array of transactions");
+        }
+        List<Transaction> transactions = new ArrayList<>();
+        while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+            transactions.add(token == JsonToken.VALUE_NULL ? null : read(p));
+        }
+        return transactions;
+    }
+
+    public static TransactionList readList(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken() == null ? p.nextToken() : p.currentToken();
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(p, "Expected a transaction list object");
+        }
+        TransactionList list = new TransactionList();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            if ("transactions".equals(field)) {
+                list.setTransactions(readArray(p));
+            } else {
+                p.skipChildren();
+            }
+        }
+        return list;
+    }
+
+    // Amounts come from DECIMAL(10, 2): when the value is an exact number of cents it is written
+    // as digits directly, otherwise (or when out of range) through Jackson's double formatting
+    private static void writeAmount(JsonGenerator g, double amount, char[] buf) throws IOException {
+        long cents = Math.round(amount * 100);
+        if (Math.abs(cents) >= 1_000_000_000_000_000L || cents / 100.0 != amount) {
+            g.writeNumber(amount);
+            return;
+        }
+        int len = formatCents(cents, buf);
+        g.writeRawValue(buf, buf.length - len, len);
+    }
+
+    // Right-aligned in buf: "12.5", "-0.07", "3.0"; returns the length
+    static int formatCents(long cents, char[] buf) {
+        boolean negative = cents < 0;
+        long abs = Math.abs(cents);
+        int pos = buf.length;
+        int fraction = (int) (abs % 100);
+        if (fraction % 10 == 0) {
+            buf[--pos] = (char) ('0' + fraction / 10);
+        } else {
+            buf[--pos] = (char) ('0' + fraction % 10);
+            buf[--pos] = (char) ('0' + fraction / 10);
+        }
+        buf[--pos] = '.';
+        long whole = abs / 100;
+        do {
+            buf[--pos] = (char) ('0' + whole % 10);
+            whole /= 10;
+        } while (whole > 0);
+        if (negative) {
+            buf[--pos] = '-';
+        }
+        return buf.length - pos;
+    }
+
+    // The formatted date is plain ASCII, so it is written raw with its quotes and skips escaping
+    private static void writeDate(JsonGenerator g, Date date, char[] buf) throws IOException {
+        if (date == null) {
+            g.writeNull();
+            return;
+        }
+        int len = formatIso(date.getTime(), buf, 1);
+        if (len < 0) {
+            g.writeString(Instant.ofEpochMilli(date.getTime()).toString());
+            return;
+        }
+        buf[0] = '"';
+        buf[len + 1] = '"';
+        g.writeRawValue(buf, 0, len + 2);
+    }
+
+    // "2024-01-15T10:00:00.000Z" into buf at offset; -1 for years outside 0000-9999.
+    // Civil-from-days conversion after Howard Hinnant's date algorithms.
+    static int formatIso(long epochMillis, char[] buf, int offset) {
+        long seconds = Math.floorDiv(epochMillis, 1000L);
+        int millis = (int) Math.floorMod(epochMillis, 1000L);
+        long days = Math.floorDiv(seconds, 86400L);
+        int secondOfDay = (int) Math.floorMod(seconds, 86400L);
+
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097L);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            return -1;
+        }
+
+        put4(buf, offset, (int) year);
+        buf[offset + 4] = '-';
+        put2(buf, offset + 5, month);
+        buf[offset + 7] = '-';
+        put2(buf, offset + 8, day);
+        buf[offset + 10] = 'T';
+        put2(buf, offset + 11, secondOfDay / 3600);
+        buf[offset + 13] = ':';
+        put2(buf, offset + 14, secondOfDay / 60 % 60);
+        buf[offset + 16] = ':';
+        put2(buf, offset + 17, secondOfDay % 60);
+        buf[offset + 19] = '.';
+        buf[offset + 20] = (char) ('0' + millis / 100);
+        put2(buf, offset + 21, millis % 100);
+        buf[offset + 23] = 'Z';
+        return 24;
+    }
+
+    private static void put2(char[] buf, int pos, int value) {
+        buf[pos] = (char) ('0' + value / 10);
+        buf[pos + 1] = (char) ('0' + value % 10);
+    }
+
+    private static void put4(char[] buf, int pos, int value) {
+        put2(buf, pos, value / 100);
+        put2(buf, pos + 2, value % 100);
+    }
+
+    private static String readString(JsonParser p, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw new JsonParseException(p, "Expected a string for '" + p.getCurrentName() + "'");
+        }
+        return p.getText();
+    }
+
+    private static double readAmount(JsonParser p, JsonToken token) throws IOException {
+        if (token.isNumeric()) {
+            return p.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return Double.parseDouble(p.getText().trim());
+            } catch (NumberFormatException e) {
+                throw new JsonParseException(p, "Invalid amount '" + p.getText() + "'");
+            }
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return 0;
+        }
+        throw new JsonParseException(p, "Expected a number for 'amount'");
+    }
+
+    // Epoch millis, "2024-01-15", "2024-01-15T10:00:00Z" with any offset, or without one (UTC)
+    private static Date readDate(JsonParser p, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return new Date(p.getLongValue());
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            throw new JsonParseException(p, "Expected a date for '" + p.getCurrentName() + "'");
+        }
+        String text = p.getText().trim();
+        try {
+            if (text.length() == 10) {
+                return Date.from(LocalDate.parse(text).atStartOfDay(ZoneOffset.UTC).toInstant());
+            }
+            char last = text.charAt(text.length() - 1);
+            if (last == 'Z' || text.lastIndexOf('+') > 10 || text.lastIndexOf('-') > 10) {
+                return Date.from(OffsetDateTime.parse(text).toInstant());
+            }
+            return Date.from(LocalDateTime.parse(text).toInstant(ZoneOffset.UTC));
+        } catch (DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new JsonParseException(p, "Invalid date '" + text + "'");
+        }
+    }
+}
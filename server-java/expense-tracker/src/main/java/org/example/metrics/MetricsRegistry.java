@@ -0,0 +1,263 @@
+package org.example.metrics;
+
+import org.example.analytics.TransactionAnalytics;
+import org.example.budget.BudgetEngine;
+import org.example.controller.ChangeFeed;
+import org.example.controller.DbExecutor;
+import org.example.db.ConnectionPool;
+import org.example.ingest.TransactionIngest;
+import org.example.recurring.RecurringScheduler;
+import org.example.search.TransactionSearch;
+import org.example.service.EmbeddedTransactionService;
+import org.example.service.ShardedTransactionService;
+import org.example.service.TransactionService;
+import org.example.service.TransactionCache;
+import org.example.service.TransactionChangeLog;
+import org.example.service.TransactionServiceImpl;
+import org.example.service.TransactionServices;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Path;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+// Process-wide metrics, rendered in the Prometheus text exposition format
+public class MetricsRegistry {
+
+    private static final int MAX_STATEMENTS = 200;
+    private static final int MAX_SQL_TEXTS = 1000;
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    // An IN list of any length, such as the chunks of ids the batch writes lock
+    private static final Pattern IN_LIST = Pattern.compile("\\bIN\\s*\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)", Pattern.CASE_INSENSITIVE);
+
+    private static final Map<Method, RequestMetrics> endpoints = new ConcurrentHashMap<>();
+    private static final Map<Method, String> endpointNames = new ConcurrentHashMap<>();
+    private static final RequestMetrics unmatched = new RequestMetrics();
+    private static final Map<String, LatencyHistogram> statements = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> bySql = new ConcurrentHashMap<>();
+    private static final LatencyHistogram otherStatements = new LatencyHistogram();
+    private static final LatencyHistogram connectionWait = new LatencyHistogram();
+
+    private MetricsRegistry() {
+    }
+
+    public static RequestMetrics endpoint(Method resourceMethod) {
+        if (resourceMethod == null) {
+            return unmatched;
+        }
+        RequestMetrics metrics = endpoints.get(resourceMethod);
+        if (metrics == null) {
+            endpointNames.putIfAbsent(resourceMethod, describe(resourceMethod));
+            metrics = endpoints.computeIfAbsent(resourceMethod, m -> new RequestMetrics());
+        }
+        return metrics;
+    }
+
+    // Keyed by SQL text with IN lists collapsed to IN (?), so a statement built for any number
+    // of ids is one key; dynamic SQL beyond MAX_STATEMENTS distinct keys is pooled under "other".
+    // Each raw text is normalized once and then found by a plain lookup.
+    public static LatencyHistogram statement(String sql) {
+        if (sql == null) {
+            return otherStatements;
+        }
+        LatencyHistogram histogram = bySql.get(sql);
+        if (histogram != null) {
+            return histogram;
+        }
+        String key = normalize(sql);
+        histogram = statements.get(key);
+        if (histogram == null) {
+            histogram = statements.size() >= MAX_STATEMENTS ? otherStatements
+                    : statements.computeIfAbsent(key, s -> new LatencyHistogram());
+        }
+        if (bySql.size() < MAX_SQL_TEXTS) {
+            bySql.putIfAbsent(sql, histogram);
+        }
+        return histogram;
+    }
+
+    static String normalize(String sql) {
+        return IN_LIST.matcher(sql).replaceAll("IN (?)");
+    }
+
+    public static LatencyHistogram connectionWait() {
+        return connectionWait;
+    }
+
+    public static String render() {
+        StringBuilder out = new StringBuilder(8192);
+
+        out.append("# HELP http_request_duration_seconds Request latency by endpoint\n");
+        out.append("# TYPE http_request_duration_seconds summary\n");
+        Map<String, RequestMetrics> byName = new TreeMap<>();
+        for (Map.Entry<Method, RequestMetrics> entry : endpoints.entrySet()) {
+            byName.put(endpointNames.get(entry.getKey()), entry.getValue());
+        }
+        byName.put("unmatched", unmatched);
+        for (Map.Entry<String, RequestMetrics> entry : byName.entrySet()) {
+            summary(out, "http_request_duration_seconds", "endpoint", entry.getKey(), entry.getValue().getLatency());
+        }
+        out.append("# HELP http_requests_total Requests by endpoint\n");
+        out.append("# TYPE http_requests_total counter\n");
+        for (Map.Entry<String, RequestMetrics> entry : byName.entrySet()) {
+            sample(out, "http_requests_total", "endpoint", entry.getKey(), entry.getValue().getRequests());
+        }
+        out.append("# HELP http_request_errors_total Responses with a 4xx or 5xx status by endpoint\n");
+        out.append("# TYPE http_request_errors_total counter\n");
+        for (Map.Entry<String, RequestMetrics> entry : byName.entrySet()) {
+            String labels = "endpoint=\"" + escape(entry.getKey()) + "\",class=";
+            out.append("http_request_errors_total{").append(labels).append("\"4xx\"} ")
+                    .append(entry.getValue().getClientErrors()).append('\n');
+            out.append("http_request_errors_total{").append(labels).append("\"5xx\"} ")
+                    .append(entry.getValue().getServerErrors()).append('\n');
+        }
+
+        out.append("# HELP db_statement_duration_seconds SQL execution time by statement\n");
+        out.append("# TYPE db_statement_duration_seconds summary\n");
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(statements).entrySet()) {
+            summary(out, "db_statement_duration_seconds", "sql", entry.getKey(), entry.getValue());
+        }
+        summary(out, "db_statement_duration_seconds", "sql", "other", otherStatements);
+
+        out.append("# HELP db_pool_wait_seconds Time spent waiting to borrow a connection\n");
+        out.append("# TYPE db_pool_wait_seconds summary\n");
+        summary(out, "db_pool_wait_seconds", null, null, connectionWait);
+
+        // Asking for the pool would create it, so the embedded backend reports its store instead.
+        // With shards the figures are summed over every shard's pool or store.
+        if (TransactionServices.usesMySql()) {
+            long[] pools = new long[8];
+            for (TransactionService store : TransactionServices.stores()) {
+                ConnectionPool pool = ((TransactionServiceImpl) store).getPool();
+                pools[0] += pool.getMaxSize();
+                pools[1] += pool.getActiveCount();
+                pools[2] += pool.getIdleCount();
+                pools[3] += pool.getWaitingCount();
+                pools[4] += pool.getOpenStatementCount();
+                pools[5] += pool.getTimeoutCount();
+                pools[6] += pool.getLeakCount();
+                pools[7] += pool.getStatementLeakCount();
+            }
+            gauge(out, "db_pool_max_connections", "Maximum pool size", pools[0]);
+            gauge(out, "db_pool_active_connections", "Connections currently borrowed", pools[1]);
+            gauge(out, "db_pool_idle_connections", "Connections idle in the pool", pools[2]);
+            gauge(out, "db_pool_waiting_threads", "Threads waiting for a connection", pools[3]);
+            gauge(out, "db_pool_open_statements", "Open statements on borrowed connections", pools[4]);
+            counter(out, "db_pool_timeouts_total", "Borrows that timed out", pools[5]);
+            counter(out, "db_pool_leaks_total", "Connections held past the leak threshold", pools[6]);
+            counter(out, "db_pool_statement_leaks_total", "Statements closed by the pool on return", pools[7]);
+        } else {
+            long rows = 0;
+            long logBytes = 0;
+            long compactions = 0;
+            for (TransactionService store : TransactionServices.stores()) {
+                if (store instanceof EmbeddedTransactionService) {
+                    rows += ((EmbeddedTransactionService) store).getRowCount();
+                    logBytes += ((EmbeddedTransactionService) store).getLogBytes();
+                    compactions += ((EmbeddedTransactionService) store).getCompactionCount();
+                }
+            }
+            gauge(out, "embedded_store_rows", "Transactions held by the embedded store", rows);
+            gauge(out, "embedded_store_log_bytes", "Size of the embedded store's log", logBytes);
+            counter(out, "embedded_store_compactions_total", "Rewrites of the embedded store's log", compactions);
+        }
+        if (TransactionServices.get() instanceof ShardedTransactionService) {
+            ShardedTransactionService sharded = (ShardedTransactionService) TransactionServices.get();
+            gauge(out, "storage_shards", "Shards the transactions are spread over", sharded.getShards().size());
+            counter(out, "shard_moved_rows_total", "Rows moved between shards by rebalancing", sharded.getMovedRowCount());
+        }
+
+        DbExecutor executor = DbExecutor.get();
+        gauge(out, "db_executor_active_threads", "Database executor threads running a request", executor.getActiveCount());
+        gauge(out, "db_executor_queued_requests", "Requests waiting for a database executor thread", executor.getQueuedCount());
+        counter(out, "db_executor_rejected_total", "Requests answered 503 because the executor queue was full", executor.getRejectedCount());
+        counter(out, "db_executor_timeouts_total", "Requests answered 503 after server.requestTimeoutMs", executor.getTimeoutCount());
+
+        TransactionIngest ingest = TransactionIngest.get();
+        gauge(out, "ingest_queued", "Accepted transactions not yet inserted", ingest.getQueuedCount());
+        gauge(out, "ingest_log_bytes", "Size of the write-behind ingest log", ingest.getLogBytes());
+        counter(out, "ingest_accepted_total", "Transactions accepted with 202", ingest.getAcceptedCount());
+        counter(out, "ingest_rejected_total", "Transactions refused because the ingest queue was full", ingest.getRejectedCount());
+        counter(out, "ingest_flushed_total", "Accepted transactions inserted by the flusher", ingest.getFlushedCount());
+        counter(out, "ingest_flush_failures_total", "Flush attempts that failed and were retried", ingest.getFlushFailureCount());
+        counter(out, "ingest_dead_lettered_total", "Accepted transactions the database refused, moved to the dead-letter file", ingest.getDeadLetteredCount());
+
+        TransactionChangeLog changeLog = TransactionChangeLog.get();
+        gauge(out, "change_log_entries", "Changes kept for delta sync", changeLog.size());
+        gauge(out, "change_feed_subscribers", "Open change stream connections", ChangeFeed.get().getSubscriberCount());
+
+        TransactionAnalytics analytics = TransactionAnalytics.get();
+        gauge(out, "analytics_rows", "Rows in the analytics columns, 0 until the first analytics query", analytics.getRowCount());
+        gauge(out, "analytics_column_bytes", "Heap held by the analytics column arrays", analytics.getColumnBytes());
+        TransactionSearch search = TransactionSearch.get();
+        gauge(out, "search_documents", "Transactions in the search index, 0 until it is built", search.getDocumentCount());
+        gauge(out, "search_words", "Distinct words in the search index", search.getWordCount());
+        BudgetEngine budgets = BudgetEngine.ifLoaded();
+        gauge(out, "budgets", "Budgets checked on every write, 0 until the budgets are loaded", budgets != null ? budgets.getBudgetCount() : 0);
+        counter(out, "budget_alerts_total", "Budget thresholds crossed", budgets != null ? budgets.getAlertCount() : 0);
+        RecurringScheduler recurring = RecurringScheduler.get();
+        gauge(out, "recurring_schedules", "Recurring transactions", recurring.getScheduleCount());
+        counter(out, "recurring_written_total", "Occurrences of recurring transactions written", recurring.getWrittenCount());
+        counter(out, "recurring_failures_total", "Scheduler runs that failed and were retried", recurring.getFailureCount());
+
+        TransactionCache cache = TransactionCache.get();
+        counter(out, "transaction_cache_hits_total", "Cache hits", cache.getHitCount());
+        counter(out, "transaction_cache_misses_total", "Cache misses", cache.getMissCount());
+        counter(out, "transaction_cache_evictions_total", "Cache evictions", cache.getEvictionCount());
+        gauge(out, "transaction_cache_size", "Cached transactions", cache.size());
+        return out.toString();
+    }
+
+    private static void summary(StringBuilder out, String name, String label, String value, LatencyHistogram histogram) {
+        String labels = label == null ? "" : label + "=\"" + escape(value) + "\"";
+        for (double q : QUANTILES) {
+            out.append(name).append('{').append(labels).append(labels.isEmpty() ? "" : ",")
+                    .append("quantile=\"").append(q).append("\"} ")
+                    .append(histogram.quantile(q) / 1e9).append('\n');
+        }
+        String suffix = labels.isEmpty() ? " " : "{" + labels + "} ";
+        out.append(name).append("_sum").append(suffix).append(histogram.getSumNanos() / 1e9).append('\n');
+        out.append(name).append("_count").append(suffix).append(histogram.getCount()).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String value, long sample) {
+        out.append(name).append('{').append(label).append("=\"").append(escape(value)).append("\"} ")
+                .append(sample).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    // "GET /api/transactions/{id}" from the JAX-RS annotations
+    private static String describe(Method method) {
+        String httpMethod = "ANY";
+        for (Annotation annotation : method.getAnnotations()) {
+            HttpMethod verb = annotation.annotationType().getAnnotation(HttpMethod.class);
+            if (verb != null) {
+                httpMethod = verb.value();
+            }
+        }
+        Path classPath = method.getDeclaringClass().getAnnotation(Path.class);
+        Path methodPath = method.getAnnotation(Path.class);
+        String path = (classPath == null ? "" : classPath.value())
+                + (methodPath == null ? "" : (methodPath.value().startsWith("/") ? "" : "/") + methodPath.value());
+        return httpMethod + " " + path;
+    }
+}
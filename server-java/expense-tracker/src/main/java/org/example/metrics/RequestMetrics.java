@@ -0,0 +1,35 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class RequestMetrics {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+
+    public void record(long nanos, int status) {
+        latency.record(nanos);
+        if (status >= 500) {
+            serverErrors.increment();
+        } else if (status >= 400) {
+            clientErrors.increment();
+        }
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getRequests() {
+        return latency.getCount();
+    }
+
+    public long getClientErrors() {
+        return clientErrors.sum();
+    }
+
+    public long getServerErrors() {
+        return serverErrors.sum();
+    }
+}
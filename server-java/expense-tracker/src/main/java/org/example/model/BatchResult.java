@@ -0,0 +1,35 @@
+package org.example.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchResult {
+
+    private int count;
+    private List<Integer> ids = new ArrayList<>();
+    private List<Integer> missing = new ArrayList<>(); // ids not found; nothing was written when non-empty
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public List<Integer> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Integer> ids) {
+        this.ids = ids;
+    }
+
+    public List<Integer> getMissing() {
+        return missing;
+    }
+
+    public void setMissing(List<Integer> missing) {
+        this.missing = missing;
+    }
+}
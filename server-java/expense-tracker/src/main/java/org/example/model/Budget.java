@@ -0,0 +1,80 @@
+package org.example.model;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+// A spending limit on one category, or on all of them when category is null, per calendar
+// week (from Monday), month or year. An alert fires as the period's expenses cross each of
+// the thresholds, given in percent of the limit.
+public class Budget {
+
+    public static final List<String> PERIODS = Arrays.asList("week", "month", "year");
+
+    private int id;
+    private String account = Transaction.DEFAULT_ACCOUNT;
+    private String category;
+    private String period = "month";
+    private double limit;
+    private List<Integer> thresholds = Arrays.asList(80, 100);
+    private Date createdAt;
+
+    public Budget() {
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public void setAccount(String account) {
+        this.account = account;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(String period) {
+        this.period = period;
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    public void setLimit(double limit) {
+        this.limit = limit;
+    }
+
+    public List<Integer> getThresholds() {
+        return thresholds;
+    }
+
+    public void setThresholds(List<Integer> thresholds) {
+        this.thresholds = thresholds;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+}
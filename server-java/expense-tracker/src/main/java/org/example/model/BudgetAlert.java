@@ -0,0 +1,113 @@
+package org.example.model;
+
+import java.util.Date;
+
+// A budget's spending in one period crossing one of its thresholds
+public class BudgetAlert {
+    private long seq;
+    private int budgetId;
+    private String account;
+    private String category;
+    private String period;
+    private String periodStart;
+    private int threshold;
+    private double spent;
+    private double limit;
+    private Date firedAt;
+
+    public BudgetAlert() {
+    }
+
+    public BudgetAlert(int budgetId, String account, String category, String period, String periodStart,
+                       int threshold, double spent, double limit) {
+        this.budgetId = budgetId;
+        this.account = account;
+        this.category = category;
+        this.period = period;
+        this.periodStart = periodStart;
+        this.threshold = threshold;
+        this.spent = spent;
+        this.limit = limit;
+        this.firedAt = new Date();
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public int getBudgetId() {
+        return budgetId;
+    }
+
+    public void setBudgetId(int budgetId) {
+        this.budgetId = budgetId;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public void setAccount(String account) {
+        this.account = account;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(String period) {
+        this.period = period;
+    }
+
+    public String getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(String periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    public double getSpent() {
+        return spent;
+    }
+
+    public void setSpent(double spent) {
+        this.spent = spent;
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    public void setLimit(double limit) {
+        this.limit = limit;
+    }
+
+    public Date getFiredAt() {
+        return firedAt;
+    }
+
+    public void setFiredAt(Date firedAt) {
+        this.firedAt = firedAt;
+    }
+}
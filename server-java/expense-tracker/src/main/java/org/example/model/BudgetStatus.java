@@ -0,0 +1,51 @@
+package org.example.model;
+
+// A budget with what has been spent against it in the current period
+public class BudgetStatus {
+    private Budget budget;
+    private String periodStart;
+    private double spent;
+    private double percent;
+
+    public BudgetStatus() {
+    }
+
+    public BudgetStatus(Budget budget, String periodStart, double spent, double percent) {
+        this.budget = budget;
+        this.periodStart = periodStart;
+        this.spent = spent;
+        this.percent = percent;
+    }
+
+    public Budget getBudget() {
+        return budget;
+    }
+
+    public void setBudget(Budget budget) {
+        this.budget = budget;
+    }
+
+    public String getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(String periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public double getSpent() {
+        return spent;
+    }
+
+    public void setSpent(double spent) {
+        this.spent = spent;
+    }
+
+    public double getPercent() {
+        return percent;
+    }
+
+    public void setPercent(double percent) {
+        this.percent = percent;
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.model;
+
+// Projected income and expense of one calendar month
+public class CashFlowMonth {
+    private String month;
+    private double income;
+    private double expense;
+    private double net;
+    private int count;
+
+    public CashFlowMonth() {
+    }
+
+    public CashFlowMonth(String month, double income, double expense, int count) {
+        this.month = month;
+        this.income = income;
+        this.expense = expense;
+        this.net = income - expense;
+        this.count = count;
+    }
+
+    public String getMonth() {
+        return month;
+    }
+
+    public void setMonth(String month) {
+        this.month = month;
+    }
+
+    public double getIncome() {
+        return income;
+    }
+
+    public void setIncome(double income) {
+        this.income = income;
+    }
+
+    public double getExpense() {
+        return expense;
+    }
+
+    public void setExpense(double expense) {
+        this.expense = expense;
+    }
+
+    public double getNet() {
+        return net;
+    }
+
+    public void setNet(double net) {
+        this.net = net;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// What the recurring transactions have still to write, up to the end of the projected months.
+// Every occurrence counts in the months; occurrences lists only the first ones asked for.
+public class CashFlowProjection {
+    private String from;
+    private String to;
+    private List<CashFlowMonth> months = new ArrayList<>();
+    private List<ProjectedOccurrence> occurrences = new ArrayList<>();
+    private boolean truncated; // more occurrences than listed
+
+    public CashFlowProjection() {
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public List<CashFlowMonth> getMonths() {
+        return months;
+    }
+
+    public void setMonths(List<CashFlowMonth> months) {
+        this.months = months;
+    }
+
+    public List<ProjectedOccurrence> getOccurrences() {
+        return occurrences;
+    }
+
+    public void setOccurrences(List<ProjectedOccurrence> occurrences) {
+        this.occurrences = occurrences;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.model;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ImportJob {
+
+    private static final int MAX_ERRORS = 1000;
+
+    private final String id;
+    private final String format;
+    private final String account;
+    private final long totalBytes;
+    private final Date startedAt = new Date();
+    private volatile Date finishedAt;
+    private volatile String status = "running"; // running, completed, failed
+    private volatile String message;
+
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsImported = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final List<RowError> errors = new ArrayList<>();
+
+    public ImportJob(String id, String format, String account, long totalBytes) {
+        this.id = id;
+        this.format = format;
+        this.account = account;
+        this.totalBytes = totalBytes;
+    }
+
+    public void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    public void rowsImported(int count) {
+        rowsImported.addAndGet(count);
+    }
+
+    public void rowFailed(long line, String error) {
+        rowsFailed.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(new RowError(line, error));
+            }
+        }
+    }
+
+    public void setBytesRead(long bytes) {
+        bytesRead.set(bytes);
+    }
+
+    public void finish(String status, String message) {
+        this.message = message;
+        this.finishedAt = new Date();
+        this.status = status;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Date getStartedAt() {
+        return startedAt;
+    }
+
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public double getProgress() {
+        return totalBytes == 0 ? 1.0 : Math.min(1.0, (double) bytesRead.get() / totalBytes);
+    }
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public long getRowsImported() {
+        return rowsImported.get();
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed.get();
+    }
+
+    public double getRowsPerSecond() {
+        long end = finishedAt == null ? System.currentTimeMillis() : finishedAt.getTime();
+        long elapsed = Math.max(1, end - startedAt.getTime());
+        return rowsRead.get() * 1000.0 / elapsed;
+    }
+
+    public List<RowError> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+
+    public static class RowError {
+        private final long line;
+        private final String error;
+
+        public RowError(long line, String error) {
+            this.line = line;
+            this.error = error;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
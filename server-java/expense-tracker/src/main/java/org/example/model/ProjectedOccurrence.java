@@ -0,0 +1,71 @@
+package org.example.model;
+
+// An occurrence of a recurring transaction that has not been written yet
+public class ProjectedOccurrence {
+    private int recurringId;
+    private String date;
+    private String description;
+    private double amount;
+    private String type;
+    private String category;
+
+    public ProjectedOccurrence() {
+    }
+
+    public ProjectedOccurrence(int recurringId, String date, String description, double amount, String type, String category) {
+        this.recurringId = recurringId;
+        this.date = date;
+        this.description = description;
+        this.amount = amount;
+        this.type = type;
+        this.category = category;
+    }
+
+    public int getRecurringId() {
+        return recurringId;
+    }
+
+    public void setRecurringId(int recurringId) {
+        this.recurringId = recurringId;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public void setDate(String date) {
+        this.date = date;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(double amount) {
+        this.amount = amount;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.model;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+// A transaction that repeats: every interval days, weeks, months or years from startDate, or on
+// the days a cron expression matches. Each occurrence is written as an ordinary transaction
+// dated that day. Dates are yyyy-MM-dd in the server's time zone; nextDate is the first
+// occurrence not written yet, and is null once endDate has passed.
+public class RecurringTransaction {
+
+    public static final List<String> FREQUENCIES = Arrays.asList("daily", "weekly", "monthly", "yearly", "cron");
+
+    private int id;
+    private String account = Transaction.DEFAULT_ACCOUNT;
+    private String description;
+    private double amount;
+    private String type;
+    private String category;
+    private String note;
+    private String frequency = "monthly";
+    private int interval = 1;
+    private String cron; // with frequency "cron"
+    private String startDate;
+    private String endDate;
+    private String nextDate;
+    private Date createdAt;
+
+    public RecurringTransaction() {
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public void setAccount(String account) {
+        this.account = account;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(double amount) {
+        this.amount = amount;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public void setNote(String note) {
+        this.note = note;
+    }
+
+    public String getFrequency() {
+        return frequency;
+    }
+
+    public void setFrequency(String frequency) {
+        this.frequency = frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public void setInterval(int interval) {
+        this.interval = interval;
+    }
+
+    public String getCron() {
+        return cron;
+    }
+
+    public void setCron(String cron) {
+        this.cron = cron;
+    }
+
+    public String getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(String startDate) {
+        this.startDate = startDate;
+    }
+
+    public String getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(String endDate) {
+        this.endDate = endDate;
+    }
+
+    public String getNextDate() {
+        return nextDate;
+    }
+
+    public void setNextDate(String nextDate) {
+        this.nextDate = nextDate;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+}
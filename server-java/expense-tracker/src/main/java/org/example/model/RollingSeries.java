@@ -0,0 +1,61 @@
+package org.example.model;
+
+// Trailing-window totals for one category, one per day from start
+public class RollingSeries {
+    private String category;
+    private String type;
+    private int window; // days
+    private String start; // yyyy-MM-dd of totals[0]
+    private double[] totals;
+
+    public RollingSeries() {
+    }
+
+    public RollingSeries(String category, String type, int window, String start, double[] totals) {
+        this.category = category;
+        this.type = type;
+        this.window = window;
+        this.start = start;
+        this.totals = totals;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public void setWindow(int window) {
+        this.window = window;
+    }
+
+    public String getStart() {
+        return start;
+    }
+
+    public void setStart(String start) {
+        this.start = start;
+    }
+
+    public double[] getTotals() {
+        return totals;
+    }
+
+    public void setTotals(double[] totals) {
+        this.totals = totals;
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.model;
+
+public class TopEntry {
+    private String key;
+    private double total;
+    private long count;
+
+    public TopEntry() {
+    }
+
+    public TopEntry(String key, double total, long count) {
+        this.key = key;
+        this.total = total;
+        this.count = count;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    public void setTotal(double total) {
+        this.total = total;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
@@ -5,7 +5,12 @@ import java.util.Date;
 
 @XmlRootElement
 public class Transaction {
+
+    // Owner of rows written without an account, and of every row stored before accounts existed
+    public static final String DEFAULT_ACCOUNT = "default";
+
     private int id;
+    private String account = DEFAULT_ACCOUNT;
     private String description;
     private double amount;
     private String type; // "income" or "expense"
@@ -35,6 +40,14 @@ public class Transaction {
         this.id = id;
     }
 
+    public String getAccount() {
+        return account;
+    }
+
+    public void setAccount(String account) {
+        this.account = account == null ? DEFAULT_ACCOUNT : account;
+    }
+
     public String getDescription() {
         return description;
     }
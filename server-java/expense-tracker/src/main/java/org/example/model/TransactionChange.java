@@ -0,0 +1,64 @@
+package org.example.model;
+
+public class TransactionChange {
+
+    public static final String UPSERT = "upsert";
+    public static final String DELETE = "delete";
+
+    private long seq;
+    private String op; // "upsert" or "delete"
+    private int id;
+    private String account;
+    private Transaction transaction; // the row after the change; null for a delete
+
+    public TransactionChange() {
+    }
+
+    public TransactionChange(long seq, String op, int id, String account, Transaction transaction) {
+        this.seq = seq;
+        this.op = op;
+        this.id = id;
+        this.account = account;
+        this.transaction = transaction;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public void setAccount(String account) {
+        this.account = account;
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    public void setTransaction(Transaction transaction) {
+        this.transaction = transaction;
+    }
+}
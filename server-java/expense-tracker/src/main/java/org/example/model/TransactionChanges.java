@@ -0,0 +1,35 @@
+package org.example.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TransactionChanges {
+
+    private String version; // pass back as ?since= to continue after the last change listed
+    private List<TransactionChange> changes = new ArrayList<>();
+    private boolean more; // true when the limit cut the list short
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public List<TransactionChange> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<TransactionChange> changes) {
+        this.changes = changes;
+    }
+
+    public boolean isMore() {
+        return more;
+    }
+
+    public void setMore(boolean more) {
+        this.more = more;
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.model;
+
+import java.util.Date;
+
+public class TransactionFilter {
+    private String account; // null reads every account; only internal rebuilds leave it unset
+    private String type;
+    private String category;
+    private Date from; // inclusive
+    private Date to;   // exclusive
+
+    public String getAccount() {
+        return account;
+    }
+
+    public void setAccount(String account) {
+        this.account = account;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public Date getFrom() {
+        return from;
+    }
+
+    public void setFrom(Date from) {
+        this.from = from;
+    }
+
+    public Date getTo() {
+        return to;
+    }
+
+    public void setTo(Date to) {
+        this.to = to;
+    }
+}
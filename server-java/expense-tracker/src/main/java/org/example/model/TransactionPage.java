@@ -0,0 +1,26 @@
+package org.example.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TransactionPage {
+
+    private List<Transaction> transactions = new ArrayList<>();
+    private String next; // opaque cursor for the following page, null on the last page
+
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(List<Transaction> transactions) {
+        this.transactions = transactions;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
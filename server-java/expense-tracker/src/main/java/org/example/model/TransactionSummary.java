@@ -0,0 +1,150 @@
+package org.example.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TransactionSummary {
+
+    private double income;
+    private double expense;
+    private double balance;
+    private long count;
+    private List<CategoryTotal> categories = new ArrayList<>();
+    private List<MonthTotal> months = new ArrayList<>();
+
+    public double getIncome() {
+        return income;
+    }
+
+    public void setIncome(double income) {
+        this.income = income;
+    }
+
+    public double getExpense() {
+        return expense;
+    }
+
+    public void setExpense(double expense) {
+        this.expense = expense;
+    }
+
+    public double getBalance() {
+        return balance;
+    }
+
+    public void setBalance(double balance) {
+        this.balance = balance;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public List<CategoryTotal> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(List<CategoryTotal> categories) {
+        this.categories = categories;
+    }
+
+    public List<MonthTotal> getMonths() {
+        return months;
+    }
+
+    public void setMonths(List<MonthTotal> months) {
+        this.months = months;
+    }
+
+    public static class CategoryTotal {
+        private String category;
+        private String type;
+        private double total;
+        private long count;
+
+        public CategoryTotal() {
+        }
+
+        public CategoryTotal(String category, String type, double total, long count) {
+            this.category = category;
+            this.type = type;
+            this.total = total;
+            this.count = count;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public void setCategory(String category) {
+            this.category = category;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public double getTotal() {
+            return total;
+        }
+
+        public void setTotal(double total) {
+            this.total = total;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+    }
+
+    public static class MonthTotal {
+        private String month; // yyyy-MM
+        private double income;
+        private double expense;
+
+        public MonthTotal() {
+        }
+
+        public MonthTotal(String month, double income, double expense) {
+            this.month = month;
+            this.income = income;
+            this.expense = expense;
+        }
+
+        public String getMonth() {
+            return month;
+        }
+
+        public void setMonth(String month) {
+            this.month = month;
+        }
+
+        public double getIncome() {
+            return income;
+        }
+
+        public void setIncome(double income) {
+            this.income = income;
+        }
+
+        public double getExpense() {
+            return expense;
+        }
+
+        public void setExpense(double expense) {
+            this.expense = expense;
+        }
+    }
+}
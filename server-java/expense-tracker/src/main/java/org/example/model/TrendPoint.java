@@ -0,0 +1,61 @@
+package org.example.model;
+
+// One bucket of GET /api/analytics/trend
+public class TrendPoint {
+    private String period; // yyyy-MM-dd, Monday of the week, yyyy-MM or yyyy
+    private double income;
+    private double expense;
+    private long count;
+    private Double expenseChange; // fraction of the previous bucket's expense, null when that was 0
+
+    public TrendPoint() {
+    }
+
+    public TrendPoint(String period, double income, double expense, long count, Double expenseChange) {
+        this.period = period;
+        this.income = income;
+        this.expense = expense;
+        this.count = count;
+        this.expenseChange = expenseChange;
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(String period) {
+        this.period = period;
+    }
+
+    public double getIncome() {
+        return income;
+    }
+
+    public void setIncome(double income) {
+        this.income = income;
+    }
+
+    public double getExpense() {
+        return expense;
+    }
+
+    public void setExpense(double expense) {
+        this.expense = expense;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public Double getExpenseChange() {
+        return expenseChange;
+    }
+
+    public void setExpenseChange(Double expenseChange) {
+        this.expenseChange = expenseChange;
+    }
+}
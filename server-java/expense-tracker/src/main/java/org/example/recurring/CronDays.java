@@ -0,0 +1,86 @@
+package org.example.recurring;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+
+// The days a five-field cron expression (minute hour day-of-month month day-of-week) fires on.
+// Occurrences are whole days, so minute and hour are checked but ignored. Fields take *, a
+// number, a range a-b and a step /n, separated by commas; day-of-week is 0-7 with 0 and 7 both
+// Sunday. As in cron, when both day fields are restricted a day matching either one fires.
+class CronDays {
+
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean anyDayOfMonth;
+    private final boolean anyDayOfWeek;
+
+    CronDays(String expression) {
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression must have 5 fields: minute hour day month weekday");
+        }
+        parse(fields[0], 0, 59, "minute");
+        parse(fields[1], 0, 23, "hour");
+        daysOfMonth = parse(fields[2], 1, 31, "day of month");
+        months = parse(fields[3], 1, 12, "month");
+        daysOfWeek = parse(fields[4], 0, 7, "day of week");
+        if (daysOfWeek.get(7)) {
+            daysOfWeek.set(0);
+        }
+        anyDayOfMonth = fields[2].startsWith("*");
+        anyDayOfWeek = fields[4].startsWith("*");
+    }
+
+    boolean matches(LocalDate day) {
+        if (!months.get(day.getMonthValue())) {
+            return false;
+        }
+        boolean dayOfMonth = daysOfMonth.get(day.getDayOfMonth());
+        boolean dayOfWeek = daysOfWeek.get(day.getDayOfWeek().getValue() % 7);
+        if (anyDayOfMonth || anyDayOfWeek) {
+            return dayOfMonth && dayOfWeek;
+        }
+        return dayOfMonth || dayOfWeek;
+    }
+
+    private static BitSet parse(String field, int min, int max, String name) {
+        BitSet values = new BitSet(max + 1);
+        for (String item : field.split(",")) {
+            int step = 1;
+            int slash = item.indexOf('/');
+            if (slash >= 0) {
+                step = number(item.substring(slash + 1), 1, max, name);
+                item = item.substring(0, slash);
+            }
+            int from;
+            int to;
+            if (item.equals("*")) {
+                from = min;
+                to = max;
+            } else if (item.indexOf('-') > 0) {
+                from = number(item.substring(0, item.indexOf('-')), min, max, name);
+                to = number(item.substring(item.indexOf('-') + 1), from, max, name);
+            } else {
+                from = number(item, min, max, name);
+                to = slash >= 0 ? max : from;
+            }
+            for (int value = from; value <= to; value += step) {
+                values.set(value);
+            }
+        }
+        return values;
+    }
+
+    private static int number(String text, int min, int max, String name) {
+        try {
+            int value = Integer.parseInt(text);
+            if (value >= min && value <= max) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below with the field's range
+        }
+        throw new IllegalArgumentException("Cron " + name + " '" + text + "' must be a number from " + min + " to " + max);
+    }
+}
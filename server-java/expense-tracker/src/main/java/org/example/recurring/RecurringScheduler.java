@@ -0,0 +1,445 @@
+package org.example.recurring;
+
+import org.example.model.BatchResult;
+import org.example.model.CashFlowMonth;
+import org.example.model.CashFlowProjection;
+import org.example.model.ProjectedOccurrence;
+import org.example.model.RecurringTransaction;
+import org.example.model.Transaction;
+import org.example.service.TransactionIds;
+import org.example.service.TransactionService;
+import org.example.service.TransactionServices;
+import org.example.service.TransactionValidator;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Writes the occurrences of recurring transactions as they fall due. Occurrences are days, so
+// the schedules are kept in one bucket per day of their next occurrence, and a single thread
+// sleeps until the next midnight, takes the buckets due by then and writes all their
+// occurrences as batches. Between firings nothing runs however many schedules there are, and
+// a firing costs the schedules in its buckets, not all of them.
+//
+// Every occurrence up to today is written, so a server that was down catches up on start(),
+// a batch per firing; the timer fires again at once until nothing is due. Start dates are
+// limited to recurring.maxCatchUpDays in the past.
+// Catching up is idempotent: the occurrences get their ids from TransactionIds and are saved
+// with the advanced next dates before they are written, and written with ingestTransactions,
+// which skips ids already stored. Rows left pending by a crash are written again on the next
+// start, and the ones that made it are skipped.
+public class RecurringScheduler {
+
+    private static final RecurringScheduler INSTANCE = new RecurringScheduler();
+    private static final long RETRY_MS = 30000;
+    private static final int MAX_CATCH_UP_DAYS = Integer.getInteger("recurring.maxCatchUpDays", 366);
+
+    private final RecurringStore store = new RecurringStore(Paths.get(System.getProperty("recurring.path", "data/recurring.json")));
+    private final int batchSize = Integer.getInteger("recurring.batchSize", 1000);
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final TransactionService transactionService = TransactionServices.get();
+
+    private final Map<Integer, RecurringTransaction> recurring = new TreeMap<>();
+    private final Map<Integer, Schedule> schedules = new TreeMap<>();
+    // Epoch day of the next occurrence -> ids of the schedules due that day
+    private final TreeMap<Long, Set<Integer>> due = new TreeMap<>();
+    private List<Transaction> pending = new ArrayList<>();
+    private int lastId;
+    private boolean loaded;
+
+    private ScheduledExecutorService timer;
+    private ScheduledFuture<?> nextRun;
+    private final AtomicLong writtenTotal = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private RecurringScheduler() {
+    }
+
+    public static RecurringScheduler get() {
+        return INSTANCE;
+    }
+
+    // Writes what a previous run left pending and every occurrence due by today, then fires
+    // at each midnight. Throws when the schedules cannot be read.
+    public synchronized void start() throws IOException, SQLException {
+        if (timer != null) {
+            return;
+        }
+        load();
+        if (!pending.isEmpty()) {
+            activateIds();
+            int left = pending.size();
+            if (!writePending()) {
+                throw new SQLException("Pending recurring transactions could not be written; they are kept for the next start");
+            }
+            System.out.println("Recurring transactions left pending by the last run: " + writtenTotal.get() + " of "
+                    + left + " written, the rest were already stored");
+        }
+        long replayed = writtenTotal.get();
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "recurring");
+            t.setDaemon(true);
+            return t;
+        });
+        run();
+        System.out.println("Recurring scheduler started with " + recurring.size() + " schedules, "
+                + (writtenTotal.get() - replayed) + " occurrences caught up"
+                + (isBehind(LocalDate.now(zone)) ? ", the rest in the background" : ""));
+    }
+
+    public synchronized void shutdown() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    private synchronized void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        RecurringStore.State state = store.load();
+        for (RecurringTransaction definition : state.recurring) {
+            recurring.put(definition.getId(), definition);
+            schedules.put(definition.getId(), new Schedule(definition));
+            lastId = Math.max(lastId, definition.getId());
+            enqueue(definition);
+        }
+        pending = state.pending;
+        loaded = true;
+    }
+
+    // Runs on the timer thread, or on the caller's during start()
+    private synchronized void run() {
+        if (timer == null) {
+            return;
+        }
+        try {
+            if (!pending.isEmpty() && !writePending()) {
+                reschedule(RETRY_MS);
+                return;
+            }
+            LocalDate today = LocalDate.now(zone);
+            // At most a batch per firing, so a long catch-up neither holds every occurrence in
+            // memory nor keeps the lock the API needs. Schedules left when the batch fills keep
+            // their next date and go back in their bucket.
+            List<Transaction> rows = new ArrayList<>();
+            while (rows.size() < batchSize && isBehind(today)) {
+                for (int id : due.pollFirstEntry().getValue()) {
+                    RecurringTransaction definition = recurring.get(id);
+                    Schedule schedule = schedules.get(id);
+                    LocalDate day = LocalDate.parse(definition.getNextDate());
+                    while (day != null && !day.isAfter(today) && rows.size() < batchSize) {
+                        rows.add(occurrence(definition, day));
+                        day = schedule.after(day);
+                    }
+                    definition.setNextDate(day == null ? null : day.toString());
+                    enqueue(definition);
+                }
+            }
+            if (!rows.isEmpty()) {
+                activateIds();
+                TransactionIds ids = TransactionIds.get();
+                for (Transaction row : rows) {
+                    row.setId(ids.next());
+                }
+                pending = rows;
+                save();
+                if (!writePending()) {
+                    reschedule(RETRY_MS);
+                    return;
+                }
+            }
+            if (isBehind(today)) {
+                reschedule(0);
+                return;
+            }
+            // A little past midnight, so the new day has begun by the clock that reads it
+            ZonedDateTime midnight = today.plusDays(1).atStartOfDay(zone);
+            reschedule(midnight.toInstant().toEpochMilli() - System.currentTimeMillis() + 1000);
+        } catch (IOException | SQLException | RuntimeException e) {
+            e.printStackTrace();
+            failures.incrementAndGet();
+            reschedule(RETRY_MS);
+        }
+    }
+
+    private boolean isBehind(LocalDate today) {
+        return !due.isEmpty() && due.firstKey() <= today.toEpochDay();
+    }
+
+    private void reschedule(long delayMs) {
+        if (nextRun != null) {
+            nextRun.cancel(false);
+        }
+        nextRun = timer.schedule(this::run, Math.max(delayMs, 0), TimeUnit.MILLISECONDS);
+    }
+
+    // Writes the pending rows in batches and forgets them once all are stored
+    private boolean writePending() throws IOException {
+        for (int start = 0; start < pending.size(); start += batchSize) {
+            BatchResult result = transactionService.ingestTransactions(
+                    pending.subList(start, Math.min(pending.size(), start + batchSize)));
+            if (result == null) {
+                failures.incrementAndGet();
+                System.out.println("Writing recurring transactions failed, retrying in " + RETRY_MS / 1000 + " s");
+                return false;
+            }
+            writtenTotal.addAndGet(result.getCount());
+        }
+        pending = new ArrayList<>();
+        save();
+        return true;
+    }
+
+    // Occurrences take their ids up front, which AUTO_INCREMENT cannot do
+    private void activateIds() throws SQLException {
+        if (TransactionIds.get().isActive() && pending.isEmpty()) {
+            return;
+        }
+        int highest = transactionService.getMaxId();
+        if (highest < 0) {
+            throw new SQLException("Could not read the highest transaction id");
+        }
+        for (Transaction row : pending) {
+            highest = Math.max(highest, row.getId());
+        }
+        TransactionIds.get().activate(highest);
+    }
+
+    private Transaction occurrence(RecurringTransaction definition, LocalDate day) {
+        Transaction transaction = new Transaction(definition.getDescription(), definition.getAmount(), definition.getType(),
+                definition.getCategory(), Date.from(day.atStartOfDay(zone).toInstant()), definition.getNote());
+        transaction.setAccount(definition.getAccount());
+        return transaction;
+    }
+
+    private void enqueue(RecurringTransaction definition) {
+        if (definition.getNextDate() != null) {
+            due.computeIfAbsent(LocalDate.parse(definition.getNextDate()).toEpochDay(), k -> new HashSet<>())
+                    .add(definition.getId());
+        }
+    }
+
+    private void dequeue(RecurringTransaction definition) {
+        if (definition.getNextDate() != null) {
+            long day = LocalDate.parse(definition.getNextDate()).toEpochDay();
+            Set<Integer> ids = due.get(day);
+            if (ids != null && ids.remove(definition.getId()) && ids.isEmpty()) {
+                due.remove(day);
+            }
+        }
+    }
+
+    private void save() throws IOException {
+        RecurringStore.State state = new RecurringStore.State();
+        state.recurring.addAll(recurring.values());
+        state.pending = pending;
+        store.save(state);
+    }
+
+    public synchronized List<RecurringTransaction> getRecurring(String account) throws IOException {
+        load();
+        List<RecurringTransaction> list = new ArrayList<>();
+        for (RecurringTransaction definition : recurring.values()) {
+            if (definition.getAccount().equals(account)) {
+                list.add(definition);
+            }
+        }
+        return list;
+    }
+
+    public synchronized RecurringTransaction getRecurring(String account, int id) throws IOException {
+        load();
+        RecurringTransaction definition = recurring.get(id);
+        return definition != null && definition.getAccount().equals(account) ? definition : null;
+    }
+
+    // A start date in the past is caught up at once, a batch at a time
+    public synchronized RecurringTransaction createRecurring(RecurringTransaction definition) throws IOException {
+        load();
+        Schedule schedule = new Schedule(definition);
+        LocalDate first = schedule.onOrAfter(LocalDate.parse(definition.getStartDate()));
+        definition.setId(++lastId);
+        definition.setCreatedAt(new Date());
+        definition.setNextDate(first == null ? null : first.toString());
+        recurring.put(definition.getId(), definition);
+        schedules.put(definition.getId(), schedule);
+        save();
+        enqueue(definition);
+        runIfDue(first);
+        return definition;
+    }
+
+    // Applies from the first occurrence not written yet; occurrences already written are kept
+    public synchronized RecurringTransaction updateRecurring(String account, int id, RecurringTransaction definition)
+            throws IOException {
+        load();
+        RecurringTransaction existing = getRecurring(account, id);
+        if (existing == null) {
+            return null;
+        }
+        Schedule schedule = new Schedule(definition);
+        LocalDate from = existing.getNextDate() != null ? LocalDate.parse(existing.getNextDate())
+                : LocalDate.now(zone).plusDays(1);
+        LocalDate next = schedule.onOrAfter(from);
+        definition.setId(id);
+        definition.setAccount(account);
+        definition.setCreatedAt(existing.getCreatedAt());
+        definition.setNextDate(next == null ? null : next.toString());
+        dequeue(existing);
+        recurring.put(id, definition);
+        schedules.put(id, schedule);
+        save();
+        enqueue(definition);
+        runIfDue(next);
+        return definition;
+    }
+
+    public synchronized boolean deleteRecurring(String account, int id) throws IOException {
+        load();
+        RecurringTransaction existing = getRecurring(account, id);
+        if (existing == null) {
+            return false;
+        }
+        dequeue(existing);
+        recurring.remove(id);
+        schedules.remove(id);
+        save();
+        return true;
+    }
+
+    private void runIfDue(LocalDate next) {
+        if (timer != null && next != null && !next.isAfter(LocalDate.now(zone))) {
+            timer.execute(this::run);
+        }
+    }
+
+    // The account's occurrences still to be written up to months from today, without writing
+    // them. Months sum all of them; the list keeps the first limit by date.
+    public synchronized CashFlowProjection project(String account, int months, int limit) throws IOException {
+        load();
+        LocalDate today = LocalDate.now(zone);
+        LocalDate to = today.plusMonths(months);
+        Map<String, double[]> totals = new TreeMap<>();
+        for (LocalDate month = today.withDayOfMonth(1); !month.isAfter(to); month = month.plusMonths(1)) {
+            totals.put(month.toString().substring(0, 7), new double[3]);
+        }
+        Comparator<ProjectedOccurrence> byDate = Comparator.comparing(ProjectedOccurrence::getDate)
+                .thenComparingInt(ProjectedOccurrence::getRecurringId);
+        // The latest of the earliest occurrences on top, to be dropped for an earlier one
+        PriorityQueue<ProjectedOccurrence> first = new PriorityQueue<>(byDate.reversed());
+        boolean truncated = false;
+        for (RecurringTransaction definition : recurring.values()) {
+            if (!definition.getAccount().equals(account) || definition.getNextDate() == null) {
+                continue;
+            }
+            Schedule schedule = schedules.get(definition.getId());
+            for (LocalDate day = LocalDate.parse(definition.getNextDate()); day != null && !day.isAfter(to); day = schedule.after(day)) {
+                double[] month = totals.get(day.toString().substring(0, 7));
+                month["income".equals(definition.getType()) ? 0 : 1] += definition.getAmount();
+                month[2]++;
+                ProjectedOccurrence occurrence = new ProjectedOccurrence(definition.getId(), day.toString(),
+                        definition.getDescription(), definition.getAmount(), definition.getType(), definition.getCategory());
+                if (first.size() < limit) {
+                    first.add(occurrence);
+                } else {
+                    truncated = true;
+                    if (limit > 0 && byDate.compare(occurrence, first.peek()) < 0) {
+                        first.poll();
+                        first.add(occurrence);
+                    }
+                }
+            }
+        }
+        CashFlowProjection projection = new CashFlowProjection();
+        projection.setFrom(today.toString());
+        projection.setTo(to.toString());
+        for (Map.Entry<String, double[]> month : totals.entrySet()) {
+            double[] values = month.getValue();
+            projection.getMonths().add(new CashFlowMonth(month.getKey(), round(values[0]), round(values[1]), (int) values[2]));
+        }
+        List<ProjectedOccurrence> occurrences = new ArrayList<>(first);
+        occurrences.sort(byDate);
+        projection.setOccurrences(occurrences);
+        projection.setTruncated(truncated);
+        return projection;
+    }
+
+    private static double round(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+
+    public synchronized int getScheduleCount() {
+        return recurring.size();
+    }
+
+    public long getWrittenCount() {
+        return writtenTotal.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    // Null when the definition can run
+    public static String validate(RecurringTransaction definition) {
+        if (definition == null) {
+            return "Recurring transaction is required";
+        }
+        Transaction sample = new Transaction(definition.getDescription(), definition.getAmount(), definition.getType(),
+                definition.getCategory(), null, definition.getNote());
+        String invalid = TransactionValidator.validate(sample);
+        if (invalid != null) {
+            return invalid;
+        }
+        if (!RecurringTransaction.FREQUENCIES.contains(definition.getFrequency())) {
+            return "Frequency must be one of " + RecurringTransaction.FREQUENCIES;
+        }
+        if (definition.getInterval() < 1 || definition.getInterval() > 1000) {
+            return "Interval must be between 1 and 1000";
+        }
+        if (definition.getStartDate() == null) {
+            return "Start date is required";
+        }
+        try {
+            new Schedule(definition);
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+        if (definition.getEndDate() != null && definition.getEndDate().compareTo(definition.getStartDate()) < 0) {
+            return "End date must not be before the start date";
+        }
+        return null;
+    }
+
+    // As validate, and the start date is caught up on create, so it must be within the horizon.
+    // An update applies from the next occurrence, so an old start date is fine there.
+    public static String validateNew(RecurringTransaction definition) {
+        String invalid = validate(definition);
+        if (invalid != null) {
+            return invalid;
+        }
+        if (LocalDate.parse(definition.getStartDate()).isBefore(LocalDate.now().minusDays(MAX_CATCH_UP_DAYS))) {
+            return "Start date must be at most " + MAX_CATCH_UP_DAYS + " days in the past";
+        }
+        return null;
+    }
+}
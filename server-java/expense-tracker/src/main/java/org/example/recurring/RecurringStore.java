@@ -0,0 +1,50 @@
+package org.example.recurring;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.RecurringTransaction;
+import org.example.model.Transaction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// The recurring transactions and the occurrences being written, as one JSON file in
+// recurring.path. Both are saved together, through a temporary file, so the file always has
+// either the old next dates and no pending rows or the new next dates and their rows.
+class RecurringStore {
+
+    private final Path file;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    RecurringStore(Path file) {
+        this.file = file;
+    }
+
+    State load() throws IOException {
+        if (!Files.exists(file)) {
+            return new State();
+        }
+        return mapper.readValue(file.toFile(), State.class);
+    }
+
+    void save(State state) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "recurring-", ".tmp");
+        try {
+            mapper.writeValue(temp.toFile(), state);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public static class State {
+        public List<RecurringTransaction> recurring = new ArrayList<>();
+        // Occurrences given ids but not known to be stored yet
+        public List<Transaction> pending = new ArrayList<>();
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.recurring;
+
+import org.example.model.RecurringTransaction;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+// The days a recurring transaction falls on. Interval schedules count from the start date every
+// time rather than from the previous occurrence, so a monthly one started on the 31st falls on
+// the last day of shorter months and is back on the 31st afterwards.
+class Schedule {
+
+    // A given day of month on a given weekday can be 28 years apart, as for Feb 29 on a Monday
+    private static final int CRON_SEARCH_DAYS = 28 * 366;
+
+    private final String frequency;
+    private final int interval;
+    private final LocalDate start;
+    private final LocalDate end;
+    private final CronDays cron;
+
+    // Throws IllegalArgumentException or DateTimeParseException for a definition that cannot run
+    Schedule(RecurringTransaction recurring) {
+        frequency = recurring.getFrequency();
+        interval = recurring.getInterval();
+        start = LocalDate.parse(recurring.getStartDate());
+        end = recurring.getEndDate() == null ? null : LocalDate.parse(recurring.getEndDate());
+        cron = "cron".equals(frequency) ? new CronDays(recurring.getCron() == null ? "" : recurring.getCron()) : null;
+    }
+
+    // The first occurrence on or after day, or null when none is left before the end date
+    LocalDate onOrAfter(LocalDate day) {
+        if (day.isBefore(start)) {
+            day = start;
+        }
+        LocalDate next;
+        switch (frequency) {
+            case "daily":
+                next = step(day, ChronoUnit.DAYS);
+                break;
+            case "weekly":
+                next = step(day, ChronoUnit.WEEKS);
+                break;
+            case "monthly":
+                next = step(day, ChronoUnit.MONTHS);
+                break;
+            case "yearly":
+                next = step(day, ChronoUnit.YEARS);
+                break;
+            default:
+                next = null;
+                for (int i = 0; i < CRON_SEARCH_DAYS && (end == null || !day.isAfter(end)); i++, day = day.plusDays(1)) {
+                    if (cron.matches(day)) {
+                        next = day;
+                        break;
+                    }
+                }
+        }
+        return next == null || (end != null && next.isAfter(end)) ? null : next;
+    }
+
+    LocalDate after(LocalDate occurrence) {
+        return onOrAfter(occurrence.plusDays(1));
+    }
+
+    private LocalDate step(LocalDate day, ChronoUnit unit) {
+        long k = unit.between(start, day) / interval;
+        LocalDate candidate = start.plus(k * interval, unit);
+        while (candidate.isBefore(day)) {
+            k++;
+            candidate = start.plus(k * interval, unit);
+        }
+        return candidate;
+    }
+}
@@ -0,0 +1,610 @@
+package org.example.search;
+
+import org.example.model.Transaction;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Inverted index over the description, category and note of each transaction. Words are
+// lowercased with accents stripped. Each word has a postings array of the documents holding
+// it, in the order they were added, and each document keeps its own word list, so candidates
+// found through the rarest query word are checked against the others without more lookups.
+// An update adds a new document and marks the old one dead, as in TransactionColumns; dead
+// documents are dropped once they are a quarter of the index.
+public class SearchIndex {
+
+    static final int DESCRIPTION = 1;
+    static final int CATEGORY = 2;
+    static final int NOTE = 4;
+    private static final int FIELD_BITS = 3;
+    private static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+
+    private static final int MAX_WORD = 32;
+    private static final int MAX_DOCUMENT_WORDS = 64;
+    private static final int MAX_QUERY_WORDS = 8;
+    private static final int DENSE_IDS = 1 << 26;
+    // Past this many words a query word starts, they are looked up in a bit set rather than searched
+    private static final int SMALL_MATCHES = 8;
+    // A word that only starts a longer one counts for less than the whole word
+    private static final float PREFIX_WEIGHT = 0.5f;
+    private static final float DATE_WEIGHT = 1f;
+    private static final String[] MONTHS = {"january", "february", "march", "april", "may", "june", "july",
+            "august", "september", "october", "november", "december"};
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    // Month and year of each epoch day from 1900 to 2199, which date words are checked against
+    private static final int FIRST_DAY = (int) LocalDate.of(1900, 1, 1).toEpochDay();
+    private static final byte[] MONTH_OF_DAY = new byte[(int) LocalDate.of(2200, 1, 1).toEpochDay() - FIRST_DAY];
+    private static final short[] YEAR_OF_DAY = new short[MONTH_OF_DAY.length];
+
+    static {
+        int day = 0;
+        for (int year = 1900; year < 2200; year++) {
+            for (int month = 1; month <= 12; month++) {
+                for (int i = LocalDate.of(year, month, 1).lengthOfMonth(); i > 0; i--) {
+                    MONTH_OF_DAY[day] = (byte) month;
+                    YEAR_OF_DAY[day++] = (short) year;
+                }
+            }
+        }
+    }
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Documents; the words of doc are docWords[wordStart[doc], wordStart[doc + 1]), each a word
+    // id shifted left by FIELD_BITS and or'd with the fields it appears in
+    private int[] ids;
+    private int[] days;
+    private int[] accounts;
+    private int[] wordStart;
+    private int[] docWords;
+    private final BitSet deadDocs = new BitSet();
+    private int size;
+    private int dead;
+
+    // Document of each id plus one, 0 when absent; ids past DENSE_IDS go to the map
+    private int[] docOf = new int[1024];
+    private final Map<Integer, Integer> sparseDocs = new HashMap<>();
+
+    // Account codes; an account keeps its code across compactions
+    private final Map<String, Integer> accountCodes = new HashMap<>();
+
+    // Words, with the live documents holding each for weighting. A posting is the document
+    // shifted left by FIELD_BITS and or'd with the fields, so a one-word query needs nothing else.
+    private final TreeMap<String, Integer> wordIds = new TreeMap<>();
+    private final List<String> words = new ArrayList<>();
+    private int[][] postings;
+    private int[] postingCount;
+    private int[] liveCount;
+
+    public SearchIndex() {
+        reset(1024, 4096);
+    }
+
+    private void reset(int documents, int documentWords) {
+        ids = new int[documents];
+        days = new int[documents];
+        accounts = new int[documents];
+        wordStart = new int[documents + 1];
+        docWords = new int[documentWords];
+        deadDocs.clear();
+        size = 0;
+        dead = 0;
+        wordIds.clear();
+        words.clear();
+        postings = new int[1024][];
+        postingCount = new int[1024];
+        liveCount = new int[1024];
+    }
+
+    public void upsert(Transaction transaction) {
+        Map<String, Integer> fields = new LinkedHashMap<>();
+        collect(fields, transaction.getDescription(), DESCRIPTION);
+        collect(fields, transaction.getCategory(), CATEGORY);
+        collect(fields, transaction.getNote(), NOTE);
+        int day = (int) transaction.getDate().toInstant().atZone(zone).toLocalDate().toEpochDay();
+        lock.writeLock().lock();
+        try {
+            kill(transaction.getId());
+            Integer account = accountCodes.get(transaction.getAccount());
+            if (account == null) {
+                account = accountCodes.size();
+                accountCodes.put(transaction.getAccount(), account);
+            }
+            int[] packed = new int[fields.size()];
+            int count = 0;
+            for (Map.Entry<String, Integer> field : fields.entrySet()) {
+                packed[count++] = wordId(field.getKey()) << FIELD_BITS | field.getValue();
+            }
+            append(transaction.getId(), day, account, packed, count);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(int id) {
+        lock.writeLock().lock();
+        try {
+            kill(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void collect(Map<String, Integer> fields, String text, int field) {
+        for (String word : tokenize(text)) {
+            if (fields.size() == MAX_DOCUMENT_WORDS && !fields.containsKey(word)) {
+                return;
+            }
+            fields.merge(word, field, (a, b) -> a | b);
+        }
+    }
+
+    private void append(int id, int day, int account, int[] packed, int count) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            days = Arrays.copyOf(days, capacity);
+            accounts = Arrays.copyOf(accounts, capacity);
+            wordStart = Arrays.copyOf(wordStart, capacity + 1);
+        }
+        int doc = size++;
+        int start = wordStart[doc];
+        if (start + count > docWords.length) {
+            docWords = Arrays.copyOf(docWords, Math.max(start + count, docWords.length + docWords.length / 2));
+        }
+        ids[doc] = id;
+        days[doc] = day;
+        accounts[doc] = account;
+        for (int i = 0; i < count; i++) {
+            docWords[start + i] = packed[i];
+            int word = packed[i] >>> FIELD_BITS;
+            int[] list = postings[word];
+            if (list == null) {
+                list = postings[word] = new int[4];
+            } else if (postingCount[word] == list.length) {
+                list = postings[word] = Arrays.copyOf(list, list.length + list.length / 2);
+            }
+            list[postingCount[word]++] = doc << FIELD_BITS | (packed[i] & FIELD_MASK);
+            liveCount[word]++;
+        }
+        wordStart[doc + 1] = start + count;
+        setDoc(id, doc);
+    }
+
+    private int wordId(String word) {
+        Integer id = wordIds.get(word);
+        if (id != null) {
+            return id;
+        }
+        int next = words.size();
+        if (next == postings.length) {
+            postings = Arrays.copyOf(postings, next * 2);
+            postingCount = Arrays.copyOf(postingCount, next * 2);
+            liveCount = Arrays.copyOf(liveCount, next * 2);
+        }
+        wordIds.put(word, next);
+        words.add(word);
+        return next;
+    }
+
+    private void kill(int id) {
+        int doc = docOf(id);
+        if (doc < 0) {
+            return;
+        }
+        deadDocs.set(doc);
+        for (int i = wordStart[doc]; i < wordStart[doc + 1]; i++) {
+            liveCount[docWords[i] >>> FIELD_BITS]--;
+        }
+        setDoc(id, -1);
+        if (++dead > 1024 && dead > size / 4) {
+            compact();
+        }
+    }
+
+    // Adds the live documents again to an empty index, which also drops words no live document holds
+    private void compact() {
+        int[] oldIds = ids;
+        int[] oldDays = days;
+        int[] oldAccounts = accounts;
+        int[] oldStart = wordStart;
+        int[] oldWords = docWords;
+        BitSet oldDead = (BitSet) deadDocs.clone();
+        List<String> oldText = new ArrayList<>(words);
+        int oldSize = size;
+        int live = size - dead;
+        reset(Math.max(1024, live + live / 2), Math.max(4096, oldStart[oldSize]));
+        int[] remap = new int[oldText.size()];
+        int[] packed = new int[MAX_DOCUMENT_WORDS];
+        for (int doc = oldDead.nextClearBit(0); doc < oldSize; doc = oldDead.nextClearBit(doc + 1)) {
+            int count = 0;
+            for (int i = oldStart[doc]; i < oldStart[doc + 1]; i++) {
+                int old = oldWords[i] >>> FIELD_BITS;
+                if (remap[old] == 0) {
+                    remap[old] = wordId(oldText.get(old)) + 1;
+                }
+                packed[count++] = (remap[old] - 1) << FIELD_BITS | (oldWords[i] & FIELD_MASK);
+            }
+            append(oldIds[doc], oldDays[doc], oldAccounts[doc], packed, count);
+        }
+    }
+
+    private int docOf(int id) {
+        if (id >= 0 && id < DENSE_IDS) {
+            return id < docOf.length ? docOf[id] - 1 : -1;
+        }
+        Integer doc = sparseDocs.get(id);
+        return doc == null ? -1 : doc;
+    }
+
+    private void setDoc(int id, int doc) {
+        if (id < 0 || id >= DENSE_IDS) {
+            if (doc < 0) {
+                sparseDocs.remove(id);
+            } else {
+                sparseDocs.put(id, doc);
+            }
+            return;
+        }
+        if (id >= docOf.length) {
+            docOf = Arrays.copyOf(docOf, Math.min(DENSE_IDS, Math.max(id + 1, docOf.length * 2)));
+        }
+        docOf[id] = doc + 1;
+    }
+
+    // Ids of the documents holding every query word, best first. A query word matches a document
+    // word it starts; a month name (or its first three letters or more) or a four-digit year also
+    // matches documents dated in it. Each word scores its best match by field (description over
+    // category over note) and by how rare the word is; ties go to the newest transaction. A null
+    // account searches every account.
+    public Hits search(String query, String account, int offset, int limit) {
+        List<Term> terms = new ArrayList<>();
+        for (String word : tokenize(query)) {
+            if (terms.size() == MAX_QUERY_WORDS) {
+                break;
+            }
+            boolean seen = false;
+            for (Term term : terms) {
+                seen |= term.text.equals(word);
+            }
+            if (!seen) {
+                terms.add(new Term(word));
+            }
+        }
+        if (terms.isEmpty()) {
+            return new Hits(0, Collections.<Integer>emptyList());
+        }
+        lock.readLock().lock();
+        try {
+            int accountCode = -1;
+            if (account != null) {
+                Integer code = accountCodes.get(account);
+                if (code == null) {
+                    return new Hits(0, Collections.<Integer>emptyList());
+                }
+                accountCode = code;
+            }
+            // Candidates come from the word with the fewest postings; date words can also match
+            // through the date, so they lead only when there is nothing else and every document is read
+            Term lead = null;
+            long leadCost = Long.MAX_VALUE;
+            for (Term term : terms) {
+                term.matches = matches(term.text);
+                boolean date = term.month > 0 || term.year > 0;
+                if (term.matches.length == 0 && !date) {
+                    return new Hits(0, Collections.<Integer>emptyList());
+                }
+                if (date) {
+                    continue;
+                }
+                long cost = 0;
+                for (int word : term.matches) {
+                    cost += postingCount[word];
+                }
+                if (cost < leadCost) {
+                    lead = term;
+                    leadCost = cost;
+                }
+            }
+            for (Term term : terms) {
+                term.weights = new float[term.matches.length];
+                if (term.matches.length > SMALL_MATCHES) {
+                    term.matchSet = new BitSet(words.size());
+                    for (int word : term.matches) {
+                        term.matchSet.set(word);
+                    }
+                }
+            }
+            Top top = new Top(offset + limit);
+            if (lead == null) {
+                for (int doc = deadDocs.nextClearBit(0); doc < size; doc = deadDocs.nextClearBit(doc + 1)) {
+                    if (accountCode < 0 || accounts[doc] == accountCode) {
+                        top.offer(doc, score(terms, null, doc));
+                    }
+                }
+                return top.hits(offset);
+            }
+            boolean others = terms.size() > 1;
+            for (int m = 0; m < lead.matches.length; m++) {
+                int word = lead.matches[m];
+                int[] list = postings[word];
+                for (int i = 0; i < postingCount[word]; i++) {
+                    int doc = list[i] >>> FIELD_BITS;
+                    if (deadDocs.get(doc) || accountCode >= 0 && accounts[doc] != accountCode) {
+                        continue;
+                    }
+                    float score;
+                    if (lead.matches.length == 1) {
+                        score = weight(lead, 0) * fieldWeight(list[i] & FIELD_MASK);
+                    } else if (firstMatch(lead, doc) == word) {
+                        // Taken once, at the lowest of the words the lead starts, and scored by the best of them
+                        score = best(lead, doc);
+                    } else {
+                        continue;
+                    }
+                    if (others) {
+                        float rest = score(terms, lead, doc);
+                        if (rest < 0) {
+                            continue;
+                        }
+                        score += rest;
+                    }
+                    top.offer(doc, score);
+                }
+            }
+            return top.hits(offset);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids of the words starting with prefix, ascending
+    private int[] matches(String prefix) {
+        Collection<Integer> found = wordIds.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+        int[] matches = new int[found.size()];
+        int i = 0;
+        for (int word : found) {
+            matches[i++] = word;
+        }
+        Arrays.sort(matches);
+        return matches;
+    }
+
+    // How much a match on the i-th word the term starts is worth before the field weight:
+    // rarer words count for more. Worked out on first use, as most of a prefix's words never match.
+    private float weight(Term term, int i) {
+        float weight = term.weights[i];
+        if (weight == 0) {
+            int word = term.matches[i];
+            weight = (float) Math.log(1 + (double) (size - dead) / Math.max(1, liveCount[word]));
+            if (words.get(word).length() > term.text.length()) {
+                weight *= PREFIX_WEIGHT;
+            }
+            term.weights[i] = weight;
+        }
+        return weight;
+    }
+
+    private int firstMatch(Term term, int doc) {
+        int first = Integer.MAX_VALUE;
+        for (int i = wordStart[doc]; i < wordStart[doc + 1]; i++) {
+            int word = docWords[i] >>> FIELD_BITS;
+            if (word < first && term.matches(word)) {
+                first = word;
+            }
+        }
+        return first;
+    }
+
+    // Sum of the best match of each query word but skip, negative when one does not match
+    private float score(List<Term> terms, Term skip, int doc) {
+        float score = 0;
+        for (Term term : terms) {
+            if (term == skip) {
+                continue;
+            }
+            float best = best(term, doc);
+            if (term.month > 0 || term.year > 0) {
+                int day = days[doc] - FIRST_DAY;
+                boolean inTable = day >= 0 && day < MONTH_OF_DAY.length;
+                LocalDate date = inTable ? null : LocalDate.ofEpochDay(days[doc]);
+                int month = inTable ? MONTH_OF_DAY[day] : date.getMonthValue();
+                int year = inTable ? YEAR_OF_DAY[day] : date.getYear();
+                if (month == term.month || year == term.year) {
+                    best = Math.max(best, DATE_WEIGHT);
+                }
+            }
+            if (best == 0) {
+                return -1;
+            }
+            score += best;
+        }
+        return score;
+    }
+
+    private float best(Term term, int doc) {
+        float best = 0;
+        if (term.matches.length == 0) {
+            return best;
+        }
+        for (int i = wordStart[doc]; i < wordStart[doc + 1]; i++) {
+            int word = docWords[i] >>> FIELD_BITS;
+            if (term.matches(word)) {
+                float weight = weight(term, Arrays.binarySearch(term.matches, word));
+                best = Math.max(best, weight * fieldWeight(docWords[i] & FIELD_MASK));
+            }
+        }
+        return best;
+    }
+
+    private static float fieldWeight(int fields) {
+        return (fields & DESCRIPTION) != 0 ? 3 : (fields & CATEGORY) != 0 ? 2 : 1;
+    }
+
+    // Lowercase letter and digit runs, accents stripped, cut to MAX_WORD characters
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String folded = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < folded.length(); i++) {
+            if (folded.charAt(i) >= 128) {
+                folded = MARKS.matcher(Normalizer.normalize(folded, Normalizer.Form.NFD)).replaceAll("");
+                break;
+            }
+        }
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean letter = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(folded.substring(start, Math.min(i, start + MAX_WORD)));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    public int getDocumentCount() {
+        lock.readLock().lock();
+        try {
+            return size - dead;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getWordCount() {
+        lock.readLock().lock();
+        try {
+            return wordIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static class Term {
+        final String text;
+        final int month;
+        final int year;
+        int[] matches;
+        float[] weights;
+        BitSet matchSet;
+
+        Term(String text) {
+            this.text = text;
+            int month = 0;
+            for (int m = 0; m < MONTHS.length && text.length() >= 3; m++) {
+                if (MONTHS[m].startsWith(text)) {
+                    month = m + 1;
+                }
+            }
+            this.month = month;
+            boolean digits = text.length() == 4;
+            for (int i = 0; i < text.length() && digits; i++) {
+                digits = Character.isDigit(text.charAt(i)) && text.charAt(i) < 128;
+            }
+            int year = digits ? Integer.parseInt(text) : 0;
+            this.year = year >= 1900 && year < 2200 ? year : 0;
+        }
+
+        boolean matches(int word) {
+            return matchSet != null ? matchSet.get(word) : Arrays.binarySearch(matches, word) >= 0;
+        }
+    }
+
+    private static class Hit {
+        final float score;
+        final int doc;
+
+        Hit(float score, int doc) {
+            this.score = score;
+            this.doc = doc;
+        }
+    }
+
+    // The best offset + limit documents seen, as a heap with the weakest on top, plus the match count
+    private class Top {
+        private final int capacity;
+        private final PriorityQueue<Hit> heap;
+        private int total;
+
+        Top(int capacity) {
+            this.capacity = capacity;
+            this.heap = new PriorityQueue<>(Math.max(1, capacity), this::compare);
+        }
+
+        // Score first, then the newer date, then the higher id
+        private int compare(Hit a, Hit b) {
+            return compare(a.score, a.doc, b);
+        }
+
+        private int compare(float score, int doc, Hit hit) {
+            int byScore = Float.compare(score, hit.score);
+            if (byScore != 0) {
+                return byScore;
+            }
+            int byDay = Integer.compare(days[doc], days[hit.doc]);
+            return byDay != 0 ? byDay : Integer.compare(ids[doc], ids[hit.doc]);
+        }
+
+        void offer(int doc, float score) {
+            if (score < 0) {
+                return;
+            }
+            total++;
+            if (heap.size() < capacity) {
+                heap.add(new Hit(score, doc));
+            } else if (capacity > 0 && compare(score, doc, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(new Hit(score, doc));
+            }
+        }
+
+        Hits hits(int offset) {
+            List<Integer> best = new ArrayList<>();
+            while (!heap.isEmpty()) {
+                best.add(ids[heap.poll().doc]);
+            }
+            Collections.reverse(best);
+            return new Hits(total, offset >= best.size() ? Collections.<Integer>emptyList() : best.subList(offset, best.size()));
+        }
+    }
+
+    public static class Hits {
+        private final int total;
+        private final List<Integer> ids;
+
+        Hits(int total, List<Integer> ids) {
+            this.total = total;
+            this.ids = ids;
+        }
+
+        // Documents matching the query, not only the page
+        public int getTotal() {
+            return total;
+        }
+
+        public List<Integer> getIds() {
+            return ids;
+        }
+    }
+}
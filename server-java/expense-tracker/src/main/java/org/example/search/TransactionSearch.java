@@ -0,0 +1,120 @@
+package org.example.search;
+
+import org.example.model.TransactionChange;
+import org.example.model.TransactionChanges;
+import org.example.model.TransactionFilter;
+import org.example.service.TransactionChangeLog;
+import org.example.service.TransactionServices;
+
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Keeps the SearchIndex in step with the store the same way TransactionAnalytics keeps its
+// columns: built from the selected backend, then fed by the change log that every create,
+// update and delete appends to, with each search first applying what is still pending.
+public class TransactionSearch {
+
+    private static final TransactionSearch INSTANCE = new TransactionSearch();
+
+    private static final int APPLY_CHUNK = 10000;
+
+    private final ExecutorService applier = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "search-apply");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private volatile SearchIndex index;
+    private long position;
+
+    private TransactionSearch() {
+        TransactionChangeLog.get().addListener(this::wake);
+    }
+
+    public static TransactionSearch get() {
+        return INSTANCE;
+    }
+
+    // Builds the index in the background so the first search does not pay for it
+    public void start() {
+        applier.execute(this::apply);
+    }
+
+    // Built and caught up with the change log
+    public SearchIndex index() throws SQLException {
+        synchronized (this) {
+            if (index == null) {
+                build();
+            } else {
+                catchUp();
+            }
+            return index;
+        }
+    }
+
+    private void build() throws SQLException {
+        long started = System.currentTimeMillis();
+        long from = TransactionChangeLog.get().head();
+        SearchIndex fresh = new SearchIndex();
+        if (TransactionServices.get().exportTransactions(new TransactionFilter(), fresh::upsert) < 0) {
+            throw new SQLException("Could not read transactions for the search index");
+        }
+        index = fresh;
+        position = from;
+        catchUp();
+        System.out.println("Search index built: " + fresh.getDocumentCount() + " transactions, "
+                + fresh.getWordCount() + " words, in " + (System.currentTimeMillis() - started) + " ms");
+    }
+
+    private void catchUp() throws SQLException {
+        while (true) {
+            TransactionChanges changes = TransactionChangeLog.get().since(position, APPLY_CHUNK);
+            if (changes == null) {
+                System.out.println("Search index fell behind the change log, rebuilding");
+                build();
+                return;
+            }
+            if (changes.getChanges().isEmpty()) {
+                return;
+            }
+            for (TransactionChange change : changes.getChanges()) {
+                if (TransactionChange.DELETE.equals(change.getOp())) {
+                    index.delete(change.getId());
+                } else {
+                    index.upsert(change.getTransaction());
+                }
+                position = change.getSeq();
+            }
+        }
+    }
+
+    private void wake() {
+        if (index != null && scheduled.compareAndSet(false, true)) {
+            applier.execute(() -> {
+                scheduled.set(false);
+                apply();
+            });
+        }
+    }
+
+    private void apply() {
+        try {
+            index();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public int getDocumentCount() {
+        SearchIndex built = index;
+        return built == null ? 0 : built.getDocumentCount();
+    }
+
+    public int getWordCount() {
+        SearchIndex built = index;
+        return built == null ? 0 : built.getWordCount();
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Publishes the writes to a row in the order MySQL committed them. A writer holds the stripes
+// of its ids from just before its commit until the change log, cache and aggregates have its
+// rows. MySQL lets a second write to a row commit only after the first, so it also publishes
+// after it. Inside the stripes there is only the commit and in-memory work, never a wait on a
+// database lock, and stripes are taken in index order, so they cannot deadlock.
+final class CommitOrder {
+
+    private static final ReentrantLock[] STRIPES = new ReentrantLock[64];
+
+    static {
+        for (int i = 0; i < STRIPES.length; i++) {
+            STRIPES[i] = new ReentrantLock();
+        }
+    }
+
+    private CommitOrder() {
+    }
+
+    static void commit(Connection cn, int id, Runnable publish) throws SQLException {
+        commit(cn, Collections.singletonList(id), publish);
+    }
+
+    static void commit(Connection cn, Collection<Integer> ids, Runnable publish) throws SQLException {
+        boolean[] needed = new boolean[STRIPES.length];
+        for (int id : ids) {
+            needed[Math.floorMod(id, STRIPES.length)] = true;
+        }
+        int locked = 0;
+        try {
+            for (; locked < STRIPES.length; locked++) {
+                if (needed[locked]) {
+                    STRIPES[locked].lock();
+                }
+            }
+            cn.commit();
+            publish.run();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                if (needed[i]) {
+                    STRIPES[i].unlock();
+                }
+            }
+        }
+    }
+}
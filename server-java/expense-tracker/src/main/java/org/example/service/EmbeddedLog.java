@@ -0,0 +1,243 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import org.example.json.TransactionCodec;
+import org.example.model.Transaction;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+// Memory-mapped append-only file behind EmbeddedTransactionService. A record is a 4-byte length,
+// a 4-byte CRC32 and a body: an op byte, then the id of a deleted row or the JSON of an upserted
+// one. The mapping runs past the last record and grows by remapping a larger region; the zeroed
+// space after the last record reads as the end of the log. Callers serialize writes.
+class EmbeddedLog implements Closeable {
+
+    private static final byte UPSERT = 1;
+    private static final byte DELETE = 2;
+    private static final int HEADER_BYTES = 8;
+    private static final int MIN_MAP_BYTES = 4 * 1024 * 1024;
+
+    private final Path path;
+    private final Body body = new Body();
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int position;
+    private long records;
+
+    EmbeddedLog(Path path) throws IOException {
+        this.path = path;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map = map(channel.size());
+    }
+
+    // Applies every intact record in order. A crash can leave a torn last record; whatever
+    // follows the last intact one is zeroed so later appends are not followed by stale bytes.
+    void replay(Consumer<Transaction> upserted, IntConsumer deleted) throws IOException {
+        int pos = 0;
+        byte[] json = new byte[512];
+        while (pos + HEADER_BYTES <= map.capacity()) {
+            int length = map.getInt(pos);
+            if (length <= 0 || length > map.capacity() - pos - HEADER_BYTES) {
+                break;
+            }
+            ByteBuffer record = map.duplicate();
+            record.position(pos + HEADER_BYTES).limit(pos + HEADER_BYTES + length);
+            crc.reset();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != map.getInt(pos + 4)) {
+                break;
+            }
+            byte op = record.get();
+            if (op == DELETE && length == 5) {
+                deleted.accept(record.getInt());
+            } else if (op == UPSERT) {
+                if (json.length < length - 1) {
+                    json = new byte[length - 1];
+                }
+                record.get(json, 0, length - 1);
+                try (JsonParser parser = TransactionCodec.parser(new ByteArrayInputStream(json, 0, length - 1))) {
+                    upserted.accept(TransactionCodec.read(parser));
+                }
+            } else {
+                break;
+            }
+            pos += HEADER_BYTES + length;
+            records++;
+        }
+        if (zero(pos, map.capacity())) {
+            System.out.println("Embedded store: dropped a torn record at byte " + pos + " of " + path);
+        }
+        position = pos;
+    }
+
+    void appendUpsert(Transaction transaction) throws IOException {
+        body.reset();
+        body.write(UPSERT);
+        try (JsonGenerator generator = TransactionCodec.generator(body)) {
+            TransactionCodec.write(generator, transaction);
+        }
+        append();
+    }
+
+    void appendDelete(int id) throws IOException {
+        body.reset();
+        body.write(DELETE);
+        new DataOutputStream(body).writeInt(id);
+        append();
+    }
+
+    // The length goes in last, so a record is not part of the log until it is complete
+    private void append() throws IOException {
+        int length = body.size();
+        ensureCapacity(HEADER_BYTES + length);
+        crc.reset();
+        crc.update(body.array(), 0, length);
+        map.position(position + HEADER_BYTES);
+        map.put(body.array(), 0, length);
+        map.putInt(position + 4, (int) crc.getValue());
+        map.putInt(position, length);
+        position += HEADER_BYTES + length;
+        records++;
+    }
+
+    private void ensureCapacity(int needed) throws IOException {
+        if ((long) position + needed <= map.capacity()) {
+            return;
+        }
+        long size = Math.max((long) map.capacity() * 2, (long) position + needed);
+        if (size > Integer.MAX_VALUE) {
+            size = Integer.MAX_VALUE;
+            if ((long) position + needed > size) {
+                throw new IOException("Embedded store " + path + " is full; compaction has not kept up with writes");
+            }
+        }
+        // The old mapping is released when it is garbage collected
+        map = map(size);
+    }
+
+    private MappedByteBuffer map(long used) throws IOException {
+        long size = Math.min(Math.max(used + used / 2, MIN_MAP_BYTES), Integer.MAX_VALUE);
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    // Position to return to with rollback() if a multi-record write fails part way
+    int mark() {
+        return position;
+    }
+
+    void rollback(int mark, long markRecords) {
+        zero(mark, position);
+        position = mark;
+        records = markRecords;
+    }
+
+    // Only bytes that are set are written, so clean pages of the mapping stay clean
+    private boolean zero(int from, int to) {
+        boolean dirty = false;
+        for (int i = from; i < to; i++) {
+            if (map.get(i) != 0) {
+                map.put(i, (byte) 0);
+                dirty = true;
+            }
+        }
+        return dirty;
+    }
+
+    void force() {
+        map.force();
+    }
+
+    int size() {
+        return position;
+    }
+
+    long records() {
+        return records;
+    }
+
+    // First half of a compaction, run without the caller's lock: the given rows, one upsert
+    // each, in a new file next to the log
+    Path writeSnapshot(Collection<Transaction> rows) throws IOException {
+        Path snapshot = path.resolveSibling(path.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(snapshot, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(out), 64 * 1024);
+            Body record = new Body();
+            CRC32 checksum = new CRC32();
+            DataOutputStream data = new DataOutputStream(stream);
+            for (Transaction row : rows) {
+                record.reset();
+                record.write(UPSERT);
+                try (JsonGenerator generator = TransactionCodec.generator(record)) {
+                    TransactionCodec.write(generator, row);
+                }
+                checksum.reset();
+                checksum.update(record.array(), 0, record.size());
+                data.writeInt(record.size());
+                data.writeInt((int) checksum.getValue());
+                data.write(record.array(), 0, record.size());
+            }
+            data.flush();
+            out.force(true);
+        }
+        return snapshot;
+    }
+
+    // Second half, under the caller's write lock: the records appended since the snapshot was
+    // taken (at mark) are copied after it, and the result replaces the log
+    void install(Path snapshot, int snapshotRecords, int mark, long markRecords) throws IOException {
+        try (FileChannel out = FileChannel.open(snapshot, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer tail = map.duplicate();
+            tail.position(mark).limit(position);
+            while (tail.hasRemaining()) {
+                out.write(tail);
+            }
+            out.force(true);
+        }
+        long tailRecords = records - markRecords;
+        channel.close();
+        Files.move(snapshot, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        map = map(size);
+        position = (int) size;
+        records = snapshotRecords + tailRecords;
+    }
+
+    @Override
+    public void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+
+    // Exposes the buffer so a record is checksummed and copied without toByteArray()
+    private static class Body extends ByteArrayOutputStream {
+        Body() {
+            super(512);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
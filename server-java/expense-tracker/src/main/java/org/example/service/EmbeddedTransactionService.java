@@ -0,0 +1,712 @@
+package org.example.service;
+
+import org.example.model.BatchResult;
+import org.example.model.Transaction;
+import org.example.model.TransactionFilter;
+import org.example.model.TransactionPage;
+import org.example.model.TransactionSummary;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// TransactionService that keeps every row in this process, selected with storage.backend=embedded.
+// Rows are indexed by id and by (date desc, id desc), overall and per account, so pages and
+// exports seek the sorted index the way the keyset queries seek MySQL's. Each write is appended to an EmbeddedLog before it is
+// applied and the log is replayed on open; a background thread forces it every syncIntervalMs
+// (0 forces on every write) and rewrites it once most of its records are dead. Reads share a
+// lock and writes hold it exclusively, so a batch is seen whole or not at all.
+public class EmbeddedTransactionService implements TransactionService, Closeable {
+
+    private static final int EXPORT_CHUNK_SIZE = 1000;
+    private static final long COMPACT_CHECK_MS = 10000;
+
+    private final Path file;
+    private final long syncIntervalMs;
+    private final long compactMinBytes;
+    private final EmbeddedLog log;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Transaction> byId = new HashMap<>();
+    private final NavigableMap<Key, Transaction> byDate = new TreeMap<>();
+    private final Map<String, NavigableMap<Key, Transaction>> byAccount = new HashMap<>();
+    private final ScheduledExecutorService maintenance;
+    private int maxId;
+    private volatile long compactions;
+
+    public EmbeddedTransactionService(Path file, long syncIntervalMs, long compactMinBytes) throws IOException {
+        this.file = file;
+        this.syncIntervalMs = syncIntervalMs;
+        this.compactMinBytes = compactMinBytes;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        log = new EmbeddedLog(file);
+        log.replay(this::put, this::remove);
+        // Ids always come from this process; there is no AUTO_INCREMENT to fall back on
+        TransactionIds.get().activate(maxId);
+        System.out.println("Embedded store opened: " + byId.size() + " transactions from "
+                + log.records() + " records in " + file.toAbsolutePath());
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "embedded-store");
+            t.setDaemon(true);
+            return t;
+        });
+        if (syncIntervalMs > 0) {
+            maintenance.scheduleWithFixedDelay(this::force, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        maintenance.scheduleWithFixedDelay(this::compactIfWasteful, COMPACT_CHECK_MS, COMPACT_CHECK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public TransactionPage getTransactions(TransactionFilter filter, PageCursor after, int limit) {
+        List<Transaction> transactions = new ArrayList<>(limit);
+        boolean hasMore = false;
+        lock.readLock().lock();
+        try {
+            Key start = after == null ? null : new Key(after.getDate().getTime(), after.getId());
+            for (Transaction row : range(filter, start).values()) {
+                if (!matches(filter, row)) {
+                    continue;
+                }
+                if (transactions.size() == limit) {
+                    hasMore = true;
+                    break;
+                }
+                transactions.add(TransactionCache.copy(row));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        TransactionPage page = new TransactionPage();
+        page.setTransactions(transactions);
+        if (hasMore) {
+            Transaction last = transactions.get(transactions.size() - 1);
+            page.setNext(new PageCursor(last.getDate().getTime(), last.getId()).encode());
+        }
+        return page;
+    }
+
+    // The sink runs between chunks, outside the lock, so a slow client never holds up writers
+    @Override
+    public long exportTransactions(TransactionFilter filter, Consumer<Transaction> sink) {
+        List<Transaction> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+        Key position = null;
+        long count = 0;
+        while (true) {
+            lock.readLock().lock();
+            try {
+                for (Map.Entry<Key, Transaction> entry : range(filter, position).entrySet()) {
+                    position = entry.getKey();
+                    if (matches(filter, entry.getValue())) {
+                        chunk.add(TransactionCache.copy(entry.getValue()));
+                        if (chunk.size() == EXPORT_CHUNK_SIZE) {
+                            break;
+                        }
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (chunk.isEmpty()) {
+                return count;
+            }
+            for (Transaction transaction : chunk) {
+                sink.accept(transaction);
+            }
+            count += chunk.size();
+            if (chunk.size() < EXPORT_CHUNK_SIZE) {
+                return count;
+            }
+            chunk.clear();
+        }
+    }
+
+    // Rows after start (exclusive) within the filter's account and date range, newest first
+    private NavigableMap<Key, Transaction> range(TransactionFilter filter, Key start) {
+        NavigableMap<Key, Transaction> rows = byDate;
+        if (filter.getAccount() != null) {
+            rows = byAccount.get(filter.getAccount());
+            if (rows == null) {
+                return Collections.emptyNavigableMap();
+            }
+        }
+        if (filter.getTo() != null) {
+            Key to = new Key(filter.getTo().getTime(), Integer.MIN_VALUE);
+            if (start == null || to.compareTo(start) > 0) {
+                start = to;
+            }
+        }
+        NavigableMap<Key, Transaction> range = start == null ? rows : rows.tailMap(start, false);
+        if (filter.getFrom() != null) {
+            Key from = new Key(filter.getFrom().getTime(), Integer.MIN_VALUE);
+            if (start != null && from.compareTo(start) <= 0) {
+                return Collections.emptyNavigableMap();
+            }
+            range = range.headMap(from, true);
+        }
+        return range;
+    }
+
+    private static boolean matches(TransactionFilter filter, Transaction row) {
+        return (filter.getType() == null || filter.getType().equals(row.getType()))
+                && (filter.getCategory() == null || filter.getCategory().equals(row.getCategory()));
+    }
+
+    @Override
+    public TransactionSummary getSummary(TransactionFilter filter) {
+        if (filter.getType() == null && filter.getCategory() == null
+                && filter.getFrom() == null && filter.getTo() == null) {
+            TransactionAggregates aggregates = aggregates();
+            return aggregates == null ? null : aggregates.toSummary(filter.getAccount());
+        }
+
+        // Cents per (type, category) and per (month, type), grouped as the SQL summary groups them
+        Map<String, long[]> byCategory = new HashMap<>();
+        Map<String, long[]> byMonth = new TreeMap<>();
+        lock.readLock().lock();
+        try {
+            for (Transaction row : range(filter, null).values()) {
+                if (!matches(filter, row)) {
+                    continue;
+                }
+                long cents = Math.round(row.getAmount() * 100);
+                long[] category = byCategory.computeIfAbsent(row.getType() + "|" + row.getCategory(), k -> new long[2]);
+                category[0] += cents;
+                category[1]++;
+                LocalDate day = row.getDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+                long[] month = byMonth.computeIfAbsent(String.format("%04d-%02d", day.getYear(), day.getMonthValue()),
+                        k -> new long[2]);
+                month["income".equals(row.getType()) ? 0 : 1] += cents;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        TransactionSummary summary = new TransactionSummary();
+        for (Map.Entry<String, long[]> entry : byCategory.entrySet()) {
+            String key = entry.getKey();
+            int sep = key.indexOf('|');
+            String type = key.substring(0, sep);
+            double total = entry.getValue()[0] / 100.0;
+            summary.getCategories().add(new TransactionSummary.CategoryTotal(key.substring(sep + 1), type, total,
+                    entry.getValue()[1]));
+            if ("income".equals(type)) {
+                summary.setIncome(summary.getIncome() + total);
+            } else {
+                summary.setExpense(summary.getExpense() + total);
+            }
+            summary.setCount(summary.getCount() + entry.getValue()[1]);
+        }
+        summary.getCategories().sort((a, b) -> Double.compare(b.getTotal(), a.getTotal()));
+        Map<String, TransactionSummary.MonthTotal> months = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : byMonth.entrySet()) {
+            months.put(entry.getKey(), new TransactionSummary.MonthTotal(entry.getKey(),
+                    entry.getValue()[0] / 100.0, entry.getValue()[1] / 100.0));
+        }
+        summary.setMonths(new ArrayList<>(months.values()));
+        summary.setBalance(summary.getIncome() - summary.getExpense());
+        return summary;
+    }
+
+    @Override
+    public Transaction getTransaction(String account, int id) {
+        lock.readLock().lock();
+        try {
+            Transaction row = owned(account, id);
+            return row == null ? null : TransactionCache.copy(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactions(String account, List<Integer> ids) {
+        List<Transaction> rows = new ArrayList<>(ids.size());
+        lock.readLock().lock();
+        try {
+            for (int id : ids) {
+                Transaction row = owned(account, id);
+                if (row != null) {
+                    rows.add(TransactionCache.copy(row));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rows;
+    }
+
+    @Override
+    public Transaction createTransaction(Transaction transaction) {
+        TransactionAggregates aggregates = aggregates();
+        if (aggregates == null) {
+            return null;
+        }
+        Transaction row = normalize(transaction);
+        lock.writeLock().lock();
+        int mark = log.mark();
+        long markRecords = log.records();
+        try {
+            Date now = new Date();
+            row.setId(TransactionIds.get().next());
+            row.setCreatedAt(now);
+            row.setUpdatedAt(now);
+            log.appendUpsert(row);
+            synced();
+            put(row);
+            aggregates.added(row);
+            TransactionChangeLog.get().upserted(row);
+            return TransactionCache.copy(row);
+        } catch (IOException e) {
+            log.rollback(mark, markRecords);
+            e.printStackTrace();
+            System.out.println("Error creating transaction: " + e.getMessage());
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean updateTransaction(String account, int id, Transaction transaction) {
+        TransactionAggregates aggregates = aggregates();
+        if (aggregates == null) {
+            return false;
+        }
+        Transaction row = normalize(transaction);
+        lock.writeLock().lock();
+        int mark = log.mark();
+        long markRecords = log.records();
+        try {
+            Transaction before = owned(account, id);
+            if (before == null) {
+                return false;
+            }
+            row.setId(id);
+            row.setAccount(account);
+            row.setCreatedAt(before.getCreatedAt());
+            row.setUpdatedAt(new Date());
+            log.appendUpsert(row);
+            synced();
+            put(row);
+            aggregates.updated(before, row);
+            TransactionChangeLog.get().upserted(row);
+            return true;
+        } catch (IOException e) {
+            log.rollback(mark, markRecords);
+            e.printStackTrace();
+            System.out.println("Error updating transaction: " + e.getMessage());
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteTransaction(String account, int id) {
+        TransactionAggregates aggregates = aggregates();
+        if (aggregates == null) {
+            return false;
+        }
+        lock.writeLock().lock();
+        int mark = log.mark();
+        long markRecords = log.records();
+        try {
+            Transaction before = owned(account, id);
+            if (before == null) {
+                return false;
+            }
+            log.appendDelete(id);
+            synced();
+            remove(id);
+            aggregates.removed(before);
+            TransactionChangeLog.get().deleted(account, id);
+            return true;
+        } catch (IOException e) {
+            log.rollback(mark, markRecords);
+            e.printStackTrace();
+            System.out.println("Error deleting transaction: " + e.getMessage());
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public BatchResult createTransactions(List<Transaction> transactions) {
+        // Ids in the payload are ignored, as with the MySQL backend
+        return insert(transactions, true, "Error creating transactions: ");
+    }
+
+    @Override
+    public BatchResult ingestTransactions(List<Transaction> transactions) {
+        return insert(transactions, false, "Error ingesting transactions: ");
+    }
+
+    private BatchResult insert(List<Transaction> transactions, boolean assignIds, String failure) {
+        TransactionAggregates aggregates = aggregates();
+        if (aggregates == null) {
+            return null;
+        }
+        List<Transaction> rows = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            rows.add(normalize(transaction));
+        }
+        lock.writeLock().lock();
+        int mark = log.mark();
+        long markRecords = log.records();
+        try {
+            Date now = new Date();
+            List<Transaction> inserted = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                Transaction row = rows.get(i);
+                if (assignIds) {
+                    row.setId(TransactionIds.get().next());
+                    transactions.get(i).setId(row.getId());
+                } else if (byId.containsKey(row.getId())) {
+                    // Already written by an earlier attempt at this batch
+                    continue;
+                }
+                if (assignIds || row.getCreatedAt() == null) {
+                    row.setCreatedAt(now);
+                    row.setUpdatedAt(now);
+                } else if (row.getUpdatedAt() == null) {
+                    row.setUpdatedAt(row.getCreatedAt());
+                }
+                log.appendUpsert(row);
+                inserted.add(row);
+            }
+            synced();
+            BatchResult result = new BatchResult();
+            for (Transaction row : inserted) {
+                put(row);
+                aggregates.added(row);
+                result.getIds().add(row.getId());
+            }
+            if (!inserted.isEmpty()) {
+                TransactionChangeLog.get().upserted(inserted, now);
+            }
+            result.setCount(inserted.size());
+            return result;
+        } catch (IOException e) {
+            log.rollback(mark, markRecords);
+            e.printStackTrace();
+            System.out.println(failure + e.getMessage());
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public BatchResult updateTransactions(String account, List<Transaction> transactions) {
+        TransactionAggregates aggregates = aggregates();
+        if (aggregates == null) {
+            return null;
+        }
+        List<Transaction> rows = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            Transaction row = normalize(transaction);
+            row.setAccount(account);
+            rows.add(row);
+        }
+        lock.writeLock().lock();
+        int mark = log.mark();
+        long markRecords = log.records();
+        try {
+            BatchResult result = new BatchResult();
+            for (Transaction row : rows) {
+                if (owned(account, row.getId()) == null) {
+                    result.getMissing().add(row.getId());
+                }
+            }
+            if (!result.getMissing().isEmpty()) {
+                return result;
+            }
+            Date now = new Date();
+            for (Transaction row : rows) {
+                row.setCreatedAt(byId.get(row.getId()).getCreatedAt());
+                row.setUpdatedAt(now);
+                log.appendUpsert(row);
+            }
+            synced();
+            for (Transaction row : rows) {
+                aggregates.updated(byId.get(row.getId()), row);
+                put(row);
+                result.getIds().add(row.getId());
+            }
+            TransactionChangeLog.get().upserted(rows, now);
+            result.setCount(rows.size());
+            return result;
+        } catch (IOException e) {
+            log.rollback(mark, markRecords);
+            e.printStackTrace();
+            System.out.println("Error updating transactions: " + e.getMessage());
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public BatchResult deleteTransactions(String account, List<Integer> ids) {
+        TransactionAggregates aggregates = aggregates();
+        if (aggregates == null) {
+            return null;
+        }
+        lock.writeLock().lock();
+        int mark = log.mark();
+        long markRecords = log.records();
+        try {
+            BatchResult result = new BatchResult();
+            for (Integer id : ids) {
+                if (owned(account, id) == null) {
+                    result.getMissing().add(id);
+                }
+            }
+            if (!result.getMissing().isEmpty()) {
+                return result;
+            }
+            for (Integer id : ids) {
+                log.appendDelete(id);
+            }
+            synced();
+            for (Integer id : ids) {
+                Transaction before = remove(id);
+                if (before != null) {
+                    aggregates.removed(before);
+                }
+            }
+            TransactionChangeLog.get().deleted(account, ids);
+            result.setIds(ids);
+            result.setCount(ids.size());
+            return result;
+        } catch (IOException e) {
+            log.rollback(mark, markRecords);
+            e.printStackTrace();
+            System.out.println("Error deleting transactions: " + e.getMessage());
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> getAccounts() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(byAccount.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getMaxId() {
+        lock.readLock().lock();
+        try {
+            return maxId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // A private copy with the amount in cents, as the DECIMAL(10, 2) column stores it; a missing
+    // date defaults to now like the column does
+    private static Transaction normalize(Transaction transaction) {
+        Transaction row = TransactionCache.copy(transaction);
+        row.setAmount(Math.round(transaction.getAmount() * 100) / 100.0);
+        if (row.getDate() == null) {
+            row.setDate(new Date());
+        }
+        return row;
+    }
+
+    private static TransactionAggregates aggregates() {
+        try {
+            return TransactionAggregates.get();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.out.println("Error loading aggregates: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // The row with this id if the account owns it
+    private Transaction owned(String account, int id) {
+        Transaction row = byId.get(id);
+        return row != null && row.getAccount().equals(account) ? row : null;
+    }
+
+    private void put(Transaction row) {
+        Transaction previous = byId.put(row.getId(), row);
+        if (previous != null) {
+            unindex(previous);
+        }
+        Key key = new Key(row.getDate().getTime(), row.getId());
+        byDate.put(key, row);
+        byAccount.computeIfAbsent(row.getAccount(), k -> new TreeMap<>()).put(key, row);
+        maxId = Math.max(maxId, row.getId());
+    }
+
+    private Transaction remove(int id) {
+        Transaction previous = byId.remove(id);
+        if (previous != null) {
+            unindex(previous);
+        }
+        return previous;
+    }
+
+    private void unindex(Transaction row) {
+        Key key = new Key(row.getDate().getTime(), row.getId());
+        byDate.remove(key);
+        NavigableMap<Key, Transaction> rows = byAccount.get(row.getAccount());
+        if (rows != null) {
+            rows.remove(key);
+            if (rows.isEmpty()) {
+                byAccount.remove(row.getAccount());
+            }
+        }
+    }
+
+    // A failed force is rethrown as the IOException it wraps, so the writer rolls its records back
+    private void synced() throws IOException {
+        if (syncIntervalMs <= 0) {
+            try {
+                log.force();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private void force() {
+        lock.readLock().lock();
+        try {
+            log.force();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void compactIfWasteful() {
+        int size;
+        long records;
+        int rows;
+        lock.readLock().lock();
+        try {
+            size = log.size();
+            records = log.records();
+            rows = byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (size >= compactMinBytes && records > 2L * rows) {
+            compact();
+        }
+    }
+
+    // Writes the live rows to a new file while reads and writes go on, then holds writers off
+    // only while the records appended meanwhile are copied over and the files are swapped
+    public void compact() {
+        List<Transaction> live;
+        int mark;
+        long markRecords;
+        lock.readLock().lock();
+        try {
+            live = new ArrayList<>(byId.values());
+            mark = log.mark();
+            markRecords = log.records();
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            long started = System.currentTimeMillis();
+            int before = mark;
+            Path snapshot = log.writeSnapshot(live);
+            lock.writeLock().lock();
+            try {
+                log.install(snapshot, live.size(), mark, markRecords);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            compactions++;
+            System.out.println("Embedded store compacted from " + before + " to " + log.size() + " bytes in "
+                    + (System.currentTimeMillis() - started) + " ms");
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("Error compacting embedded store: " + e.getMessage());
+        }
+    }
+
+    public int getRowCount() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getLogBytes() {
+        return log.size();
+    }
+
+    public long getCompactionCount() {
+        return compactions;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        maintenance.shutdownNow();
+        lock.writeLock().lock();
+        try {
+            log.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Newest first, then highest id first: the ORDER BY date DESC, id DESC of the SQL queries
+    private static final class Key implements Comparable<Key> {
+        final long date;
+        final int id;
+
+        Key(long date, int id) {
+            this.date = date;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byDate = Long.compare(other.date, date);
+            return byDate != 0 ? byDate : Integer.compare(other.id, id);
+        }
+    }
+}
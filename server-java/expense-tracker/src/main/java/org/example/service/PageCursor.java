@@ -0,0 +1,39 @@
+package org.example.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+// Keyset position (date, id) of the last row of a page, encoded as an opaque token
+public class PageCursor {
+    private final long date;
+    private final int id;
+
+    public PageCursor(long date, int id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public Date getDate() {
+        return new Date(date);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = date + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            int sep = raw.indexOf(':');
+            return new PageCursor(Long.parseLong(raw.substring(0, sep)), Integer.parseInt(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
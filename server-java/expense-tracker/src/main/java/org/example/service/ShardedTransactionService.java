@@ -0,0 +1,481 @@
+package org.example.service;
+
+import org.example.cluster.HashRing;
+import org.example.model.BatchResult;
+import org.example.model.Transaction;
+import org.example.model.TransactionFilter;
+import org.example.model.TransactionPage;
+import org.example.model.TransactionSummary;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// TransactionService over several stores, selected with storage.shards. Each account lives whole
+// on the shard a HashRing assigns it, so anything naming an account goes to one store; only
+// reads without an account (the rebuilds of the in-process views) visit every shard. Rows
+// keep their ids when they move, so ids always come from TransactionIds and never from a
+// shard's AUTO_INCREMENT. Moving accounts holds every other call off, as a row must never be
+// read from a shard it has just left.
+public class ShardedTransactionService implements TransactionService, Closeable {
+
+    private static final int MOVE_CHUNK_SIZE = 1000;
+    // Newest first, then highest id first, as every store orders its pages
+    private static final Comparator<Transaction> NEWEST_FIRST = Comparator
+            .comparing(Transaction::getDate, Comparator.reverseOrder())
+            .thenComparing(Transaction::getId, Comparator.reverseOrder());
+
+    private final int pointsPerShard;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, TransactionService> shards = new LinkedHashMap<>();
+    private HashRing ring;
+    private final AtomicLong movedRows = new AtomicLong();
+
+    public ShardedTransactionService(Map<String, TransactionService> shards, int pointsPerShard) {
+        this.pointsPerShard = pointsPerShard;
+        this.shards.putAll(shards);
+        ring = new HashRing(shards.keySet(), pointsPerShard);
+        int highest = getMaxId();
+        if (highest < 0) {
+            throw new IllegalStateException("Could not read the highest transaction id of every shard");
+        }
+        TransactionIds.get().activate(highest);
+        System.out.println("Sharded store opened over " + shards.keySet());
+    }
+
+    public String shardOf(String account) {
+        lock.readLock().lock();
+        try {
+            return ring.owner(account);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Called with the read lock held
+    private TransactionService storeOf(String account) {
+        return shards.get(ring.owner(account));
+    }
+
+    public Map<String, TransactionService> getShards() {
+        lock.readLock().lock();
+        try {
+            return new LinkedHashMap<>(shards);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public TransactionPage getTransactions(TransactionFilter filter, PageCursor after, int limit) {
+        lock.readLock().lock();
+        try {
+            if (filter.getAccount() != null) {
+                return storeOf(filter.getAccount()).getTransactions(filter, after, limit);
+            }
+            // A page of each shard from the same cursor, merged; whatever sorts after the first
+            // limit rows comes back on the next page
+            List<Transaction> merged = new ArrayList<>();
+            boolean hasMore = false;
+            for (TransactionService shard : shards.values()) {
+                TransactionPage page = shard.getTransactions(filter, after, limit);
+                if (page == null) {
+                    return null;
+                }
+                merged.addAll(page.getTransactions());
+                hasMore |= page.getNext() != null;
+            }
+            merged.sort(NEWEST_FIRST);
+            TransactionPage page = new TransactionPage();
+            if (merged.size() > limit) {
+                merged = new ArrayList<>(merged.subList(0, limit));
+                hasMore = true;
+            }
+            page.setTransactions(merged);
+            if (hasMore && !merged.isEmpty()) {
+                Transaction last = merged.get(merged.size() - 1);
+                page.setNext(new PageCursor(last.getDate().getTime(), last.getId()).encode());
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Without an account the rows come shard by shard, each shard's newest first
+    @Override
+    public long exportTransactions(TransactionFilter filter, Consumer<Transaction> sink) {
+        lock.readLock().lock();
+        try {
+            if (filter.getAccount() != null) {
+                return storeOf(filter.getAccount()).exportTransactions(filter, sink);
+            }
+            long count = 0;
+            for (TransactionService shard : shards.values()) {
+                long exported = shard.exportTransactions(filter, sink);
+                if (exported < 0) {
+                    return -1;
+                }
+                count += exported;
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public TransactionSummary getSummary(TransactionFilter filter) {
+        lock.readLock().lock();
+        try {
+            if (filter.getAccount() != null) {
+                return storeOf(filter.getAccount()).getSummary(filter);
+            }
+            if (filter.getType() == null && filter.getCategory() == null
+                    && filter.getFrom() == null && filter.getTo() == null) {
+                // Every shard would answer with the same all-account totals
+                return TransactionAggregates.get().toSummary(null);
+            }
+            List<TransactionSummary> parts = new ArrayList<>();
+            for (TransactionService shard : shards.values()) {
+                TransactionSummary part = shard.getSummary(filter);
+                if (part == null) {
+                    return null;
+                }
+                parts.add(part);
+            }
+            return merge(parts);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.out.println("Error loading aggregates: " + e.getMessage());
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static TransactionSummary merge(List<TransactionSummary> parts) {
+        TransactionSummary summary = new TransactionSummary();
+        Map<String, TransactionSummary.CategoryTotal> categories = new LinkedHashMap<>();
+        Map<String, TransactionSummary.MonthTotal> months = new TreeMap<>();
+        for (TransactionSummary part : parts) {
+            summary.setIncome(summary.getIncome() + part.getIncome());
+            summary.setExpense(summary.getExpense() + part.getExpense());
+            summary.setCount(summary.getCount() + part.getCount());
+            for (TransactionSummary.CategoryTotal category : part.getCategories()) {
+                TransactionSummary.CategoryTotal total = categories.computeIfAbsent(
+                        category.getType() + "|" + category.getCategory(),
+                        k -> new TransactionSummary.CategoryTotal(category.getCategory(), category.getType(), 0, 0));
+                total.setTotal(total.getTotal() + category.getTotal());
+                total.setCount(total.getCount() + category.getCount());
+            }
+            for (TransactionSummary.MonthTotal month : part.getMonths()) {
+                TransactionSummary.MonthTotal total = months.computeIfAbsent(month.getMonth(),
+                        k -> new TransactionSummary.MonthTotal(k, 0, 0));
+                total.setIncome(total.getIncome() + month.getIncome());
+                total.setExpense(total.getExpense() + month.getExpense());
+            }
+        }
+        List<TransactionSummary.CategoryTotal> categoryTotals = new ArrayList<>(categories.values());
+        categoryTotals.sort((a, b) -> Double.compare(b.getTotal(), a.getTotal()));
+        summary.setCategories(categoryTotals);
+        summary.setMonths(new ArrayList<>(months.values()));
+        summary.setBalance(summary.getIncome() - summary.getExpense());
+        return summary;
+    }
+
+    @Override
+    public Transaction getTransaction(String account, int id) {
+        lock.readLock().lock();
+        try {
+            return storeOf(account).getTransaction(account, id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactions(String account, List<Integer> ids) {
+        lock.readLock().lock();
+        try {
+            return storeOf(account).getTransactions(account, ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Transaction createTransaction(Transaction transaction) {
+        lock.readLock().lock();
+        try {
+            return storeOf(transaction.getAccount()).createTransaction(transaction);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean updateTransaction(String account, int id, Transaction transaction) {
+        lock.readLock().lock();
+        try {
+            return storeOf(account).updateTransaction(account, id, transaction);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteTransaction(String account, int id) {
+        lock.readLock().lock();
+        try {
+            return storeOf(account).deleteTransaction(account, id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // A batch of one account is written as one; rows of accounts on different shards are
+    // written shard by shard, so a failure can leave the earlier shards written
+    @Override
+    public BatchResult createTransactions(List<Transaction> transactions) {
+        lock.readLock().lock();
+        try {
+            Map<TransactionService, List<Transaction>> byShard = split(transactions);
+            if (byShard.size() == 1) {
+                return byShard.keySet().iterator().next().createTransactions(transactions);
+            }
+            for (Map.Entry<TransactionService, List<Transaction>> entry : byShard.entrySet()) {
+                if (entry.getKey().createTransactions(entry.getValue()) == null) {
+                    return null;
+                }
+            }
+            // Each store sets the ids it assigned on the rows, so they are read back in payload order
+            BatchResult result = new BatchResult();
+            for (Transaction transaction : transactions) {
+                result.getIds().add(transaction.getId());
+            }
+            result.setCount(transactions.size());
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ingest batches mix accounts; a shard that fails is retried with the whole batch, and the
+    // shards already written skip the rows they hold
+    @Override
+    public BatchResult ingestTransactions(List<Transaction> transactions) {
+        lock.readLock().lock();
+        try {
+            BatchResult result = new BatchResult();
+            for (Map.Entry<TransactionService, List<Transaction>> entry : split(transactions).entrySet()) {
+                BatchResult part = entry.getKey().ingestTransactions(entry.getValue());
+                if (part == null) {
+                    return null;
+                }
+                result.getIds().addAll(part.getIds());
+                result.setCount(result.getCount() + part.getCount());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<TransactionService, List<Transaction>> split(List<Transaction> transactions) {
+        Map<TransactionService, List<Transaction>> byShard = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            byShard.computeIfAbsent(storeOf(transaction.getAccount()), k -> new ArrayList<>()).add(transaction);
+        }
+        return byShard;
+    }
+
+    @Override
+    public BatchResult updateTransactions(String account, List<Transaction> transactions) {
+        lock.readLock().lock();
+        try {
+            return storeOf(account).updateTransactions(account, transactions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public BatchResult deleteTransactions(String account, List<Integer> ids) {
+        lock.readLock().lock();
+        try {
+            return storeOf(account).deleteTransactions(account, ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> getAccounts() {
+        lock.readLock().lock();
+        try {
+            Set<String> accounts = new HashSet<>();
+            for (TransactionService shard : shards.values()) {
+                List<String> held = shard.getAccounts();
+                if (held == null) {
+                    return null;
+                }
+                accounts.addAll(held);
+            }
+            return new ArrayList<>(accounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getMaxId() {
+        lock.readLock().lock();
+        try {
+            int highest = 0;
+            for (TransactionService shard : shards.values()) {
+                int max = shard.getMaxId();
+                if (max < 0) {
+                    return -1;
+                }
+                highest = Math.max(highest, max);
+            }
+            return highest;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Puts a new shard on the ring and moves to it the accounts it now owns; returns the rows
+    // moved, or -1 when a move failed (the rest are moved by the next rebalance())
+    public int addShard(String name, TransactionService shard) {
+        lock.writeLock().lock();
+        try {
+            if (shards.containsKey(name)) {
+                throw new IllegalArgumentException("Shard '" + name + "' already exists");
+            }
+            shards.put(name, shard);
+            ring = new HashRing(shards.keySet(), pointsPerShard);
+            return rebalance();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Moves every account found on a shard other than its owner, as after a shard was added to
+    // storage.shards, or after a move was cut short. Returns the rows moved or -1 on failure.
+    public int rebalance() {
+        lock.writeLock().lock();
+        try {
+            long started = System.currentTimeMillis();
+            int moved = 0;
+            for (Map.Entry<String, TransactionService> entry : shards.entrySet()) {
+                List<String> accounts = entry.getValue().getAccounts();
+                if (accounts == null) {
+                    return -1;
+                }
+                for (String account : accounts) {
+                    String owner = ring.owner(account);
+                    if (owner.equals(entry.getKey())) {
+                        continue;
+                    }
+                    int rows = move(account, entry.getValue(), shards.get(owner));
+                    if (rows < 0) {
+                        System.out.println("Moving account " + account + " from shard " + entry.getKey()
+                                + " to " + owner + " failed; its rows are incomplete until a rebalance finishes the move");
+                        return -1;
+                    }
+                    System.out.println("Moved account " + account + ": " + rows + " rows from shard "
+                            + entry.getKey() + " to " + owner);
+                    moved += rows;
+                }
+            }
+            if (moved > 0) {
+                System.out.println("Rebalanced " + moved + " rows in " + (System.currentTimeMillis() - started) + " ms");
+            }
+            return moved;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Moves the account a page of MOVE_CHUNK_SIZE rows at a time, so a large account never has to
+    // fit in memory. Each page is copied to the target before it is deleted from the source, so a
+    // failure never loses rows, then logged again: followers of the change log see the copy, the
+    // delete and the row once more, and end up holding it
+    private int move(String account, TransactionService from, TransactionService to) {
+        TransactionAggregates.setMoving(true);
+        try {
+            return copyAndDelete(account, from, to);
+        } finally {
+            TransactionAggregates.setMoving(false);
+        }
+    }
+
+    private int copyAndDelete(String account, TransactionService from, TransactionService to) {
+        TransactionFilter filter = new TransactionFilter();
+        filter.setAccount(account);
+        int moved = 0;
+        PageCursor cursor = null;
+        while (true) {
+            TransactionPage page = from.getTransactions(filter, cursor, MOVE_CHUNK_SIZE);
+            if (page == null) {
+                return -1;
+            }
+            List<Transaction> rows = page.getTransactions();
+            if (!rows.isEmpty()) {
+                if (to.ingestTransactions(rows) == null) {
+                    return -1;
+                }
+                List<Integer> ids = new ArrayList<>(rows.size());
+                for (Transaction row : rows) {
+                    ids.add(row.getId());
+                }
+                BatchResult deleted = from.deleteTransactions(account, ids);
+                if (deleted == null || !deleted.getMissing().isEmpty()) {
+                    return -1;
+                }
+                for (Transaction row : rows) {
+                    TransactionChangeLog.get().upserted(row);
+                }
+                moved += rows.size();
+                movedRows.addAndGet(rows.size());
+            }
+            if (page.getNext() == null) {
+                return moved;
+            }
+            // Keyset paging: the rows before the cursor are gone from the source, which does
+            // not move it
+            cursor = PageCursor.decode(page.getNext());
+        }
+    }
+
+    public long getMovedRowCount() {
+        return movedRows.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (TransactionService shard : shards.values()) {
+                if (shard instanceof Closeable) {
+                    ((Closeable) shard).close();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
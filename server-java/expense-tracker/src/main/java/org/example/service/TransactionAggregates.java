@@ -0,0 +1,278 @@
+package org.example.service;
+
+import org.example.model.Transaction;
+import org.example.model.TransactionFilter;
+import org.example.model.TransactionSummary;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+// Running totals per type, category, day and month, seeded once from the store and then
+// maintained from the service's write paths. Amounts are kept in cents in LongAdders so
+// concurrent writers update striped cells instead of contending on one counter. The shared
+// instance covers every account and keeps one more set of totals per account.
+public class TransactionAggregates {
+
+    private static final String SEED_SQL = "SELECT DATE(date), type, category, ROUND(SUM(amount) * 100), COUNT(*), account"
+            + " FROM transactions GROUP BY account, DATE(date), type, category";
+
+    private static volatile TransactionAggregates instance;
+    private static final List<BiConsumer<Transaction, Transaction>> listeners = new CopyOnWriteArrayList<>();
+    // Set on a thread moving rows between shards, whose copies and deletes change no row
+    private static final ThreadLocal<Boolean> moving = ThreadLocal.withInitial(() -> false);
+
+    // Null in the per-account instances
+    private final Map<String, TransactionAggregates> accounts;
+
+    private final Bucket totals = new Bucket();
+    private final Map<String, Bucket> categories = new ConcurrentHashMap<>();
+    private final Map<Integer, Bucket> days = new ConcurrentHashMap<>();    // epoch day
+    private final Map<Integer, Bucket> months = new ConcurrentHashMap<>();  // year * 100 + month
+
+    private TransactionAggregates(boolean perAccount) {
+        accounts = perAccount ? new ConcurrentHashMap<>() : null;
+    }
+
+    public static TransactionAggregates get() throws SQLException {
+        if (instance == null) {
+            synchronized (TransactionAggregates.class) {
+                if (instance == null) {
+                    TransactionAggregates seeded = new TransactionAggregates(true);
+                    seeded.load();
+                    instance = seeded;
+                    System.out.println("Transaction aggregates seeded (" + seeded.totals.getCount() + " rows)");
+                }
+            }
+        }
+        return instance;
+    }
+
+    // MySQL stores, one per shard, are summed by the database; other backends hold their rows
+    // in memory, so summing them row by row is cheap
+    private void load() throws SQLException {
+        for (TransactionService store : TransactionServices.stores()) {
+            if (!(store instanceof TransactionServiceImpl)) {
+                if (store.exportTransactions(new TransactionFilter(), transaction -> apply(transaction, 1)) < 0) {
+                    throw new SQLException("Could not read transactions from the " + TransactionServices.getBackend() + " store");
+                }
+                continue;
+            }
+            try (Connection cn = ((TransactionServiceImpl) store).connection();
+                 PreparedStatement pst = cn.prepareStatement(SEED_SQL);
+                 ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    LocalDate day = rs.getDate(1).toLocalDate();
+                    apply(rs.getString(6), day, rs.getString(2), rs.getString(3), rs.getLong(4), rs.getLong(5));
+                }
+            }
+        }
+    }
+
+    // Told of every write after the shared totals take it, on the writing thread, with the row
+    // before and after it (null before a create, null after a delete); seeding is not replayed
+    public static void addListener(BiConsumer<Transaction, Transaction> listener) {
+        listeners.add(listener);
+    }
+
+    // Writes made on this thread until it is cleared are kept from the listeners
+    public static void setMoving(boolean value) {
+        moving.set(value);
+    }
+
+    public void added(Transaction transaction) {
+        apply(transaction, 1);
+        notifyListeners(null, transaction);
+    }
+
+    public void removed(Transaction transaction) {
+        apply(transaction, -1);
+        notifyListeners(transaction, null);
+    }
+
+    public void updated(Transaction before, Transaction after) {
+        apply(before, -1);
+        apply(after, 1);
+        notifyListeners(before, after);
+    }
+
+    private void notifyListeners(Transaction before, Transaction after) {
+        if (moving.get()) {
+            return;
+        }
+        for (BiConsumer<Transaction, Transaction> listener : listeners) {
+            listener.accept(before, after);
+        }
+    }
+
+    private void apply(Transaction transaction, int sign) {
+        LocalDate day = toLocalDate(transaction.getDate());
+        long cents = Math.round(transaction.getAmount() * 100);
+        apply(transaction.getAccount(), day, transaction.getType(), transaction.getCategory(), sign * cents, sign);
+    }
+
+    private void apply(String account, LocalDate day, String type, String category, long cents, long count) {
+        if (accounts != null) {
+            accounts.computeIfAbsent(account, k -> new TransactionAggregates(false))
+                    .apply(account, day, type, category, cents, count);
+        }
+        boolean income = "income".equals(type);
+        totals.add(income, cents, count);
+        categories.computeIfAbsent(categoryKey(type, category), k -> new Bucket()).add(income, cents, count);
+        days.computeIfAbsent((int) day.toEpochDay(), k -> new Bucket()).add(income, cents, count);
+        months.computeIfAbsent(day.getYear() * 100 + day.getMonthValue(), k -> new Bucket()).add(income, cents, count);
+    }
+
+    public Bucket getTotals() {
+        return totals;
+    }
+
+    public Bucket getCategory(String type, String category) {
+        return categories.getOrDefault(categoryKey(type, category), Bucket.EMPTY);
+    }
+
+    public Bucket getDay(LocalDate day) {
+        return days.getOrDefault((int) day.toEpochDay(), Bucket.EMPTY);
+    }
+
+    public Bucket getMonth(int year, int month) {
+        return months.getOrDefault(year * 100 + month, Bucket.EMPTY);
+    }
+
+    // Totals of one account, or of all of them when account is null
+    public TransactionSummary toSummary(String account) {
+        if (account != null) {
+            TransactionAggregates totalsOf = accounts == null ? null : accounts.get(account);
+            return (totalsOf == null ? new TransactionAggregates(false) : totalsOf).toSummary(null);
+        }
+        TransactionSummary summary = new TransactionSummary();
+        summary.setIncome(totals.getIncome());
+        summary.setExpense(totals.getExpense());
+        summary.setBalance(totals.getIncome() - totals.getExpense());
+        summary.setCount(totals.getCount());
+
+        List<TransactionSummary.CategoryTotal> categoryTotals = new ArrayList<>();
+        for (Map.Entry<String, Bucket> entry : categories.entrySet()) {
+            Bucket bucket = entry.getValue();
+            if (bucket.getCount() == 0) {
+                continue;
+            }
+            String key = entry.getKey();
+            int sep = key.indexOf('|');
+            String type = key.substring(0, sep);
+            double total = "income".equals(type) ? bucket.getIncome() : bucket.getExpense();
+            categoryTotals.add(new TransactionSummary.CategoryTotal(key.substring(sep + 1), type, total, bucket.getCount()));
+        }
+        categoryTotals.sort((a, b) -> Double.compare(b.getTotal(), a.getTotal()));
+        summary.setCategories(categoryTotals);
+
+        List<TransactionSummary.MonthTotal> monthTotals = new ArrayList<>();
+        for (Map.Entry<Integer, Bucket> entry : new TreeMap<>(months).entrySet()) {
+            Bucket bucket = entry.getValue();
+            if (bucket.getCount() == 0) {
+                continue;
+            }
+            int key = entry.getKey();
+            String month = String.format("%04d-%02d", key / 100, key % 100);
+            monthTotals.add(new TransactionSummary.MonthTotal(month, bucket.getIncome(), bucket.getExpense()));
+        }
+        summary.setMonths(monthTotals);
+        return summary;
+    }
+
+    // Recomputes everything from the table and reports any bucket that drifted
+    public boolean verify() throws SQLException {
+        TransactionAggregates fresh = new TransactionAggregates(false);
+        fresh.load();
+        int mismatches = compare("totals", mapOf(totals), mapOf(fresh.totals))
+                + compare("category", categories, fresh.categories)
+                + compare("day", days, fresh.days)
+                + compare("month", months, fresh.months);
+        if (mismatches > 0) {
+            System.out.println("Transaction aggregates drifted: " + mismatches + " bucket(s) differ from the table");
+        }
+        return mismatches == 0;
+    }
+
+    private static Map<String, Bucket> mapOf(Bucket bucket) {
+        Map<String, Bucket> map = new TreeMap<>();
+        map.put("all", bucket);
+        return map;
+    }
+
+    private static <K> int compare(String dimension, Map<K, Bucket> live, Map<K, Bucket> fresh) {
+        int mismatches = 0;
+        for (Map.Entry<K, Bucket> entry : live.entrySet()) {
+            Bucket expected = fresh.getOrDefault(entry.getKey(), Bucket.EMPTY);
+            if (!entry.getValue().sameAs(expected)) {
+                System.out.println("Aggregate mismatch in " + dimension + " " + entry.getKey()
+                        + ": live=" + entry.getValue() + " table=" + expected);
+                mismatches++;
+            }
+        }
+        for (Map.Entry<K, Bucket> entry : fresh.entrySet()) {
+            if (!live.containsKey(entry.getKey())) {
+                System.out.println("Aggregate missing in " + dimension + " " + entry.getKey() + ": table=" + entry.getValue());
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    private static String categoryKey(String type, String category) {
+        return type + "|" + category;
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        // java.sql.Date does not support toInstant()
+        return new Date(date.getTime()).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    public static class Bucket {
+        static final Bucket EMPTY = new Bucket();
+
+        private final LongAdder incomeCents = new LongAdder();
+        private final LongAdder expenseCents = new LongAdder();
+        private final LongAdder count = new LongAdder();
+
+        void add(boolean income, long cents, long rows) {
+            (income ? incomeCents : expenseCents).add(cents);
+            count.add(rows);
+        }
+
+        public double getIncome() {
+            return incomeCents.sum() / 100.0;
+        }
+
+        public double getExpense() {
+            return expenseCents.sum() / 100.0;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        boolean sameAs(Bucket other) {
+            return incomeCents.sum() == other.incomeCents.sum()
+                    && expenseCents.sum() == other.expenseCents.sum()
+                    && count.sum() == other.count.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "{income=" + getIncome() + ", expense=" + getExpense() + ", count=" + getCount() + "}";
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.example.service;
+
+import org.example.model.Transaction;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded LRU of transactions by id, shared by every service instance.
+// Entries are copied in and out so callers can never mutate what is cached.
+// Ids are spread over SEGMENTS independently locked LRUs, each holding its share of maxSize,
+// so lookups of different rows rarely wait on each other.
+public class TransactionCache {
+
+    private static final TransactionCache INSTANCE = new TransactionCache(Integer.getInteger("cache.transactions.size", 10000));
+
+    private static final int SEGMENTS = 16;
+
+    private final int maxSize;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TransactionCache(int maxSize) {
+        this.maxSize = maxSize;
+        for (int i = 0; i < SEGMENTS; i++) {
+            // The first maxSize % SEGMENTS segments take one entry more, so the shares add up to maxSize
+            segments[i] = new Segment(maxSize / SEGMENTS + (i < maxSize % SEGMENTS ? 1 : 0));
+        }
+    }
+
+    public static TransactionCache get() {
+        return INSTANCE;
+    }
+
+    public Transaction lookup(int id) {
+        Segment segment = segment(id);
+        Entry cached;
+        synchronized (segment) {
+            cached = segment.get(id);
+        }
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy(cached.transaction);
+    }
+
+    // Version to pass to putLoaded() for the given id, read before loading it from the database
+    public long version(int id) {
+        Segment segment = segment(id);
+        synchronized (segment) {
+            return segment.writes;
+        }
+    }
+
+    // A loaded entry is kept only if no write reached its segment during the load, and gives
+    // way to any later write
+    public void putLoaded(Transaction transaction, long versionBeforeLoad) {
+        Entry entry = new Entry(copy(transaction), 0);
+        Segment segment = segment(entry.transaction.getId());
+        synchronized (segment) {
+            if (segment.writes == versionBeforeLoad) {
+                segment.putIfAbsent(entry.transaction.getId(), entry);
+            }
+        }
+    }
+
+    // The row as of the given change-log sequence number. A write published late, after a newer
+    // one or after an invalidation, is dropped rather than put over the newer state.
+    public void putWritten(Transaction transaction, long version) {
+        Entry entry = new Entry(copy(transaction), version);
+        int id = entry.transaction.getId();
+        Segment segment = segment(id);
+        synchronized (segment) {
+            segment.writes++;
+            if (version <= segment.invalidatedAt) {
+                segment.remove(id);
+                return;
+            }
+            Entry current = segment.get(id);
+            if (current == null || current.version < version) {
+                segment.put(id, entry);
+            }
+        }
+    }
+
+    public void invalidate(int id) {
+        Segment segment = segment(id);
+        long version = TransactionVersion.get().current();
+        synchronized (segment) {
+            segment.writes++;
+            segment.invalidatedAt = Math.max(segment.invalidatedAt, version);
+            segment.remove(id);
+        }
+    }
+
+    public void clear() {
+        long version = TransactionVersion.get().current();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.writes++;
+                segment.invalidatedAt = Math.max(segment.invalidatedAt, version);
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private Segment segment(int id) {
+        return segments[Math.floorMod(id, SEGMENTS)];
+    }
+
+    static Transaction copy(Transaction source) {
+        Transaction copy = new Transaction(source.getDescription(), source.getAmount(), source.getType(),
+                source.getCategory(), copy(source.getDate()), source.getNote());
+        copy.setId(source.getId());
+        copy.setAccount(source.getAccount());
+        copy.setCreatedAt(copy(source.getCreatedAt()));
+        copy.setUpdatedAt(copy(source.getUpdatedAt()));
+        return copy;
+    }
+
+    private static Date copy(Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+
+    private static final class Entry {
+        final Transaction transaction;
+        final long version; // change-log sequence number of the write, 0 when loaded
+
+        Entry(Transaction transaction, long version) {
+            this.transaction = transaction;
+            this.version = version;
+        }
+    }
+
+    // Access-ordered, guarded by its own monitor
+    private final class Segment extends LinkedHashMap<Integer, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        // Bumped on every write so a read that raced with a write does not cache what it loaded
+        long writes;
+        // Highest change-log sequence number when an entry here was invalidated
+        long invalidatedAt;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.service;
+
+import org.example.model.Transaction;
+import org.example.model.TransactionChange;
+import org.example.model.TransactionChanges;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// The last changes.capacity committed changes, numbered with TransactionVersion so a client
+// can ask for everything after the version it last saw. Deletes are kept as tombstones.
+// The changes to one row are appended in the order they were committed: the MySQL service
+// appends while it holds the row's CommitOrder stripe and the embedded store while it holds
+// its write lock. Changes to different rows may be numbered out of commit order.
+public class TransactionChangeLog {
+
+    private static final TransactionChangeLog INSTANCE = new TransactionChangeLog(Integer.getInteger("changes.capacity", 10000));
+
+    private final TransactionChange[] ring;
+    private long head; // sequence number of the newest entry
+    private int count;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    TransactionChangeLog(int capacity) {
+        ring = new TransactionChange[Math.max(capacity, 1)];
+    }
+
+    public static TransactionChangeLog get() {
+        return INSTANCE;
+    }
+
+    // Run after each append, on the writing thread; listeners must hand off anything slow
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    // Returns the change's sequence number, the version the cache keeps the row at
+    public long upserted(Transaction transaction) {
+        long seq;
+        synchronized (ring) {
+            seq = append(TransactionChange.UPSERT, transaction.getId(), transaction.getAccount(), TransactionCache.copy(transaction));
+        }
+        notifyListeners();
+        return seq;
+    }
+
+    // Batch rows are logged as written: their timestamps are the commit time rather than
+    // the database's, which fills them in without reading the rows back
+    public void upserted(List<Transaction> transactions, Date committedAt) {
+        synchronized (ring) {
+            for (Transaction transaction : transactions) {
+                Transaction entry = TransactionCache.copy(transaction);
+                if (entry.getCreatedAt() == null) {
+                    entry.setCreatedAt(committedAt);
+                }
+                entry.setUpdatedAt(committedAt);
+                append(TransactionChange.UPSERT, entry.getId(), entry.getAccount(), entry);
+            }
+        }
+        notifyListeners();
+    }
+
+    public void deleted(String account, int id) {
+        synchronized (ring) {
+            append(TransactionChange.DELETE, id, account, null);
+        }
+        notifyListeners();
+    }
+
+    public void deleted(String account, Collection<Integer> ids) {
+        synchronized (ring) {
+            for (Integer id : ids) {
+                append(TransactionChange.DELETE, id, account, null);
+            }
+        }
+        notifyListeners();
+    }
+
+    private long append(String op, int id, String account, Transaction transaction) {
+        long seq = TransactionVersion.get().next();
+        ring[(int) (seq % ring.length)] = new TransactionChange(seq, op, id, account, transaction);
+        head = seq;
+        count = Math.min(count + 1, ring.length);
+        return seq;
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    // Up to limit changes after the given version, or null when some of them have already
+    // been dropped from the log and the client has to reload instead. The entries are shared,
+    // not copied: callers only serialize them.
+    public TransactionChanges since(long after, int limit) {
+        return since(after, limit, null);
+    }
+
+    // The same window of the log with only the given account's entries kept, so a page can
+    // come back empty with more set; its version still moves the reader past the window
+    public TransactionChanges since(long after, int limit, String account) {
+        TransactionChanges changes = new TransactionChanges();
+        long last;
+        synchronized (ring) {
+            if (after < head - count || after > head) {
+                return null;
+            }
+            last = Math.min(head, after + limit);
+            for (long seq = after + 1; seq <= last; seq++) {
+                TransactionChange change = ring[(int) (seq % ring.length)];
+                if (account == null || account.equals(change.getAccount())) {
+                    changes.getChanges().add(change);
+                }
+            }
+            changes.setMore(last < head);
+        }
+        changes.setVersion(TransactionVersion.get().tag(last));
+        return changes;
+    }
+
+    public long head() {
+        synchronized (ring) {
+            return head;
+        }
+    }
+
+    public int size() {
+        synchronized (ring) {
+            return count;
+        }
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hands out transaction ids in this process instead of AUTO_INCREMENT, so write-behind
+// ingestion can answer with an id before the row is inserted. Once activated every insert
+// path takes its ids from here; until then they keep using AUTO_INCREMENT. The embedded store
+// has no AUTO_INCREMENT and activates it when it opens, as does a sharded store, whose rows
+// keep their ids when they move between shards. Like the cache, this assumes this process is
+// the only writer; nodes sharing databases each take every ids.stride-th id from ids.offset.
+public class TransactionIds {
+
+    private static final TransactionIds INSTANCE = new TransactionIds(
+            Integer.getInteger("ids.stride", 1), Integer.getInteger("ids.offset", 0));
+
+    private final int stride;
+    private final int offset;
+    private final AtomicInteger last;
+    private volatile boolean active;
+
+    TransactionIds(int stride, int offset) {
+        this.stride = Math.max(stride, 1);
+        this.offset = Math.floorMod(offset, this.stride);
+        last = new AtomicInteger(align(0));
+    }
+
+    public static TransactionIds get() {
+        return INSTANCE;
+    }
+
+    // Continues after highest, the largest id already taken; never moves back if activated twice
+    public synchronized void activate(int highest) {
+        last.accumulateAndGet(align(highest), Math::max);
+        active = true;
+        System.out.println("Transaction ids assigned in-process from " + (last.get() + stride)
+                + (stride > 1 ? " in steps of " + stride : ""));
+    }
+
+    // The largest id at or below highest that this process may hand out
+    private int align(int highest) {
+        return highest - Math.floorMod(highest - offset, stride);
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public int next() {
+        return last.addAndGet(stride);
+    }
+}
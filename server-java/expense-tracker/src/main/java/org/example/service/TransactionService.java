@@ -1,18 +1,52 @@
 package org.example.service;
 
+import org.example.model.BatchResult;
 import org.example.model.Transaction;
-import org.example.model.TransactionList;
+import org.example.model.TransactionFilter;
+import org.example.model.TransactionPage;
+import org.example.model.TransactionSummary;
+
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface TransactionService {
 
-    TransactionList getTransactions();
+    TransactionPage getTransactions(TransactionFilter filter, PageCursor after, int limit);
+
+    // Streams every matching row to the sink without buffering; returns the row count or -1 on failure
+    long exportTransactions(TransactionFilter filter, Consumer<Transaction> sink);
+
+    TransactionSummary getSummary(TransactionFilter filter);
 
-    Transaction getTransaction(int id);
+    // Rows are owned by an account: a row of another account reads as missing, and updates
+    // keep the account the row was created with
+    Transaction getTransaction(String account, int id);
+
+    // The account's rows among ids in one read, in the order of ids; ids not found are left
+    // out. Null on failure.
+    List<Transaction> getTransactions(String account, List<Integer> ids);
 
     Transaction createTransaction(Transaction transaction);
 
-    boolean updateTransaction(int id, Transaction transaction);
+    boolean updateTransaction(String account, int id, Transaction transaction);
 
-    boolean deleteTransaction(int id);
-}
+    boolean deleteTransaction(String account, int id);
+
+    // Batch writes run in one database transaction: either every row is written or none is
+    BatchResult createTransactions(List<Transaction> transactions);
 
+    // Inserts rows whose ids were assigned by TransactionIds; ids already in the table are
+    // skipped, so a batch replayed or retried after a crash is written once. Timestamps a row
+    // already has are kept, so rows moved from another shard arrive unchanged.
+    BatchResult ingestTransactions(List<Transaction> transactions);
+
+    BatchResult updateTransactions(String account, List<Transaction> transactions);
+
+    BatchResult deleteTransactions(String account, List<Integer> ids);
+
+    // Accounts with at least one row, or null on failure
+    List<String> getAccounts();
+
+    // Highest id stored, 0 when empty, -1 on failure; TransactionIds continues from it
+    int getMaxId();
+}
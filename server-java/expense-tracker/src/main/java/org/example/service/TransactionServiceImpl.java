@@ -1,68 +1,253 @@
 package org.example.service;
 
+import org.example.db.ConnectionPool;
 import org.example.db.ConnexionDB;
+import org.example.model.BatchResult;
 import org.example.model.Transaction;
-import org.example.model.TransactionList;
+import org.example.model.TransactionFilter;
+import org.example.model.TransactionPage;
+import org.example.model.TransactionSummary;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class TransactionServiceImpl implements TransactionService {
 
-    Connection cn = ConnexionDB.getConnexion();
-    Statement st = null;
-    PreparedStatement pst = null;
+    // Statements are scoped to each call, so one instance can serve concurrent requests.
+    // The SQL strings are constants so the driver's prepared-statement cache hits on every call.
+    private static final String COLUMNS = "id, description, amount, type, category, date, note, created_at, updated_at, account";
+    private static final String SELECT_PAGE = "SELECT " + COLUMNS + " FROM transactions";
+    private static final String SELECT_BY_ID = "SELECT " + COLUMNS + " FROM transactions WHERE id = ? AND account = ?";
+    private static final String SELECT_FOR_UPDATE = SELECT_BY_ID + " FOR UPDATE";
+    private static final String INSERT = "INSERT INTO transactions (description, amount, type, category, date, note, account) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    // Timestamps left null take the column defaults; rows moved between shards keep theirs
+    private static final String INSERT_WITH_ID = "INSERT INTO transactions (description, amount, type, category, date, note, account, id, created_at, updated_at)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, COALESCE(?, CURRENT_TIMESTAMP), COALESCE(?, CURRENT_TIMESTAMP))";
+    private static final String UPDATE = "UPDATE transactions SET description = ?, amount = ?, type = ?, category = ?, date = ?, note = ? WHERE id = ?";
+    private static final String DELETE = "DELETE FROM transactions WHERE id = ?";
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int BATCH_CHUNK_SIZE = 1000;
+
+    private final ConnectionPool pool;
+
+    // Runs on ConnexionDB's pool, configured by the db.* properties
+    public TransactionServiceImpl() {
+        this(null);
+    }
+
+    // Runs on its own pool, as each MySQL shard does
+    public TransactionServiceImpl(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    Connection connection() throws SQLException {
+        return pool == null ? ConnexionDB.getConnexion() : pool.borrow();
+    }
+
+    // Seeds the aggregates before borrowing: seeding takes a connection of its own, and would
+    // wait forever on writers that hold every connection while they wait for the seeding
+    private Connection writeConnection() throws SQLException {
+        TransactionAggregates.get();
+        return connection();
+    }
+
+    public ConnectionPool getPool() {
+        return pool == null ? ConnexionDB.getPool() : pool;
+    }
 
     @Override
-    public TransactionList getTransactions() {
-        TransactionList transactionList = new TransactionList();
-        List<Transaction> transactions = new ArrayList<>();
-        String sql = "SELECT * FROM transactions ORDER BY date DESC";
-        try {
-            st = cn.createStatement();
-            ResultSet rs = st.executeQuery(sql);
-            while (rs.next()) {
-                Transaction transaction = new Transaction();
-                transaction.setId(rs.getInt("id"));
-                transaction.setDescription(rs.getString("description"));
-                transaction.setAmount(rs.getDouble("amount"));
-                transaction.setType(rs.getString("type"));
-                transaction.setCategory(rs.getString("category"));
-                transaction.setDate(rs.getTimestamp("date"));
-                transaction.setNote(rs.getString("note"));
-                transaction.setCreatedAt(rs.getTimestamp("created_at"));
-                transaction.setUpdatedAt(rs.getTimestamp("updated_at"));
-                transactions.add(transaction);
-            }
-            transactionList.setTransactions(transactions);
-            return transactionList;
+    public TransactionPage getTransactions(TransactionFilter filter, PageCursor after, int limit) {
+        // Seek past the cursor on (date, id) instead of OFFSET so every page costs the same
+        StringBuilder sql = new StringBuilder(SELECT_PAGE);
+        List<Object> params = new ArrayList<>();
+        String glue = appendFilter(sql, params, filter);
+        if (after != null) {
+            Timestamp afterDate = new Timestamp(after.getDate().getTime());
+            sql.append(glue).append("(date < ? OR (date = ? AND id < ?))");
+            params.add(afterDate);
+            params.add(afterDate);
+            params.add(after.getId());
+        }
+        sql.append(" ORDER BY date DESC, id DESC LIMIT ?");
+        params.add(limit + 1);
+
+        try (Connection cn = connection();
+             PreparedStatement pst = cn.prepareStatement(sql.toString())) {
+            bindParams(pst, params);
+            List<Transaction> transactions = new ArrayList<>(limit);
+            boolean hasMore = false;
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    if (transactions.size() == limit) {
+                        hasMore = true;
+                        break;
+                    }
+                    transactions.add(mapRow(rs));
+                }
+            }
+            TransactionPage page = new TransactionPage();
+            page.setTransactions(transactions);
+            if (hasMore) {
+                Transaction last = transactions.get(transactions.size() - 1);
+                page.setNext(new PageCursor(last.getDate().getTime(), last.getId()).encode());
+            }
+            return page;
         } catch (SQLException e) {
             e.printStackTrace();
-            System.out.println("Error getting transactions: " + e.getMessage());
+            System.out.println("Error getting transactions page: " + e.getMessage());
             return null;
         }
     }
 
     @Override
-    public Transaction getTransaction(int id) {
-        Transaction transaction = null;
-        String sql = "SELECT * FROM transactions WHERE id = ?";
-        try {
-            pst = cn.prepareStatement(sql);
-            pst.setInt(1, id);
-            ResultSet rs = pst.executeQuery();
-            if (rs.next()) {
-                transaction = new Transaction();
-                transaction.setId(rs.getInt("id"));
-                transaction.setDescription(rs.getString("description"));
-                transaction.setAmount(rs.getDouble("amount"));
-                transaction.setType(rs.getString("type"));
-                transaction.setCategory(rs.getString("category"));
-                transaction.setDate(rs.getTimestamp("date"));
-                transaction.setNote(rs.getString("note"));
-                transaction.setCreatedAt(rs.getTimestamp("created_at"));
-                transaction.setUpdatedAt(rs.getTimestamp("updated_at"));
+    public long exportTransactions(TransactionFilter filter, Consumer<Transaction> sink) {
+        StringBuilder sql = new StringBuilder(SELECT_PAGE);
+        List<Object> params = new ArrayList<>();
+        appendFilter(sql, params, filter);
+        sql.append(" ORDER BY date DESC, id DESC");
+
+        // Forward-only cursor fetch keeps at most EXPORT_FETCH_SIZE rows in memory at a time
+        try (Connection cn = connection();
+             PreparedStatement pst = cn.prepareStatement(sql.toString(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pst.setFetchSize(EXPORT_FETCH_SIZE);
+            bindParams(pst, params);
+            long count = 0;
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    sink.accept(mapRow(rs));
+                    count++;
+                }
+            }
+            return count;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.out.println("Error exporting transactions: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private static String appendFilter(StringBuilder sql, List<Object> params, TransactionFilter filter) {
+        String glue = " WHERE ";
+        if (filter.getAccount() != null) {
+            sql.append(glue).append("account = ?");
+            params.add(filter.getAccount());
+            glue = " AND ";
+        }
+        if (filter.getType() != null) {
+            sql.append(glue).append("type = ?");
+            params.add(filter.getType());
+            glue = " AND ";
+        }
+        if (filter.getCategory() != null) {
+            sql.append(glue).append("category = ?");
+            params.add(filter.getCategory());
+            glue = " AND ";
+        }
+        if (filter.getFrom() != null) {
+            sql.append(glue).append("date >= ?");
+            params.add(new Timestamp(filter.getFrom().getTime()));
+            glue = " AND ";
+        }
+        if (filter.getTo() != null) {
+            sql.append(glue).append("date < ?");
+            params.add(new Timestamp(filter.getTo().getTime()));
+            glue = " AND ";
+        }
+        return glue;
+    }
+
+    @Override
+    public TransactionSummary getSummary(TransactionFilter filter) {
+        if (filter.getType() == null && filter.getCategory() == null
+                && filter.getFrom() == null && filter.getTo() == null) {
+            try {
+                return TransactionAggregates.get().toSummary(filter.getAccount());
+            } catch (SQLException e) {
+                e.printStackTrace();
+                System.out.println("Error loading aggregates: " + e.getMessage());
+                return null;
+            }
+        }
+
+        StringBuilder byCategory = new StringBuilder("SELECT type, category, SUM(amount), COUNT(*) FROM transactions");
+        List<Object> params = new ArrayList<>();
+        appendFilter(byCategory, params, filter);
+        byCategory.append(" GROUP BY type, category ORDER BY SUM(amount) DESC");
+
+        StringBuilder byMonth = new StringBuilder("SELECT DATE_FORMAT(date, '%Y-%m') AS bucket, type, SUM(amount) FROM transactions");
+        appendFilter(byMonth, new ArrayList<>(), filter);
+        byMonth.append(" GROUP BY bucket, type ORDER BY bucket");
+
+        TransactionSummary summary = new TransactionSummary();
+        try (Connection cn = connection()) {
+            try (PreparedStatement pst = cn.prepareStatement(byCategory.toString())) {
+                bindParams(pst, params);
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        String type = rs.getString(1);
+                        double total = rs.getDouble(3);
+                        long count = rs.getLong(4);
+                        summary.getCategories().add(new TransactionSummary.CategoryTotal(rs.getString(2), type, total, count));
+                        if ("income".equals(type)) {
+                            summary.setIncome(summary.getIncome() + total);
+                        } else {
+                            summary.setExpense(summary.getExpense() + total);
+                        }
+                        summary.setCount(summary.getCount() + count);
+                    }
+                }
+            }
+            try (PreparedStatement pst = cn.prepareStatement(byMonth.toString())) {
+                bindParams(pst, params);
+                try (ResultSet rs = pst.executeQuery()) {
+                    Map<String, TransactionSummary.MonthTotal> months = new LinkedHashMap<>();
+                    while (rs.next()) {
+                        TransactionSummary.MonthTotal month = months.computeIfAbsent(rs.getString(1),
+                                key -> new TransactionSummary.MonthTotal(key, 0, 0));
+                        if ("income".equals(rs.getString(2))) {
+                            month.setIncome(rs.getDouble(3));
+                        } else {
+                            month.setExpense(rs.getDouble(3));
+                        }
+                    }
+                    summary.setMonths(new ArrayList<>(months.values()));
+                }
+            }
+            summary.setBalance(summary.getIncome() - summary.getExpense());
+            return summary;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.out.println("Error getting summary: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void bindParams(PreparedStatement pst, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pst.setObject(i + 1, params.get(i));
+        }
+    }
+
+    @Override
+    public Transaction getTransaction(String account, int id) {
+        TransactionCache cache = TransactionCache.get();
+        Transaction cached = cache.lookup(id);
+        if (cached != null) {
+            // Ids are unique across accounts, so a cached row of another account means no row here
+            return account.equals(cached.getAccount()) ? cached : null;
+        }
+        long version = cache.version(id);
+        try (Connection cn = connection()) {
+            Transaction transaction = findById(cn, account, id);
+            if (transaction != null) {
+                cache.putLoaded(transaction, version);
             }
             return transaction;
         } catch (SQLException e) {
@@ -72,28 +257,102 @@ public class TransactionServiceImpl implements TransactionService {
         }
     }
 
+    @Override
+    public List<Transaction> getTransactions(String account, List<Integer> ids) {
+        TransactionCache cache = TransactionCache.get();
+        Map<Integer, Transaction> rows = new HashMap<>();
+        List<Integer> missed = new ArrayList<>();
+        Map<Integer, Long> versions = new HashMap<>();
+        for (int id : ids) {
+            Transaction cached = cache.lookup(id);
+            if (cached != null) {
+                if (account.equals(cached.getAccount())) {
+                    rows.put(id, cached);
+                }
+            } else {
+                missed.add(id);
+                versions.put(id, cache.version(id));
+            }
+        }
+        if (!missed.isEmpty()) {
+            try (Connection cn = connection()) {
+                for (Transaction transaction : findByIds(cn, account, missed, false).values()) {
+                    cache.putLoaded(transaction, versions.get(transaction.getId()));
+                    rows.put(transaction.getId(), transaction);
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+                System.out.println("Error getting transactions: " + e.getMessage());
+                return null;
+            }
+        }
+        return inOrder(ids, rows);
+    }
+
+    // The rows found, in the order their ids were asked for
+    private static List<Transaction> inOrder(List<Integer> ids, Map<Integer, Transaction> rows) {
+        List<Transaction> ordered = new ArrayList<>(rows.size());
+        for (int id : ids) {
+            Transaction row = rows.get(id);
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        return ordered;
+    }
+
+    // Reuses the caller's connection so nested lookups never borrow a second one
+    private Transaction findById(Connection cn, String account, int id) throws SQLException {
+        try (PreparedStatement pst = cn.prepareStatement(SELECT_BY_ID)) {
+            pst.setInt(1, id);
+            pst.setString(2, account);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() ? mapRow(rs) : null;
+            }
+        }
+    }
+
     @Override
     public Transaction createTransaction(Transaction transaction) {
-        String sql = "INSERT INTO transactions (description, amount, type, category, date, note) VALUES (?, ?, ?, ?, ?, ?)";
-        try {
-            pst = cn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            pst.setString(1, transaction.getDescription());
-            pst.setDouble(2, transaction.getAmount());
-            pst.setString(3, transaction.getType());
-            pst.setString(4, transaction.getCategory());
-            pst.setTimestamp(5, new Timestamp(transaction.getDate().getTime()));
-            pst.setString(6, transaction.getNote());
-            int result = pst.executeUpdate();
-            
-            if (result > 0) {
-                ResultSet generatedKeys = pst.getGeneratedKeys();
-                if (generatedKeys.next()) {
-                    int id = generatedKeys.getInt(1);
-                    return getTransaction(id);
-                }
-            }
-            System.out.println("Transaction created successfully");
-            return null;
+        try (Connection cn = writeConnection()) {
+            TransactionAggregates aggregates = TransactionAggregates.get();
+            TransactionIds ids = TransactionIds.get();
+            // Committed through CommitOrder, so the new row is published before a later write to it
+            cn.setAutoCommit(false);
+            int id = 0;
+            if (ids.isActive()) {
+                int assigned = ids.next();
+                try (PreparedStatement pst = cn.prepareStatement(INSERT_WITH_ID)) {
+                    bindFields(pst, transaction);
+                    bindInsert(pst, transaction, assigned, false);
+                    if (pst.executeUpdate() > 0) {
+                        id = assigned;
+                    }
+                }
+            } else {
+                try (PreparedStatement pst = cn.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+                    bindFields(pst, transaction);
+                    pst.setString(7, transaction.getAccount());
+                    if (pst.executeUpdate() > 0) {
+                        try (ResultSet generatedKeys = pst.getGeneratedKeys()) {
+                            if (generatedKeys.next()) {
+                                id = generatedKeys.getInt(1);
+                            }
+                        }
+                    }
+                }
+            }
+            Transaction created = id > 0 ? findById(cn, transaction.getAccount(), id) : null;
+            if (created == null) {
+                cn.rollback();
+                return null;
+            }
+            CommitOrder.commit(cn, id, () -> {
+                aggregates.added(created);
+                long version = TransactionChangeLog.get().upserted(created);
+                TransactionCache.get().putWritten(created, version);
+            });
+            return created;
         } catch (SQLException e) {
             e.printStackTrace();
             System.out.println("Error creating transaction: " + e.getMessage());
@@ -102,20 +361,29 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
     @Override
-    public boolean updateTransaction(int id, Transaction transaction) {
-        String sql = "UPDATE transactions SET description = ?, amount = ?, type = ?, category = ?, date = ?, note = ? WHERE id = ?";
-        try {
-            pst = cn.prepareStatement(sql);
-            pst.setString(1, transaction.getDescription());
-            pst.setDouble(2, transaction.getAmount());
-            pst.setString(3, transaction.getType());
-            pst.setString(4, transaction.getCategory());
-            pst.setTimestamp(5, new Timestamp(transaction.getDate().getTime()));
-            pst.setString(6, transaction.getNote());
-            pst.setInt(7, id);
-            int result = pst.executeUpdate();
-            System.out.println("Transaction updated successfully");
-            return result > 0;
+    public boolean updateTransaction(String account, int id, Transaction transaction) {
+        try (Connection cn = writeConnection()) {
+            TransactionAggregates aggregates = TransactionAggregates.get();
+            // Lock the row so the old values subtracted from the aggregates are the ones replaced
+            cn.setAutoCommit(false);
+            Transaction before = lockById(cn, account, id);
+            if (before == null) {
+                cn.rollback();
+                return false;
+            }
+            try (PreparedStatement pst = cn.prepareStatement(UPDATE)) {
+                bindFields(pst, transaction);
+                pst.setInt(7, id);
+                pst.executeUpdate();
+            }
+            // Read back inside the transaction so the cache gets the database's updated_at
+            Transaction after = findById(cn, account, id);
+            CommitOrder.commit(cn, id, () -> {
+                aggregates.updated(before, after);
+                long version = TransactionChangeLog.get().upserted(after);
+                TransactionCache.get().putWritten(after, version);
+            });
+            return true;
         } catch (SQLException e) {
             e.printStackTrace();
             System.out.println("Error updating transaction: " + e.getMessage());
@@ -124,19 +392,355 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
     @Override
-    public boolean deleteTransaction(int id) {
-        String sql = "DELETE FROM transactions WHERE id = ?";
-        try {
-            pst = cn.prepareStatement(sql);
-            pst.setInt(1, id);
-            int result = pst.executeUpdate();
-            System.out.println("Transaction deleted successfully");
-            return result > 0;
+    public boolean deleteTransaction(String account, int id) {
+        try (Connection cn = writeConnection()) {
+            TransactionAggregates aggregates = TransactionAggregates.get();
+            cn.setAutoCommit(false);
+            Transaction before = lockById(cn, account, id);
+            if (before == null) {
+                cn.rollback();
+                return false;
+            }
+            try (PreparedStatement pst = cn.prepareStatement(DELETE)) {
+                pst.setInt(1, id);
+                pst.executeUpdate();
+            }
+            CommitOrder.commit(cn, id, () -> {
+                aggregates.removed(before);
+                TransactionChangeLog.get().deleted(account, id);
+                TransactionCache.get().invalidate(id);
+            });
+            return true;
         } catch (SQLException e) {
             e.printStackTrace();
             System.out.println("Error deleting transaction: " + e.getMessage());
             return false;
         }
     }
-}
 
+    @Override
+    public BatchResult createTransactions(List<Transaction> transactions) {
+        TransactionIds ids = TransactionIds.get();
+        if (ids.isActive()) {
+            // Ids in the payload are ignored, as with AUTO_INCREMENT
+            for (Transaction transaction : transactions) {
+                transaction.setId(ids.next());
+            }
+            return insertWithIds(transactions, false, "Error creating transactions: ");
+        }
+        try (Connection cn = writeConnection()) {
+            TransactionAggregates aggregates = TransactionAggregates.get();
+            cn.setAutoCommit(false);
+            BatchResult result = new BatchResult();
+            // rewriteBatchedStatements turns each chunk into one multi-row INSERT
+            try (PreparedStatement pst = cn.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < transactions.size(); i++) {
+                    bindFields(pst, transactions.get(i));
+                    pst.setString(7, transactions.get(i).getAccount());
+                    pst.addBatch();
+                    if ((i + 1) % BATCH_CHUNK_SIZE == 0 || i == transactions.size() - 1) {
+                        pst.executeBatch();
+                        try (ResultSet generatedKeys = pst.getGeneratedKeys()) {
+                            while (generatedKeys.next()) {
+                                result.getIds().add(generatedKeys.getInt(1));
+                            }
+                        }
+                    }
+                }
+            }
+            if (result.getIds().size() != transactions.size()) {
+                cn.rollback();
+                System.out.println("Batch insert returned " + result.getIds().size() + " keys for " + transactions.size() + " rows");
+                return null;
+            }
+            for (int i = 0; i < transactions.size(); i++) {
+                transactions.get(i).setId(result.getIds().get(i));
+            }
+            CommitOrder.commit(cn, result.getIds(), () -> {
+                for (Transaction transaction : transactions) {
+                    aggregates.added(transaction);
+                }
+                TransactionChangeLog.get().upserted(transactions, new Date());
+            });
+            result.setCount(transactions.size());
+            return result;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.out.println("Error creating transactions: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public BatchResult ingestTransactions(List<Transaction> transactions) {
+        return insertWithIds(transactions, true, "Error ingesting transactions: ");
+    }
+
+    private BatchResult insertWithIds(List<Transaction> transactions, boolean skipExisting, String failure) {
+        try (Connection cn = writeConnection()) {
+            TransactionAggregates aggregates = TransactionAggregates.get();
+            cn.setAutoCommit(false);
+            List<Transaction> rows = transactions;
+            if (skipExisting) {
+                List<Integer> ids = new ArrayList<>(transactions.size());
+                for (Transaction transaction : transactions) {
+                    ids.add(transaction.getId());
+                }
+                Map<Integer, Transaction> existing = lockByIds(cn, null, ids);
+                if (!existing.isEmpty()) {
+                    rows = new ArrayList<>(transactions.size() - existing.size());
+                    for (Transaction transaction : transactions) {
+                        if (!existing.containsKey(transaction.getId())) {
+                            rows.add(transaction);
+                        }
+                    }
+                }
+            }
+            try (PreparedStatement pst = cn.prepareStatement(INSERT_WITH_ID)) {
+                for (int i = 0; i < rows.size(); i++) {
+                    bindFields(pst, rows.get(i));
+                    bindInsert(pst, rows.get(i), rows.get(i).getId(), skipExisting);
+                    pst.addBatch();
+                    if ((i + 1) % BATCH_CHUNK_SIZE == 0 || i == rows.size() - 1) {
+                        pst.executeBatch();
+                    }
+                }
+            }
+            BatchResult result = new BatchResult();
+            for (Transaction transaction : rows) {
+                result.getIds().add(transaction.getId());
+            }
+            List<Transaction> inserted = rows;
+            CommitOrder.commit(cn, result.getIds(), () -> {
+                for (Transaction transaction : inserted) {
+                    aggregates.added(transaction);
+                }
+                if (!inserted.isEmpty()) {
+                    TransactionChangeLog.get().upserted(inserted, new Date());
+                }
+            });
+            result.setCount(rows.size());
+            return result;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.out.println(failure + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public BatchResult updateTransactions(String account, List<Transaction> transactions) {
+        List<Integer> ids = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            ids.add(transaction.getId());
+            transaction.setAccount(account);
+        }
+        try (Connection cn = writeConnection()) {
+            TransactionAggregates aggregates = TransactionAggregates.get();
+            cn.setAutoCommit(false);
+            Map<Integer, Transaction> before = lockByIds(cn, account, ids);
+            BatchResult result = new BatchResult();
+            for (Integer id : ids) {
+                if (!before.containsKey(id)) {
+                    result.getMissing().add(id);
+                }
+            }
+            if (!result.getMissing().isEmpty()) {
+                cn.rollback();
+                return result;
+            }
+            try (PreparedStatement pst = cn.prepareStatement(UPDATE)) {
+                for (int i = 0; i < transactions.size(); i++) {
+                    bindFields(pst, transactions.get(i));
+                    pst.setInt(7, transactions.get(i).getId());
+                    pst.addBatch();
+                    if ((i + 1) % BATCH_CHUNK_SIZE == 0 || i == transactions.size() - 1) {
+                        pst.executeBatch();
+                    }
+                }
+            }
+            CommitOrder.commit(cn, ids, () -> {
+                List<Transaction> logged = new ArrayList<>(transactions.size());
+                for (Transaction transaction : transactions) {
+                    Transaction previous = before.get(transaction.getId());
+                    aggregates.updated(previous, transaction);
+                    Transaction entry = TransactionCache.copy(transaction);
+                    entry.setCreatedAt(previous.getCreatedAt());
+                    logged.add(entry);
+                }
+                TransactionChangeLog.get().upserted(logged, new Date());
+                // After the log, so the cache drops any write published before these
+                TransactionCache cache = TransactionCache.get();
+                for (Integer id : ids) {
+                    cache.invalidate(id);
+                }
+            });
+            result.setIds(ids);
+            result.setCount(ids.size());
+            return result;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.out.println("Error updating transactions: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public BatchResult deleteTransactions(String account, List<Integer> ids) {
+        try (Connection cn = writeConnection()) {
+            TransactionAggregates aggregates = TransactionAggregates.get();
+            cn.setAutoCommit(false);
+            Map<Integer, Transaction> before = lockByIds(cn, account, ids);
+            BatchResult result = new BatchResult();
+            for (Integer id : ids) {
+                if (!before.containsKey(id)) {
+                    result.getMissing().add(id);
+                }
+            }
+            if (!result.getMissing().isEmpty()) {
+                cn.rollback();
+                return result;
+            }
+            try (PreparedStatement pst = cn.prepareStatement(DELETE)) {
+                for (int i = 0; i < ids.size(); i++) {
+                    pst.setInt(1, ids.get(i));
+                    pst.addBatch();
+                    if ((i + 1) % BATCH_CHUNK_SIZE == 0 || i == ids.size() - 1) {
+                        pst.executeBatch();
+                    }
+                }
+            }
+            CommitOrder.commit(cn, ids, () -> {
+                for (Transaction transaction : before.values()) {
+                    aggregates.removed(transaction);
+                }
+                TransactionChangeLog.get().deleted(account, ids);
+                TransactionCache cache = TransactionCache.get();
+                for (Integer id : ids) {
+                    cache.invalidate(id);
+                }
+            });
+            result.setIds(ids);
+            result.setCount(ids.size());
+            return result;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.out.println("Error deleting transactions: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public List<String> getAccounts() {
+        try (Connection cn = connection();
+             PreparedStatement pst = cn.prepareStatement("SELECT DISTINCT account FROM transactions");
+             ResultSet rs = pst.executeQuery()) {
+            List<String> accounts = new ArrayList<>();
+            while (rs.next()) {
+                accounts.add(rs.getString(1));
+            }
+            return accounts;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.out.println("Error listing accounts: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public int getMaxId() {
+        try (Connection cn = connection();
+             PreparedStatement pst = cn.prepareStatement("SELECT MAX(id) FROM transactions");
+             ResultSet rs = pst.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.out.println("Error reading the highest transaction id: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // Rows of the account among ids, or of any account when it is null
+    private Map<Integer, Transaction> lockByIds(Connection cn, String account, List<Integer> ids) throws SQLException {
+        return findByIds(cn, account, ids, true);
+    }
+
+    private Map<Integer, Transaction> findByIds(Connection cn, String account, List<Integer> ids, boolean lock)
+            throws SQLException {
+        Map<Integer, Transaction> rows = new HashMap<>();
+        for (int start = 0; start < ids.size(); start += BATCH_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(start, Math.min(ids.size(), start + BATCH_CHUNK_SIZE));
+            StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM transactions WHERE ");
+            if (account != null) {
+                sql.append("account = ? AND ");
+            }
+            sql.append("id IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(lock ? ") FOR UPDATE" : ")");
+            try (PreparedStatement pst = cn.prepareStatement(sql.toString())) {
+                int param = 1;
+                if (account != null) {
+                    pst.setString(param++, account);
+                }
+                for (int i = 0; i < chunk.size(); i++) {
+                    pst.setInt(param++, chunk.get(i));
+                }
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        Transaction transaction = mapRow(rs);
+                        rows.put(transaction.getId(), transaction);
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private Transaction lockById(Connection cn, String account, int id) throws SQLException {
+        try (PreparedStatement pst = cn.prepareStatement(SELECT_FOR_UPDATE)) {
+            pst.setInt(1, id);
+            pst.setString(2, account);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() ? mapRow(rs) : null;
+            }
+        }
+    }
+
+    private static void bindFields(PreparedStatement pst, Transaction transaction) throws SQLException {
+        pst.setString(1, transaction.getDescription());
+        pst.setDouble(2, transaction.getAmount());
+        pst.setString(3, transaction.getType());
+        pst.setString(4, transaction.getCategory());
+        pst.setTimestamp(5, new Timestamp(transaction.getDate().getTime()));
+        pst.setString(6, transaction.getNote());
+    }
+
+    // The parameters INSERT_WITH_ID adds after the fields
+    private static void bindInsert(PreparedStatement pst, Transaction transaction, int id, boolean keepTimestamps)
+            throws SQLException {
+        pst.setString(7, transaction.getAccount());
+        pst.setInt(8, id);
+        pst.setTimestamp(9, keepTimestamps && transaction.getCreatedAt() != null
+                ? new Timestamp(transaction.getCreatedAt().getTime()) : null);
+        pst.setTimestamp(10, keepTimestamps && transaction.getUpdatedAt() != null
+                ? new Timestamp(transaction.getUpdatedAt().getTime()) : null);
+    }
+
+    // Column positions follow COLUMNS
+    private static Transaction mapRow(ResultSet rs) throws SQLException {
+        Transaction transaction = new Transaction();
+        transaction.setId(rs.getInt(1));
+        transaction.setDescription(rs.getString(2));
+        transaction.setAmount(rs.getDouble(3));
+        transaction.setType(rs.getString(4));
+        transaction.setCategory(rs.getString(5));
+        transaction.setDate(rs.getTimestamp(6));
+        transaction.setNote(rs.getString(7));
+        transaction.setCreatedAt(rs.getTimestamp(8));
+        transaction.setUpdatedAt(rs.getTimestamp(9));
+        transaction.setAccount(rs.getString(10));
+        return transaction;
+    }
+}
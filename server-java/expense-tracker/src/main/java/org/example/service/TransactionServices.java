@@ -0,0 +1,119 @@
+package org.example.service;
+
+import org.example.db.ConnexionDB;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The TransactionService every caller shares, chosen once from storage.backend: "mysql" (the
+// default) runs statements through ConnexionDB, "embedded" keeps the rows in this process in an
+// EmbeddedTransactionService stored at storage.embedded.path. With storage.shards set to a list
+// of names there is one store of that backend per name under a ShardedTransactionService: MySQL
+// shards connect to db.url.<name>, embedded ones live next to storage.embedded.path as <name>.db.
+public final class TransactionServices {
+
+    public static final String MYSQL = "mysql";
+    public static final String EMBEDDED = "embedded";
+
+    private static final String BACKEND = System.getProperty("storage.backend", MYSQL);
+    private static final String SHARDS = System.getProperty("storage.shards", "").trim();
+
+    private static volatile TransactionService instance;
+
+    private TransactionServices() {
+    }
+
+    // Opens the backend on first use; an embedded store that cannot be opened throws
+    public static TransactionService get() {
+        if (instance == null) {
+            synchronized (TransactionServices.class) {
+                if (instance == null) {
+                    instance = create();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static TransactionService create() {
+        if (SHARDS.isEmpty()) {
+            return open(null);
+        }
+        Map<String, TransactionService> shards = new LinkedHashMap<>();
+        for (String name : SHARDS.split(",")) {
+            if (!name.trim().isEmpty()) {
+                shards.put(name.trim(), open(name.trim()));
+            }
+        }
+        return new ShardedTransactionService(shards, Integer.getInteger("storage.shards.points", 128));
+    }
+
+    // The store of one shard, or the only store when shard is null
+    public static TransactionService open(String shard) {
+        switch (BACKEND) {
+            case MYSQL:
+                if (shard == null) {
+                    return new TransactionServiceImpl();
+                }
+                String url = System.getProperty("db.url." + shard);
+                if (url == null) {
+                    throw new IllegalArgumentException("db.url." + shard + " is not set for shard '" + shard + "'");
+                }
+                return new TransactionServiceImpl(ConnexionDB.newPool(url));
+            case EMBEDDED:
+                Path path = Paths.get(System.getProperty("storage.embedded.path", "data/transactions.db"));
+                try {
+                    return new EmbeddedTransactionService(
+                            shard == null ? path : path.resolveSibling(shard + ".db"),
+                            Long.getLong("storage.embedded.syncIntervalMs", 1000L),
+                            Long.getLong("storage.embedded.compactMinBytes", 64L * 1024 * 1024));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Embedded store could not be opened: " + e.getMessage(), e);
+                }
+            default:
+                throw new IllegalArgumentException("Unknown storage.backend '" + BACKEND + "', expected "
+                        + MYSQL + " or " + EMBEDDED);
+        }
+    }
+
+    public static String getBackend() {
+        return BACKEND;
+    }
+
+    public static boolean usesMySql() {
+        return MYSQL.equals(BACKEND);
+    }
+
+    public static boolean isSharded() {
+        return !SHARDS.isEmpty();
+    }
+
+    // The stores holding the rows: each shard, or the one backend
+    public static List<TransactionService> stores() {
+        TransactionService service = get();
+        if (service instanceof ShardedTransactionService) {
+            return new ArrayList<>(((ShardedTransactionService) service).getShards().values());
+        }
+        return Collections.singletonList(service);
+    }
+
+    // Flushes and closes the embedded store or shards; MySQL connections are left to the pool
+    public static void close() {
+        TransactionService service = instance;
+        if (service instanceof Closeable) {
+            try {
+                ((Closeable) service).close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.service;
+
+import org.example.model.Transaction;
+
+public class TransactionValidator {
+
+    // The columns of database/schema.sql, so that a row accepted here is one MySQL will store
+    static final int DESCRIPTION_LENGTH = 100;
+    static final int CATEGORY_LENGTH = 50;
+    static final int NOTE_LENGTH = 250;
+    // DECIMAL(10, 2)
+    static final double MAX_AMOUNT = 99999999.99;
+
+    private TransactionValidator() {
+    }
+
+    // Returns the first rule the transaction breaks, or null when it is valid
+    public static String validate(Transaction transaction) {
+        if (transaction.getDescription() == null || transaction.getDescription().trim().isEmpty()) {
+            return "Transaction description is required";
+        }
+        if (tooLong(transaction.getDescription(), DESCRIPTION_LENGTH)) {
+            return "Description must be at most " + DESCRIPTION_LENGTH + " characters";
+        }
+        if (transaction.getAmount() < 0) {
+            return "Amount must be positive";
+        }
+        // What the column rounds to cents must fit; written so that NaN fails too
+        if (!(transaction.getAmount() < MAX_AMOUNT + 0.005)) {
+            return "Amount must be at most 99999999.99";
+        }
+        if (transaction.getType() == null || (!transaction.getType().equals("income") && !transaction.getType().equals("expense"))) {
+            return "Type must be 'income' or 'expense'";
+        }
+        if (transaction.getCategory() == null || transaction.getCategory().trim().isEmpty()) {
+            return "Category is required";
+        }
+        if (tooLong(transaction.getCategory(), CATEGORY_LENGTH)) {
+            return "Category must be at most " + CATEGORY_LENGTH + " characters";
+        }
+        if (tooLong(transaction.getNote(), NOTE_LENGTH)) {
+            return "Note must be at most " + NOTE_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    // MySQL counts characters, so a pair of surrogates is one
+    private static boolean tooLong(String value, int length) {
+        return value != null && value.length() > length && value.codePointCount(0, value.length()) > length;
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Change version of the transactions table as written through this process. Each committed
+// change takes the next version as its change-log sequence number, and reads use the latest
+// as their ETag, so a client holding the current tag can be answered 304 without a query.
+// Writes made directly in MySQL are not seen, as with the cache.
+public class TransactionVersion {
+
+    private static final TransactionVersion INSTANCE = new TransactionVersion();
+
+    // The counter restarts with the process; the start time keeps old tags from matching
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastModified = System.currentTimeMillis();
+
+    public static TransactionVersion get() {
+        return INSTANCE;
+    }
+
+    // Called by TransactionChangeLog under its lock, so versions follow the order of the log
+    long next() {
+        lastModified = System.currentTimeMillis();
+        return version.incrementAndGet();
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    public String tag(long version) {
+        return epoch + "-" + version;
+    }
+
+    // Version named by a tag from this process, or -1 for a malformed tag or one from an earlier run
+    public long parse(String tag) {
+        if (tag == null || !tag.startsWith(epoch + "-")) {
+            return -1;
+        }
+        try {
+            long parsed = Long.parseLong(tag.substring(epoch.length() + 1));
+            return parsed >= 0 && parsed <= current() ? parsed : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Read after current(), so it is never older than the write that produced that version
+    public long getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.analytics;
+
+import org.example.model.RollingSeries;
+import org.example.model.TopEntry;
+import org.example.model.Transaction;
+import org.example.model.TransactionFilter;
+import org.example.model.TrendPoint;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionColumnsTest {
+
+    private static final String[] CATEGORIES = {"Groceries", "Dining", "Transport", "Rent"};
+    private static final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @AfterClass
+    public static void stopPool() {
+        pool.shutdown();
+    }
+
+    // Enough updates and deletes to compact several times; every total must still match the
+    // rows, and ids must still find their rows after compaction has moved them
+    @Test
+    public void compactionKeepsTotalsAndRowsOfEveryId() {
+        TransactionColumns columns = new TransactionColumns(pool, 1000);
+        Map<Integer, Transaction> rows = new HashMap<>();
+        for (int id = 1; id <= 5000; id++) {
+            upsert(columns, rows, row(id, "Shop " + id % 50, 1 + id % 7, CATEGORIES[id % 4], 1 + id % 28));
+        }
+        for (int id = 1; id <= 5000; id += 2) {
+            upsert(columns, rows, row(id, "Moved " + id % 10, 2.25, CATEGORIES[(id + 1) % 4], 1 + id % 28));
+        }
+        for (int id = 2; id <= 5000; id += 4) {
+            columns.delete(id);
+            rows.remove(id);
+        }
+        assertEquals(rows.size(), columns.getRowCount());
+        checkCategories(columns, rows);
+
+        // Rows moved by compaction are still the ones their ids update and delete
+        upsert(columns, rows, row(4999, "Moved 9", 100, "Rent", 3));
+        columns.delete(3);
+        rows.remove(3);
+        columns.delete(3);
+        assertEquals(rows.size(), columns.getRowCount());
+        checkCategories(columns, rows);
+    }
+
+    @Test
+    public void sparseIdsAndUnknownNames() {
+        TransactionColumns columns = new TransactionColumns(pool, 1000);
+        columns.upsert(row(Integer.MAX_VALUE, "Big id", 5, "Rent", 1));
+        columns.upsert(row(1 << 27, "Big id", 7, "Rent", 2));
+        columns.upsert(row(Integer.MAX_VALUE, "Big id", 6, "Rent", 1));
+        assertEquals(2, columns.getRowCount());
+        List<TopEntry> top = columns.top(new TransactionFilter(), false, 10);
+        assertEquals(1, top.size());
+        assertEquals(13, top.get(0).getTotal(), 0.005);
+        TransactionFilter unknown = new TransactionFilter();
+        unknown.setCategory("Nothing");
+        assertTrue("a category no row has matches nothing", columns.top(unknown, false, 10).isEmpty());
+        columns.delete(1 << 27);
+        assertEquals(1, columns.getRowCount());
+    }
+
+    @Test
+    public void merchantsPastTheCapShareOneCode() {
+        TransactionColumns columns = new TransactionColumns(pool, 3);
+        columns.upsert(row(1, "A", 1, "Dining", 1));
+        columns.upsert(row(2, "B", 2, "Dining", 1));
+        columns.upsert(row(3, "C", 4, "Dining", 1));
+        columns.upsert(row(4, "D", 8, "Dining", 1));
+        List<TopEntry> top = columns.top(new TransactionFilter(), true, 10);
+        assertEquals("(other)", top.get(0).getKey());
+        assertEquals(12, top.get(0).getTotal(), 0.005);
+        assertEquals(2, top.get(0).getCount());
+    }
+
+    @Test
+    public void trendBucketsAndRollingWindows() {
+        TransactionColumns columns = new TransactionColumns(pool, 1000);
+        columns.upsert(row(1, "Salary", 1000, "Salary", 1, "income"));
+        columns.upsert(row(2, "Market", 40, "Groceries", 1));
+        columns.upsert(row(3, "Market", 60, "Groceries", 3));
+        columns.upsert(row(4, "Market", 150, "Groceries", 33));
+        TransactionFilter everything = new TransactionFilter();
+        List<TrendPoint> months = columns.trend(everything, "month");
+        assertEquals(2, months.size());
+        assertEquals("2024-01", months.get(0).getPeriod());
+        assertEquals(1000, months.get(0).getIncome(), 0.005);
+        assertEquals(100, months.get(0).getExpense(), 0.005);
+        assertEquals(3, months.get(0).getCount());
+        assertNull(months.get(0).getExpenseChange());
+        assertEquals(0.5, months.get(1).getExpenseChange(), 0.0001);
+
+        TransactionFilter expenses = new TransactionFilter();
+        expenses.setType("expense");
+        expenses.setFrom(date(1));
+        expenses.setTo(date(5));
+        List<RollingSeries> rolling = columns.rolling(expenses, 2);
+        assertEquals(1, rolling.size());
+        assertEquals("Groceries", rolling.get(0).getCategory());
+        assertArrayEquals(new double[]{40, 40, 60, 60, 0}, rolling.get(0).getTotals(), 0.005);
+    }
+
+    private static void checkCategories(TransactionColumns columns, Map<Integer, Transaction> rows) {
+        Map<String, double[]> expected = new HashMap<>();
+        for (Transaction row : rows.values()) {
+            double[] totals = expected.computeIfAbsent(row.getCategory(), k -> new double[2]);
+            totals[0] += row.getAmount();
+            totals[1]++;
+        }
+        List<TopEntry> top = columns.top(new TransactionFilter(), false, 10);
+        assertEquals(expected.size(), top.size());
+        for (TopEntry entry : top) {
+            assertEquals(entry.getKey(), expected.get(entry.getKey())[0], entry.getTotal(), 0.005);
+            assertEquals(entry.getKey(), (long) expected.get(entry.getKey())[1], entry.getCount());
+        }
+    }
+
+    private static void upsert(TransactionColumns columns, Map<Integer, Transaction> rows, Transaction row) {
+        columns.upsert(row);
+        rows.put(row.getId(), row);
+    }
+
+    private static Transaction row(int id, String description, double amount, String category, int day) {
+        return row(id, description, amount, category, day, "expense");
+    }
+
+    private static Transaction row(int id, String description, double amount, String category, int day, String type) {
+        Transaction row = new Transaction(description, amount, type, category, date(day), null);
+        row.setId(id);
+        return row;
+    }
+
+    // Day n of 2024, at noon where the server is, which is the zone the columns count days in
+    private static Date date(int day) {
+        return Date.from(LocalDate.of(2024, 1, 1).plusDays(day - 1).atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
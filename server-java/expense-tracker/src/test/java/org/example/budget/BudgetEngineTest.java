@@ -0,0 +1,162 @@
+package org.example.budget;
+
+import org.example.model.Budget;
+import org.example.model.BudgetAlert;
+import org.example.model.Transaction;
+import org.example.service.TransactionAggregates;
+import org.example.service.TransactionServices;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Writes through an embedded store, with each test on an account of its own, so the alerts a
+// test reads are the ones its writes fired
+public class BudgetEngineTest {
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static BudgetEngine engine;
+
+    @BeforeClass
+    public static void seed() throws Exception {
+        System.setProperty("storage.backend", TransactionServices.EMBEDDED);
+        System.setProperty("storage.embedded.path", folder.newFolder().toPath().resolve("transactions.db").toString());
+        System.setProperty("budgets.path", folder.getRoot().toPath().resolve("budgets.json").toString());
+        TransactionAggregates.get();
+        engine = BudgetEngine.get();
+    }
+
+    @AfterClass
+    public static void close() {
+        TransactionServices.close();
+    }
+
+    @Test
+    public void eachThresholdFiresOnceWhenCrossed() throws Exception {
+        String account = "crossing";
+        Budget groceries = engine.createBudget(budget(account, "Groceries", "month", 100, 50, 100));
+        LocalDate today = LocalDate.now();
+        Transaction first = create(account, 40, "Groceries", today);
+        assertTrue("below every threshold", alerts(account).isEmpty());
+        Transaction second = create(account, 20, "Groceries", today);
+        List<BudgetAlert> alerts = alerts(account);
+        assertEquals(1, alerts.size());
+        assertEquals(50, alerts.get(0).getThreshold());
+        assertEquals(60, alerts.get(0).getSpent(), 0.005);
+        assertEquals(groceries.getId(), alerts.get(0).getBudgetId());
+        assertEquals(today.withDayOfMonth(1).toString(), alerts.get(0).getPeriodStart());
+
+        // An update counts by its net amount, so only the threshold it passes fires
+        assertTrue(TransactionServices.get().updateTransaction(account, second.getId(), row(account, 70, "Groceries", today)));
+        alerts = alerts(account);
+        assertEquals(2, alerts.size());
+        assertEquals(100, alerts.get(1).getThreshold());
+        assertEquals(110, alerts.get(1).getSpent(), 0.005);
+        assertEquals(110, engine.getBudget(account, groceries.getId()).getSpent(), 0.005);
+
+        // Falling back under a threshold fires nothing
+        assertTrue(TransactionServices.get().deleteTransaction(account, first.getId()));
+        assertEquals(2, alerts(account).size());
+        assertEquals(70, engine.getBudget(account, groceries.getId()).getSpent(), 0.005);
+        assertNull("another account reads no budget", engine.getBudget("someone-else", groceries.getId()));
+    }
+
+    // Moving a row to another category takes it out of one sum and into the other
+    @Test
+    public void anUpdateMovesARowBetweenCategories() throws Exception {
+        String account = "categories";
+        Budget dining = engine.createBudget(budget(account, "Dining", "month", 50, 100));
+        Budget everything = engine.createBudget(budget(account, null, "month", 1000, 10));
+        LocalDate today = LocalDate.now();
+        Transaction meal = create(account, 60, "Groceries", today);
+        assertTrue(alerts(account).isEmpty());
+        assertTrue(TransactionServices.get().updateTransaction(account, meal.getId(), row(account, 60, "Dining", today)));
+        List<BudgetAlert> alerts = alerts(account);
+        assertEquals("the move fills the new category, not the whole month again", 1, alerts.size());
+        assertEquals(dining.getId(), alerts.get(0).getBudgetId());
+        assertEquals(60, engine.getBudget(account, everything.getId()).getSpent(), 0.005);
+
+        create(account, 45, "Transport", today);
+        alerts = alerts(account);
+        assertEquals(2, alerts.size());
+        assertEquals("a budget without a category counts every one", everything.getId(), alerts.get(1).getBudgetId());
+        assertEquals(105, alerts.get(1).getSpent(), 0.005);
+    }
+
+    // Moving a row to another week takes it out of that week's sum and into the other's
+    @Test
+    public void anUpdateMovesARowBetweenWeeks() throws Exception {
+        String account = "weeks";
+        Budget weekly = engine.createBudget(budget(account, null, "week", 30, 100));
+        LocalDate today = LocalDate.now();
+        LocalDate nextWeek = today.with(DayOfWeek.MONDAY).plusWeeks(1);
+        Transaction moved = create(account, 25, "Other", today);
+        create(account, 20, "Other", nextWeek);
+        assertTrue(alerts(account).isEmpty());
+        assertTrue(TransactionServices.get().updateTransaction(account, moved.getId(), row(account, 25, "Other", nextWeek)));
+        List<BudgetAlert> alerts = alerts(account);
+        assertEquals(1, alerts.size());
+        assertEquals(nextWeek.toString(), alerts.get(0).getPeriodStart());
+        assertEquals(45, alerts.get(0).getSpent(), 0.005);
+        assertEquals("this week's sum gave the row up", 0, engine.getBudget(account, weekly.getId()).getSpent(), 0.005);
+
+        // Back into this week: 25 is still under the limit there
+        assertTrue(TransactionServices.get().updateTransaction(account, moved.getId(), row(account, 25, "Other", today)));
+        assertEquals(1, alerts(account).size());
+        assertEquals(25, engine.getBudget(account, weekly.getId()).getSpent(), 0.005);
+    }
+
+    @Test
+    public void invalidBudgetsAreRefused() {
+        assertNull(BudgetEngine.validate(budget("a", "Dining", "month", 10, 50, 100)));
+        assertNotNull(BudgetEngine.validate(budget("a", "Dining", "day", 10, 50)));
+        assertNotNull(BudgetEngine.validate(budget("a", "Dining", "month", 0, 50)));
+        assertNotNull(BudgetEngine.validate(budget("a", " ", "month", 10, 50)));
+        assertNotNull(BudgetEngine.validate(budget("a", "Dining", "month", 10, 50, 50)));
+        assertNotNull(BudgetEngine.validate(budget("a", "Dining", "month", 10, 0)));
+        assertNotNull(BudgetEngine.validate(budget("a", "Dining", "month", 10)));
+    }
+
+    private static List<BudgetAlert> alerts(String account) {
+        return engine.alerts(account, 0, 100);
+    }
+
+    private static Transaction create(String account, double amount, String category, LocalDate day) {
+        Transaction created = TransactionServices.get().createTransaction(row(account, amount, category, day));
+        assertNotNull(created);
+        return created;
+    }
+
+    private static Transaction row(String account, double amount, String category, LocalDate day) {
+        Transaction row = new Transaction("Spent", amount, "expense", category,
+                Date.from(day.atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant()), null);
+        row.setAccount(account);
+        return row;
+    }
+
+    private static Budget budget(String account, String category, String period, double limit, Integer... thresholds) {
+        Budget budget = new Budget();
+        budget.setAccount(account);
+        budget.setCategory(category);
+        budget.setPeriod(period);
+        budget.setLimit(limit);
+        budget.setThresholds(new ArrayList<>(Arrays.asList(thresholds)));
+        return budget;
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.cluster;
+
+import org.example.model.Transaction;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// The account header is optional and, when sent, a short name of plain characters
+public class AccountsTest {
+
+    @Test
+    public void withoutTheHeaderTheDefaultAccountIsUsed() {
+        assertEquals(Transaction.DEFAULT_ACCOUNT, Accounts.of(null));
+        assertEquals("acme-01", Accounts.of("acme-01"));
+        assertTrue(Accounts.isValid(null));
+    }
+
+    @Test
+    public void accountNamesAreShortAndPlain() {
+        assertTrue(Accounts.isValid("Acme_Corp.eu-1"));
+        assertTrue(Accounts.isValid(new String(new char[64]).replace('\0', 'a')));
+        assertFalse(Accounts.isValid(new String(new char[65]).replace('\0', 'a')));
+        assertFalse(Accounts.isValid(""));
+        assertFalse(Accounts.isValid("no spaces"));
+        assertFalse(Accounts.isValid("a/b"));
+        assertFalse(Accounts.isValid("caf\u00e9"));
+    }
+}
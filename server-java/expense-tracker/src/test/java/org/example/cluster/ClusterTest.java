@@ -0,0 +1,224 @@
+package org.example.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.Main;
+import org.example.model.Transaction;
+import org.example.service.ShardedTransactionService;
+import org.example.service.TransactionService;
+import org.example.service.TransactionServices;
+import org.jboss.resteasy.plugins.server.undertow.UndertowJaxrsServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Two nodes in this process over two embedded shards. Each request must be served by its
+// account's node whichever node it was sent to, and every row must still be readable from its
+// new shard once a third shard has taken over its accounts, including an account larger than
+// one move chunk.
+public class ClusterTest {
+
+    private static final String[] NODES = {"n1", "n2"};
+    private static final int ACCOUNTS = 8;
+    private static final int ROWS_PER_ACCOUNT = 5;
+    private static final int LARGE_ACCOUNT_ROWS = 2500;
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Map<String, String> urls = new HashMap<>();
+    private static final Map<String, List<Integer>> ids = new HashMap<>();
+    private static final List<UndertowJaxrsServer> servers = new ArrayList<>();
+    private static HashRing nodes;
+    private static boolean createsServedByOwner = true;
+    private static String largeAccount;
+
+    @BeforeClass
+    public static void startNodes() throws Exception {
+        System.setProperty("storage.backend", TransactionServices.EMBEDDED);
+        System.setProperty("storage.embedded.path", folder.newFolder().toPath().resolve("transactions.db").toString());
+        System.setProperty("storage.shards", "s1,s2");
+        StringBuilder members = new StringBuilder();
+        int[] ports = new int[NODES.length];
+        for (int i = 0; i < NODES.length; i++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports[i] = socket.getLocalPort();
+            }
+            urls.put(NODES[i], "http://localhost:" + ports[i]);
+            members.append(i == 0 ? "" : ",").append(NODES[i]).append('=').append(urls.get(NODES[i]));
+        }
+        System.setProperty("cluster.nodes", members.toString());
+        nodes = new HashRing(Arrays.asList(NODES), 128);
+        for (int i = 0; i < NODES.length; i++) {
+            servers.add(Main.startServer(ports[i], NODES[i]));
+        }
+
+        // Every create is sent to n1
+        for (int a = 0; a < ACCOUNTS; a++) {
+            String account = "account-" + a;
+            ids.put(account, new ArrayList<>());
+            for (int r = 0; r < ROWS_PER_ACCOUNT; r++) {
+                Reply created = call("n1", "POST", "/api/transactions", account,
+                        "{\"description\":\"Row " + r + "\",\"amount\":" + (r + 1) + ",\"type\":\"expense\","
+                                + "\"category\":\"Other\",\"date\":\"2024-05-0" + (r + 1) + "T10:00:00Z\"}");
+                assertEquals(created.body, 201, created.status);
+                createsServedByOwner &= nodes.owner(account).equals(created.servedBy);
+                ids.get(account).add(mapper.readTree(created.body).get("id").asInt());
+            }
+        }
+
+        // An account the third shard will take over, with more rows than one move chunk
+        HashRing withThird = new HashRing(Arrays.asList("s1", "s2", "s3"), 128);
+        for (int a = 0; largeAccount == null; a++) {
+            if ("s3".equals(withThird.owner("large-" + a))) {
+                largeAccount = "large-" + a;
+            }
+        }
+        List<Transaction> rows = new ArrayList<>();
+        for (int r = 0; r < LARGE_ACCOUNT_ROWS; r++) {
+            Transaction row = new Transaction("Large " + r, 1, "expense", "Other", new Date(1700000000000L + r * 1000L), null);
+            row.setAccount(largeAccount);
+            rows.add(row);
+        }
+        assertEquals(LARGE_ACCOUNT_ROWS, TransactionServices.get().createTransactions(rows).getCount());
+    }
+
+    @AfterClass
+    public static void stopNodes() {
+        for (UndertowJaxrsServer server : servers) {
+            server.stop();
+        }
+        TransactionServices.close();
+    }
+
+    @Test
+    public void requestsAreServedByTheAccountsNode() throws IOException {
+        assertTrue("creates sent to n1 are served by the account's node", createsServedByOwner);
+        for (String account : ids.keySet()) {
+            Reply list = call("n2", "GET", "/api/transactions?limit=100", account, null);
+            assertEquals(200, list.status);
+            assertEquals("served by " + account + "'s node", nodes.owner(account), list.servedBy);
+        }
+    }
+
+    @Test
+    public void accountsOnlySeeTheirOwnRows() throws IOException {
+        checkAccounts();
+        Reply other = call("n2", "GET", "/api/transactions/" + ids.get("account-0").get(0), "account-1", null);
+        assertEquals("another account's row is not found", 404, other.status);
+        Reply deleteOther = call("n1", "DELETE", "/api/transactions/" + ids.get("account-0").get(0), "account-1", null);
+        assertEquals("another account's row cannot be deleted", 404, deleteOther.status);
+        Reply invalid = call("n1", "GET", "/api/transactions", "no spaces", null);
+        assertEquals("an invalid account header is refused", 400, invalid.status);
+    }
+
+    @Test
+    public void forwardedRequestForAnotherNodeIsMisdirected() throws IOException {
+        String account = "account-0";
+        String stranger = nodes.owner(account).equals("n1") ? "n2" : "n1";
+        Reply misdirected = call(stranger, "GET", "/api/transactions", account, null, ClusterRouter.FORWARDED, "n9");
+        assertEquals("a forwarded request is not forwarded again", 421, misdirected.status);
+        Reply metrics = call(stranger, "GET", "/metrics", account, null);
+        assertEquals(200, metrics.status);
+        assertEquals("metrics are answered by the node asked", stranger, metrics.servedBy);
+    }
+
+    @Test
+    public void addedShardTakesOverItsAccounts() throws IOException {
+        ShardedTransactionService store = (ShardedTransactionService) TransactionServices.get();
+        int moved = store.addShard("s3", TransactionServices.open("s3"));
+        assertTrue("the large account moves in several chunks", moved >= LARGE_ACCOUNT_ROWS);
+        for (Map.Entry<String, TransactionService> shard : store.getShards().entrySet()) {
+            for (String held : shard.getValue().getAccounts()) {
+                assertEquals(held + " is on the shard that owns it", store.shardOf(held), shard.getKey());
+            }
+        }
+        checkAccounts();
+        Reply summary = call("n1", "GET", "/api/transactions/summary", largeAccount, null);
+        assertEquals(200, summary.status);
+        assertEquals("every row of the large account moved", LARGE_ACCOUNT_ROWS, mapper.readTree(summary.body).get("count").asInt());
+    }
+
+    // Each account reads back exactly its own rows and totals, asked of every node
+    private static void checkAccounts() throws IOException {
+        for (Map.Entry<String, List<Integer>> entry : ids.entrySet()) {
+            for (String node : NODES) {
+                Reply list = call(node, "GET", "/api/transactions?limit=100", entry.getKey(), null);
+                assertEquals(200, list.status);
+                List<Integer> listed = new ArrayList<>();
+                for (JsonNode row : mapper.readTree(list.body)) {
+                    listed.add(row.get("id").asInt());
+                }
+                assertEquals(entry.getKey() + " lists exactly its rows from " + node, entry.getValue().size(), listed.size());
+                assertTrue(entry.getKey() + " lists exactly its rows from " + node, listed.containsAll(entry.getValue()));
+                Reply summary = call(node, "GET", "/api/transactions/summary", entry.getKey(), null);
+                assertEquals(200, summary.status);
+                JsonNode totals = mapper.readTree(summary.body);
+                assertEquals(ROWS_PER_ACCOUNT, totals.get("count").asInt());
+                assertEquals(15, totals.get("expense").asDouble(), 0.005);
+            }
+            Reply row = call("n2", "GET", "/api/transactions/" + entry.getValue().get(0), entry.getKey(), null);
+            assertEquals(entry.getKey() + "'s rows are found by id", 200, row.status);
+        }
+    }
+
+    private static Reply call(String node, String method, String path, String account, String body, String... headers)
+            throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(urls.get(node) + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty(Accounts.HEADER, account);
+        for (int i = 0; i < headers.length; i += 2) {
+            connection.setRequestProperty(headers[i], headers[i + 1]);
+        }
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        Reply reply = new Reply();
+        reply.status = connection.getResponseCode();
+        reply.servedBy = connection.getHeaderField(ClusterRouter.SERVED_BY);
+        InputStream in = reply.status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = stream.read(buffer)) > 0) {
+                    bytes.write(buffer, 0, n);
+                }
+            }
+        }
+        reply.body = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        return reply;
+    }
+
+    private static class Reply {
+        int status;
+        String servedBy;
+        String body;
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.cluster;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Owners depend only on the member names, keys spread evenly, and a membership change only
+// moves the keys the added or removed member takes or gives up
+public class HashRingTest {
+
+    private static final int KEYS = 30000;
+    private static final int POINTS = 128;
+
+    @Test
+    public void everyRingOfTheSameMembersAgrees() {
+        HashRing ring = new HashRing(Arrays.asList("n1", "n2", "n3"), POINTS);
+        HashRing reordered = new HashRing(Arrays.asList("n3", "n1", "n2"), POINTS);
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(ring.owner("account-" + i), reordered.owner("account-" + i));
+        }
+        assertEquals("the same key always has the same owner", ring.owner("account-1"), ring.owner("account-1"));
+    }
+
+    @Test
+    public void keysSpreadEvenly() {
+        List<String> members = Arrays.asList("n1", "n2", "n3", "n4");
+        HashRing ring = new HashRing(members, POINTS);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.owner("account-" + i), 1, Integer::sum);
+        }
+        for (String member : members) {
+            int share = counts.getOrDefault(member, 0);
+            assertTrue(member + " owns " + share + " of " + KEYS, share > KEYS / 4 * 0.75 && share < KEYS / 4 * 1.25);
+        }
+    }
+
+    @Test
+    public void anAddedMemberOnlyTakesKeys() {
+        HashRing before = new HashRing(Arrays.asList("n1", "n2", "n3"), POINTS);
+        HashRing after = new HashRing(Arrays.asList("n1", "n2", "n3", "n4"), POINTS);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "account-" + i;
+            if (!before.owner(key).equals(after.owner(key))) {
+                assertEquals("a key only moves to the new member", "n4", after.owner(key));
+                moved++;
+            }
+        }
+        assertTrue("about a quarter of the keys move, " + moved + " did", moved > KEYS * 0.15 && moved < KEYS * 0.35);
+    }
+
+    @Test
+    public void aRemovedMembersKeysAreTheOnlyOnesThatMove() {
+        HashRing before = new HashRing(Arrays.asList("n1", "n2", "n3"), POINTS);
+        HashRing after = new HashRing(Arrays.asList("n1", "n3"), POINTS);
+        for (int i = 0; i < KEYS; i++) {
+            String key = "account-" + i;
+            if (!"n2".equals(before.owner(key))) {
+                assertEquals(before.owner(key), after.owner(key));
+            }
+        }
+    }
+
+    @Test
+    public void oneMemberOwnsEverything() {
+        HashRing ring = new HashRing(Collections.singletonList("only"), 1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("only", ring.owner("account-" + i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aRingNeedsAMember() {
+        new HashRing(Collections.<String>emptyList(), POINTS);
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.controller;
+
+import org.example.service.TransactionChangeLog;
+import org.jboss.resteasy.plugins.providers.sse.SseImpl;
+import org.junit.Test;
+
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// One push thread and a client that never accepts its event: the client must be dropped after
+// the send timeout, and the subscriber queued behind it still served.
+public class ChangeFeedTest {
+
+    @Test
+    public void stalledSubscriberIsDroppedAndOthersStillServed() throws Exception {
+        ChangeFeed feed = new ChangeFeed(1, 0, 200);
+        try {
+            Sink stalled = new Sink(new CompletableFuture<>());
+            Sink healthy = new Sink(CompletableFuture.completedFuture(null));
+            long head = TransactionChangeLog.get().head();
+            feed.subscribe(stalled, new SseImpl(), head, "default");
+            feed.subscribe(healthy, new SseImpl(), head, "default");
+
+            assertTrue("the subscriber behind the stalled one gets its event", healthy.sent.await(5, TimeUnit.SECONDS));
+            assertTrue("the stalled subscriber is closed", stalled.closed);
+            assertEquals("and no longer subscribed", 1, feed.getSubscriberCount());
+        } finally {
+            feed.shutdown();
+        }
+    }
+
+    private static class Sink implements SseEventSink {
+        final CompletableFuture<Void> result;
+        final CountDownLatch sent = new CountDownLatch(1);
+        volatile boolean closed;
+
+        Sink(CompletableFuture<Void> result) {
+            this.result = result;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public CompletionStage<?> send(OutboundSseEvent event) {
+            sent.countDown();
+            return result;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.cluster.Accounts;
+import org.example.model.Transaction;
+import org.example.service.TransactionServices;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Reads carry the change version as a weak ETag and are answered 304 while it still matches;
+// bodies over the compression threshold are gzipped for clients that accept it
+public class ConditionalReadTest {
+
+    private static final int ROWS = 60;
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        TestServer.start(folder);
+        List<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Transaction("Row " + i, i + 1, "expense", "Other", new Date(1704067200000L + i * 1000L), null));
+        }
+        assertEquals(ROWS, TransactionServices.get().createTransactions(rows).getCount());
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        TestServer.stop();
+    }
+
+    @Test
+    public void aMatchingETagIsAnswered304() throws IOException {
+        TestServer.Reply first = TestServer.call("GET", "/api/transactions/summary", null, null);
+        assertEquals(200, first.status);
+        String tag = first.header("ETag");
+        assertNotNull(tag);
+        assertTrue("the tag is weak", tag.startsWith("W/"));
+        assertEquals("no-cache", first.header("Cache-Control"));
+        assertEquals(Accounts.HEADER, first.header("Vary"));
+
+        TestServer.Reply again = TestServer.call("GET", "/api/transactions/summary", null, null, "If-None-Match", tag);
+        assertEquals(304, again.status);
+        assertEquals(0, again.bytes.length);
+        assertEquals(tag, again.header("ETag"));
+        assertEquals(Accounts.HEADER, again.header("Vary"));
+
+        TestServer.Reply other = TestServer.call("GET", "/api/transactions?limit=5", null, null, "If-None-Match", tag);
+        assertEquals("the tag is the store's version, so it matches every read", 304, other.status);
+        assertEquals(200, TestServer.call("GET", "/api/transactions/summary", null, null, "If-None-Match", "W/\"stale\"").status);
+    }
+
+    @Test
+    public void aWriteChangesTheETag() throws IOException {
+        String tag = TestServer.call("GET", "/api/transactions/summary", "writer", null).header("ETag");
+        TestServer.Reply created = TestServer.call("POST", "/api/transactions", "writer",
+                "{\"description\":\"New\",\"amount\":1,\"type\":\"expense\",\"category\":\"Other\",\"date\":\"2024-05-01T10:00:00Z\"}");
+        assertEquals(201, created.status);
+
+        TestServer.Reply after = TestServer.call("GET", "/api/transactions/summary", "writer", null, "If-None-Match", tag);
+        assertEquals(200, after.status);
+        assertNotEquals(tag, after.header("ETag"));
+        assertEquals(1, mapper.readTree(after.bytes).get("count").asInt());
+    }
+
+    @Test
+    public void lastModifiedIsOfferedOnceItsSecondHasPassed() throws IOException, InterruptedException {
+        Thread.sleep(1100);
+        TestServer.Reply read = TestServer.call("GET", "/api/transactions/summary", null, null);
+        String lastModified = read.header("Last-Modified");
+        assertNotNull(lastModified);
+
+        TestServer.Reply since = TestServer.call("GET", "/api/transactions/summary", null, null, "If-Modified-Since", lastModified);
+        assertEquals(304, since.status);
+        // An ETag that no longer matches wins over the date
+        TestServer.Reply both = TestServer.call("GET", "/api/transactions/summary", null, null,
+                "If-None-Match", "W/\"stale\"", "If-Modified-Since", lastModified);
+        assertEquals(200, both.status);
+    }
+
+    @Test
+    public void largeBodiesAreCompressedForClientsThatAcceptIt() throws IOException {
+        TestServer.Reply plain = TestServer.call("GET", "/api/transactions?limit=" + ROWS, null, null);
+        assertEquals(200, plain.status);
+        assertNull(plain.header("Content-Encoding"));
+        assertTrue("over the 1 KB threshold", plain.bytes.length > 1024);
+
+        TestServer.Reply gzipped = TestServer.call("GET", "/api/transactions?limit=" + ROWS, null, null, "Accept-Encoding", "gzip");
+        assertEquals(200, gzipped.status);
+        assertEquals("gzip", gzipped.header("Content-Encoding"));
+        assertTrue("smaller on the wire", gzipped.bytes.length < plain.bytes.length);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.bytes))) {
+            assertEquals(ROWS, mapper.readTree(in).size());
+        }
+    }
+
+    @Test
+    public void smallBodiesAreSentAsTheyAre() throws IOException {
+        TestServer.Reply small = TestServer.call("GET", "/api/transactions/summary", "nobody", null, "Accept-Encoding", "gzip");
+        assertEquals(200, small.status);
+        assertNull(small.header("Content-Encoding"));
+        assertEquals(0, mapper.readTree(small.bytes).get("count").asInt());
+    }
+}
@@ -0,0 +1,221 @@
+package org.example.controller;
+
+import org.junit.Test;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Database work runs on the executor's own threads; once they and the queue are full a request
+// is answered 503 at once, and work for a request that timed out while queued is skipped
+public class DbExecutorTest {
+
+    @Test
+    public void workRunsOnTheExecutorsThreads() throws InterruptedException {
+        DbExecutor executor = new DbExecutor(2, 10, 0);
+        AtomicReference<String> thread = new AtomicReference<>();
+        Async async = new Async();
+        executor.submit(async, () -> {
+            thread.set(Thread.currentThread().getName());
+            return Response.ok().build();
+        });
+        assertEquals(200, async.await().getStatus());
+        assertTrue(thread.get(), thread.get().startsWith("db-"));
+        assertEquals(2, executor.getThreadCount());
+        executor.shutdown();
+    }
+
+    @Test
+    public void withoutThreadsWorkRunsInline() {
+        DbExecutor executor = new DbExecutor(0, 10, 0);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        Async async = new Async();
+        executor.submit(async, () -> {
+            thread.set(Thread.currentThread());
+            return Response.ok().build();
+        });
+        assertFalse("resumed before submit returns", async.isSuspended());
+        assertEquals(Thread.currentThread(), thread.get());
+        assertEquals(0, executor.getThreadCount());
+    }
+
+    @Test
+    public void aFullQueueIsAnswered503() throws InterruptedException {
+        DbExecutor executor = new DbExecutor(1, 1, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Async running = new Async();
+        executor.submit(running, () -> {
+            started.countDown();
+            release.await();
+            return Response.ok().build();
+        });
+        started.await();
+        Async queued = new Async();
+        executor.submit(queued, () -> Response.ok().build());
+        assertEquals(1, executor.getQueuedCount());
+
+        Async refused = new Async();
+        executor.submit(refused, () -> Response.ok().build());
+        assertFalse("refused without waiting", refused.isSuspended());
+        assertEquals(503, refused.await().getStatus());
+        assertEquals(1, executor.getRejectedCount());
+
+        release.countDown();
+        assertEquals(200, running.await().getStatus());
+        assertEquals(200, queued.await().getStatus());
+        executor.shutdown();
+    }
+
+    @Test
+    public void workForATimedOutRequestIsSkipped() throws InterruptedException {
+        DbExecutor executor = new DbExecutor(1, 1, 30000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Async running = new Async();
+        executor.submit(running, () -> {
+            started.countDown();
+            release.await();
+            return Response.ok().build();
+        });
+        started.await();
+        AtomicBoolean ran = new AtomicBoolean();
+        Async queued = new Async();
+        executor.submit(queued, () -> {
+            ran.set(true);
+            return Response.ok().build();
+        });
+        assertEquals(30000, queued.timeoutMs);
+
+        queued.timeOut();
+        assertEquals(503, queued.await().getStatus());
+        assertEquals(1, executor.getTimeoutCount());
+
+        release.countDown();
+        assertEquals(200, running.await().getStatus());
+        // The queued task has run, or been skipped, once the queue is empty and no thread is busy
+        for (int i = 0; i < 100 && (executor.getQueuedCount() > 0 || executor.getActiveCount() > 0); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse("work of a timed-out request is not run", ran.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void aFailureIsAnswered500() throws InterruptedException {
+        DbExecutor executor = new DbExecutor(1, 1, 0);
+        Async async = new Async();
+        executor.submit(async, () -> {
+            throw new IllegalStateException("database gone");
+        });
+        Response response = async.await();
+        assertEquals(500, response.getStatus());
+        assertTrue(response.getEntity().toString().contains("database gone"));
+        executor.shutdown();
+    }
+
+    // Records the response it is resumed with; a timeout fires only when the test calls timeOut()
+    private static class Async implements AsyncResponse {
+        private final CountDownLatch resumed = new CountDownLatch(1);
+        private volatile Response response;
+        private volatile TimeoutHandler timeoutHandler;
+        volatile long timeoutMs;
+
+        Response await() throws InterruptedException {
+            assertTrue("resumed", resumed.await(10, TimeUnit.SECONDS));
+            return response;
+        }
+
+        void timeOut() {
+            timeoutHandler.handleTimeout(this);
+        }
+
+        @Override
+        public synchronized boolean resume(Object body) {
+            if (!isSuspended()) {
+                return false;
+            }
+            response = (Response) body;
+            resumed.countDown();
+            return true;
+        }
+
+        @Override
+        public boolean resume(Throwable failure) {
+            return resume(Response.serverError().entity(failure.toString()).build());
+        }
+
+        @Override
+        public boolean cancel() {
+            return resume(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+        }
+
+        @Override
+        public boolean cancel(int retryAfter) {
+            return cancel();
+        }
+
+        @Override
+        public boolean cancel(Date retryAfter) {
+            return cancel();
+        }
+
+        @Override
+        public boolean isSuspended() {
+            return resumed.getCount() > 0;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return !isSuspended();
+        }
+
+        @Override
+        public synchronized boolean setTimeout(long time, TimeUnit unit) {
+            timeoutMs = unit.toMillis(time);
+            return isSuspended();
+        }
+
+        @Override
+        public void setTimeoutHandler(TimeoutHandler handler) {
+            timeoutHandler = handler;
+        }
+
+        @Override
+        public Collection<Class<?>> register(Class<?> callback) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Map<Class<?>, Collection<Class<?>>> register(Class<?> callback, Class<?>... callbacks) {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Collection<Class<?>> register(Object callback) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Map<Class<?>, Collection<Class<?>>> register(Object callback, Object... callbacks) {
+            return Collections.emptyMap();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.controller;
+
+import org.example.Main;
+import org.example.cluster.Accounts;
+import org.example.service.TransactionServices;
+import org.jboss.resteasy.plugins.server.undertow.UndertowJaxrsServer;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+// One server, not clustered, over a fresh embedded store, for tests that go through HTTP
+class TestServer {
+
+    private static String url;
+    private static UndertowJaxrsServer server;
+
+    private TestServer() {
+    }
+
+    static void start(TemporaryFolder folder) throws IOException {
+        System.setProperty("storage.backend", TransactionServices.EMBEDDED);
+        System.setProperty("storage.embedded.path", folder.newFolder().toPath().resolve("transactions.db").toString());
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        url = "http://localhost:" + port;
+        server = Main.startServer(port, null);
+    }
+
+    static void stop() {
+        if (server != null) {
+            server.stop();
+        }
+        TransactionServices.close();
+    }
+
+    // headers are name, value pairs; account may be null for the default account
+    static Reply call(String method, String path, String account, String body, String... headers) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setUseCaches(false);
+        if (account != null) {
+            connection.setRequestProperty(Accounts.HEADER, account);
+        }
+        for (int i = 0; i < headers.length; i += 2) {
+            connection.setRequestProperty(headers[i], headers[i + 1]);
+        }
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        Reply reply = new Reply();
+        reply.status = connection.getResponseCode();
+        reply.connection = connection;
+        InputStream in = reply.status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = stream.read(buffer)) > 0) {
+                    bytes.write(buffer, 0, n);
+                }
+            }
+        }
+        reply.bytes = bytes.toByteArray();
+        return reply;
+    }
+
+    static class Reply {
+        int status;
+        byte[] bytes;
+        private HttpURLConnection connection;
+
+        String header(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        String body() {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
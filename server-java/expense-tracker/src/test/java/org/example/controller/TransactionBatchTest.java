@@ -0,0 +1,165 @@
+package org.example.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// The batch endpoints over HTTP: a payload is checked whole before anything is written, and a
+// batch naming a row the account does not have changes nothing and lists what was missing
+public class TransactionBatchTest {
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        TestServer.start(folder);
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        TestServer.stop();
+    }
+
+    @Test
+    public void aBatchIsCreatedUpdatedAndDeleted() throws IOException {
+        List<Integer> ids = create("roundtrip", 3);
+        assertEquals(3, count("roundtrip"));
+
+        StringBuilder updates = new StringBuilder("[");
+        for (int i = 0; i < ids.size(); i++) {
+            updates.append(i == 0 ? "" : ",").append(row(ids.get(i), "Updated " + i, 10));
+        }
+        TestServer.Reply updated = TestServer.call("PUT", "/api/transactions/batch", "roundtrip", updates.append(']').toString());
+        assertEquals(updated.body(), 200, updated.status);
+        assertEquals(3, mapper.readTree(updated.bytes).get("count").asInt());
+        TestServer.Reply one = TestServer.call("GET", "/api/transactions/" + ids.get(1), "roundtrip", null);
+        assertEquals("Updated 1", mapper.readTree(one.bytes).get("description").asText());
+        assertEquals(30, expense("roundtrip"), 0.005);
+
+        TestServer.Reply deleted = TestServer.call("POST", "/api/transactions/batch/delete", "roundtrip", ids.toString());
+        assertEquals(deleted.body(), 200, deleted.status);
+        assertEquals(3, mapper.readTree(deleted.bytes).get("count").asInt());
+        assertEquals(0, count("roundtrip"));
+    }
+
+    @Test
+    public void anInvalidRowRefusesTheWholeBatch() throws IOException {
+        TestServer.Reply refused = TestServer.call("POST", "/api/transactions/batch", "invalid",
+                "[" + row(0, "Fine", 1) + "," + row(0, "", 1) + "," + row(0, "Fine", 1) + "]");
+        assertEquals(400, refused.status);
+        JsonNode error = mapper.readTree(refused.bytes);
+        assertEquals(1, error.get("index").asInt());
+        assertEquals("Transaction description is required", error.get("error").asText());
+        assertEquals("nothing is written", 0, count("invalid"));
+
+        TestServer.Reply negative = TestServer.call("POST", "/api/transactions/batch", "invalid",
+                "[" + row(0, "Fine", 1) + "," + row(0, "Refund", -1) + "]");
+        assertEquals(400, negative.status);
+        assertEquals(1, mapper.readTree(negative.bytes).get("index").asInt());
+    }
+
+    @Test
+    public void batchSizesAreBounded() throws IOException {
+        assertEquals(400, TestServer.call("POST", "/api/transactions/batch", "sizes", "[]").status);
+        assertEquals(400, TestServer.call("PUT", "/api/transactions/batch", "sizes", "[]").status);
+        assertEquals(400, TestServer.call("POST", "/api/transactions/batch/delete", "sizes", "[]").status);
+
+        StringBuilder tooMany = new StringBuilder("[");
+        for (int i = 0; i <= 10000; i++) {
+            tooMany.append(i == 0 ? "" : ",").append(row(0, "Row", 1));
+        }
+        TestServer.Reply refused = TestServer.call("POST", "/api/transactions/batch", "sizes", tooMany.append(']').toString());
+        assertEquals(400, refused.status);
+        assertTrue(refused.body().contains("between 1 and 10000"));
+        assertEquals(0, count("sizes"));
+    }
+
+    @Test
+    public void updatesNeedUniqueIdsAndDates() throws IOException {
+        List<Integer> ids = create("updates", 2);
+        TestServer.Reply duplicate = TestServer.call("PUT", "/api/transactions/batch", "updates",
+                "[" + row(ids.get(0), "A", 1) + "," + row(ids.get(0), "B", 1) + "]");
+        assertEquals(400, duplicate.status);
+        assertEquals("Duplicate id " + ids.get(0), mapper.readTree(duplicate.bytes).get("error").asText());
+
+        TestServer.Reply noId = TestServer.call("PUT", "/api/transactions/batch", "updates", "[" + row(0, "A", 1) + "]");
+        assertEquals(400, noId.status);
+        assertEquals("Id and date are required", mapper.readTree(noId.bytes).get("error").asText());
+
+        TestServer.Reply twice = TestServer.call("POST", "/api/transactions/batch/delete", "updates",
+                "[" + ids.get(0) + "," + ids.get(0) + "]");
+        assertEquals(400, twice.status);
+        assertEquals(2, count("updates"));
+    }
+
+    @Test
+    public void rowsOfAnotherAccountAreMissingAndNothingChanges() throws IOException {
+        List<Integer> mine = create("mine", 2);
+        List<Integer> theirs = create("theirs", 1);
+
+        TestServer.Reply update = TestServer.call("PUT", "/api/transactions/batch", "mine",
+                "[" + row(mine.get(0), "Changed", 99) + "," + row(theirs.get(0), "Changed", 99) + "]");
+        assertEquals(404, update.status);
+        assertEquals(theirs.get(0).intValue(), mapper.readTree(update.bytes).get("missing").get(0).asInt());
+        assertEquals("the found row is not updated either", 2, expense("mine"), 0.005);
+        assertEquals(1, expense("theirs"), 0.005);
+
+        TestServer.Reply delete = TestServer.call("POST", "/api/transactions/batch/delete", "mine",
+                "[" + mine.get(0) + "," + theirs.get(0) + "," + Integer.MAX_VALUE + "]");
+        assertEquals(404, delete.status);
+        JsonNode missing = mapper.readTree(delete.bytes).get("missing");
+        assertEquals(2, missing.size());
+        assertEquals(2, count("mine"));
+        assertEquals(1, count("theirs"));
+    }
+
+    // Creates count rows of amount 1 in the account and returns their ids in order
+    private static List<Integer> create(String account, int count) throws IOException {
+        StringBuilder rows = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            rows.append(i == 0 ? "" : ",").append(row(0, "Row " + i, 1));
+        }
+        TestServer.Reply created = TestServer.call("POST", "/api/transactions/batch", account, rows.append(']').toString());
+        assertEquals(created.body(), 201, created.status);
+        JsonNode result = mapper.readTree(created.bytes);
+        assertEquals(count, result.get("count").asInt());
+        List<Integer> ids = new ArrayList<>();
+        for (JsonNode id : result.get("ids")) {
+            ids.add(id.asInt());
+        }
+        return ids;
+    }
+
+    private static String row(int id, String description, double amount) {
+        return "{" + (id > 0 ? "\"id\":" + id + "," : "") + "\"description\":\"" + description + "\",\"amount\":" + amount
+                + ",\"type\":\"expense\",\"category\":\"Other\",\"date\":\"2024-05-01T10:00:00Z\"}";
+    }
+
+    private static int count(String account) throws IOException {
+        return summary(account).get("count").asInt();
+    }
+
+    private static double expense(String account) throws IOException {
+        return summary(account).get("expense").asDouble();
+    }
+
+    private static JsonNode summary(String account) throws IOException {
+        TestServer.Reply summary = TestServer.call("GET", "/api/transactions/summary", account, null);
+        assertEquals(200, summary.status);
+        return mapper.readTree(summary.bytes);
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.Transaction;
+import org.example.service.PageCursor;
+import org.example.service.TransactionServices;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// GET /api/transactions over HTTP: the next page is advertised in X-Next-Cursor and a Link
+// header, walking it returns every row once, newest first, and bad parameters are refused
+public class TransactionPagingTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long BASE = 1704067200000L; // 2024-01-01T00:00:00Z
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    // Newest first: the later of the two rows on 2024-01-03 has the higher id
+    private static final List<Integer> newestFirst = new ArrayList<>();
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        TestServer.start(folder);
+        // Days 1..6, with two rows on day 3 so the id breaks the tie; odd rows are income
+        long[] days = {0, 1, 2, 2, 3, 4, 5};
+        List<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < days.length; i++) {
+            rows.add(new Transaction("Row " + i, i + 1, i % 2 == 1 ? "income" : "expense", "Other",
+                    new Date(BASE + days[i] * DAY), null));
+        }
+        List<Integer> ids = TransactionServices.get().createTransactions(rows).getIds();
+        for (int i = ids.size() - 1; i >= 0; i--) {
+            newestFirst.add(ids.get(i));
+        }
+        Transaction elsewhere = new Transaction("Other account", 1, "expense", "Other", new Date(BASE), null);
+        elsewhere.setAccount("other");
+        TransactionServices.get().createTransactions(Arrays.asList(elsewhere));
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        TestServer.stop();
+    }
+
+    @Test
+    public void cursorsRoundTrip() {
+        PageCursor cursor = PageCursor.decode(new PageCursor(BASE, 42).encode());
+        assertEquals(BASE, cursor.getDate().getTime());
+        assertEquals(42, cursor.getId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aMalformedCursorIsRefused() {
+        PageCursor.decode("bm90LWEtY3Vyc29y");
+    }
+
+    @Test
+    public void walkingThePagesReturnsEveryRowOnce() throws IOException {
+        List<Integer> walked = new ArrayList<>();
+        String path = "/api/transactions?limit=3";
+        int pages = 0;
+        while (path != null && pages++ < 10) {
+            TestServer.Reply page = TestServer.call("GET", path, null, null);
+            assertEquals(page.body(), 200, page.status);
+            walked.addAll(ids(page));
+            String next = page.header("X-Next-Cursor");
+            if (next == null) {
+                assertNull("no link past the last page", page.header("Link"));
+                path = null;
+            } else {
+                assertTrue("the link carries the cursor", page.header("Link").contains("cursor=" + next));
+                assertTrue(page.header("Link").contains("rel=\"next\""));
+                path = "/api/transactions?limit=3&cursor=" + URLEncoder.encode(next, "UTF-8");
+            }
+        }
+        assertEquals("three pages of three, three and one", 3, pages);
+        assertEquals("every row of the account once, newest first", newestFirst, walked);
+    }
+
+    @Test
+    public void filtersApplyAcrossPages() throws IOException {
+        List<Integer> walked = new ArrayList<>();
+        String query = "/api/transactions?limit=1&type=income&from=2024-01-02&to=2024-01-04";
+        String path = query;
+        while (path != null) {
+            TestServer.Reply page = TestServer.call("GET", path, null, null);
+            assertEquals(page.body(), 200, page.status);
+            walked.addAll(ids(page));
+            String next = page.header("X-Next-Cursor");
+            path = next == null ? null : query + "&cursor=" + URLEncoder.encode(next, "UTF-8");
+        }
+        // Rows 3 and 1, on the 3rd and the 2nd; row 5 is on the 5th
+        assertEquals(Arrays.asList(newestFirst.get(3), newestFirst.get(5)), walked);
+    }
+
+    @Test
+    public void otherAccountsRowsAreNotListed() throws IOException {
+        TestServer.Reply other = TestServer.call("GET", "/api/transactions", "other", null);
+        assertEquals(200, other.status);
+        assertEquals(1, ids(other).size());
+    }
+
+    @Test
+    public void badParametersAreRefused() throws IOException {
+        assertEquals(400, TestServer.call("GET", "/api/transactions?limit=0", null, null).status);
+        assertEquals(400, TestServer.call("GET", "/api/transactions?limit=501", null, null).status);
+        assertEquals(200, TestServer.call("GET", "/api/transactions?limit=500", null, null).status);
+        assertEquals(400, TestServer.call("GET", "/api/transactions?type=transfer", null, null).status);
+        TestServer.Reply cursor = TestServer.call("GET", "/api/transactions?cursor=bm90LWEtY3Vyc29y", null, null);
+        assertEquals(400, cursor.status);
+        assertTrue(cursor.body().contains("Invalid cursor"));
+        assertEquals(400, TestServer.call("GET", "/api/transactions?from=15/01/2024", null, null).status);
+    }
+
+    private static List<Integer> ids(TestServer.Reply page) throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        for (JsonNode row : mapper.readTree(page.bytes)) {
+            ids.add(row.get("id").asInt());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.controller;
+
+import org.example.model.TransactionFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+// Filter dates are read in UTC whatever the server's zone, as the rows' own dates are
+public class TransactionResourceTest {
+
+    private TimeZone zone;
+
+    @Before
+    public void awayFromUtc() {
+        zone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+    }
+
+    @After
+    public void restoreZone() {
+        TimeZone.setDefault(zone);
+    }
+
+    @Test
+    public void bareDatesCoverWholeUtcDays() {
+        TransactionFilter filter = TransactionResource.buildFilter("expense", " Food ", "2024-01-15", "2024-01-31");
+        assertEquals(Instant.parse("2024-01-15T00:00:00Z"), filter.getFrom().toInstant());
+        assertEquals("a bare end date includes that day", Instant.parse("2024-02-01T00:00:00Z"), filter.getTo().toInstant());
+        assertEquals("expense", filter.getType());
+        assertEquals("Food", filter.getCategory());
+    }
+
+    @Test
+    public void dateTimesAreUtcUnlessTheyHaveAnOffset() {
+        TransactionFilter filter = TransactionResource.buildFilter(null, "", "2024-01-15T10:00:00", "2024-01-15T10:00:00+02:00");
+        assertEquals(Instant.parse("2024-01-15T10:00:00Z"), filter.getFrom().toInstant());
+        assertEquals(Instant.parse("2024-01-15T08:00:00Z"), filter.getTo().toInstant());
+        assertNull("a blank category is no filter", filter.getCategory());
+        assertEquals(Instant.parse("2024-01-15T10:00:00Z"),
+                TransactionResource.buildFilter(null, null, "2024-01-15T10:00:00Z", null).getFrom().toInstant());
+        assertNull(TransactionResource.buildFilter(null, null, null, "").getTo());
+    }
+
+    @Test(expected = DateTimeParseException.class)
+    public void malformedDatesAreRefused() {
+        TransactionResource.buildFilter(null, null, "15/01/2024", null);
+    }
+}
@@ -0,0 +1,141 @@
+package org.example.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.Transaction;
+import org.example.service.TransactionServices;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+// GET /api/transactions/summary over HTTP: totals, per-category and per-month figures of the
+// caller's account, from the running aggregates or, with a date range, from the rows in it
+public class TransactionSummaryTest {
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        TestServer.start(folder);
+        // Mid-month at noon, so the month is the same in any server zone
+        List<Transaction> rows = new ArrayList<>(Arrays.asList(
+                row("Pay", 1000, "income", "Salary", "2024-01-15T12:00:00Z"),
+                row("Lunch", 50.25, "expense", "Food", "2024-01-16T12:00:00Z"),
+                row("Dinner", 20, "expense", "Food", "2024-01-17T12:00:00Z"),
+                row("Flat", 30.5, "expense", "Rent", "2024-02-15T12:00:00Z")));
+        Transaction other = row("Gift", 7, "income", "Other", "2024-01-15T12:00:00Z");
+        other.setAccount("other");
+        rows.add(other);
+        assertEquals(5, TransactionServices.get().createTransactions(rows).getCount());
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        TestServer.stop();
+    }
+
+    @Test
+    public void totalsCoverTheAccountsRows() throws IOException {
+        JsonNode summary = summary("", null);
+        assertEquals(4, summary.get("count").asInt());
+        assertEquals(1000, summary.get("income").asDouble(), 0.005);
+        assertEquals(100.75, summary.get("expense").asDouble(), 0.005);
+        assertEquals(899.25, summary.get("balance").asDouble(), 0.005);
+
+        JsonNode categories = summary.get("categories");
+        assertEquals(3, categories.size());
+        // Largest total first
+        assertCategory(categories.get(0), "Salary", "income", 1000, 1);
+        assertCategory(categories.get(1), "Food", "expense", 70.25, 2);
+        assertCategory(categories.get(2), "Rent", "expense", 30.5, 1);
+
+        JsonNode months = summary.get("months");
+        assertEquals(2, months.size());
+        assertMonth(months.get(0), "2024-01", 1000, 70.25);
+        assertMonth(months.get(1), "2024-02", 0, 30.5);
+    }
+
+    @Test
+    public void aDateRangeSummarizesOnlyTheRowsInIt() throws IOException {
+        JsonNode february = summary("?from=2024-02-01&to=2024-02-29", null);
+        assertEquals(1, february.get("count").asInt());
+        assertEquals(0, february.get("income").asDouble(), 0.005);
+        assertEquals(30.5, february.get("expense").asDouble(), 0.005);
+        assertEquals(1, february.get("categories").size());
+        assertCategory(february.get("categories").get(0), "Rent", "expense", 30.5, 1);
+        assertEquals(1, february.get("months").size());
+        assertMonth(february.get("months").get(0), "2024-02", 0, 30.5);
+
+        JsonNode january = summary("?to=2024-01-16", null);
+        assertEquals("the end date includes its whole day", 2, january.get("count").asInt());
+        assertEquals(949.75, january.get("balance").asDouble(), 0.005);
+    }
+
+    @Test
+    public void eachAccountSeesItsOwnTotals() throws IOException {
+        JsonNode other = summary("", "other");
+        assertEquals(1, other.get("count").asInt());
+        assertEquals(7, other.get("income").asDouble(), 0.005);
+        assertEquals(0, other.get("expense").asDouble(), 0.005);
+        assertEquals(0, summary("", "nobody").get("count").asInt());
+    }
+
+    @Test
+    public void writesAreReflectedInTheTotals() throws IOException {
+        assertEquals(0, summary("", "later").get("count").asInt());
+        TestServer.Reply created = TestServer.call("POST", "/api/transactions", "later",
+                "{\"description\":\"Bus\",\"amount\":2.5,\"type\":\"expense\",\"category\":\"Transport\","
+                        + "\"date\":\"2024-03-15T12:00:00Z\"}");
+        assertEquals(created.body(), 201, created.status);
+        JsonNode after = summary("", "later");
+        assertEquals(1, after.get("count").asInt());
+        assertEquals(-2.5, after.get("balance").asDouble(), 0.005);
+        assertMonth(after.get("months").get(0), "2024-03", 0, 2.5);
+
+        int id = mapper.readTree(created.bytes).get("id").asInt();
+        assertEquals(200, TestServer.call("DELETE", "/api/transactions/" + id, "later", null).status);
+        assertEquals(0, summary("", "later").get("count").asInt());
+    }
+
+    @Test
+    public void aMalformedDateIsRefused() throws IOException {
+        assertEquals(400, TestServer.call("GET", "/api/transactions/summary?from=January", null, null).status);
+    }
+
+    private static JsonNode summary(String query, String account) throws IOException {
+        TestServer.Reply reply = TestServer.call("GET", "/api/transactions/summary" + query, account, null);
+        assertEquals(reply.body(), 200, reply.status);
+        return mapper.readTree(reply.bytes);
+    }
+
+    private static void assertCategory(JsonNode category, String name, String type, double total, int count) {
+        assertEquals(name, category.get("category").asText());
+        assertEquals(type, category.get("type").asText());
+        assertEquals(total, category.get("total").asDouble(), 0.005);
+        assertEquals(count, category.get("count").asInt());
+    }
+
+    private static void assertMonth(JsonNode month, String name, double income, double expense) {
+        assertEquals(name, month.get("month").asText());
+        assertEquals(income, month.get("income").asDouble(), 0.005);
+        assertEquals(expense, month.get("expense").asDouble(), 0.005);
+    }
+
+    private static Transaction row(String description, double amount, String type, String category, String date) {
+        return new Transaction(description, amount, type, category, Date.from(Instant.parse(date)), null);
+    }
+}
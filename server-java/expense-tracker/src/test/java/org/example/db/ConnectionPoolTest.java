@@ -0,0 +1,166 @@
+package org.example.db;
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Parallel requests against H2, each holding its connection through a query that takes
+// QUERY_MS, as a slow MySQL statement would: throughput should follow the pool size until the
+// pool is as large as the number of callers, and no caller should ever hold more connections
+// than the pool has.
+public class ConnectionPoolTest {
+
+    private static final String URL = "jdbc:h2:mem:pool;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final int CALLERS = 16;
+    private static final int REQUESTS = 320;
+    private static final int QUERY_MS = 5;
+
+    private static final AtomicInteger running = new AtomicInteger();
+    private static final AtomicInteger mostRunning = new AtomicInteger();
+
+    // Called by H2 for SELECT PAUSE(ms)
+    public static int pause(int millis) throws InterruptedException {
+        mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(millis);
+        } finally {
+            running.decrementAndGet();
+        }
+        return millis;
+    }
+
+    @Test
+    public void throughputGrowsWithPoolSize() throws Exception {
+        double previous = 0;
+        for (int size : new int[]{1, 2, 4, 8}) {
+            ConnectionPool pool = TestDatabase.pool(URL, size);
+            try {
+                try (Connection cn = pool.borrow(); PreparedStatement pst = cn.prepareStatement(
+                        "CREATE ALIAS IF NOT EXISTS PAUSE FOR \"org.example.db.ConnectionPoolTest.pause\"")) {
+                    pst.execute();
+                }
+                mostRunning.set(0);
+                double throughput = run(pool);
+                System.out.printf("pool size %2d: %6.0f requests/s%n", size, throughput);
+
+                assertTrue("no more queries run at once than the pool has connections", mostRunning.get() <= size);
+                assertTrue("every connection is returned", pool.getActiveCount() == 0 && pool.getIdleCount() <= size);
+                assertTrue("connections are reused", pool.getCreatedCount() <= size);
+                assertEquals(0, pool.getTimeoutCount());
+                assertEquals(0, pool.getStatementLeakCount());
+                // Doubling the pool would double throughput with no overhead; ask for 1.5x
+                assertTrue("pool size " + size + " does " + (int) throughput + "/s against " + (int) previous
+                        + "/s for half as many connections", throughput > previous * 1.5);
+                previous = throughput;
+            } finally {
+                pool.close();
+            }
+        }
+    }
+
+    @Test
+    public void borrowTimesOutWhenThePoolIsExhausted() throws Exception {
+        ConnectionPool pool = new ConnectionPool(URL, "sa", "", 1, 50, 600000, 30000);
+        try (Connection held = pool.borrow()) {
+            assertFalse(held.isClosed());
+            try {
+                pool.borrow().close();
+                throw new AssertionError("borrow succeeded with every connection held");
+            } catch (SQLException e) {
+                assertEquals(1, pool.getTimeoutCount());
+            }
+            assertEquals(1, pool.getActiveCount());
+        } finally {
+            pool.close();
+        }
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    // Leaks are reported without the borrower's stack when it was not sampled, and not at all
+    // with detection off
+    @Test
+    public void leaksAreReportedWithoutABorrowSite() throws Exception {
+        ConnectionPool watched = new ConnectionPool(URL, "sa", "", 1, 50, 600000, 50, 0);
+        ConnectionPool unwatched = new ConnectionPool(URL, "sa", "", 1, 50, 600000, 0, 1);
+        try (Connection leaked = watched.borrow(); Connection ignored = unwatched.borrow()) {
+            long deadline = System.currentTimeMillis() + 10000;
+            while (watched.getLeakCount() == 0) {
+                assertTrue("a connection held past the threshold is reported", System.currentTimeMillis() < deadline);
+                Thread.sleep(50);
+            }
+            assertFalse(leaked.isClosed());
+            assertFalse(ignored.isClosed());
+            assertEquals("a leak is reported once", 1, watched.getLeakCount());
+            assertEquals("detection is off at a threshold of 0", 0, unwatched.getLeakCount());
+        } finally {
+            watched.close();
+            unwatched.close();
+        }
+    }
+
+    // The probe answers while requests hold every connection, and takes none from them
+    @Test
+    public void probeDoesNotBorrowFromThePool() throws Exception {
+        ConnectionPool pool = new ConnectionPool(URL, "sa", "", 1, 50, 600000, 30000);
+        try (Connection held = pool.borrow()) {
+            assertFalse(held.isClosed());
+            assertNull(pool.probe(2));
+            assertNull("the probe connection is kept", pool.probe(2));
+            assertEquals(0, pool.getTimeoutCount());
+            assertEquals(1, pool.getCreatedCount());
+            assertEquals(1, pool.getActiveCount());
+        } finally {
+            pool.close();
+        }
+        assertNotNull("a closed pool is not ready", pool.probe(2));
+        ConnectionPool unreachable = new ConnectionPool("jdbc:h2:tcp://localhost:1/none", "sa", "", 1, 50, 600000, 30000);
+        try {
+            assertNotNull(unreachable.probe(2));
+        } finally {
+            unreachable.close();
+        }
+    }
+
+    // Requests per second for REQUESTS requests shared by CALLERS threads
+    private static double run(ConnectionPool pool) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            long start = System.nanoTime();
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                results.add(callers.submit(() -> {
+                    try (Connection cn = pool.borrow();
+                         PreparedStatement pst = cn.prepareStatement("SELECT PAUSE(?)")) {
+                        pst.setInt(1, QUERY_MS);
+                        try (ResultSet rs = pst.executeQuery()) {
+                            rs.next();
+                            return rs.getInt(1);
+                        }
+                    }
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(QUERY_MS, (int) result.get(30, TimeUnit.SECONDS));
+            }
+            return REQUESTS / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+// H2 in MySQL mode standing in for the real database. Every test in the run shares ConnexionDB's
+// pool, which reads db.url once, so configure() must come before its first use.
+public final class TestDatabase {
+
+    public static final String URL = "jdbc:h2:mem:test;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=DATE,TYPE";
+
+    private static boolean configured;
+
+    private TestDatabase() {
+    }
+
+    public static synchronized void configure() {
+        if (configured) {
+            return;
+        }
+        System.setProperty("db.url", URL);
+        System.setProperty("db.login", "sa");
+        System.setProperty("db.password", "");
+        configured = true;
+    }
+
+    // A pool of its own on another database, with the settings ConnexionDB would use
+    public static ConnectionPool pool(String url, int size) {
+        return new ConnectionPool(url, "sa", "", size, 5000, 600000, 30000);
+    }
+
+    // Drops and recreates the table in ConnexionDB's database
+    public static void reset() throws SQLException {
+        configure();
+        try (Connection cn = ConnexionDB.getConnexion()) {
+            createSchema(cn);
+        }
+    }
+
+    // The table as schema.sql creates it in MySQL. The ids come from a plain sequence: H2's
+    // AUTO_INCREMENT can hand the same id to two concurrent inserts.
+    public static void createSchema(Connection cn) throws SQLException {
+        try (Statement st = cn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS transactions");
+            st.execute("DROP SEQUENCE IF EXISTS transactions_id");
+            st.execute("CREATE SEQUENCE transactions_id");
+            st.execute("CREATE TABLE transactions ("
+                    + "id INT DEFAULT NEXT VALUE FOR transactions_id PRIMARY KEY,"
+                    + "description VARCHAR(100) NOT NULL,"
+                    + "amount DECIMAL(10, 2) NOT NULL,"
+                    + "type VARCHAR(10) NOT NULL,"
+                    + "category VARCHAR(50) NOT NULL,"
+                    + "date TIMESTAMP NOT NULL,"
+                    + "note VARCHAR(250),"
+                    + "account VARCHAR(64) NOT NULL DEFAULT 'default',"
+                    + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,"
+                    + "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            st.execute("CREATE INDEX idx_date_id ON transactions (date, id)");
+            st.execute("CREATE INDEX idx_account_date_id ON transactions (account, date, id)");
+            st.execute("CREATE ALIAS IF NOT EXISTS DATE_FORMAT FOR \"org.example.db.TestDatabase.dateFormat\"");
+        }
+    }
+
+    // MySQL's DATE_FORMAT for the '%Y-%m' pattern used by the summary query
+    public static String dateFormat(Timestamp date, String pattern) {
+        if (!"%Y-%m".equals(pattern)) {
+            throw new IllegalArgumentException("Unsupported pattern " + pattern);
+        }
+        return date.toLocalDateTime().toString().substring(0, 7);
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.imports;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CsvRowParserTest {
+
+    @Test
+    public void readsQuotedFieldsAndSignedAmounts() throws IOException {
+        CsvRowParser parser = parser("\uFEFFDate,Amount,Description,Category,Memo\n"
+                + "2024-01-15,-12.50,\"Market, downtown\",,\"said \"\"thanks\"\"\"\n"
+                + "\n"
+                + "15/01/2024,\"1,200.00\",Salary,Income,\n");
+        ParsedRow first = parser.next();
+        assertNull(first.error);
+        assertEquals(2, first.line);
+        assertEquals("Market, downtown", first.transaction.getDescription());
+        assertEquals("expense", first.transaction.getType());
+        assertEquals(12.5, first.transaction.getAmount(), 0.001);
+        assertNull("a blank category is left to the rules", first.transaction.getCategory());
+        assertEquals("said \"thanks\"", first.transaction.getNote());
+        assertEquals(day(2024, 1, 15), first.transaction.getDate());
+
+        ParsedRow second = parser.next();
+        assertEquals("blank lines are skipped but counted", 4, second.line);
+        assertEquals("income", second.transaction.getType());
+        assertEquals(1200, second.transaction.getAmount(), 0.001);
+        assertEquals("Income", second.transaction.getCategory());
+        assertEquals(day(2024, 1, 15), second.transaction.getDate());
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void semicolonFilesUseDecimalCommasAndAnExplicitType() throws IOException {
+        CsvRowParser parser = parser("date;amount;payee;type\n20240115;42,75;Rent;expense\n");
+        ParsedRow row = parser.next();
+        assertNull(row.error);
+        assertEquals("Rent", row.transaction.getDescription());
+        assertEquals(42.75, row.transaction.getAmount(), 0.001);
+        assertEquals("the type column wins over the sign", "expense", row.transaction.getType());
+    }
+
+    @Test
+    public void badRowsAreReportedWithTheirLine() throws IOException {
+        CsvRowParser parser = parser("date,amount,description\n"
+                + "2024-13-01,1,Bad date\n"
+                + "2024-01-01,abc,Bad amount\n"
+                + "2024-01-01,1\n"
+                + "2024-01-01,1,Fine\n");
+        ParsedRow badDate = parser.next();
+        assertEquals(2, badDate.line);
+        assertTrue(badDate.error, badDate.error.contains("Invalid date"));
+        ParsedRow badAmount = parser.next();
+        assertEquals(3, badAmount.line);
+        assertTrue(badAmount.error, badAmount.error.contains("Invalid amount"));
+        ParsedRow missing = parser.next();
+        assertEquals(4, missing.line);
+        assertTrue(missing.error, missing.error.contains("Missing column"));
+        assertNull(parser.next().error);
+    }
+
+    @Test
+    public void aHeaderWithoutTheRequiredColumnsIsRefused() {
+        for (String header : Arrays.asList("", "date,amount,category\n", "when,amount,description\n")) {
+            try {
+                parser(header);
+                fail("'" + header.trim() + "' was accepted");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("CSV"));
+            }
+        }
+    }
+
+    @Test
+    public void splitKeepsEmptyFields() {
+        assertEquals(Arrays.asList("a", "", "b;c", ""), CsvRowParser.split("a,,\"b;c\",", ','));
+    }
+
+    private static CsvRowParser parser(String text) throws IOException {
+        return new CsvRowParser(new BufferedReader(new StringReader(text)));
+    }
+
+    static Date day(int year, int month, int day) {
+        return Date.from(LocalDate.of(year, month, day).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.imports;
+
+import org.example.model.ImportJob;
+import org.example.model.TransactionFilter;
+import org.example.service.TransactionAggregates;
+import org.example.service.TransactionServices;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Whole imports through the three stages into an embedded store, each on an account of its own
+public class ImportServiceTest {
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void open() throws Exception {
+        System.setProperty("storage.backend", TransactionServices.EMBEDDED);
+        System.setProperty("storage.embedded.path", folder.newFolder().toPath().resolve("transactions.db").toString());
+        TransactionAggregates.get();
+    }
+
+    @AfterClass
+    public static void close() {
+        TransactionServices.close();
+    }
+
+    // More rows than both queues hold, so every stage has to wait on the next and still finish
+    @Test
+    public void aLargeFileStreamsThroughEveryStage() throws Exception {
+        StringBuilder csv = new StringBuilder("date,amount,description\n");
+        for (int i = 0; i < 12000; i++) {
+            csv.append("2024-01-").append(10 + i % 20).append(",-").append(1 + i % 50).append(".25,Supermarket ").append(i).append('\n');
+        }
+        ImportJob job = finish(ImportService.get().start(stream(csv.toString()), "csv", "large"));
+        assertEquals(job.getMessage(), "completed", job.getStatus());
+        assertEquals(12000, job.getRowsRead());
+        assertEquals(12000, job.getRowsImported());
+        assertEquals(0, job.getRowsFailed());
+        assertEquals(job.getTotalBytes(), job.getBytesRead());
+        assertEquals(12000, rows("large"));
+    }
+
+    @Test
+    public void badRowsAreReportedAndTheRestImported() throws Exception {
+        String csv = "date,amount,description,category\n"
+                + "2024-01-15,-20,Uber downtown,\n"
+                + "not a date,-5,Broken,\n"
+                + "2024-01-16,-100000000,Too much,\n"
+                + "2024-01-17,-7.5,,\n"
+                + "2024-01-18,2500,Salary,\n";
+        ImportJob job = finish(ImportService.get().start(stream(csv), "csv", "mixed"));
+        assertEquals("completed", job.getStatus());
+        assertEquals(5, job.getRowsRead());
+        assertEquals(2, job.getRowsImported());
+        assertEquals(3, job.getRowsFailed());
+        assertEquals(3, job.getErrors().get(0).getLine());
+        assertEquals("Amount must be at most 99999999.99", job.getErrors().get(1).getError());
+        assertEquals("Transaction description is required", job.getErrors().get(2).getError());
+        assertEquals(2, rows("mixed"));
+        TransactionFilter transport = new TransactionFilter();
+        transport.setAccount("mixed");
+        transport.setCategory("Transportation");
+        assertEquals("uncategorized rows are categorized by keyword", 1, TransactionServices.get().getSummary(transport).getCount());
+    }
+
+    // The parser fails before any row; the other stages must still see the end and stop
+    @Test
+    public void aFileThatCannotBeReadFailsTheJob() throws Exception {
+        ImportJob job = finish(ImportService.get().start(stream("when,what\n2024-01-01,x\n"), "csv", "unreadable"));
+        assertEquals("failed", job.getStatus());
+        assertTrue(job.getMessage(), job.getMessage().contains("date, amount and description"));
+        assertEquals(0, job.getRowsImported());
+        ImportJob empty = finish(ImportService.get().start(stream(""), "csv", "unreadable"));
+        assertEquals("failed", empty.getStatus());
+        assertEquals(0, rows("unreadable"));
+    }
+
+    @Test
+    public void ofxFilesAndJobsSeenOnlyByTheirAccount() throws Exception {
+        String ofx = "<OFX><STMTTRN><DTPOSTED>20240105<TRNAMT>-60.00<NAME>Electric bill</STMTTRN>"
+                + "<STMTTRN><DTPOSTED>20240106<TRNAMT>-15.00<NAME>Cinema</STMTTRN></OFX>";
+        ImportJob job = finish(ImportService.get().start(stream(ofx), "ofx", "ofx"));
+        assertEquals("completed", job.getStatus());
+        assertEquals(2, job.getRowsImported());
+        assertEquals(2, rows("ofx"));
+        assertNotNull(ImportService.get().getJob("ofx", job.getId()));
+        assertNull("another account cannot see the job", ImportService.get().getJob("someone-else", job.getId()));
+    }
+
+    private static ImportJob finish(ImportJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while ("running".equals(job.getStatus()) || job.getFinishedAt() == null) {
+            assertTrue("the import finishes", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        return job;
+    }
+
+    private static long rows(String account) {
+        TransactionFilter filter = new TransactionFilter();
+        filter.setAccount(account);
+        return TransactionServices.get().getSummary(filter).getCount();
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
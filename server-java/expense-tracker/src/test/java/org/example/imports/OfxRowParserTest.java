@@ -0,0 +1,60 @@
+package org.example.imports;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OfxRowParserTest {
+
+    // OFX 1.x leaves leaf tags unclosed
+    @Test
+    public void readsSgmlStatements() throws IOException {
+        OfxRowParser parser = new OfxRowParser(new StringReader("OFXHEADER:100\nDATA:OFXSGML\n\n<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS>\n"
+                + "<BANKTRANLIST>\n"
+                + "<STMTTRN>\n<TRNTYPE>DEBIT\n<DTPOSTED>20240115120000.000[-5:EST]\n<TRNAMT>-42.10\n<NAME>Uber &amp; Co\n<MEMO>Ride home\n</STMTTRN>\n"
+                + "<STMTTRN>\n<DTPOSTED>20240116\n<TRNAMT>1500.00\n<MEMO>Payroll\n</STMTTRN>\n"
+                + "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>\n"));
+        ParsedRow ride = parser.next();
+        assertNull(ride.error);
+        assertEquals(6, ride.line);
+        assertEquals("Uber & Co", ride.transaction.getDescription());
+        assertEquals("Ride home", ride.transaction.getNote());
+        assertEquals("expense", ride.transaction.getType());
+        assertEquals(42.1, ride.transaction.getAmount(), 0.001);
+        assertEquals(Date.from(LocalDateTime.of(2024, 1, 15, 12, 0).atZone(ZoneId.systemDefault()).toInstant()),
+                ride.transaction.getDate());
+
+        ParsedRow pay = parser.next();
+        assertEquals("the memo stands in for a missing name", "Payroll", pay.transaction.getDescription());
+        assertNull(pay.transaction.getNote());
+        assertEquals("income", pay.transaction.getType());
+        assertEquals(CsvRowParserTest.day(2024, 1, 16), pay.transaction.getDate());
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void readsXmlStatementsAndReportsIncompleteRecords() throws IOException {
+        OfxRowParser parser = new OfxRowParser(new StringReader("<?xml version=\"1.0\"?><OFX>"
+                + "<STMTTRN><DTPOSTED>20240201</DTPOSTED><NAME>No amount</NAME></STMTTRN>"
+                + "<STMTTRN><DTPOSTED>2024xx01</DTPOSTED><TRNAMT>-1</TRNAMT><NAME>Bad date</NAME></STMTTRN>"
+                + "<STMTTRN><DTPOSTED>20240203</DTPOSTED><TRNAMT>-9.99</TRNAMT><NAME>Netflix</NAME></STMTTRN>"
+                + "</OFX>"));
+        ParsedRow missing = parser.next();
+        assertTrue(missing.error, missing.error.contains("missing DTPOSTED or TRNAMT"));
+        ParsedRow badDate = parser.next();
+        assertTrue(badDate.error, badDate.error.contains("Invalid date"));
+        ParsedRow netflix = parser.next();
+        assertNull(netflix.error);
+        assertEquals("Netflix", netflix.transaction.getDescription());
+        assertEquals(9.99, netflix.transaction.getAmount(), 0.001);
+        assertNull(parser.next());
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.ingest;
+
+import org.example.model.Transaction;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IngestLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void segmentsAreReadBackInOrderABatchAtATime() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (IngestLog log = new IngestLog(dir)) {
+            log.open();
+            log.append(rows(1, 5));
+            Path first = log.roll();
+            log.append(rows(6, 3));
+            assertEquals(Arrays.asList(first, dir.resolve("ingest-000000000002.log")), log.segments());
+        }
+        List<Integer> ids = new ArrayList<>();
+        List<Integer> batches = new ArrayList<>();
+        for (Path segment : new IngestLog(dir).segments()) {
+            try (IngestLog.Reader reader = IngestLog.read(segment)) {
+                List<Transaction> batch;
+                while (!(batch = reader.next(2)).isEmpty()) {
+                    batches.add(batch.size());
+                    for (Transaction transaction : batch) {
+                        ids.add(transaction.getId());
+                    }
+                }
+            }
+        }
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8), ids);
+        assertEquals(Arrays.asList(2, 2, 1, 2, 1), batches);
+    }
+
+    @Test
+    public void readingStopsAtATornOrCorruptRecord() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Path segment;
+        try (IngestLog log = new IngestLog(dir)) {
+            log.open();
+            log.append(rows(1, 3));
+            segment = log.segments().get(0);
+        }
+        // A crash part way through a record: its length is written but not all of its body
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 100, 1, 2, 3, 4, '{'}));
+        }
+        assertEquals(3, readAll(segment).size());
+
+        // A flipped byte in the second record's body fails its CRC
+        long secondRecord;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, 0);
+            secondRecord = 8 + length.getInt(0);
+            channel.write(ByteBuffer.wrap(new byte[]{'#'}), secondRecord + 12);
+        }
+        List<Transaction> intact = readAll(segment);
+        assertEquals(1, intact.size());
+        assertEquals(1, intact.get(0).getId());
+    }
+
+    @Test
+    public void aNewRunWritesAfterTheSegmentsItFinds() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (IngestLog log = new IngestLog(dir)) {
+            log.open();
+            log.append(rows(1, 1));
+        }
+        try (IngestLog log = new IngestLog(dir)) {
+            List<Path> found = log.segments();
+            log.open();
+            log.append(rows(2, 1));
+            List<Path> segments = log.segments();
+            assertEquals(2, segments.size());
+            assertEquals(found.get(0), segments.get(0));
+            IngestLog.delete(found.get(0));
+            assertEquals(1, log.segments().size());
+            assertTrue(log.size() > 0);
+        }
+    }
+
+    private static List<Transaction> readAll(Path segment) throws IOException {
+        try (IngestLog.Reader reader = IngestLog.read(segment)) {
+            return reader.next(Integer.MAX_VALUE);
+        }
+    }
+
+    private static List<Transaction> rows(int firstId, int count) {
+        List<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Transaction row = new Transaction("Row " + (firstId + i), 1.5, "expense", "Other",
+                    new Date(1700000000000L), null);
+            row.setId(firstId + i);
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.ingest;
+
+import org.example.model.Transaction;
+import org.example.service.TransactionServices;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+// Ingestion over an embedded store, with segments small enough that a few thousand rows roll
+// the log many times. What a crash left behind is written as a segment before start().
+public class TransactionIngestTest {
+
+    private static final int LEFT_BY_CRASH = 50;
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static Path dir;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        dir = folder.newFolder("ingest").toPath();
+        System.setProperty("storage.backend", TransactionServices.EMBEDDED);
+        System.setProperty("storage.embedded.path", folder.newFolder("data").toPath().resolve("transactions.db").toString());
+        System.setProperty("ingest.enabled", "true");
+        System.setProperty("ingest.dir", dir.toString());
+        System.setProperty("ingest.log.maxBytes", "16384");
+        System.setProperty("ingest.batchSize", "200");
+        try (IngestLog log = new IngestLog(dir)) {
+            log.open();
+            List<Transaction> rows = new ArrayList<>();
+            for (int id = 1; id <= LEFT_BY_CRASH; id++) {
+                rows.add(row("Left by a crash " + id, id));
+            }
+            log.append(rows);
+        }
+        TransactionIngest.get().start();
+    }
+
+    @AfterClass
+    public static void stop() {
+        TransactionIngest.get().shutdown(10000);
+        TransactionServices.close();
+    }
+
+    @Test
+    public void replaysWhatACrashLeftBeforeHandingOutIds() {
+        for (int id = 1; id <= LEFT_BY_CRASH; id++) {
+            Transaction replayed = TransactionServices.get().getTransaction(Transaction.DEFAULT_ACCOUNT, id);
+            assertNotNull("row " + id + " is inserted on start", replayed);
+            assertEquals("Left by a crash " + id, replayed.getDescription());
+        }
+        CompletableFuture<Transaction> next = TransactionIngest.get().submit(row("After the crash", 0));
+        assertNotNull(next);
+        assertTrue("new ids follow the replayed ones", next.join().getId() > LEFT_BY_CRASH);
+    }
+
+    @Test
+    public void segmentsAreDeletedOnceInserted() throws Exception {
+        TransactionIngest ingest = TransactionIngest.get();
+        List<CompletableFuture<Transaction>> accepted = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            CompletableFuture<Transaction> durable = ingest.submit(row("Fed " + i, 0));
+            assertNotNull(durable);
+            accepted.add(durable);
+        }
+        int last = 0;
+        for (CompletableFuture<Transaction> durable : accepted) {
+            last = Math.max(last, durable.get(30, TimeUnit.SECONDS).getId());
+        }
+        long deadline = System.currentTimeMillis() + 30000;
+        while (TransactionServices.get().getTransaction(Transaction.DEFAULT_ACCOUNT, last) == null
+                || ingest.getQueuedCount() > 0) {
+            assertTrue("every row is inserted", System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+        // The writer deletes inserted segments when it is next idle
+        while (new IngestLog(dir).segments().size() > 1) {
+            assertTrue("inserted segments are deleted", System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+        assertTrue("the log holds at most one segment", ingest.getLogBytes() <= 16384 + 200 * 512);
+    }
+
+    private static Transaction row(String description, int id) {
+        Transaction row = new Transaction(description, 2.5, "expense", "Other", new Date(1700000000000L), null);
+        row.setId(id);
+        return row;
+    }
+}
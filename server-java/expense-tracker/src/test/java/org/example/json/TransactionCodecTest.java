@@ -0,0 +1,194 @@
+package org.example.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.Transaction;
+import org.example.model.TransactionList;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+// What TransactionCodec writes it must read back unchanged, and what it writes must be the JSON
+// a generic parser reads as the same values: dates as ISO-8601 UTC and amounts as the decimal
+// the double stands for.
+public class TransactionCodecTest {
+
+    private static final DateTimeFormatter ISO_MILLIS = DateTimeFormatter
+            .ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void transactionRoundTrips() throws IOException {
+        Transaction t = transaction(1234, "Café \"Le Petit\" \\ tab\t newline\n ☃ 😀", 12.34);
+        t.setAccount("acct-7");
+        t.setCreatedAt(new Date(1700000000123L));
+        t.setUpdatedAt(new Date(1700000999999L));
+        assertSame(t, readBack(t));
+    }
+
+    @Test
+    public void nullFieldsRoundTrip() throws IOException {
+        Transaction t = new Transaction(null, 0, "expense", null, null, null);
+        Transaction back = readBack(t);
+        assertNull(back.getDescription());
+        assertNull(back.getCategory());
+        assertNull(back.getDate());
+        assertNull(back.getNote());
+        assertNull(back.getCreatedAt());
+        assertEquals(Transaction.DEFAULT_ACCOUNT, back.getAccount());
+    }
+
+    @Test
+    public void amountsRoundTripExactly() throws IOException {
+        List<Double> amounts = new ArrayList<>(Arrays.asList(0.0, -0.0, 0.01, -0.07, 0.1, 0.5, 3.0, 12.5, 99999999.99,
+                -99999999.99, 0.1 + 0.2, 1.0 / 3, 1e-7, 1e15, 1e19, -1e21, Double.MIN_VALUE, Double.MAX_VALUE));
+        for (int i = 0; i < 10000; i++) {
+            amounts.add((random.nextInt(2000000001) - 1000000000) / 100.0);
+            amounts.add(random.nextDouble() * 1e6);
+        }
+        for (double amount : amounts) {
+            Transaction t = transaction(1, "Amount", amount);
+            assertEquals("amount " + amount, amount, readBack(t).getAmount(), 0);
+            assertEquals("amount " + amount + " as read by a generic parser", amount,
+                    generic(t).get("amount").asDouble(), 0);
+        }
+    }
+
+    @Test
+    public void centsAreFormattedAsTheirDecimal() {
+        char[] buf = new char[32];
+        for (int i = 0; i < 100000; i++) {
+            long cents = i < 1000 ? i - 500 : random.nextLong() % 100_000_000_000_000_000L;
+            int len = TransactionCodec.formatCents(cents, buf);
+            String text = new String(buf, buf.length - len, len);
+            assertEquals(0, BigDecimal.valueOf(cents, 2).compareTo(new BigDecimal(text)));
+        }
+    }
+
+    @Test
+    public void datesAreIsoUtcAndRoundTrip() throws IOException {
+        long[] fixed = {0, -1, 1, 86399999, 951782400000L, -62167219200000L, 253402300799999L, 1700000000000L};
+        List<Long> millis = new ArrayList<>();
+        for (long m : fixed) {
+            millis.add(m);
+        }
+        for (int i = 0; i < 10000; i++) {
+            millis.add(-62167219200000L + (long) (random.nextDouble() * (253402300799999L + 62167219200000L)));
+        }
+        char[] buf = new char[32];
+        for (long m : millis) {
+            assertEquals(24, TransactionCodec.formatIso(m, buf, 0));
+            assertEquals(ISO_MILLIS.format(Instant.ofEpochMilli(m)), new String(buf, 0, 24));
+
+            Transaction t = transaction(1, "Date", 1);
+            t.setDate(new Date(m));
+            assertEquals(m, readBack(t).getDate().getTime());
+        }
+        // Years past 9999 fall back to Instant's format, which the reader still accepts
+        Transaction far = transaction(1, "Far", 1);
+        far.setDate(new Date(253402300800000L));
+        assertEquals(-1, TransactionCodec.formatIso(far.getDate().getTime(), buf, 0));
+        assertEquals("+10000-01-01T00:00:00Z", generic(far).get("date").asText());
+    }
+
+    @Test
+    public void listsRoundTrip() throws IOException {
+        List<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Transaction t = transaction(i + 1, "Row " + i, i * 1.25);
+            t.setNote(i % 2 == 0 ? null : "Note " + i);
+            rows.add(t);
+        }
+        TransactionList list = new TransactionList();
+        list.setTransactions(rows);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator g = TransactionCodec.generator(out)) {
+            TransactionCodec.writeList(g, list);
+        }
+        TransactionList back;
+        try (JsonParser p = TransactionCodec.parser(new ByteArrayInputStream(out.toByteArray()))) {
+            back = TransactionCodec.readList(p);
+        }
+        assertEquals(rows.size(), back.getTransactions().size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertSame(rows.get(i), back.getTransactions().get(i));
+        }
+        assertEquals(rows.size(), new ObjectMapper().readTree(out.toByteArray()).get("transactions").size());
+    }
+
+    @Test
+    public void readerAcceptsTheDateFormsClientsSend() throws IOException {
+        assertEquals(1705312800000L, parse("{\"date\": \"2024-01-15T10:00:00Z\"}").getDate().getTime());
+        assertEquals(1705312800000L, parse("{\"date\": \"2024-01-15T11:00:00+01:00\"}").getDate().getTime());
+        assertEquals(1705312800000L, parse("{\"date\": \"2024-01-15T10:00:00\"}").getDate().getTime());
+        assertEquals(1705276800000L, parse("{\"date\": \"2024-01-15\"}").getDate().getTime());
+        assertEquals(1705312800000L, parse("{\"date\": 1705312800000}").getDate().getTime());
+        assertEquals(12.5, parse("{\"amount\": \"12.50\", \"unknown\": {\"nested\": [1, 2]}}").getAmount(), 0);
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void readerRejectsABadDate() throws IOException {
+        parse("{\"date\": \"15/01/2024\"}");
+    }
+
+    private static Transaction transaction(int id, String description, double amount) {
+        Transaction t = new Transaction(description, amount, "expense", "Dining", new Date(1705312800000L), "Note");
+        t.setId(id);
+        return t;
+    }
+
+    private static Transaction readBack(Transaction t) throws IOException {
+        return parse(new String(write(t), StandardCharsets.UTF_8));
+    }
+
+    private static JsonNode generic(Transaction t) throws IOException {
+        return new ObjectMapper().readTree(write(t));
+    }
+
+    private static byte[] write(Transaction t) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator g = TransactionCodec.generator(out)) {
+            TransactionCodec.write(g, t);
+        }
+        return out.toByteArray();
+    }
+
+    private static Transaction parse(String json) throws IOException {
+        try (JsonParser p = TransactionCodec.parser(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+            return TransactionCodec.read(p);
+        }
+    }
+
+    private static void assertSame(Transaction expected, Transaction actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getAccount(), actual.getAccount());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getAmount(), actual.getAmount(), 0);
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getNote(), actual.getNote());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+    }
+}
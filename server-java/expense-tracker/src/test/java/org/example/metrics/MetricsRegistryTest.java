@@ -0,0 +1,27 @@
+package org.example.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void inListsOfAnyLengthShareOneKey() {
+        assertEquals("SELECT * FROM t WHERE id IN (?) FOR UPDATE",
+                MetricsRegistry.normalize("SELECT * FROM t WHERE id IN (?, ?,?) FOR UPDATE"));
+        assertEquals("DELETE FROM t WHERE id IN (?)", MetricsRegistry.normalize("DELETE FROM t WHERE id in ( ?,? )"));
+        assertEquals("SELECT * FROM t WHERE id IN (?)", MetricsRegistry.normalize("SELECT * FROM t WHERE id IN (?)"));
+    }
+
+    @Test
+    public void statementHistogramsFollowTheNormalizedText() {
+        LatencyHistogram two = MetricsRegistry.statement("SELECT id FROM registry_test WHERE id IN (?, ?)");
+        LatencyHistogram three = MetricsRegistry.statement("SELECT id FROM registry_test WHERE id IN (?, ?, ?)");
+        assertSame(two, three);
+        assertSame(two, MetricsRegistry.statement("SELECT id FROM registry_test WHERE id IN (?, ?)"));
+        assertNotSame(two, MetricsRegistry.statement("SELECT id FROM registry_test WHERE account = ?"));
+    }
+}
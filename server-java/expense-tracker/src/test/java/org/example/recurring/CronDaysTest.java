@@ -0,0 +1,80 @@
+package org.example.recurring;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CronDaysTest {
+
+    @Test
+    public void rangesStepsAndLists() {
+        CronDays weekdays = new CronDays("30 9 * * 1-5");
+        assertTrue(weekdays.matches(LocalDate.parse("2024-05-03")));
+        assertFalse(weekdays.matches(LocalDate.parse("2024-05-04")));
+
+        CronDays everyOtherDay = new CronDays("0 0 1/2 * *");
+        assertTrue(everyOtherDay.matches(LocalDate.parse("2024-05-03")));
+        assertFalse(everyOtherDay.matches(LocalDate.parse("2024-05-04")));
+
+        CronDays quarters = new CronDays("0 0 1 */3 *");
+        assertTrue(quarters.matches(LocalDate.parse("2024-04-01")));
+        assertFalse(quarters.matches(LocalDate.parse("2024-05-01")));
+        assertFalse(quarters.matches(LocalDate.parse("2024-04-02")));
+
+        CronDays list = new CronDays("0 0 1,15,28-31 * *");
+        assertTrue(list.matches(LocalDate.parse("2024-02-29")));
+        assertFalse(list.matches(LocalDate.parse("2024-02-16")));
+    }
+
+    @Test
+    public void sundayIsZeroOrSeven() {
+        LocalDate sunday = LocalDate.parse("2024-05-05");
+        assertTrue(new CronDays("0 0 * * 0").matches(sunday));
+        assertTrue(new CronDays("0 0 * * 7").matches(sunday));
+        assertFalse(new CronDays("0 0 * * 6").matches(sunday));
+    }
+
+    // As in cron, restricting both day fields fires on a day matching either
+    @Test
+    public void restrictedDayFieldsAreEitherOr() {
+        CronDays either = new CronDays("0 0 13 * 5");
+        assertTrue("the 13th", either.matches(LocalDate.parse("2024-05-13")));
+        assertTrue("a Friday", either.matches(LocalDate.parse("2024-05-10")));
+        assertFalse(either.matches(LocalDate.parse("2024-05-14")));
+
+        CronDays both = new CronDays("0 0 * 5 5");
+        assertTrue(both.matches(LocalDate.parse("2024-05-10")));
+        assertFalse("a day field of * keeps the weekday a restriction", both.matches(LocalDate.parse("2024-05-13")));
+    }
+
+    @Test
+    public void malformedExpressionsAreRejected() {
+        rejected("0 0 * *", "5 fields");
+        rejected("0 0 32 * *", "day of month '32'");
+        rejected("0 24 * * *", "hour '24'");
+        rejected("0 0 * 0 *", "month '0'");
+        rejected("0 0 10-5 * *", "day of month '5'");
+        rejected("0 0 */0 * *", "day of month '0'");
+        rejected("0 0 x * *", "day of month 'x'");
+    }
+
+    private static void rejected(String expression, String message) {
+        try {
+            new CronDays(expression);
+            fail(expression + " was accepted");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    @Test
+    public void minuteAndHourAreCheckedButIgnored() {
+        assertEquals(new CronDays("0 0 * * *").matches(LocalDate.parse("2024-05-05")),
+                new CronDays("59 23 * * *").matches(LocalDate.parse("2024-05-05")));
+    }
+}
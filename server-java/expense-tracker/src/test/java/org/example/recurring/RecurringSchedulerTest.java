@@ -0,0 +1,95 @@
+package org.example.recurring;
+
+import org.example.model.RecurringTransaction;
+import org.example.model.Transaction;
+import org.example.model.TransactionFilter;
+import org.example.service.TransactionServices;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Two daily schedules started 100 days ago, caught up in batches of 30 over an embedded store
+public class RecurringSchedulerTest {
+
+    private static final String ACCOUNT = "recurring-test";
+    private static final int DAYS = 100;
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static RecurringTransaction first;
+    private static RecurringTransaction second;
+
+    @BeforeClass
+    public static void start() throws Exception {
+        System.setProperty("storage.backend", TransactionServices.EMBEDDED);
+        System.setProperty("storage.embedded.path", folder.newFolder().toPath().resolve("transactions.db").toString());
+        System.setProperty("recurring.path", folder.getRoot().toPath().resolve("recurring.json").toString());
+        System.setProperty("recurring.batchSize", "30");
+        System.setProperty("recurring.maxCatchUpDays", "366");
+        RecurringScheduler scheduler = RecurringScheduler.get();
+        String start = LocalDate.now().minusDays(DAYS - 1).toString();
+        first = scheduler.createRecurring(daily("Gym", start));
+        second = scheduler.createRecurring(daily("Parking", start));
+        scheduler.start();
+    }
+
+    @AfterClass
+    public static void stop() {
+        RecurringScheduler.get().shutdown();
+        TransactionServices.close();
+    }
+
+    @Test
+    public void aLongCatchUpIsWrittenABatchAtATime() throws Exception {
+        RecurringScheduler scheduler = RecurringScheduler.get();
+        long deadline = System.currentTimeMillis() + 30000;
+        while (scheduler.getWrittenCount() < 2 * DAYS) {
+            assertTrue("the catch-up finishes", System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+        String tomorrow = LocalDate.now().plusDays(1).toString();
+        assertEquals(tomorrow, scheduler.getRecurring(ACCOUNT, first.getId()).getNextDate());
+        assertEquals(tomorrow, scheduler.getRecurring(ACCOUNT, second.getId()).getNextDate());
+
+        TransactionFilter filter = new TransactionFilter();
+        filter.setAccount(ACCOUNT);
+        Set<String> gym = new HashSet<>();
+        Set<String> parking = new HashSet<>();
+        long rows = TransactionServices.get().exportTransactions(filter, row ->
+                ("Gym".equals(row.getDescription()) ? gym : parking).add(row.getDate().toString()));
+        assertEquals("each occurrence is written once", 2 * DAYS, rows);
+        assertEquals("every day of each schedule is written", DAYS, gym.size());
+        assertEquals("every day of each schedule is written", DAYS, parking.size());
+        assertEquals(2 * DAYS, scheduler.getWrittenCount());
+        assertEquals(0, scheduler.getFailureCount());
+    }
+
+    @Test
+    public void startDatesPastTheHorizonAreRefusedOnCreate() {
+        RecurringTransaction old = daily("Old", LocalDate.now().minusDays(400).toString());
+        assertNotNull(RecurringScheduler.validateNew(old));
+        assertNull("an update applies from the next occurrence, so the start date may be old",
+                RecurringScheduler.validate(old));
+        assertNull(RecurringScheduler.validateNew(daily("Recent", LocalDate.now().minusDays(300).toString())));
+    }
+
+    private static RecurringTransaction daily(String description, String start) {
+        RecurringTransaction definition = ScheduleTest.definition("daily", 1, null, start, null);
+        definition.setDescription(description);
+        definition.setAccount(ACCOUNT);
+        definition.setCategory("Other");
+        return definition;
+    }
+}
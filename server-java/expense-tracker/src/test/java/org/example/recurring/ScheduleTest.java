@@ -0,0 +1,87 @@
+package org.example.recurring;
+
+import org.example.model.RecurringTransaction;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ScheduleTest {
+
+    @Test
+    public void monthlyFromThe31stFallsOnTheLastDayOfShorterMonths() {
+        Schedule schedule = new Schedule(definition("monthly", 1, null, "2024-01-31", null));
+        assertEquals(days("2024-01-31", "2024-02-29", "2024-03-31", "2024-04-30", "2024-05-31"),
+                occurrences(schedule, LocalDate.parse("2024-01-01"), 5));
+    }
+
+    @Test
+    public void intervalsCountFromTheStartDate() {
+        Schedule everyOtherWeek = new Schedule(definition("weekly", 2, null, "2024-03-04", null));
+        assertEquals("the first occurrence on or after a day between two",
+                LocalDate.parse("2024-03-18"), everyOtherWeek.onOrAfter(LocalDate.parse("2024-03-05")));
+        assertEquals(days("2024-03-18", "2024-04-01", "2024-04-15"), occurrences(everyOtherWeek, LocalDate.parse("2024-03-11"), 3));
+
+        Schedule leapDay = new Schedule(definition("yearly", 1, null, "2024-02-29", null));
+        assertEquals(days("2024-02-29", "2025-02-28", "2026-02-28", "2027-02-28", "2028-02-29"),
+                occurrences(leapDay, LocalDate.parse("2020-01-01"), 5));
+
+        Schedule everyThirdDay = new Schedule(definition("daily", 3, null, "2024-01-01", null));
+        assertEquals("across the year end", LocalDate.parse("2025-01-01"), everyThirdDay.onOrAfter(LocalDate.parse("2024-12-30")));
+    }
+
+    @Test
+    public void nothingIsLeftAfterTheEndDate() {
+        Schedule schedule = new Schedule(definition("monthly", 1, null, "2024-01-15", "2024-03-15"));
+        assertEquals(days("2024-01-15", "2024-02-15", "2024-03-15"), occurrences(schedule, LocalDate.parse("2024-01-01"), 10));
+        assertNull(schedule.onOrAfter(LocalDate.parse("2024-03-16")));
+
+        Schedule cron = new Schedule(definition("cron", 1, "0 0 29 2 *", "2025-01-01", "2027-12-31"));
+        assertNull("no Feb 29 before the end date", cron.onOrAfter(LocalDate.parse("2025-01-01")));
+    }
+
+    @Test
+    public void cronSchedulesFindTheNextMatchingDay() {
+        Schedule midAndStart = new Schedule(definition("cron", 1, "0 0 1,15 * *", "2024-01-10", null));
+        assertEquals(days("2024-01-15", "2024-02-01", "2024-02-15", "2024-03-01"),
+                occurrences(midAndStart, LocalDate.parse("2023-12-01"), 4));
+        // The 13th or a Friday, whichever comes first
+        Schedule thirteenthOrFriday = new Schedule(definition("cron", 1, "0 0 13 * 5", "2024-01-01", null));
+        assertEquals(LocalDate.parse("2024-01-05"), thirteenthOrFriday.onOrAfter(LocalDate.parse("2024-01-01")));
+    }
+
+    private static List<LocalDate> occurrences(Schedule schedule, LocalDate from, int max) {
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate day = schedule.onOrAfter(from); day != null && days.size() < max; day = schedule.after(day)) {
+            days.add(day);
+        }
+        return days;
+    }
+
+    private static List<LocalDate> days(String... days) {
+        List<LocalDate> parsed = new ArrayList<>();
+        for (String day : Arrays.asList(days)) {
+            parsed.add(LocalDate.parse(day));
+        }
+        return parsed;
+    }
+
+    static RecurringTransaction definition(String frequency, int interval, String cron, String start, String end) {
+        RecurringTransaction definition = new RecurringTransaction();
+        definition.setDescription("Rent");
+        definition.setAmount(900);
+        definition.setType("expense");
+        definition.setCategory("Rent");
+        definition.setFrequency(frequency);
+        definition.setInterval(interval);
+        definition.setCron(cron);
+        definition.setStartDate(start);
+        definition.setEndDate(end);
+        return definition;
+    }
+}
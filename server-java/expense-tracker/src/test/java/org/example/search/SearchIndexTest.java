@@ -0,0 +1,89 @@
+package org.example.search;
+
+import org.example.model.Transaction;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+
+public class SearchIndexTest {
+
+    private static final String ACCOUNT = Transaction.DEFAULT_ACCOUNT;
+
+    @Test
+    public void wholeWordsAndDescriptionsRankFirst() {
+        SearchIndex index = new SearchIndex();
+        index.upsert(row(1, "Coffee beans", "Groceries", null, "2024-03-10"));
+        index.upsert(row(2, "Coffeehouse", "Dining", null, "2024-03-11"));
+        index.upsert(row(3, "Lunch", "Dining", "coffee after", "2024-03-12"));
+        index.upsert(row(4, "Train", "Transport", null, "2024-03-13"));
+
+        SearchIndex.Hits hits = index.search("coffee", ACCOUNT, 0, 10);
+        assertEquals(3, hits.getTotal());
+        // The whole word in a description, then the start of one, then the whole word in a note
+        assertEquals(Arrays.asList(1, 2, 3), hits.getIds());
+        assertEquals("every word must match", Collections.singletonList(1), index.search("coffee beans", ACCOUNT, 0, 10).getIds());
+        assertEquals("a longer prefix narrows the matches", Collections.singletonList(2), index.search("coffeeh", ACCOUNT, 0, 10).getIds());
+        assertEquals("no word matches", 0, index.search("bus", ACCOUNT, 0, 10).getTotal());
+    }
+
+    @Test
+    public void monthAndYearWordsMatchTheDate() {
+        SearchIndex index = new SearchIndex();
+        index.upsert(row(1, "Rent", "Housing", null, "2023-03-15"));
+        index.upsert(row(2, "Rent", "Housing", null, "2024-03-15"));
+        index.upsert(row(3, "Rent", "Housing", null, "2024-05-15"));
+        index.upsert(row(4, "March madness tickets", "Leisure", null, "2024-07-15"));
+
+        // The word in a description counts for more than the date
+        assertEquals(Arrays.asList(4, 2, 1), index.search("march", ACCOUNT, 0, 10).getIds());
+        assertEquals(Arrays.asList(2, 1), index.search("rent mar", ACCOUNT, 0, 10).getIds());
+        // Equal scores are broken by the newer date
+        assertEquals(Arrays.asList(3, 2), index.search("rent 2024", ACCOUNT, 0, 10).getIds());
+    }
+
+    @Test
+    public void pagesAccountsUpdatesAndDeletes() {
+        SearchIndex index = new SearchIndex();
+        for (int id = 1; id <= 30; id++) {
+            index.upsert(row(id, "Café " + id, "Dining", null, "2024-01-" + (10 + id % 15)));
+        }
+        Transaction other = row(31, "Cafe", "Dining", null, "2024-01-01");
+        other.setAccount("other");
+        index.upsert(other);
+
+        SearchIndex.Hits first = index.search("cafe", ACCOUNT, 0, 10);
+        SearchIndex.Hits second = index.search("cafe", ACCOUNT, 10, 10);
+        assertEquals("accents are folded and other accounts left out", 30, first.getTotal());
+        assertEquals(10, second.getIds().size());
+        assertEquals("pages do not overlap", 0, intersection(first, second));
+        assertEquals(Collections.singletonList(31), index.search("café", "other", 0, 10).getIds());
+
+        index.upsert(row(5, "Bakery", "Dining", null, "2024-01-20"));
+        index.delete(6);
+        assertEquals("an update drops the old words", 28, index.search("cafe", ACCOUNT, 0, 10).getTotal());
+        assertEquals(Collections.singletonList(5), index.search("bakery", ACCOUNT, 0, 10).getIds());
+        assertEquals(30, index.getDocumentCount());
+    }
+
+    private static int intersection(SearchIndex.Hits a, SearchIndex.Hits b) {
+        int shared = 0;
+        for (int id : a.getIds()) {
+            shared += b.getIds().contains(id) ? 1 : 0;
+        }
+        return shared;
+    }
+
+    private static Transaction row(int id, String description, String category, String note, String date) {
+        Date at = Date.from(LocalDate.parse(date).atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant());
+        Transaction row = new Transaction(description, 10, "expense", category, at, note);
+        row.setId(id);
+        row.setAccount(ACCOUNT);
+        return row;
+    }
+}
@@ -0,0 +1,366 @@
+package org.example.service;
+
+import org.example.db.TestDatabase;
+import org.example.model.BatchResult;
+import org.example.model.Transaction;
+import org.example.model.TransactionFilter;
+import org.example.model.TransactionPage;
+import org.example.model.TransactionSummary;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+// The same checks against every backend, so a new TransactionService is held to what the MySQL
+// one does. MySQL is stood in for by H2, the embedded store gets a temporary file, and the
+// sharded store spreads the accounts over two embedded ones. Each test leaves its backend empty,
+// so the aggregates all of them share add back up to nothing.
+@RunWith(Parameterized.class)
+public class BackendConformanceTest {
+
+    private static final long DAY = 86400000L;
+    // Whole seconds, which is all a DATETIME column keeps
+    private static final long BASE = 1700000000000L;
+    private static final String ACCOUNT = Transaction.DEFAULT_ACCOUNT;
+    private static final String[] CATEGORIES = {"Groceries", "Dining", "Transport"};
+
+    // MySQL first: the other two switch every insert over to in-process ids once they open
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> backends() {
+        return Arrays.asList(new Object[][]{{"mysql"}, {"embedded"}, {"sharded"}});
+    }
+
+    @Parameterized.Parameter
+    public String backend;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TransactionService service;
+
+    @BeforeClass
+    public static void createTable() throws Exception {
+        TestDatabase.reset();
+        // Seeded from the table before any backend writes, as Main does at startup
+        TransactionAggregates.get();
+    }
+
+    @Before
+    public void open() throws Exception {
+        switch (backend) {
+            case "mysql":
+                service = new TransactionServiceImpl();
+                break;
+            case "embedded":
+                service = embedded();
+                break;
+            default:
+                Map<String, TransactionService> shards = new LinkedHashMap<>();
+                shards.put("a", embedded());
+                shards.put("b", embedded());
+                service = new ShardedTransactionService(shards, 128);
+        }
+    }
+
+    @After
+    public void empty() throws Exception {
+        List<Transaction> left = new ArrayList<>();
+        service.exportTransactions(new TransactionFilter(), left::add);
+        Map<String, List<Integer>> byAccount = new LinkedHashMap<>();
+        for (Transaction transaction : left) {
+            byAccount.computeIfAbsent(transaction.getAccount(), k -> new ArrayList<>()).add(transaction.getId());
+        }
+        for (Map.Entry<String, List<Integer>> account : byAccount.entrySet()) {
+            service.deleteTransactions(account.getKey(), account.getValue());
+        }
+        if (service instanceof Closeable) {
+            ((Closeable) service).close();
+        }
+    }
+
+    @Test
+    public void singleRowWrites() {
+        long versionBefore = TransactionChangeLog.get().head();
+
+        Transaction created = service.createTransaction(row("Coffee", 3.456, "expense", "Dining", 0));
+        assertNotNull("create returns the stored row", created);
+        assertTrue("create returns the stored row", created.getId() > 0);
+        assertEquals("create rounds the amount to cents", 3.46, created.getAmount(), 0);
+        assertTrue("create sets createdAt and updatedAt", created.getCreatedAt() != null && created.getUpdatedAt() != null);
+        assertTrue("get returns what create returned", same(created, service.getTransaction(ACCOUNT, created.getId())));
+        assertNull("get of an unknown id is null", service.getTransaction(ACCOUNT, Integer.MAX_VALUE));
+        assertEquals("each write takes a change-log version", versionBefore + 1, TransactionChangeLog.get().head());
+
+        int id = created.getId();
+        Transaction changed = row("Coffee beans", 12, "expense", "Groceries", 1);
+        assertTrue("update of an existing row succeeds", service.updateTransaction(ACCOUNT, id, changed));
+        Transaction updated = service.getTransaction(ACCOUNT, id);
+        assertNotNull(updated);
+        assertEquals("update replaces the fields", "Coffee beans", updated.getDescription());
+        assertEquals("update replaces the fields", 12, updated.getAmount(), 0);
+        assertEquals("update replaces the fields", "Groceries", updated.getCategory());
+        assertEquals("update replaces the fields", BASE + DAY, updated.getDate().getTime());
+        assertEquals("update keeps createdAt", created.getCreatedAt().getTime(), updated.getCreatedAt().getTime());
+        assertFalse("update of an unknown id fails", service.updateTransaction(ACCOUNT, Integer.MAX_VALUE, changed));
+        assertTrue("delete of an existing row succeeds", service.deleteTransaction(ACCOUNT, id));
+        assertNull("deleted row is gone", service.getTransaction(ACCOUNT, id));
+        assertFalse("delete of an unknown id fails", service.deleteTransaction(ACCOUNT, id));
+    }
+
+    @Test
+    public void batchWrites() {
+        List<Integer> ids = createBatch();
+
+        Transaction missing = row("Missing", 1, "expense", "Other", 0);
+        missing.setId(Integer.MAX_VALUE);
+        Transaction edit = row("Edited", 99, "expense", "Other", 3);
+        edit.setId(ids.get(0));
+        BatchResult partial = service.updateTransactions(ACCOUNT, Arrays.asList(edit, missing));
+        assertEquals("batch update reports missing ids", Collections.singletonList(Integer.MAX_VALUE), partial.getMissing());
+        assertEquals("batch update with a missing id changes nothing", "Row 0",
+                service.getTransaction(ACCOUNT, ids.get(0)).getDescription());
+        BatchResult edited = service.updateTransactions(ACCOUNT, Collections.singletonList(edit));
+        assertEquals("batch update writes every row", 1, edited.getCount());
+        assertEquals("batch update writes every row", "Edited", service.getTransaction(ACCOUNT, edit.getId()).getDescription());
+
+        BatchResult notDeleted = service.deleteTransactions(ACCOUNT, Arrays.asList(ids.get(1), Integer.MAX_VALUE));
+        assertEquals("batch delete reports missing ids", 1, notDeleted.getMissing().size());
+        assertNotNull("batch delete with a missing id deletes nothing", service.getTransaction(ACCOUNT, ids.get(1)));
+        BatchResult deleted = service.deleteTransactions(ACCOUNT, Arrays.asList(ids.get(1), ids.get(2)));
+        assertEquals("batch delete removes every row", 2, deleted.getCount());
+        assertNull("batch delete removes every row", service.getTransaction(ACCOUNT, ids.get(1)));
+        assertNull("batch delete removes every row", service.getTransaction(ACCOUNT, ids.get(2)));
+
+        Transaction replayed = row("Replayed", 7, "income", "Other", 5);
+        replayed.setId(ids.get(3));
+        Transaction fresh = row("Ingested", 8, "income", "Other", 5);
+        fresh.setId(service.getMaxId() + 100);
+        BatchResult ingested = service.ingestTransactions(Arrays.asList(replayed, fresh));
+        assertEquals("ingest skips ids already stored", 1, ingested.getCount());
+        assertEquals("ingest skips ids already stored", "Row 3", service.getTransaction(ACCOUNT, ids.get(3)).getDescription());
+        assertNotNull("ingest keeps the given id", service.getTransaction(ACCOUNT, fresh.getId()));
+    }
+
+    @Test
+    public void readsMatchTheRows() {
+        createBatch();
+        List<Transaction> all = new ArrayList<>();
+        long exported = service.exportTransactions(new TransactionFilter(), all::add);
+        assertEquals("export returns its row count", 40, exported);
+        assertEquals("export returns its row count", exported, all.size());
+        assertTrue("export is ordered by date then id, newest first", ordered(all));
+
+        TransactionFilter filter = new TransactionFilter();
+        filter.setType("expense");
+        filter.setFrom(new Date(BASE + 2 * DAY));
+        filter.setTo(new Date(BASE + 15 * DAY));
+        List<Transaction> expected = new ArrayList<>();
+        for (Transaction transaction : all) {
+            long date = transaction.getDate().getTime();
+            if ("expense".equals(transaction.getType()) && date >= BASE + 2 * DAY && date < BASE + 15 * DAY) {
+                expected.add(transaction);
+            }
+        }
+        List<Transaction> paged = new ArrayList<>();
+        PageCursor cursor = null;
+        int pages = 0;
+        while (pages++ < 100) {
+            TransactionPage page = service.getTransactions(filter, cursor, 4);
+            paged.addAll(page.getTransactions());
+            if (page.getNext() == null) {
+                break;
+            }
+            cursor = PageCursor.decode(page.getNext());
+        }
+        assertTrue("pages of a filter add up to the filtered export", sameList(expected, paged));
+        List<Transaction> filteredExport = new ArrayList<>();
+        service.exportTransactions(filter, filteredExport::add);
+        assertTrue("filtered export matches the filter", sameList(expected, filteredExport));
+
+        TransactionFilter category = new TransactionFilter();
+        category.setCategory(CATEGORIES[1]);
+        TransactionSummary byCategory = service.getSummary(category);
+        long count = 0;
+        double total = 0;
+        for (Transaction transaction : all) {
+            if (CATEGORIES[1].equals(transaction.getCategory())) {
+                count++;
+                total += transaction.getAmount();
+            }
+        }
+        assertEquals("filtered summary counts the matching rows", count, byCategory.getCount());
+        assertEquals("filtered summary counts the matching rows", total, byCategory.getIncome() + byCategory.getExpense(), 0.005);
+        assertEquals("filtered summary has one row per type", 2, byCategory.getCategories().size());
+
+        TransactionSummary summary = service.getSummary(new TransactionFilter());
+        double income = 0;
+        double expense = 0;
+        for (Transaction transaction : all) {
+            if ("income".equals(transaction.getType())) {
+                income += transaction.getAmount();
+            } else {
+                expense += transaction.getAmount();
+            }
+        }
+        assertEquals("summary totals match the rows", all.size(), summary.getCount());
+        assertEquals("summary totals match the rows", income, summary.getIncome(), 0.005);
+        assertEquals("summary totals match the rows", expense, summary.getExpense(), 0.005);
+        TransactionFilter everything = new TransactionFilter();
+        everything.setFrom(new Date(0));
+        TransactionSummary scanned = service.getSummary(everything);
+        assertEquals("scanned summary matches the aggregates", summary.getCount(), scanned.getCount());
+        assertEquals("scanned summary matches the aggregates", summary.getMonths().size(), scanned.getMonths().size());
+        assertEquals("scanned summary matches the aggregates", summary.getBalance(), scanned.getBalance(), 0.005);
+    }
+
+    // Rows of another account are invisible to every call naming the default one
+    @Test
+    public void accountsAreKeptApart() {
+        List<Integer> ids = createBatch();
+        Transaction other = row("Other account", 5, "expense", "Other", 2);
+        other.setAccount("other");
+        Transaction created = service.createTransaction(other);
+        assertNotNull(created);
+        assertEquals("create keeps the account", "other", created.getAccount());
+        int id = created.getId();
+        assertTrue("get names the row's account", same(created, service.getTransaction("other", id)));
+        assertNull("get names the row's account", service.getTransaction(ACCOUNT, id));
+        List<Transaction> found = service.getTransactions(ACCOUNT, Arrays.asList(ids.get(7), id, Integer.MAX_VALUE, ids.get(2)));
+        assertNotNull(found);
+        assertEquals("a multi-row get leaves out other accounts and missing ids", 2, found.size());
+        assertEquals("a multi-row get keeps the order asked for", (int) ids.get(7), found.get(0).getId());
+        assertEquals("a multi-row get keeps the order asked for", (int) ids.get(2), found.get(1).getId());
+        assertTrue("a multi-row get reads the same rows", same(service.getTransaction(ACCOUNT, ids.get(2)), found.get(1)));
+        assertFalse("update of another account's row fails",
+                service.updateTransaction(ACCOUNT, id, row("Taken", 1, "expense", "Other", 2)));
+        assertFalse("delete of another account's row fails", service.deleteTransaction(ACCOUNT, id));
+        assertNotNull("delete of another account's row fails", service.getTransaction("other", id));
+        BatchResult notDeleted = service.deleteTransactions(ACCOUNT, Collections.singletonList(id));
+        assertEquals("batch delete reports another account's row missing", 1, notDeleted.getMissing().size());
+
+        TransactionFilter mine = new TransactionFilter();
+        mine.setAccount(ACCOUNT);
+        List<Transaction> rows = new ArrayList<>();
+        service.exportTransactions(mine, rows::add);
+        assertEquals("an account's export leaves the others out", 40, rows.size());
+        TransactionPage page = service.getTransactions(mine, null, 100);
+        assertEquals("an account's page leaves the others out", 40, page.getTransactions().size());
+        assertEquals("an account's summary leaves the others out", 40, service.getSummary(mine).getCount());
+        TransactionFilter theirs = new TransactionFilter();
+        theirs.setAccount("other");
+        TransactionSummary otherSummary = service.getSummary(theirs);
+        assertEquals("another account's summary holds its row", 1, otherSummary.getCount());
+        assertEquals("another account's summary holds its row", 5, otherSummary.getExpense(), 0.005);
+        assertEquals("accounts lists both", new HashSet<>(Arrays.asList(ACCOUNT, "other")), new HashSet<>(service.getAccounts()));
+        assertTrue("deleting in the right account succeeds", service.deleteTransaction("other", id));
+    }
+
+    // What was written must come back after the store is reopened, and again after compaction
+    @Test
+    public void embeddedStoreSurvivesReopenAndCompaction() throws Exception {
+        assumeTrue("embedded".equals(backend));
+        List<Integer> ids = createBatch();
+        service.deleteTransactions(ACCOUNT, ids.subList(0, 10));
+        EmbeddedTransactionService store = (EmbeddedTransactionService) service;
+        List<Transaction> before = new ArrayList<>();
+        store.exportTransactions(new TransactionFilter(), before::add);
+        store.close();
+
+        EmbeddedTransactionService reopened = new EmbeddedTransactionService(store.getFile(), 0, 0);
+        service = reopened;
+        List<Transaction> after = new ArrayList<>();
+        reopened.exportTransactions(new TransactionFilter(), after::add);
+        assertTrue("reopened store holds the same rows", sameList(before, after));
+        long logBytes = reopened.getLogBytes();
+        reopened.compact();
+        assertTrue("compaction drops dead records", reopened.getLogBytes() < logBytes);
+        reopened.close();
+
+        EmbeddedTransactionService compacted = new EmbeddedTransactionService(store.getFile(), 0, 0);
+        service = compacted;
+        after.clear();
+        compacted.exportTransactions(new TransactionFilter(), after::add);
+        assertTrue("compacted store holds the same rows", sameList(before, after));
+    }
+
+    private List<Integer> createBatch() {
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            batch.add(row("Row " + i, i + 0.5, i % 4 == 0 ? "income" : "expense", CATEGORIES[i % 3], i / 2));
+        }
+        BatchResult inserted = service.createTransactions(batch);
+        assertNotNull(inserted);
+        assertEquals("batch create writes every row", batch.size(), inserted.getCount());
+        assertEquals("batch create writes every row", batch.size(), new HashSet<>(inserted.getIds()).size());
+        assertEquals("batch create sets the ids on the rows", (int) inserted.getIds().get(0), batch.get(0).getId());
+        assertTrue("max id covers the batch", service.getMaxId() >= Collections.max(inserted.getIds()));
+        return inserted.getIds();
+    }
+
+    private EmbeddedTransactionService embedded() throws Exception {
+        return new EmbeddedTransactionService(folder.newFolder().toPath().resolve("transactions.db"), 0, 0);
+    }
+
+    private static Transaction row(String description, double amount, String type, String category, int day) {
+        return new Transaction(description, amount, type, category, new Date(BASE + day * DAY),
+                day % 2 == 0 ? null : "Note " + day);
+    }
+
+    private static boolean ordered(List<Transaction> rows) {
+        for (int i = 1; i < rows.size(); i++) {
+            Transaction a = rows.get(i - 1);
+            Transaction b = rows.get(i);
+            int byDate = b.getDate().compareTo(a.getDate());
+            if (byDate > 0 || (byDate == 0 && b.getId() >= a.getId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameList(List<Transaction> expected, List<Transaction> actual) {
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        Set<Integer> seen = new HashSet<>();
+        for (int i = 0; i < expected.size(); i++) {
+            if (!same(expected.get(i), actual.get(i)) || !seen.add(actual.get(i).getId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean same(Transaction a, Transaction b) {
+        return b != null && a.getId() == b.getId()
+                && Objects.equals(a.getDescription(), b.getDescription())
+                && a.getAmount() == b.getAmount()
+                && Objects.equals(a.getType(), b.getType())
+                && Objects.equals(a.getCategory(), b.getCategory())
+                && a.getDate().getTime() == b.getDate().getTime()
+                && Objects.equals(a.getNote(), b.getNote());
+    }
+}
@@ -0,0 +1,245 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.example.db.ConnectionPool;
+import org.example.db.TestDatabase;
+import org.example.json.TransactionCodec;
+import org.example.model.TransactionFilter;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Timestamp;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Exports export.rows rows (three million by default) the way GET /api/transactions/export
+// does, from the cursor into NDJSON, in the test JVM's 256 MB heap; held in a list the rows
+// alone would need several times that. A database keeping millions of rows would itself fill
+// the heap, so the rows come from GeneratedRows, a driver that makes each row as the cursor
+// reaches it, as MySQL's cursor fetch sends them. The live heap is sampled after a full GC
+// every SAMPLE_EVERY rows and must stay within MAX_GROWTH of where it started.
+public class ExportHeapTest {
+
+    private static final int ROWS = Integer.getInteger("export.rows", 3000000);
+    private static final int SAMPLE_EVERY = 250000;
+    private static final long MAX_GROWTH = 16L * 1024 * 1024;
+
+    private static ConnectionPool pool;
+
+    @BeforeClass
+    public static void open() throws Exception {
+        DriverManager.registerDriver(new GeneratedRows());
+        pool = TestDatabase.pool(GeneratedRows.PREFIX + ROWS, 1);
+    }
+
+    @AfterClass
+    public static void close() {
+        pool.close();
+    }
+
+    @Test
+    public void exportStreamsInABoundedHeap() throws Exception {
+        TransactionService service = new TransactionServiceImpl(pool);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseline = liveHeap(memory);
+        long[] peak = {baseline};
+        CountingOutputStream output = new CountingOutputStream();
+
+        long start = System.currentTimeMillis();
+        JsonGenerator generator = TransactionCodec.generator(output);
+        generator.setRootValueSeparator(null);
+        long[] written = {0};
+        long count = service.exportTransactions(new TransactionFilter(), transaction -> {
+            try {
+                TransactionCodec.write(generator, transaction);
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (++written[0] % SAMPLE_EVERY == 0) {
+                peak[0] = Math.max(peak[0], liveHeap(memory));
+            }
+        });
+        generator.flush();
+
+        System.out.printf("Exported %d rows, %d MB of NDJSON, in %d ms; live heap %d MB at the start, at most %d MB%n",
+                count, output.bytes >> 20, System.currentTimeMillis() - start, baseline >> 20, peak[0] >> 20);
+        assertEquals(ROWS, count);
+        assertEquals(ROWS, output.lines);
+        assertEquals("the cursor is forward-only", ResultSet.TYPE_FORWARD_ONLY, GeneratedRows.resultSetType);
+        assertTrue("the cursor fetches in bounded chunks", GeneratedRows.fetchSize > 0 && GeneratedRows.fetchSize <= 10000);
+        assertTrue("live heap grew by " + ((peak[0] - baseline) >> 10) + " KB during the export",
+                peak[0] - baseline < MAX_GROWTH);
+    }
+
+    private static long liveHeap(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long bytes;
+        long lines;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+
+    // JDBC driver for "jdbc:generated:<rows>": every query returns that many rows in the
+    // columns and order of TransactionServiceImpl's, newest first, made as next() reaches them
+    public static final class GeneratedRows implements Driver {
+
+        static final String PREFIX = "jdbc:generated:";
+        private static final long NEWEST = 1700000000000L;
+        private static final String[] CATEGORIES = {"Groceries", "Bills", "Transportation", "Dining"};
+
+        static volatile int resultSetType = -1;
+        static volatile int fetchSize;
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            int rows = Integer.parseInt(url.substring(PREFIX.length()));
+            return proxy(Connection.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "prepareStatement":
+                        resultSetType = args.length > 1 ? (Integer) args[1] : ResultSet.TYPE_FORWARD_ONLY;
+                        return statement(rows);
+                    case "isValid":
+                    case "getAutoCommit":
+                        return true;
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        }
+
+        private static PreparedStatement statement(int rows) {
+            return proxy(PreparedStatement.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "setFetchSize":
+                        fetchSize = (Integer) args[0];
+                        return null;
+                    case "executeQuery":
+                        return resultSet(rows);
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        }
+
+        private static ResultSet resultSet(int rows) {
+            int[] row = {0};
+            return proxy(ResultSet.class, (proxy, method, args) -> {
+                int i = row[0];
+                switch (method.getName()) {
+                    case "next":
+                        return ++row[0] <= rows;
+                    case "getInt":
+                        return rows - i + 1;
+                    case "getDouble":
+                        return (i % 10000) / 100.0;
+                    case "getTimestamp":
+                        return new Timestamp(NEWEST - i * 60000L);
+                    case "getString":
+                        switch ((Integer) args[0]) {
+                            case 2:
+                                return "Transaction " + i;
+                            case 4:
+                                return i % 10 == 0 ? "income" : "expense";
+                            case 5:
+                                return CATEGORIES[i % CATEGORIES.length];
+                            case 7:
+                                return i % 3 == 0 ? null : "Note " + i;
+                            default:
+                                return "default";
+                        }
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        }
+
+        private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+            return type.cast(Proxy.newProxyInstance(GeneratedRows.class.getClassLoader(), new Class<?>[]{type}, handler));
+        }
+
+        private static Object defaultValue(Class<?> type) {
+            if (type == boolean.class) {
+                return false;
+            }
+            if (type == int.class) {
+                return 0;
+            }
+            if (type == long.class) {
+                return 0L;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url != null && url.startsWith(PREFIX);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.service;
+
+import org.example.model.Transaction;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+// The cache is bounded per segment and least-recently-used first, hands out copies, and
+// never lets a stale load or a late write replace a newer state of a row
+public class TransactionCacheTest {
+
+    // Ids 16 apart share a segment
+    private static final int SEGMENTS = 16;
+
+    @Test
+    public void eachSegmentEvictsItsLeastRecentlyUsedEntry() {
+        TransactionCache cache = new TransactionCache(2 * SEGMENTS);
+        cache.putLoaded(row(1, "a"), cache.version(1));
+        cache.putLoaded(row(1 + SEGMENTS, "b"), cache.version(1 + SEGMENTS));
+        assertNotNull("a lookup makes an entry the most recently used", cache.lookup(1));
+        cache.putLoaded(row(1 + 2 * SEGMENTS, "c"), cache.version(1 + 2 * SEGMENTS));
+
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+        assertNotNull(cache.lookup(1));
+        assertNull(cache.lookup(1 + SEGMENTS));
+        assertNotNull(cache.lookup(1 + 2 * SEGMENTS));
+    }
+
+    @Test
+    public void theSizeNeverExceedsTheBound() {
+        TransactionCache cache = new TransactionCache(100);
+        for (int id = 1; id <= 1000; id++) {
+            cache.putLoaded(row(id, "r"), cache.version(id));
+        }
+        assertEquals(100, cache.getMaxSize());
+        assertEquals("ids spread evenly fill every segment's share", 100, cache.size());
+        assertEquals(900, cache.getEvictionCount());
+    }
+
+    @Test
+    public void entriesAreCopiedInAndOut() {
+        TransactionCache cache = new TransactionCache(SEGMENTS);
+        Transaction row = row(3, "original");
+        cache.putLoaded(row, cache.version(3));
+        row.setDescription("changed after caching");
+        Transaction cached = cache.lookup(3);
+        assertEquals("original", cached.getDescription());
+        cached.setDescription("changed by a caller");
+        cached.getDate().setTime(0);
+        assertEquals("original", cache.lookup(3).getDescription());
+        assertEquals(1000L, cache.lookup(3).getDate().getTime());
+    }
+
+    @Test
+    public void aLoadRacingAWriteIsNotCached() {
+        TransactionCache cache = new TransactionCache(SEGMENTS);
+        long beforeLoad = cache.version(5);
+        cache.putWritten(row(5, "written"), TransactionVersion.get().next());
+        cache.putLoaded(row(5, "loaded before the write"), beforeLoad);
+        assertEquals("written", cache.lookup(5).getDescription());
+
+        // A load that saw no write in between is kept only if the row is not already cached
+        cache.putLoaded(row(5, "loaded"), cache.version(5));
+        assertEquals("written", cache.lookup(5).getDescription());
+
+        // Any write to the segment, not only to the row, makes a load in progress stale
+        long otherLoad = cache.version(6);
+        cache.putWritten(row(6 + SEGMENTS, "neighbour"), TransactionVersion.get().next());
+        cache.putLoaded(row(6, "stale"), otherLoad);
+        assertNull(cache.lookup(6));
+    }
+
+    @Test
+    public void aLateWriteGivesWayToANewerOne() {
+        TransactionCache cache = new TransactionCache(SEGMENTS);
+        long older = TransactionVersion.get().next();
+        long newer = TransactionVersion.get().next();
+        cache.putWritten(row(7, "newer"), newer);
+        cache.putWritten(row(7, "older"), older);
+        assertEquals("newer", cache.lookup(7).getDescription());
+    }
+
+    @Test
+    public void aWritePublishedAfterAnInvalidationIsDropped() {
+        TransactionCache cache = new TransactionCache(SEGMENTS);
+        long update = TransactionVersion.get().next();
+        // A delete committed after the update invalidates the row before the update is published
+        TransactionVersion.get().next();
+        cache.invalidate(8);
+        cache.putWritten(row(8, "update published late"), update);
+        assertNull(cache.lookup(8));
+
+        cache.putWritten(row(8, "after"), TransactionVersion.get().next());
+        assertEquals("after", cache.lookup(8).getDescription());
+    }
+
+    @Test
+    public void clearEmptiesEverySegmentAndFencesLoads() {
+        TransactionCache cache = new TransactionCache(SEGMENTS);
+        for (int id = 1; id <= SEGMENTS; id++) {
+            cache.putLoaded(row(id, "r"), cache.version(id));
+        }
+        assertEquals(SEGMENTS, cache.size());
+        long beforeClear = cache.version(9);
+        cache.clear();
+        assertEquals(0, cache.size());
+        cache.putLoaded(row(9, "loaded before the clear"), beforeClear);
+        assertNull(cache.lookup(9));
+    }
+
+    @Test
+    public void hitsAndMissesAreCounted() {
+        TransactionCache cache = new TransactionCache(SEGMENTS);
+        assertNull(cache.lookup(10));
+        cache.putLoaded(row(10, "r"), cache.version(10));
+        cache.lookup(10);
+        cache.lookup(10);
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    private static Transaction row(int id, String description) {
+        Transaction row = new Transaction(description, 1, "expense", "Other", new Date(1000L), null);
+        row.setId(id);
+        return row;
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.service;
+
+import org.example.db.ConnectionPool;
+import org.example.db.TestDatabase;
+import org.example.model.Transaction;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+// One TransactionServiceImpl shared by many threads, each creating rows and reading them
+// back: every thread must get back exactly what it wrote, and the statements open on the
+// pool's connections must not grow from one round to the next.
+public class TransactionServiceImplConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 5;
+    private static final int WRITES_PER_THREAD = 50;
+
+    @BeforeClass
+    public static void createTable() throws Exception {
+        // The aggregates are left unseeded, so the first writers seed them
+        TestDatabase.reset();
+    }
+
+    @Test
+    public void concurrentCreatesAndReadsDoNotInterfere() throws Exception {
+        TransactionServiceImpl service = new TransactionServiceImpl();
+        ConnectionPool pool = service.getPool();
+        long leaksBefore = pool.getStatementLeakCount();
+        List<Integer> openAfterRound = new ArrayList<>();
+
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                List<Future<Integer>> results = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    String owner = "thread " + t + " round " + round;
+                    results.add(threads.submit(() -> writeAndReadBack(service, owner)));
+                }
+                for (Future<Integer> result : results) {
+                    assertEquals(WRITES_PER_THREAD, (int) result.get(60, TimeUnit.SECONDS));
+                }
+                assertEquals("every connection is back in the pool", 0, pool.getActiveCount());
+                openAfterRound.add(pool.getOpenStatementCount());
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+
+        for (int open : openAfterRound) {
+            assertEquals("statements left open after a round: " + openAfterRound, 0, open);
+        }
+        assertEquals("statements closed by the pool instead of the service", leaksBefore, pool.getStatementLeakCount());
+        assertTrue("the pool never grows past its size", pool.getCreatedCount() <= pool.getMaxSize());
+    }
+
+    // Creates rows tagged with the owner and reads each back from the database, bypassing the cache
+    private static int writeAndReadBack(TransactionService service, String owner) {
+        int checked = 0;
+        for (int i = 0; i < WRITES_PER_THREAD; i++) {
+            String description = owner + " #" + i;
+            double amount = i + 0.25;
+            Transaction created = service.createTransaction(new Transaction(description, amount, "expense",
+                    "Other", new Date(1700000000000L + i * 1000L), owner));
+            assertNotNull(created);
+            assertEquals(description, created.getDescription());
+
+            TransactionCache.get().invalidate(created.getId());
+            Transaction read = service.getTransaction(Transaction.DEFAULT_ACCOUNT, created.getId());
+            assertNotNull(read);
+            assertEquals(created.getId(), read.getId());
+            assertEquals(description, read.getDescription());
+            assertEquals(amount, read.getAmount(), 0);
+            assertEquals(owner, read.getNote());
+            checked++;
+        }
+        return checked;
+    }
+}